@@ -7,8 +7,13 @@
 
 package com.activeviam.tooling.gitstats;
 
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler;
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver.Layout;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.logging.Logger;
+import lombok.Builder;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
@@ -19,7 +24,17 @@ import picocli.CommandLine.Command;
     name = "git-stats",
     mixinStandardHelpOptions = true,
     description = "Extract statistics from git repositories",
-    subcommands = {HistoryCommand.class, TreeStatsCommand.class})
+    subcommands = {
+      HistoryCommand.class,
+      TreeStatsCommand.class,
+      BatchCommand.class,
+      ShardCommand.class,
+      ServeCommand.class,
+      QueryCommand.class,
+      LookupCommand.class,
+      LineAgeCommand.class,
+      WatchCommand.class
+    })
 public class Application implements Runnable {
 
   static final Logger logger = Logger.getLogger(Application.class.getName());
@@ -33,14 +48,81 @@ public class Application implements Runnable {
     System.exit(new CommandLine(new Application()).execute(args));
   }
 
+  /**
+   * Settings of an extraction, created with {@link #builder()}. Options left unset are disabled,
+   * with a single writer per dataset and modules found from build files.
+   */
+  @Builder
   public record Config(
       Path projectDirectory,
       Path outputDirectory,
-      String branch,
+      List<String> branches,
       String startCommit,
       int count,
       IndentSpec indentSpec,
-      boolean allFiles) {}
+      boolean allFiles,
+      boolean inProcessDiff,
+      List<Period> rollups,
+      Layout moduleLayout,
+      boolean lineage,
+      CommitSampler sampler,
+      Shard shard,
+      Path spillDirectory,
+      long memoryBudget,
+      boolean offHeap,
+      boolean streaming,
+      int writers,
+      boolean ordered,
+      Path database,
+      boolean partitionByMonth,
+      boolean pathIndex,
+      List<String> commits,
+      boolean append,
+      Period sketches,
+      Coupling coupling,
+      boolean indentationRollup) {
+
+    /** Builder of the settings, with the defaults of options left unset. */
+    public static class ConfigBuilder {
+      private List<Period> rollups = List.of();
+      private Layout moduleLayout = Layout.BUILD_FILES;
+      private int writers = 1;
+    }
+
+    /** Pattern of the files of a dataset, tagged with the shard index for shard workers. */
+    public String filePattern(final String dataset) {
+      return this.shard == null
+          ? dataset + "-%04d.csv"
+          : dataset + "-s" + String.format("%03d", this.shard.index()) + "-%04d.csv";
+    }
+
+    /**
+     * Pattern of the files written by one of the writers of a dataset.
+     *
+     * <p>With several writers, each one has its own series, such as {@code changes-w03-0007.csv}.
+     * When partitioned by month, the series are in a directory per month, such as {@code
+     * changes/month=2024-05/part-0000.csv}.
+     */
+    public String filePattern(final String dataset, final int writer) {
+      if (this.partitionByMonth) {
+        // The month is passed after the file index
+        return dataset + "/month=%2$s/" + seriesPattern("part", writer);
+      }
+      return this.writers <= 1 ? filePattern(dataset) : seriesPattern(dataset, writer);
+    }
+
+    private String seriesPattern(final String name, final int writer) {
+      return this.writers <= 1
+          ? name + "-%04d.csv"
+          : name + "-w" + String.format("%02d", writer) + "-%04d.csv";
+    }
+  }
+
+  /** Part of the history processed by a shard worker, as a file listing its commits. */
+  public record Shard(int index, Path commits) {}
+
+  /** Settings of the co-change counts, commits changing more than maxFiles files being skipped. */
+  public record Coupling(int maxFiles, int top, long memoryBudget) {}
 
   public record IndentSpec(int size, char type) {
 
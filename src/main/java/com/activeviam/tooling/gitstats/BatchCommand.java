@@ -0,0 +1,78 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import lombok.val;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * @author ActiveViam
+ */
+@Command(
+    name = "batch",
+    mixinStandardHelpOptions = true,
+    description = "Extract statistics for all repositories of a manifest in a single run")
+public class BatchCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"-m", "--manifest"},
+      required = true,
+      description = "Manifest file, one 'path,branches[,count[,indent]]' entry per line")
+  private Path manifest;
+
+  @Option(
+      names = {"-o", "--output"},
+      required = true,
+      description = "Output directory, with one subdirectory per repository")
+  private Path outputDirectory;
+
+  @Option(
+      names = {"--parallel-repositories"},
+      defaultValue = "4",
+      description = "Number of repositories processed at the same time")
+  private int parallelRepositories;
+
+  @Option(
+      names = {"--max-fetches"},
+      defaultValue = "20",
+      description = "Number of concurrent commit fetches, shared by all repositories")
+  private int maxConcurrentFetches;
+
+  @Option(
+      names = {"--in-process-diff"},
+      description = "Compute additions/deletions in Java from blobs instead of git show --numstat")
+  private boolean inProcessDiff;
+
+  @Override
+  public Integer call() {
+    val entries = BatchManifest.read(this.manifest);
+    val startTime = System.nanoTime();
+    val program =
+        new BatchProgram(
+            entries,
+            this.outputDirectory,
+            this.parallelRepositories,
+            this.maxConcurrentFetches,
+            this.inProcessDiff);
+    val failures = program.run();
+    val endTime = System.nanoTime();
+    Application.logger.info(
+        "Processed "
+            + entries.size()
+            + " repositories, "
+            + failures
+            + " failed. Execution time: "
+            + TimeUnit.NANOSECONDS.toSeconds(endTime - startTime)
+            + "s");
+    return failures == 0 ? 0 : 1;
+  }
+}
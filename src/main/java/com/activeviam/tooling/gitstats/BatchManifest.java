@@ -0,0 +1,103 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.Application.IndentSpec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.val;
+
+/**
+ * List of repositories processed by the {@code batch} command.
+ *
+ * <p>Each line reads {@code path,branches[,count[,indent]]}, where branches are separated by
+ * {@code ;}. Relative paths are resolved against the manifest directory. Blank lines and lines
+ * starting with {@code #} are ignored. Tree statistics are only extracted for entries with an
+ * indent spec.
+ *
+ * @author ActiveViam
+ */
+public class BatchManifest {
+
+  private static final int DEFAULT_COUNT = 10;
+
+  private BatchManifest() {}
+
+  public record Entry(
+      String name,
+      Path projectDirectory,
+      List<String> branches,
+      int count,
+      IndentSpec indentSpec) {}
+
+  public static List<Entry> read(final Path manifest) {
+    final List<String> lines;
+    try {
+      lines = Files.readAllLines(manifest);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot read manifest " + manifest, e);
+    }
+    val baseDirectory = manifest.toAbsolutePath().getParent();
+    return parse(lines, baseDirectory);
+  }
+
+  static List<Entry> parse(final List<String> lines, final Path baseDirectory) {
+    val entries = new ArrayList<Entry>();
+    val names = new HashSet<String>();
+    for (int i = 0; i < lines.size(); i++) {
+      val line = lines.get(i).strip();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      try {
+        entries.add(parseLine(line, baseDirectory, names));
+      } catch (final IllegalArgumentException e) {
+        throw new ProgramException("Invalid manifest line " + (i + 1) + ": " + line, e);
+      }
+    }
+    return entries;
+  }
+
+  private static Entry parseLine(
+      final String line, final Path baseDirectory, final Set<String> names) {
+    val parts = line.split(",", -1);
+    if (parts.length < 2 || parts.length > 4) {
+      throw new IllegalArgumentException("Expected path,branches[,count[,indent]]");
+    }
+    val path = baseDirectory.resolve(parts[0].strip()).normalize();
+    val branches =
+        Arrays.stream(parts[1].split(";")).map(String::strip).filter(b -> !b.isEmpty()).toList();
+    if (branches.isEmpty()) {
+      throw new IllegalArgumentException("No branch");
+    }
+    val count =
+        parts.length > 2 && !parts[2].isBlank()
+            ? Integer.parseInt(parts[2].strip())
+            : DEFAULT_COUNT;
+    val indentSpec =
+        parts.length > 3 && !parts[3].isBlank() ? IndentSpec.parse(parts[3].strip()) : null;
+    return new Entry(uniqueName(path, names), path, branches, count, indentSpec);
+  }
+
+  /** Names a repository after its directory, adding a suffix on collisions. */
+  static String uniqueName(final Path path, final Set<String> names) {
+    val fileName = path.getFileName();
+    val base = fileName == null ? "repository" : fileName.toString();
+    var name = base;
+    for (int i = 2; !names.add(name); i++) {
+      name = base + "-" + i;
+    }
+    return name;
+  }
+}
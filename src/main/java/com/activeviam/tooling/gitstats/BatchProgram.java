@@ -0,0 +1,105 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.Application.Config;
+import com.activeviam.tooling.gitstats.BatchManifest.Entry;
+import com.activeviam.tooling.gitstats.internal.Threading;
+import com.activeviam.tooling.gitstats.internal.orchestration.FetchBudget;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Processes several repositories in the same JVM.
+ *
+ * <p>Repositories run concurrently, up to a fixed number at a time, and share a single {@link
+ * FetchBudget} so that the total number of git processes stays bounded whatever the number of
+ * repositories. Each repository writes into its own output subdirectory.
+ *
+ * @author ActiveViam
+ */
+@RequiredArgsConstructor
+public class BatchProgram {
+
+  private final List<Entry> entries;
+  private final Path outputDirectory;
+  private final int parallelRepositories;
+  private final int maxConcurrentFetches;
+  private final boolean inProcessDiff;
+
+  /**
+   * Runs the batch.
+   *
+   * @return the number of repositories that failed
+   */
+  public int run() {
+    val budget = new FetchBudget(this.maxConcurrentFetches);
+    val slots = new Semaphore(this.parallelRepositories);
+    val failures = new AtomicInteger();
+    Threading.execute(
+        scope -> {
+          for (val entry : this.entries) {
+            slots.acquire();
+            Threading.submit(
+                scope,
+                () -> {
+                  try {
+                    processRepository(entry, budget);
+                  } catch (final RuntimeException e) {
+                    failures.incrementAndGet();
+                    Application.logger.log(
+                        Level.SEVERE, "Failed to process " + entry.projectDirectory(), e);
+                  } finally {
+                    slots.release();
+                  }
+                });
+          }
+        });
+    return failures.get();
+  }
+
+  private void processRepository(final Entry entry, final FetchBudget budget) {
+    val startTime = System.nanoTime();
+    val outputDirectory = this.outputDirectory.resolve(entry.name());
+    new HistoryProgram(
+            Config.builder()
+                .projectDirectory(entry.projectDirectory())
+                .outputDirectory(outputDirectory)
+                .branches(entry.branches())
+                .count(entry.count())
+                .inProcessDiff(this.inProcessDiff)
+                .build(),
+            budget)
+        .run();
+    if (entry.indentSpec() != null) {
+      new TreeStatsProgram(
+              Config.builder()
+                  .projectDirectory(entry.projectDirectory())
+                  .outputDirectory(outputDirectory)
+                  .branches(entry.branches())
+                  .count(entry.count())
+                  .indentSpec(entry.indentSpec())
+                  .build(),
+              budget)
+          .run();
+    }
+    val endTime = System.nanoTime();
+    Application.logger.info(
+        "Processed "
+            + entry.name()
+            + " in "
+            + TimeUnit.NANOSECONDS.toSeconds(endTime - startTime)
+            + "s");
+  }
+}
@@ -7,11 +7,19 @@
 
 package com.activeviam.tooling.gitstats;
 
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver.Layout;
+import com.activeviam.tooling.gitstats.internal.orchestration.MemoryBudget;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import lombok.val;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
 
 /**
  * @author ActiveViam
@@ -24,17 +32,155 @@ public class HistoryCommand implements Callable<Integer> {
 
   @Mixin SharedOptions options;
 
+  @Option(
+      names = {"--in-process-diff"},
+      description = "Compute additions/deletions in Java from blobs instead of git show --numstat")
+  private boolean inProcessDiff;
+
+  @Option(
+      names = {"--rollups"},
+      split = ",",
+      description =
+          "Also aggregate changes by module and period, one of day, week or month, into"
+              + " rollup-<period> files")
+  private List<String> rollups = new ArrayList<>();
+
+  @Option(
+      names = {"--modules"},
+      defaultValue = "BUILD_FILES",
+      description =
+          "How modules are found: BUILD_FILES (directories with a pom.xml, build.gradle or"
+              + " package.json) or SOURCE_DIRECTORIES (directories containing src/main)")
+  private Layout moduleLayout;
+
+  @Option(
+      names = {"--lineage"},
+      description =
+          "Add a stable file id, following renamings, to every change and write the lineage table")
+  private boolean lineage;
+
+  @Option(
+      names = {"--spill-directory"},
+      description =
+          "Buffer fetched commits in files of this directory when writers fall behind, instead of"
+              + " slowing down fetches")
+  private Path spillDirectory;
+
+  @Option(
+      names = {"--memory-budget"},
+      description =
+          "Bound the queues between stages by the estimated size of their content, shared by all"
+              + " queues, e.g. 512m or 2g, instead of a number of elements")
+  private String memoryBudget;
+
+  @Option(
+      names = {"--streaming"},
+      description =
+          "Stream the rows of each commit from git to the writers in chunks, instead of collecting"
+              + " them first, so that huge commits do not cause memory spikes")
+  private boolean streaming;
+
+  @Option(
+      names = {"--writers"},
+      defaultValue = "1",
+      description =
+          "Number of writers per dataset, each writing its own file series, commits being routed"
+              + " to a writer by their id")
+  private int writers;
+
+  @Option(
+      names = {"--ordered"},
+      description =
+          "Write commits in traversal order, whatever the order in which their fetches complete,"
+              + " so that runs on the same history produce identical files")
+  private boolean ordered;
+
+  @Option(
+      names = {"--database"},
+      description =
+          "Write the rows into tables of an embedded SQLite database file instead of CSV files,"
+              + " appending to the tables if they exist")
+  private Path database;
+
+  @Option(
+      names = {"--partition-by-month"},
+      description =
+          "Write the files of each dataset in a directory per month of commit dates, such as"
+              + " changes/month=2024-05/part-0000.csv")
+  private boolean partitionByMonth;
+
+  @Option(
+      names = {"--path-index"},
+      description =
+          "Also write path-index.bin, indexing the commits changing each path, to be queried with"
+              + " the lookup command")
+  private boolean pathIndex;
+
+  @Option(
+      names = {"--sketches"},
+      description =
+          "Also estimate the most changed paths and modules and the distinct files changed by"
+              + " module and period, one of day, week or month, into hotspots and"
+              + " distinct-files-<period> files")
+  private String sketches;
+
+  @Option(
+      names = {"--coupling"},
+      description =
+          "Also count the commits changing each pair of files together and write the files most"
+              + " often changed with each file into coupling files")
+  private boolean coupling;
+
+  @Option(
+      names = {"--coupling-max-files"},
+      defaultValue = "50",
+      description = "Skip the commits changing more files than this when counting co-changes")
+  private int couplingMaxFiles;
+
+  @Option(
+      names = {"--coupling-top"},
+      defaultValue = "10",
+      description = "Number of coupled files written for each file")
+  private int couplingTop;
+
+  @Option(
+      names = {"--coupling-memory"},
+      defaultValue = "256m",
+      description =
+          "Memory for the co-change counts, e.g. 512m or 2g, the rarest pairs being dropped beyond")
+  private String couplingMemory;
+
   @Override
   public Integer call() {
     val config =
-        new Application.Config(
-            options.projectDirectory,
-            options.outputDirectory,
-            options.branch,
-            options.resolvedStartCommit(),
-            options.count,
-            null,
-            false);
+        Application.Config.builder()
+            .projectDirectory(options.projectDirectory)
+            .outputDirectory(options.outputDirectory)
+            .branches(options.branches)
+            .startCommit(options.startCommit)
+            .count(options.count)
+            .inProcessDiff(inProcessDiff)
+            .rollups(
+                rollups.stream()
+                    .map(name -> Period.valueOf(name.toUpperCase(Locale.ROOT)))
+                    .toList())
+            .moduleLayout(moduleLayout)
+            .lineage(lineage)
+            .spillDirectory(spillDirectory)
+            .memoryBudget(memoryBudget != null ? MemoryBudget.parseSize(memoryBudget) : 0)
+            .streaming(streaming)
+            .writers(writers)
+            .ordered(ordered)
+            .database(database)
+            .partitionByMonth(partitionByMonth)
+            .pathIndex(pathIndex)
+            .sketches(sketches == null ? null : Period.valueOf(sketches.toUpperCase(Locale.ROOT)))
+            .coupling(
+                coupling
+                    ? new Application.Coupling(
+                        couplingMaxFiles, couplingTop, MemoryBudget.parseSize(couplingMemory))
+                    : null)
+            .build();
     val startTime = System.nanoTime();
     val program = new HistoryProgram(config);
     program.run();
@@ -9,28 +9,59 @@ package com.activeviam.tooling.gitstats;
 
 import com.activeviam.tooling.gitstats.Application.Config;
 import com.activeviam.tooling.gitstats.internal.Threading;
+import com.activeviam.tooling.gitstats.internal.database.Database;
+import com.activeviam.tooling.gitstats.internal.explorer.BlobReader;
 import com.activeviam.tooling.gitstats.internal.explorer.BranchCommitReader;
+import com.activeviam.tooling.gitstats.internal.explorer.BranchMembership;
+import com.activeviam.tooling.gitstats.internal.explorer.CommitListReader;
+import com.activeviam.tooling.gitstats.internal.explorer.MultiBranchCommitReader;
 import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails;
 import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
 import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FetchMode;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileRenaming;
+import com.activeviam.tooling.gitstats.internal.index.PathIndex;
+import com.activeviam.tooling.gitstats.internal.index.PathIndexBuilder;
+import com.activeviam.tooling.gitstats.internal.lineage.FileLineage;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.orchestration.ACsvWritePipeline;
 import com.activeviam.tooling.gitstats.internal.orchestration.Action;
 import com.activeviam.tooling.gitstats.internal.orchestration.Action.Stop;
 import com.activeviam.tooling.gitstats.internal.orchestration.Action.Value;
 import com.activeviam.tooling.gitstats.internal.orchestration.BranchCsvWritePipeline;
 import com.activeviam.tooling.gitstats.internal.orchestration.ChangeCsvWriterPipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.ChunkedSink;
+import com.activeviam.tooling.gitstats.internal.orchestration.ChurnSketches;
+import com.activeviam.tooling.gitstats.internal.orchestration.CoChangeMatrix;
 import com.activeviam.tooling.gitstats.internal.orchestration.CommitCsvWritePipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.CommitDetailsSpillCodec;
+import com.activeviam.tooling.gitstats.internal.orchestration.DatabaseWritePipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.FetchBudget;
+import com.activeviam.tooling.gitstats.internal.orchestration.MemoryBudget;
+import com.activeviam.tooling.gitstats.internal.orchestration.ModuleRollup;
+import com.activeviam.tooling.gitstats.internal.orchestration.OutputManifest;
 import com.activeviam.tooling.gitstats.internal.orchestration.Queue;
 import com.activeviam.tooling.gitstats.internal.orchestration.RenameCsvWriterPipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.ReorderBuffer;
+import com.activeviam.tooling.gitstats.internal.orchestration.SpillingQueue;
+import com.activeviam.tooling.gitstats.internal.orchestration.Watermarks;
+import com.activeviam.tooling.gitstats.internal.orchestration.Weigher;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteChangesAction;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteCommits;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteRenamingAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriterShards;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 
@@ -40,12 +71,81 @@ import lombok.val;
 @RequiredArgsConstructor
 public class HistoryProgram {
 
+  /** Name of the manifest of the CSV files, in the output directory. */
+  public static final String MANIFEST_NAME = "manifest-history.json";
+
   private static final int MAX_CONCURRENT_FETCHES = 20;
 
+  /** Commits completed ahead of the oldest pending one held at most in ordered mode. */
+  private static final int REORDER_CAPACITY = 2 * MAX_CONCURRENT_FETCHES;
+
+  /** Rows of a streamed commit handed to a writer at once. */
+  private static final int STREAM_CHUNK_SIZE = 1024;
+
   private final Config config;
+  private final FetchBudget fetchBudget;
+
+  /** Inspected branch, when a single branch is inspected. */
+  private String branch;
+
+  /** Branches containing each commit, when several branches are inspected. */
+  private BranchMembership membership;
+
+  /** Shared blob readers, when the numstat is computed in process. */
+  private BlobReader.Pool blobs;
+
+  /** Module of each changed file, discovered by the run unless given. */
+  private ModuleResolver modules;
+
+  /** Shared bound of the queues, when configured. */
+  private MemoryBudget memoryBudget;
+
+  /** Identity of files across renamings, when requested. */
+  private FileLineage lineage;
+
+  /** Aggregates computed while fetching, one per requested period. */
+  private List<ModuleRollup> rollups;
+
+  /** Streaming sketches of the hotspots, when requested. */
+  private ChurnSketches sketches;
+
+  /** Counts of the files changed together, when requested. */
+  private CoChangeMatrix coupling;
+
+  /** Database receiving the rows instead of CSV files, when configured. */
+  private Database database;
+
+  /** Index of the commits changing each path, when requested. */
+  private PathIndexBuilder pathIndex;
 
-  private <T> Queue<Action<T>> queueOf(final int capacity) {
-    return new Queue<>(capacity);
+  /**
+   * Manifest of the CSV files, unless written into a database, by a shard worker or appended to
+   * existing files.
+   */
+  private OutputManifest manifest;
+
+  /** Last file of each series of CSV files, unless written into a database or by a shard worker. */
+  private Watermarks watermarks;
+
+  public HistoryProgram(final Config config) {
+    this(config, new FetchBudget(MAX_CONCURRENT_FETCHES));
+  }
+
+  /** Uses a resolver of the modules instead of discovering them, as when extracting repeatedly. */
+  public HistoryProgram withModules(final ModuleResolver modules) {
+    this.modules = modules;
+    return this;
+  }
+
+  private <T> Queue<Action<T>> queueOf(final String name, final Weigher<T> weigher) {
+    return this.memoryBudget != null ? this.memoryBudget.queue(name, weigher) : new Queue<>(20);
+  }
+
+  /** Queue of fetched commits, spilling to disk when configured so that fetches never wait. */
+  private Queue<Action<CommitDetails>> createDetailsQueue() {
+    return this.config.spillDirectory() != null
+        ? new SpillingQueue<>(20, this.config.spillDirectory(), new CommitDetailsSpillCodec())
+        : queueOf("details", Weigher.COMMIT_DETAILS);
   }
 
   public void run() {
@@ -54,43 +154,273 @@ public class HistoryProgram {
     } catch (IOException e) {
       throw new RuntimeException("Failed to create output directory", e);
     }
+    if (this.config.writers() < 1) {
+      throw new ProgramException("At least one writer per dataset is required");
+    }
+    if (this.config.partitionByMonth() && this.config.database() != null) {
+      throw new ProgramException("A database cannot be partitioned by month");
+    }
+    this.memoryBudget =
+        this.config.memoryBudget() > 0 ? new MemoryBudget(this.config.memoryBudget()) : null;
 
+    this.blobs =
+        this.config.inProcessDiff() ? new BlobReader.Pool(this.config.projectDirectory()) : null;
+    val branches =
+        MultiBranchCommitReader.resolveBranches(
+            this.config.projectDirectory(), this.config.branches());
+    if (this.modules == null) {
+      this.modules =
+          ModuleResolver.create(
+              this.config.moduleLayout(),
+              this.config.projectDirectory(),
+              this.config.startCommit() != null ? List.of(this.config.startCommit()) : branches,
+              this.config.count());
+    }
+    this.lineage = this.config.lineage() ? readLineage(branches) : null;
+    this.rollups =
+        this.config.rollups().stream()
+            .map(period -> new ModuleRollup(period, this.modules))
+            .toList();
+    this.sketches =
+        this.config.sketches() != null
+            ? new ChurnSketches(this.config.sketches(), this.modules)
+            : null;
+    this.pathIndex =
+        this.config.pathIndex()
+            ? new PathIndexBuilder(this.config.outputDirectory().resolve(PathIndex.FILE_NAME))
+            : null;
+    this.database = this.config.database() != null ? Database.open(this.config.database()) : null;
+    val csv = this.config.database() == null && this.config.shard() == null;
+    this.manifest =
+        csv && !this.config.append()
+            ? new OutputManifest(this.config.outputDirectory(), MANIFEST_NAME)
+            : null;
+    if (csv && this.config.append()) {
+      // Appended rows are not described, readers must not skip files on stale statistics
+      deleteManifest();
+    }
+    if (csv) {
+      this.watermarks =
+          this.config.append()
+              ? Watermarks.read(this.config.outputDirectory())
+              : new Watermarks(this.config.outputDirectory());
+    }
+    // Last, its workers being stopped by the finally block
+    this.coupling =
+        this.config.coupling() != null
+            ? new CoChangeMatrix(
+                this.config.coupling().maxFiles(),
+                this.config.coupling().top(),
+                this.config.coupling().memoryBudget(),
+                Runtime.getRuntime().availableProcessors())
+            : null;
+    try {
+      if (this.config.streaming()) {
+        streamHistory(branches);
+      } else {
+        collectHistory(branches);
+      }
+    } finally {
+      if (this.blobs != null) {
+        this.blobs.close();
+      }
+      if (this.database != null) {
+        this.database.close();
+      }
+      if (this.coupling != null) {
+        this.coupling.close();
+      }
+    }
+    writeRollups();
+    if (this.sketches != null) {
+      writeSketches();
+    }
+    if (this.coupling != null) {
+      writeCoupling();
+    }
+    if (this.pathIndex != null) {
+      this.pathIndex.write();
+    }
+    if (this.memoryBudget != null) {
+      this.memoryBudget.report();
+    }
+  }
+
+  /** Fetches whole commits, dispatched to the writers once complete. */
+  private void collectHistory(final List<String> branches) {
+    try (val detailsOutput = createDetailsQueue()) {
+      val ordering =
+          this.config.ordered()
+              ? new ReorderBuffer<CommitDetails>(
+                  REORDER_CAPACITY, details -> detailsOutput.put(Action.value(details)))
+              : null;
+      Threading.execute(
+          scope -> {
+            final var commitOutput = this.queueOf("commit-ids", Weigher.COMMIT_ID);
+            Threading.submit(scope, createCommitReader(branches, commitOutput));
+            Threading.submit(
+                scope,
+                () -> {
+                  processCommits(
+                      commitOutput,
+                      ordering,
+                      (commit, sequence) ->
+                          fetchCommit(
+                              ordering != null
+                                  ? details -> ordering.complete(sequence, details)
+                                  : details -> detailsOutput.put(Action.value(details)),
+                              commit));
+                  detailsOutput.put(Action.stop());
+                });
+            Threading.submit(scope, () -> processDetailsToCsv(detailsOutput));
+          });
+      if (ordering != null) {
+        ordering.report();
+      }
+    }
+  }
+
+  /** Fetches commits as chunks of rows, handed to the writers while git outputs them. */
+  private void streamHistory(final List<String> branches) {
+    if (this.config.spillDirectory() != null) {
+      throw new ProgramException("Streamed commits cannot be spilled to disk");
+    }
+    if (this.config.ordered()) {
+      throw new ProgramException("Streamed commits cannot be ordered");
+    }
     Threading.execute(
         scope -> {
-          final var commitOutput = this.<String>queueOf(20);
-          final var detailsOutput = this.<CommitDetails>queueOf(20);
-          val branchCommitReader =
-              new BranchCommitReader(
-                  this.config.projectDirectory(),
-                  this.config.branch(),
-                  this.config.startCommit(),
-                  this.config.count(),
-                  commitOutput);
-          Threading.submit(scope, branchCommitReader::run);
-          Threading.submit(scope, () -> processCommits(commitOutput, detailsOutput));
-          Threading.submit(scope, () -> processDetailsToCsv(detailsOutput));
+          final var commitOutput = this.queueOf("commit-ids", Weigher.COMMIT_ID);
+          Threading.submit(scope, createCommitReader(branches, commitOutput));
+          val writers = startWriters(scope);
+          Threading.submit(
+              scope,
+              () -> {
+                processCommits(commitOutput, null, (commit, _) -> streamCommit(writers, commit));
+                writers.stop();
+              });
         });
   }
 
+  private void writeRollups() {
+    for (val rollup : this.rollups) {
+      val file =
+          this.config
+              .outputDirectory()
+              .resolve(String.format(this.config.filePattern(rollup.dataset()), 0));
+      try {
+        rollup.write(file);
+      } catch (final IOException e) {
+        throw new ProgramException("Failed to write " + file, e);
+      }
+    }
+  }
+
+  private void writeSketches() {
+    val hotspots =
+        this.config
+            .outputDirectory()
+            .resolve(String.format(this.config.filePattern("hotspots"), 0));
+    val distinctFiles =
+        this.config
+            .outputDirectory()
+            .resolve(
+                String.format(this.config.filePattern(this.sketches.distinctFilesDataset()), 0));
+    try {
+      this.sketches.writeHotspots(hotspots);
+      this.sketches.writeDistinctFiles(distinctFiles);
+    } catch (final IOException e) {
+      throw new ProgramException("Failed to write the sketches into " + hotspots.getParent(), e);
+    }
+  }
+
+  private void writeCoupling() {
+    val file =
+        this.config
+            .outputDirectory()
+            .resolve(String.format(this.config.filePattern("coupling"), 0));
+    try {
+      this.coupling.write(file);
+    } catch (final IOException e) {
+      throw new ProgramException("Failed to write " + file, e);
+    }
+  }
+
+  private FileLineage readLineage(final List<String> branches) {
+    return FileLineage.create(
+        this.config.projectDirectory(),
+        branches,
+        this.config.startCommit(),
+        this.config.count(),
+        this.config
+            .outputDirectory()
+            .resolve(String.format(this.config.filePattern("lineage"), 0)));
+  }
+
+  private Runnable createCommitReader(
+      final List<String> branches, final Queue<Action<String>> output) {
+    if (branches.size() == 1) {
+      this.branch = branches.getFirst();
+      if (this.config.commits() != null) {
+        return () -> {
+          this.config.commits().forEach(commit -> output.put(Action.value(commit)));
+          output.put(Action.stop());
+        };
+      }
+      if (this.config.shard() != null) {
+        return new CommitListReader(this.config.shard().commits(), output)::run;
+      }
+      val branchCommitReader =
+          new BranchCommitReader(
+              this.config.projectDirectory(),
+              this.branch,
+              Objects.requireNonNullElse(this.config.startCommit(), this.branch),
+              this.config.count(),
+              output);
+      return branchCommitReader::run;
+    }
+    if (this.config.startCommit() != null) {
+      throw new ProgramException("A start commit cannot be used with several branches");
+    }
+    this.membership = new BranchMembership(branches);
+    val multiBranchCommitReader =
+        new MultiBranchCommitReader(
+            this.config.projectDirectory(), this.membership, this.config.count(), output);
+    return multiBranchCommitReader::run;
+  }
+
+  /**
+   * Forks the fetch of every commit, numbered in traversal order.
+   *
+   * @param ordering buffer restoring the traversal order, waited for before forking a fetch, or
+   *     {@code null}
+   */
   private void processCommits(
-      final Queue<Action<String>> input, final Queue<Action<CommitDetails>> output) {
-    final var semaphore = new Semaphore(MAX_CONCURRENT_FETCHES);
+      final Queue<Action<String>> input,
+      final ReorderBuffer<?> ordering,
+      final ObjLongConsumer<String> fetcher) {
+    final var permits = this.fetchBudget.register(this.config.projectDirectory().toString());
     Threading.execute(
         scope -> {
           String lastCommit = null;
+          long count = 0;
           while (true) {
             val action = input.take();
             switch (action) {
               case Value(final var commit) -> {
                 lastCommit = commit;
-                semaphore.acquire();
+                final long sequence = count++;
+                if (ordering != null) {
+                  ordering.reserve(sequence);
+                }
+                permits.acquire();
                 Threading.submit(
                     scope,
                     () -> {
                       try {
-                        fetchCommit(output, commit);
+                        fetcher.accept(commit, sequence);
                       } finally {
-                        semaphore.release();
+                        permits.release();
                       }
                     });
               }
@@ -101,68 +431,88 @@ public class HistoryProgram {
             }
           }
         });
-    output.put(Action.stop());
+    permits.unregister();
   }
 
   private final Set<String> commits = Collections.synchronizedSet(new HashSet<>());
 
-  private void fetchCommit(Queue<Action<CommitDetails>> output, String commit) {
+  private void fetchCommit(final Consumer<CommitDetails> output, final String commit) {
     commits.add(commit);
     val reader =
-        new ReadCommitDetails(this.config.projectDirectory(), commit, null, FetchMode.HISTORY);
+        new ReadCommitDetails(
+            this.config.projectDirectory(), commit, null, FetchMode.HISTORY, false, this.blobs);
     val details = reader.read();
-    output.put(Action.value(details));
+    this.rollups.forEach(rollup -> rollup.add(details));
+    if (this.sketches != null) {
+      this.sketches.add(details);
+    }
+    if (this.coupling != null) {
+      this.coupling.add(details.fileChanges());
+    }
+    if (this.pathIndex != null) {
+      this.pathIndex.add(details.commit(), details.fileChanges());
+    }
+    output.accept(details);
+    commits.remove(commit);
+  }
+
+  private void streamCommit(final Writers writers, final String commit) {
+    commits.add(commit);
+    val reader =
+        new ReadCommitDetails(
+            this.config.projectDirectory(), commit, null, FetchMode.HISTORY, false, this.blobs);
+    val info = new CommitInfo(commit, reader.readCommitDate());
+    val touchedModules = this.rollups.stream().map(_ -> new HashSet<Integer>()).toList();
+    // Changes of the commit for the co-changes, no longer collected once the commit is too large
+    val coupled = new ArrayList<FileChanges>();
+    try (val changes =
+            new ChunkedSink<FileChanges>(
+                STREAM_CHUNK_SIZE,
+                chunk -> {
+                  val part = new CommitDetails(info, chunk, List.of(), List.of(), List.of());
+                  for (int i = 0; i < this.rollups.size(); i++) {
+                    this.rollups.get(i).add(part, touchedModules.get(i));
+                  }
+                  if (this.sketches != null) {
+                    this.sketches.add(part);
+                  }
+                  if (this.coupling != null && coupled.size() <= this.coupling.maxFiles()) {
+                    coupled.addAll(chunk);
+                  }
+                  if (this.pathIndex != null) {
+                    this.pathIndex.add(info, chunk);
+                  }
+                  writers.changes().put(commit, new WriteChangesAction(List.of(part)));
+                });
+        val renamings =
+            new ChunkedSink<FileRenaming>(
+                STREAM_CHUNK_SIZE,
+                chunk -> {
+                  val part = new CommitDetails(info, List.of(), chunk, List.of(), List.of());
+                  writers.renamings().put(commit, new WriteRenamingAction(List.of(part)));
+                })) {
+      reader.streamHistory(changes, renamings);
+    }
+    if (this.coupling != null) {
+      this.coupling.add(coupled);
+    }
+    writers.writeCommit(info);
     commits.remove(commit);
   }
 
   private void processDetailsToCsv(final Queue<Action<CommitDetails>> input) {
     Threading.execute(
         scope -> {
-          val branchQueue = new Queue<Action<WriteCommits>>(20);
-          val branchWriter =
-              new BranchCsvWritePipeline(
-                  branchQueue,
-                  this.config.outputDirectory(),
-                  "branches-%04d.csv",
-                  this.config.branch());
-          Threading.submit(scope, branchWriter);
-
-          val changeQueue = new Queue<Action<WriteChangesAction>>(20);
-          val changeWriter =
-              new ChangeCsvWriterPipeline(
-                  changeQueue, this.config.outputDirectory(), "changes-%04d.csv");
-          Threading.submit(scope, changeWriter);
-
-          val commitQueue = new Queue<Action<WriteCommits>>(20);
-          val commitWriter =
-              new CommitCsvWritePipeline(
-                  commitQueue, this.config.outputDirectory(), "commits-%04d.csv");
-          Threading.submit(scope, commitWriter);
-
-          val renameQueue = new Queue<Action<WriteRenamingAction>>(20);
-          val renameWriter =
-              new RenameCsvWriterPipeline(
-                  renameQueue, this.config.outputDirectory(), "renamings-%04d.csv");
-          Threading.submit(scope, renameWriter);
-
+          val writers = startWriters(scope);
           Threading.submit(
               scope,
               () -> {
                 while (true) {
                   final var action = input.take();
                   switch (action) {
-                    case Value(final var details) -> {
-                      final var writeCommits = new WriteCommits(List.of(details.commit()));
-                      branchQueue.put(new Value<>(writeCommits));
-                      commitQueue.put(new Value<>(writeCommits));
-                      changeQueue.put(new Value<>(new WriteChangesAction(List.of(details))));
-                      renameQueue.put(new Value<>(new WriteRenamingAction(List.of(details))));
-                    }
+                    case Value(final var details) -> writers.write(details);
                     case Stop<?> _ -> {
-                      branchQueue.put(Stop.create());
-                      commitQueue.put(Stop.create());
-                      changeQueue.put(Stop.create());
-                      renameQueue.put(Stop.create());
+                      writers.stop();
                       return;
                     }
                   }
@@ -170,4 +520,123 @@ public class HistoryProgram {
               });
         });
   }
+
+  private Writers startWriters(final StructuredTaskScope<?, ?> scope) {
+    val branchQueues = writerQueues("branches", Weigher.COMMITS);
+    val changeQueues = writerQueues("changes", Weigher.CHANGES);
+    val commitQueues = writerQueues("commits", Weigher.COMMITS);
+    val renameQueues = writerQueues("renamings", Weigher.RENAMINGS);
+    for (int i = 0; i < this.config.writers(); i++) {
+      if (this.database != null) {
+        Threading.submit(
+            scope,
+            this.membership != null
+                ? DatabaseWritePipeline.branches(
+                    branchQueues.queue(i), this.database, this.membership)
+                : DatabaseWritePipeline.branches(
+                    branchQueues.queue(i), this.database, this.branch));
+        Threading.submit(
+            scope,
+            DatabaseWritePipeline.changes(
+                changeQueues.queue(i), this.database, this.modules, this.lineage));
+        Threading.submit(
+            scope, DatabaseWritePipeline.commits(commitQueues.queue(i), this.database));
+        Threading.submit(
+            scope, DatabaseWritePipeline.renamings(renameQueues.queue(i), this.database));
+        continue;
+      }
+      val branchWriter =
+          this.membership != null
+              ? new BranchCsvWritePipeline(
+                  branchQueues.queue(i),
+                  this.config.outputDirectory(),
+                  this.config.filePattern("branches", i),
+                  this.membership)
+              : new BranchCsvWritePipeline(
+                  branchQueues.queue(i),
+                  this.config.outputDirectory(),
+                  this.config.filePattern("branches", i),
+                  this.branch);
+      Threading.submit(scope, configured(branchWriter));
+
+      val changeWriter =
+          new ChangeCsvWriterPipeline(
+              changeQueues.queue(i),
+              this.config.outputDirectory(),
+              this.config.filePattern("changes", i),
+              this.modules,
+              this.lineage);
+      Threading.submit(scope, configured(changeWriter));
+
+      val commitWriter =
+          new CommitCsvWritePipeline(
+              commitQueues.queue(i),
+              this.config.outputDirectory(),
+              this.config.filePattern("commits", i));
+      Threading.submit(scope, configured(commitWriter));
+
+      val renameWriter =
+          new RenameCsvWriterPipeline(
+              renameQueues.queue(i),
+              this.config.outputDirectory(),
+              this.config.filePattern("renamings", i));
+      Threading.submit(scope, configured(renameWriter));
+    }
+    return new Writers(branchQueues, changeQueues, commitQueues, renameQueues);
+  }
+
+  private void deleteManifest() {
+    try {
+      Files.deleteIfExists(this.config.outputDirectory().resolve(MANIFEST_NAME));
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot delete the manifest of the appended files", e);
+    }
+  }
+
+  private Runnable configured(final ACsvWritePipeline<?> writer) {
+    if (this.manifest != null) {
+      writer.withManifest(this.manifest);
+    }
+    if (this.watermarks != null) {
+      writer.withWatermarks(this.watermarks);
+    }
+    if (this.config.append()) {
+      writer.appendToExisting();
+    }
+    return this.config.partitionByMonth() ? writer.partitionByMonth() : writer;
+  }
+
+  private <T> WriterShards<T> writerQueues(final String dataset, final Weigher<T> weigher) {
+    return new WriterShards<>(
+        this.config.writers(),
+        i -> queueOf(this.config.writers() > 1 ? dataset + "-w" + i : dataset, weigher));
+  }
+
+  /** Input queues of the writers of each dataset. */
+  private record Writers(
+      WriterShards<WriteCommits> branches,
+      WriterShards<WriteChangesAction> changes,
+      WriterShards<WriteCommits> commits,
+      WriterShards<WriteRenamingAction> renamings) {
+
+    void write(final CommitDetails details) {
+      val commit = details.commit().sha1();
+      writeCommit(details.commit());
+      this.changes.put(commit, new WriteChangesAction(List.of(details)));
+      this.renamings.put(commit, new WriteRenamingAction(List.of(details)));
+    }
+
+    void writeCommit(final CommitInfo commit) {
+      final var writeCommits = new WriteCommits(List.of(commit));
+      this.branches.put(commit.sha1(), writeCommits);
+      this.commits.put(commit.sha1(), writeCommits);
+    }
+
+    void stop() {
+      this.branches.stop();
+      this.commits.stop();
+      this.changes.stop();
+      this.renamings.stop();
+    }
+  }
 }
@@ -0,0 +1,70 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver.Layout;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import lombok.val;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+
+/**
+ * @author ActiveViam
+ */
+@Command(
+    name = "line-age",
+    mixinStandardHelpOptions = true,
+    description = "Compute the age distribution of the lines of a branch over its history")
+public class LineAgeCommand implements Callable<Integer> {
+
+  @Mixin SharedOptions options;
+
+  @Option(
+      names = {"--sample"},
+      description =
+          "Commits at which ages are reported: every:<n>, daily, weekly, monthly (last commit of"
+              + " each period) or samples:<n> (evenly spaced). Defaults to the most recent commit")
+  private String sampling;
+
+  @Option(
+      names = {"--per-file"},
+      description = "Also write the distribution of every file into line-age-files")
+  private boolean perFile;
+
+  @Option(
+      names = {"--modules"},
+      defaultValue = "BUILD_FILES",
+      description =
+          "How modules are found: BUILD_FILES (directories with a pom.xml, build.gradle or"
+              + " package.json) or SOURCE_DIRECTORIES (directories containing src/main)")
+  private Layout moduleLayout;
+
+  @Override
+  public Integer call() {
+    val config =
+        Application.Config.builder()
+            .projectDirectory(options.projectDirectory)
+            .outputDirectory(options.outputDirectory)
+            .branches(options.branches)
+            .startCommit(options.startCommit)
+            .count(options.count)
+            .moduleLayout(moduleLayout)
+            .sampler(sampling != null ? CommitSampler.parse(sampling) : null)
+            .build();
+    val startTime = System.nanoTime();
+    val program = new LineAgeProgram(config, perFile);
+    program.run();
+    val endTime = System.nanoTime();
+    Application.logger.info(
+        "Execution time: " + TimeUnit.NANOSECONDS.toSeconds(endTime - startTime) + "s");
+    return 0;
+  }
+}
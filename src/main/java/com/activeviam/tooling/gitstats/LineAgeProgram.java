@@ -0,0 +1,169 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.Application.Config;
+import com.activeviam.tooling.gitstats.internal.age.LineAgeEngine;
+import com.activeviam.tooling.gitstats.internal.explorer.MultiBranchCommitReader;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell.Output;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader;
+import com.activeviam.tooling.gitstats.internal.shell.TimestampedCommitReader;
+import com.activeviam.tooling.gitstats.internal.shell.TimestampedCommitReader.TimestampedCommit;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Computes the age of the lines of a branch over its history.
+ *
+ * <p>The first-parent history is replayed once, oldest commit first, by a {@link LineAgeEngine}.
+ * Distributions are written for the commits selected by the sampler, or only for the most recent
+ * commit without sampler.
+ *
+ * @author ActiveViam
+ */
+@RequiredArgsConstructor
+@Log
+public class LineAgeProgram {
+
+  private final Config config;
+  private final boolean perFile;
+
+  public void run() {
+    try {
+      Files.createDirectories(this.config.outputDirectory());
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to create output directory", e);
+    }
+    val branches =
+        MultiBranchCommitReader.resolveBranches(
+            this.config.projectDirectory(), this.config.branches());
+    if (branches.size() != 1) {
+      throw new ProgramException("Line ages can only be computed for a single branch");
+    }
+    val startCommit = Objects.requireNonNullElse(this.config.startCommit(), branches.getFirst());
+    val history = readHistory(startCommit);
+    if (history.isEmpty()) {
+      throw new ProgramException("No commit to replay from " + startCommit);
+    }
+    val samples = selectSamples(history);
+    val modules =
+        ModuleResolver.create(
+            this.config.moduleLayout(),
+            this.config.projectDirectory(),
+            List.of(startCommit),
+            this.config.count());
+
+    val moduleFile = outputFile("line-age-modules");
+    try (val moduleWriter = new PrintWriter(Files.newBufferedWriter(moduleFile));
+        val fileWriter =
+            this.perFile
+                ? new PrintWriter(Files.newBufferedWriter(outputFile("line-age-files")))
+                : null) {
+      val engine = new LineAgeEngine(samples, modules, moduleWriter, fileWriter);
+      readParent(history.getLast().sha1()).ifPresent(parent -> initialize(engine, parent));
+      replay(engine, startCommit);
+      log.log(
+          Level.INFO,
+          "Replayed {0} commits, {1} sampled",
+          new Object[] {history.size(), engine.emitted()});
+    } catch (final IOException e) {
+      throw new ProgramException("Failed to write " + moduleFile, e);
+    }
+  }
+
+  private Path outputFile(final String dataset) {
+    return this.config
+        .outputDirectory()
+        .resolve(String.format(this.config.filePattern(dataset), 0));
+  }
+
+  /** Lists the replayed commits, newest first. */
+  private List<TimestampedCommit> readHistory(final String startCommit) {
+    val process =
+        Shell.startDiscardingStderr(
+            TimestampedCommitReader.getFirstParentCommand(startCommit, this.config.count()),
+            this.config.projectDirectory());
+    return Output.consumeStdout(
+        process,
+        reader ->
+            reader
+                .lines()
+                .filter(line -> !line.isBlank())
+                .map(TimestampedCommitReader::parseLine)
+                .toList());
+  }
+
+  private Set<String> selectSamples(final List<TimestampedCommit> history) {
+    val sampler = this.config.sampler();
+    if (sampler == null) {
+      return Set.of(history.getFirst().sha1());
+    }
+    val filter = sampler.start(history.size());
+    val samples = new HashSet<String>();
+    for (final var commit : history) {
+      if (filter.accept(commit.date())) {
+        samples.add(commit.sha1());
+      }
+    }
+    return samples;
+  }
+
+  private Optional<String> readParent(final String commit) {
+    val output =
+        Output.readStream(
+            Shell.execute(HunkReader.getParentsCommand(commit), this.config.projectDirectory())
+                .stdout());
+    val parts = output.trim().split(" ");
+    return parts.length > 1 ? Optional.of(parts[1]) : Optional.empty();
+  }
+
+  private void initialize(final LineAgeEngine engine, final String commit) {
+    val process =
+        Shell.startDiscardingStderr(
+            HunkReader.getLineCountCommand(commit), this.config.projectDirectory());
+    Output.consumeStdout(
+        process,
+        reader -> {
+          reader
+              .lines()
+              .map(HunkReader::parseLineCount)
+              .flatMap(Optional::stream)
+              .forEach(count -> engine.initialize(count.path(), count.lines()));
+          return null;
+        });
+  }
+
+  private void replay(final LineAgeEngine engine, final String startCommit) {
+    val process =
+        Shell.startDiscardingStderr(
+            HunkReader.getCommand(startCommit, this.config.count()),
+            this.config.projectDirectory());
+    Output.consumeStdout(
+        process,
+        reader -> {
+          val parser = new HunkReader.Parser(engine);
+          reader.lines().forEach(parser::accept);
+          parser.finish();
+          engine.finish();
+          return null;
+        });
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.index.PathIndex;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import lombok.val;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/**
+ * @author ActiveViam
+ */
+@Command(
+    name = "lookup",
+    mixinStandardHelpOptions = true,
+    description = "List the commits changing files, from the path index of a history output")
+public class LookupCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"-o", "--output"},
+      required = true,
+      description = "Output directory of a history extraction run with --path-index")
+  private Path outputDirectory;
+
+  @Option(
+      names = {"--prefix"},
+      description = "Match all the paths starting with the given ones, such as directories")
+  private boolean prefix;
+
+  @Parameters(arity = "1..*", paramLabel = "PATH", description = "Paths to look up")
+  private List<String> paths = new ArrayList<>();
+
+  @Override
+  public Integer call() {
+    val start = System.nanoTime();
+    int rows = 0;
+    try (val index = PathIndex.open(this.outputDirectory.resolve(PathIndex.FILE_NAME))) {
+      System.out.println("path,commit,timestamp,date");
+      for (val path : this.paths) {
+        final int from;
+        final int to;
+        if (this.prefix) {
+          val range = index.prefixRange(path);
+          from = range[0];
+          to = range[1];
+        } else {
+          from = index.find(path);
+          to = from < 0 ? from : from + 1;
+        }
+        for (int entry = from; entry < to; entry++) {
+          rows += print(index, entry);
+        }
+      }
+    }
+    Application.logger.info(
+        "Found "
+            + rows
+            + " changes in "
+            + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)
+            + "us");
+    return 0;
+  }
+
+  /** Prints the commits changing the path of an entry, the latest first. */
+  private static int print(final PathIndex index, final int entry) {
+    val path = index.path(entry);
+    val commits = new ArrayList<CommitInfo>();
+    for (final int number : index.commits(entry)) {
+      commits.add(index.commit(number));
+    }
+    commits.sort(Comparator.comparing(CommitInfo::date).reversed().thenComparing(CommitInfo::sha1));
+    for (val commit : commits) {
+      System.out.println(
+          path
+              + ","
+              + commit.sha1()
+              + ","
+              + commit.date().getEpochSecond()
+              + ","
+              + commit.date().atOffset(ZoneOffset.UTC).toLocalDate());
+    }
+    return commits.size();
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.internal.query.Aggregation;
+import com.activeviam.tooling.gitstats.internal.query.Aggregation.Dimension;
+import com.activeviam.tooling.gitstats.internal.query.Aggregation.Measure;
+import com.activeviam.tooling.gitstats.internal.query.ChangeTableLoader;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.val;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * @author ActiveViam
+ */
+@Command(
+    name = "query",
+    mixinStandardHelpOptions = true,
+    description = "Aggregate the changes of a history output in memory, printing CSV rows")
+public class QueryCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"-o", "--output"},
+      required = true,
+      description = "Output directory of a history extraction")
+  private Path outputDirectory;
+
+  @Option(
+      names = {"-g", "--group-by"},
+      split = ",",
+      description = "Up to 2 of: commit, module, path, day, week, month, year")
+  private List<String> groupBy = new ArrayList<>();
+
+  @Option(
+      names = {"-w", "--where"},
+      description =
+          "Filter as <commit|module|path>=<value>, repeated. Paths match by prefix, others exactly")
+  private List<String> conditions = new ArrayList<>();
+
+  @Option(
+      names = {"--since"},
+      description = "First day to include, as yyyy-MM-dd (UTC)")
+  private LocalDate since;
+
+  @Option(
+      names = {"--until"},
+      description = "First day to exclude, as yyyy-MM-dd (UTC)")
+  private LocalDate until;
+
+  @Option(
+      names = {"--order-by"},
+      defaultValue = "churn",
+      description = "Measure sorting the groups, decreasing: changes, additions, deletions, churn")
+  private String orderBy;
+
+  @Option(
+      names = {"--top"},
+      defaultValue = "" + Integer.MAX_VALUE,
+      description = "Number of groups to print")
+  private int top;
+
+  @Override
+  public Integer call() {
+    val dimensions = this.groupBy.stream().map(name -> parse(Dimension.class, name)).toList();
+    val aggregation = new Aggregation(dimensions);
+    for (val condition : this.conditions) {
+      val separator = condition.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException(
+            "Invalid filter, expected <dimension>=<value>: " + condition);
+      }
+      aggregation.where(
+          parse(Dimension.class, condition.substring(0, separator)),
+          condition.substring(separator + 1));
+    }
+    if (this.since != null) {
+      aggregation.since(this.since.atStartOfDay().toEpochSecond(ZoneOffset.UTC));
+    }
+    if (this.until != null) {
+      aggregation.until(this.until.atStartOfDay().toEpochSecond(ZoneOffset.UTC));
+    }
+    aggregation.top(parse(Measure.class, this.orderBy), this.top);
+
+    val loadStart = System.nanoTime();
+    val table = ChangeTableLoader.load(this.outputDirectory);
+    val queryStart = System.nanoTime();
+    val rows = aggregation.execute(table);
+    val end = System.nanoTime();
+
+    val header = new ArrayList<String>();
+    dimensions.forEach(dimension -> header.add(dimension.name().toLowerCase(Locale.ROOT)));
+    Arrays.stream(Measure.values())
+        .forEach(measure -> header.add(measure.name().toLowerCase(Locale.ROOT)));
+    System.out.println(String.join(",", header));
+    for (val row : rows) {
+      System.out.println(
+          String.join(",", row.keys())
+              + (row.keys().isEmpty() ? "" : ",")
+              + Arrays.stream(row.values())
+                  .mapToObj(String::valueOf)
+                  .collect(Collectors.joining(",")));
+    }
+    Application.logger.info(
+        "Loaded "
+            + table.size()
+            + " changes in "
+            + TimeUnit.NANOSECONDS.toMillis(queryStart - loadStart)
+            + "ms, aggregated in "
+            + TimeUnit.NANOSECONDS.toMillis(end - queryStart)
+            + "ms");
+    return 0;
+  }
+
+  private static <E extends Enum<E>> E parse(final Class<E> type, final String name) {
+    return Enum.valueOf(type, name.strip().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.internal.orchestration.FetchBudget;
+import com.activeviam.tooling.gitstats.internal.server.QueryServer;
+import com.activeviam.tooling.gitstats.internal.server.RepositoryState;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import lombok.val;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * @author ActiveViam
+ */
+@Command(
+    name = "serve",
+    mixinStandardHelpOptions = true,
+    description = "Serve history and tree statistics of repositories over a local HTTP API")
+public class ServeCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"-p", "--project"},
+      required = true,
+      description = "Repository to serve, can be repeated. Queried by its directory name")
+  private List<Path> projectDirectories;
+
+  @Option(
+      names = {"--bind"},
+      defaultValue = "127.0.0.1",
+      description = "Address to listen on")
+  private String bindAddress;
+
+  @Option(
+      names = {"--port"},
+      defaultValue = "8080",
+      description = "Port to listen on")
+  private int port;
+
+  @Option(
+      names = {"--max-fetches"},
+      defaultValue = "20",
+      description = "Number of concurrent commit fetches, shared by all requests")
+  private int maxConcurrentFetches;
+
+  @Option(
+      names = {"--cache-size"},
+      defaultValue = "10000",
+      description = "Number of fetched commits kept in memory per repository")
+  private int cacheSize;
+
+  @Override
+  public Integer call() throws InterruptedException {
+    val budget = new FetchBudget(this.maxConcurrentFetches);
+    val names = new HashSet<String>();
+    val repositories = new ArrayList<RepositoryState>();
+    try {
+      for (val directory : this.projectDirectories) {
+        val name = BatchManifest.uniqueName(directory, names);
+        repositories.add(new RepositoryState(name, directory, budget, this.cacheSize));
+        Application.logger.info("Serving " + directory + " as " + name);
+      }
+      try (val server =
+          new QueryServer(new InetSocketAddress(this.bindAddress, this.port), repositories)) {
+        server.start();
+        // Runs until the process is stopped
+        new CountDownLatch(1).await();
+      }
+    } finally {
+      repositories.forEach(RepositoryState::close);
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.Application.Config;
+import com.activeviam.tooling.gitstats.Application.IndentSpec;
+import com.activeviam.tooling.gitstats.Application.Shard;
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FetchMode;
+import com.activeviam.tooling.gitstats.internal.explorer.ShardPlanner;
+import com.activeviam.tooling.gitstats.internal.orchestration.ShardMerger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import lombok.val;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+
+/**
+ * Distributed extraction: the history is split into shards processed by separate worker processes,
+ * possibly on other hosts sharing a clone, then the outputs are merged.
+ *
+ * @author ActiveViam
+ */
+@Command(
+    name = "shard",
+    mixinStandardHelpOptions = true,
+    description = "Split an extraction into shards processed by separate workers",
+    subcommands = {
+      ShardCommand.Plan.class,
+      ShardCommand.Work.class,
+      ShardCommand.Merge.class,
+      ShardCommand.Run.class
+    })
+public class ShardCommand implements Runnable {
+
+  static final String PLAN_DIRECTORY = "shards";
+
+  @Override
+  public void run() {
+    new CommandLine(this).usage(System.out);
+  }
+
+  static String singleBranch(final SharedOptions options) {
+    if (options.branches.size() != 1) {
+      throw new ProgramException("Sharding only supports a single branch");
+    }
+    return options.branches.getFirst();
+  }
+
+  static List<Period> rollups(final List<String> names) {
+    return names.stream().map(name -> Period.valueOf(name.toUpperCase(Locale.ROOT))).toList();
+  }
+
+  /**
+   * @author ActiveViam
+   */
+  @Command(
+      name = "plan",
+      mixinStandardHelpOptions = true,
+      description = "Write the commit list of each shard into <output>/shards")
+  static class Plan implements Callable<Integer> {
+
+    @Mixin SharedOptions options;
+
+    @Option(
+        names = {"--shards"},
+        required = true,
+        description = "Number of shards")
+    int shards;
+
+    @Override
+    public Integer call() {
+      val branch = singleBranch(this.options);
+      val files =
+          ShardPlanner.plan(
+              this.options.projectDirectory,
+              Objects.requireNonNullElse(this.options.startCommit, branch),
+              this.options.count,
+              this.shards,
+              this.options.outputDirectory.resolve(PLAN_DIRECTORY));
+      Application.logger.info("Planned " + files.size() + " shards");
+      return 0;
+    }
+  }
+
+  /**
+   * @author ActiveViam
+   */
+  @Command(
+      name = "work",
+      mixinStandardHelpOptions = true,
+      description = "Process one shard, writing shard-tagged files")
+  static class Work implements Callable<Integer> {
+
+    @Mixin SharedOptions options;
+
+    @Option(
+        names = {"--shard-index"},
+        required = true,
+        description = "Index of the shard to process")
+    int shardIndex;
+
+    @Option(
+        names = {"--shard-file"},
+        description = "Commit list of the shard (defaults to the plan in the output directory)")
+    Path shardFile;
+
+    @Option(
+        names = {"--mode"},
+        defaultValue = "HISTORY",
+        description = "Extraction to run: ${COMPLETION-CANDIDATES}")
+    FetchMode mode;
+
+    @Option(
+        names = {"-i", "--indent"},
+        description = "Indent unit: <number><t|s> (e.g. 2t, 4s), for TREE_STATS")
+    String indent;
+
+    @Option(
+        names = {"--rollups"},
+        split = ",",
+        description =
+            "Also aggregate changes by module and period, one of day, week or month, for HISTORY")
+    List<String> rollups = new ArrayList<>();
+
+    @Option(
+        names = {"--in-process-diff"},
+        description =
+            "Compute additions/deletions in Java from blobs instead of git show --numstat")
+    boolean inProcessDiff;
+
+    @Override
+    public Integer call() {
+      singleBranch(this.options);
+      val commits =
+          Objects.requireNonNullElseGet(
+              this.shardFile,
+              () ->
+                  this.options
+                      .outputDirectory
+                      .resolve(PLAN_DIRECTORY)
+                      .resolve(ShardPlanner.shardFileName(this.shardIndex)));
+      val startTime = System.nanoTime();
+      switch (this.mode) {
+        case HISTORY ->
+            new HistoryProgram(
+                    Config.builder()
+                        .projectDirectory(this.options.projectDirectory)
+                        .outputDirectory(this.options.outputDirectory)
+                        .branches(this.options.branches)
+                        .count(this.options.count)
+                        .inProcessDiff(this.inProcessDiff)
+                        .rollups(rollups(this.rollups))
+                        .shard(new Shard(this.shardIndex, commits))
+                        .build())
+                .run();
+        case TREE_STATS -> {
+          if (this.indent == null) {
+            throw new ProgramException("An indent spec is required for TREE_STATS");
+          }
+          new TreeStatsProgram(
+                  Config.builder()
+                      .projectDirectory(this.options.projectDirectory)
+                      .outputDirectory(this.options.outputDirectory)
+                      .branches(this.options.branches)
+                      .count(this.options.count)
+                      .indentSpec(IndentSpec.parse(this.indent))
+                      .shard(new Shard(this.shardIndex, commits))
+                      .build())
+              .run();
+        }
+      }
+      val endTime = System.nanoTime();
+      Application.logger.info(
+          "Shard "
+              + this.shardIndex
+              + " processed in "
+              + TimeUnit.NANOSECONDS.toSeconds(endTime - startTime)
+              + "s");
+      return 0;
+    }
+  }
+
+  /**
+   * @author ActiveViam
+   */
+  @Command(
+      name = "merge",
+      mixinStandardHelpOptions = true,
+      description = "Rename the shard-tagged files into a single numbered series per dataset")
+  static class Merge implements Callable<Integer> {
+
+    @Option(
+        names = {"-o", "--output"},
+        required = true,
+        description = "Output directory")
+    Path outputDirectory;
+
+    @Override
+    public Integer call() {
+      val count = ShardMerger.merge(this.outputDirectory);
+      Application.logger.info("Merged " + count + " shard files");
+      return 0;
+    }
+  }
+
+  /**
+   * @author ActiveViam
+   */
+  @Command(
+      name = "run",
+      mixinStandardHelpOptions = true,
+      description = "Plan, run one local worker process per shard, then merge")
+  static class Run implements Callable<Integer> {
+
+    @Mixin SharedOptions options;
+
+    @Option(
+        names = {"--shards"},
+        required = true,
+        description = "Number of shards, hence of worker processes")
+    int shards;
+
+    @Option(
+        names = {"--mode"},
+        defaultValue = "HISTORY",
+        description = "Extraction to run: ${COMPLETION-CANDIDATES}")
+    FetchMode mode;
+
+    @Option(
+        names = {"-i", "--indent"},
+        description = "Indent unit: <number><t|s> (e.g. 2t, 4s), for TREE_STATS")
+    String indent;
+
+    @Option(
+        names = {"--rollups"},
+        split = ",",
+        description =
+            "Also aggregate changes by module and period, one of day, week or month, for HISTORY")
+    List<String> rollups = new ArrayList<>();
+
+    @Option(
+        names = {"--in-process-diff"},
+        description =
+            "Compute additions/deletions in Java from blobs instead of git show --numstat")
+    boolean inProcessDiff;
+
+    @Override
+    public Integer call() {
+      val branch = singleBranch(this.options);
+      val startTime = System.nanoTime();
+      val files =
+          ShardPlanner.plan(
+              this.options.projectDirectory,
+              Objects.requireNonNullElse(this.options.startCommit, branch),
+              this.options.count,
+              this.shards,
+              this.options.outputDirectory.resolve(PLAN_DIRECTORY));
+      val program =
+          new ShardProgram(
+              this.options.projectDirectory,
+              this.options.outputDirectory,
+              branch,
+              this.mode,
+              this.indent,
+              this.inProcessDiff,
+              rollups(this.rollups));
+      program.runWorkers(files);
+      val count = ShardMerger.merge(this.options.outputDirectory);
+      val endTime = System.nanoTime();
+      Application.logger.info(
+          "Merged "
+              + count
+              + " files from "
+              + files.size()
+              + " shards. Execution time: "
+              + TimeUnit.NANOSECONDS.toSeconds(endTime - startTime)
+              + "s");
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FetchMode;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Coordinator running one worker JVM per shard on the local machine.
+ *
+ * <p>Workers are started with the same java binary, JVM options and classpath as the coordinator.
+ *
+ * @author ActiveViam
+ */
+@RequiredArgsConstructor
+public class ShardProgram {
+
+  private final Path projectDirectory;
+  private final Path outputDirectory;
+  private final String branch;
+  private final FetchMode mode;
+  private final String indent;
+  private final boolean inProcessDiff;
+  private final List<Period> rollups;
+
+  public void runWorkers(final List<Path> shardFiles) {
+    val processes = new ArrayList<Process>();
+    try {
+      for (int i = 0; i < shardFiles.size(); i++) {
+        val builder = new ProcessBuilder(workerCommand(i, shardFiles.get(i)));
+        builder.inheritIO();
+        processes.add(builder.start());
+      }
+      int failures = 0;
+      for (val process : processes) {
+        if (process.waitFor() != 0) {
+          failures++;
+        }
+      }
+      if (failures > 0) {
+        throw new ProgramException(failures + " shard workers failed");
+      }
+    } catch (final IOException e) {
+      processes.forEach(Process::destroy);
+      throw new ProgramException("Cannot start shard worker", e);
+    } catch (final InterruptedException e) {
+      processes.forEach(Process::destroy);
+      Thread.currentThread().interrupt();
+      throw new ProgramException("Interrupted while waiting for shard workers", e);
+    }
+  }
+
+  private List<String> workerCommand(final int index, final Path shardFile) {
+    val command = new ArrayList<String>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Application.class.getName());
+    command.addAll(
+        List.of(
+            "shard",
+            "work",
+            "-p",
+            this.projectDirectory.toString(),
+            "-o",
+            this.outputDirectory.toString(),
+            "-b",
+            this.branch,
+            "--shard-index",
+            String.valueOf(index),
+            "--shard-file",
+            shardFile.toString(),
+            "--mode",
+            this.mode.name()));
+    if (this.indent != null) {
+      command.add("--indent");
+      command.add(this.indent);
+    }
+    if (this.inProcessDiff) {
+      command.add("--in-process-diff");
+    }
+    if (!this.rollups.isEmpty()) {
+      command.add("--rollups");
+      command.add(
+          this.rollups.stream()
+              .map(period -> period.name().toLowerCase(Locale.ROOT))
+              .collect(Collectors.joining(",")));
+    }
+    return command;
+  }
+}
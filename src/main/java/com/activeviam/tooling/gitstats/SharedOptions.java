@@ -8,6 +8,7 @@
 package com.activeviam.tooling.gitstats;
 
 import java.nio.file.Path;
+import java.util.List;
 import picocli.CommandLine.Option;
 
 /**
@@ -30,21 +31,19 @@ public class SharedOptions {
   @Option(
       names = {"-b", "--branch"},
       required = true,
-      description = "Branch to inspect")
-  String branch;
+      split = ",",
+      description =
+          "Branches to inspect, repeated or comma-separated. Accepts ref globs such as 'release/*'")
+  List<String> branches;
 
   @Option(
       names = {"-s", "--start"},
-      description = "Start commit")
+      description = "Start commit (defaults to the branch head, single branch only)")
   String startCommit;
 
   @Option(
       names = {"-n", "--count"},
       defaultValue = "10",
-      description = "Number of commits to collect")
+      description = "Number of commits to collect per branch")
   int count;
-
-  String resolvedStartCommit() {
-    return startCommit != null ? startCommit : branch;
-  }
 }
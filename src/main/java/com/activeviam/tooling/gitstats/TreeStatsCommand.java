@@ -7,6 +7,10 @@
 
 package com.activeviam.tooling.gitstats;
 
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver.Layout;
+import com.activeviam.tooling.gitstats.internal.orchestration.MemoryBudget;
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import lombok.val;
@@ -36,17 +40,115 @@ public class TreeStatsCommand implements Callable<Integer> {
       description = "Compute stats for all files in the tree, not just changed files")
   private boolean allFiles;
 
+  @Option(
+      names = {"--sample"},
+      description =
+          "Only process some commits: every:<n>, daily, weekly, monthly (last commit of each"
+              + " period) or samples:<n> (evenly spaced)")
+  private String sampling;
+
+  @Option(
+      names = {"--lineage"},
+      description = "Add a stable file id, following renamings, to every row")
+  private boolean lineage;
+
+  @Option(
+      names = {"--spill-directory"},
+      description =
+          "Buffer fetched commits in files of this directory when writers fall behind, instead of"
+              + " slowing down fetches")
+  private Path spillDirectory;
+
+  @Option(
+      names = {"--memory-budget"},
+      description =
+          "Bound the queues between stages by the estimated size of their content, shared by all"
+              + " queues, e.g. 512m or 2g, instead of a number of elements")
+  private String memoryBudget;
+
+  @Option(
+      names = {"--off-heap"},
+      description =
+          "Keep line counts and indentation statistics off-heap, as fixed-width rows freed once"
+              + " written")
+  private boolean offHeap;
+
+  @Option(
+      names = {"--streaming"},
+      description =
+          "Stream the rows of each commit from git to the writers in chunks, instead of collecting"
+              + " them first, so that huge commits do not cause memory spikes")
+  private boolean streaming;
+
+  @Option(
+      names = {"--writers"},
+      defaultValue = "1",
+      description =
+          "Number of writers per dataset, each writing its own file series, commits being routed"
+              + " to a writer by their id")
+  private int writers;
+
+  @Option(
+      names = {"--ordered"},
+      description =
+          "Write commits in traversal order, whatever the order in which their fetches complete,"
+              + " so that runs on the same history produce identical files")
+  private boolean ordered;
+
+  @Option(
+      names = {"--database"},
+      description =
+          "Write the rows into tables of an embedded SQLite database file instead of CSV files,"
+              + " appending to the tables if they exist")
+  private Path database;
+
+  @Option(
+      names = {"--partition-by-month"},
+      description =
+          "Write the files of each dataset in a directory per month of commit dates, such as"
+              + " changes/month=2024-05/part-0000.csv")
+  private boolean partitionByMonth;
+
+  @Option(
+      names = {"--indentation-rollup"},
+      description =
+          "Also merge the indentation histograms of the files by module at each commit, into"
+              + " indentation-modules files with module percentiles")
+  private boolean indentationRollup;
+
+  @Option(
+      names = {"--modules"},
+      defaultValue = "BUILD_FILES",
+      description =
+          "How modules of the indentation rollup are found: BUILD_FILES (directories with a"
+              + " pom.xml, build.gradle or package.json) or SOURCE_DIRECTORIES (directories"
+              + " containing src/main)")
+  private Layout moduleLayout;
+
   @Override
   public Integer call() {
     val config =
-        new Application.Config(
-            options.projectDirectory,
-            options.outputDirectory,
-            options.branch,
-            options.resolvedStartCommit(),
-            options.count,
-            Application.IndentSpec.parse(indent),
-            allFiles);
+        Application.Config.builder()
+            .projectDirectory(options.projectDirectory)
+            .outputDirectory(options.outputDirectory)
+            .branches(options.branches)
+            .startCommit(options.startCommit)
+            .count(options.count)
+            .indentSpec(Application.IndentSpec.parse(indent))
+            .allFiles(allFiles)
+            .moduleLayout(moduleLayout)
+            .lineage(lineage)
+            .sampler(sampling != null ? CommitSampler.parse(sampling) : null)
+            .spillDirectory(spillDirectory)
+            .memoryBudget(memoryBudget != null ? MemoryBudget.parseSize(memoryBudget) : 0)
+            .offHeap(offHeap)
+            .streaming(streaming)
+            .writers(writers)
+            .ordered(ordered)
+            .database(database)
+            .partitionByMonth(partitionByMonth)
+            .indentationRollup(indentationRollup)
+            .build();
     val startTime = System.nanoTime();
     val program = new TreeStatsProgram(config);
     program.run();
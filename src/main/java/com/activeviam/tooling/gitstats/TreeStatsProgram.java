@@ -8,26 +8,54 @@
 package com.activeviam.tooling.gitstats;
 
 import com.activeviam.tooling.gitstats.Application.Config;
+import com.activeviam.tooling.gitstats.internal.GcStats;
 import com.activeviam.tooling.gitstats.internal.Threading;
+import com.activeviam.tooling.gitstats.internal.database.Database;
 import com.activeviam.tooling.gitstats.internal.explorer.BranchCommitReader;
+import com.activeviam.tooling.gitstats.internal.explorer.BranchMembership;
+import com.activeviam.tooling.gitstats.internal.explorer.CommitListReader;
+import com.activeviam.tooling.gitstats.internal.explorer.MultiBranchCommitReader;
 import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails;
 import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
 import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FetchMode;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileIndentationStats;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileLineCount;
+import com.activeviam.tooling.gitstats.internal.explorer.SampledCommitReader;
+import com.activeviam.tooling.gitstats.internal.lineage.FileLineage;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.offheap.PathDictionary;
+import com.activeviam.tooling.gitstats.internal.orchestration.ACsvWritePipeline;
 import com.activeviam.tooling.gitstats.internal.orchestration.Action;
 import com.activeviam.tooling.gitstats.internal.orchestration.Action.Stop;
 import com.activeviam.tooling.gitstats.internal.orchestration.Action.Value;
+import com.activeviam.tooling.gitstats.internal.orchestration.ChunkedSink;
+import com.activeviam.tooling.gitstats.internal.orchestration.CommitDetailsSpillCodec;
+import com.activeviam.tooling.gitstats.internal.orchestration.DatabaseWritePipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.FetchBudget;
 import com.activeviam.tooling.gitstats.internal.orchestration.IndentationCsvWriterPipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.IndentationRollup;
 import com.activeviam.tooling.gitstats.internal.orchestration.LinesCsvWriterPipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.MemoryBudget;
+import com.activeviam.tooling.gitstats.internal.orchestration.OutputManifest;
 import com.activeviam.tooling.gitstats.internal.orchestration.Queue;
+import com.activeviam.tooling.gitstats.internal.orchestration.ReorderBuffer;
+import com.activeviam.tooling.gitstats.internal.orchestration.SpillingQueue;
+import com.activeviam.tooling.gitstats.internal.orchestration.Weigher;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteIndentationAction;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteLinesAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriterShards;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 
@@ -39,10 +67,46 @@ public class TreeStatsProgram {
 
   private static final int MAX_CONCURRENT_FETCHES = 20;
 
+  /** Commits completed ahead of the oldest pending one held at most in ordered mode. */
+  private static final int REORDER_CAPACITY = 2 * MAX_CONCURRENT_FETCHES;
+
+  /** Rows of a streamed commit handed to a writer at once. */
+  private static final int STREAM_CHUNK_SIZE = 1024;
+
   private final Config config;
+  private final FetchBudget fetchBudget;
+
+  /** Ids of the paths of the off-heap statistics, when enabled. */
+  private PathDictionary paths;
+
+  /** Shared bound of the queues, when configured. */
+  private MemoryBudget memoryBudget;
+
+  /** Identity of files across renamings, when requested. */
+  private FileLineage lineage;
+
+  /** Database receiving the rows instead of CSV files, when configured. */
+  private Database database;
+
+  /** Manifest of the CSV files, unless written into a database or by a shard worker. */
+  private OutputManifest manifest;
+
+  /** Indentation merged by module at each commit, when requested. */
+  private IndentationRollup indentationRollup;
+
+  public TreeStatsProgram(final Config config) {
+    this(config, new FetchBudget(MAX_CONCURRENT_FETCHES));
+  }
 
-  private <T> Queue<Action<T>> queueOf(final int capacity) {
-    return new Queue<>(capacity);
+  private <T> Queue<Action<T>> queueOf(final String name, final Weigher<T> weigher) {
+    return this.memoryBudget != null ? this.memoryBudget.queue(name, weigher) : new Queue<>(20);
+  }
+
+  /** Queue of fetched commits, spilling to disk when configured so that fetches never wait. */
+  private Queue<Action<CommitDetails>> createDetailsQueue() {
+    return this.config.spillDirectory() != null
+        ? new SpillingQueue<>(20, this.config.spillDirectory(), new CommitDetailsSpillCodec())
+        : queueOf("details", Weigher.COMMIT_DETAILS);
   }
 
   public void run() {
@@ -51,43 +115,219 @@ public class TreeStatsProgram {
     } catch (IOException e) {
       throw new RuntimeException("Failed to create output directory", e);
     }
+    if (this.config.writers() < 1) {
+      throw new ProgramException("At least one writer per dataset is required");
+    }
+    if (this.config.partitionByMonth() && this.config.database() != null) {
+      throw new ProgramException("A database cannot be partitioned by month");
+    }
+    this.memoryBudget =
+        this.config.memoryBudget() > 0 ? new MemoryBudget(this.config.memoryBudget()) : null;
+    if (this.config.offHeap() && this.config.spillDirectory() != null) {
+      throw new ProgramException("Off-heap statistics cannot be spilled to disk");
+    }
+    this.paths = this.config.offHeap() ? new PathDictionary() : null;
+    val gcStart = GcStats.now();
+
+    this.lineage =
+        this.config.lineage()
+            ? readLineage(
+                MultiBranchCommitReader.resolveBranches(
+                    this.config.projectDirectory(), this.config.branches()))
+            : null;
+    this.database = this.config.database() != null ? Database.open(this.config.database()) : null;
+    this.manifest =
+        this.config.database() == null && this.config.shard() == null
+            ? new OutputManifest(this.config.outputDirectory(), "manifest-tree-stats.json")
+            : null;
+    this.indentationRollup = this.config.indentationRollup() ? createIndentationRollup() : null;
+    try {
+      if (this.config.streaming()) {
+        streamTreeStats();
+      } else {
+        collectTreeStats();
+      }
+    } finally {
+      if (this.database != null) {
+        this.database.close();
+      }
+      if (this.indentationRollup != null) {
+        this.indentationRollup.close();
+      }
+    }
+    if (this.memoryBudget != null) {
+      this.memoryBudget.report();
+    }
+    GcStats.now().since(gcStart).log(this.config.offHeap() ? "off-heap rows" : "records");
+  }
 
+  /** Fetches whole commits, dispatched to the writers once complete. */
+  private void collectTreeStats() {
+    try (val detailsOutput = createDetailsQueue()) {
+      val ordering =
+          this.config.ordered()
+              ? new ReorderBuffer<CommitDetails>(
+                  REORDER_CAPACITY, details -> detailsOutput.put(Action.value(details)))
+              : null;
+      Threading.execute(
+          scope -> {
+            final var commitOutput = this.queueOf("commit-ids", Weigher.COMMIT_ID);
+            Threading.submit(scope, createCommitReader(commitOutput));
+            Threading.submit(
+                scope,
+                () -> {
+                  processCommits(
+                      commitOutput,
+                      ordering,
+                      (commit, sequence) ->
+                          fetchCommit(
+                              ordering != null
+                                  ? details -> ordering.complete(sequence, details)
+                                  : details -> detailsOutput.put(Action.value(details)),
+                              commit));
+                  detailsOutput.put(Action.stop());
+                });
+            Threading.submit(scope, () -> processDetailsToCsv(detailsOutput));
+          });
+      if (ordering != null) {
+        ordering.report();
+      }
+    }
+  }
+
+  /** Fetches commits as chunks of rows, handed to the writers while git outputs them. */
+  private void streamTreeStats() {
+    if (this.config.spillDirectory() != null) {
+      throw new ProgramException("Streamed commits cannot be spilled to disk");
+    }
+    if (this.config.ordered()) {
+      throw new ProgramException("Streamed commits cannot be ordered");
+    }
+    if (this.config.offHeap()) {
+      throw new ProgramException("Streamed commits cannot be stored off-heap");
+    }
     Threading.execute(
         scope -> {
-          final var commitOutput = this.<String>queueOf(20);
-          final var detailsOutput = this.<CommitDetails>queueOf(20);
-          val branchCommitReader =
-              new BranchCommitReader(
-                  this.config.projectDirectory(),
-                  this.config.branch(),
-                  this.config.startCommit(),
-                  this.config.count(),
-                  commitOutput);
-          Threading.submit(scope, branchCommitReader::run);
-          Threading.submit(scope, () -> processCommits(commitOutput, detailsOutput));
-          Threading.submit(scope, () -> processDetailsToCsv(detailsOutput));
+          final var commitOutput = this.queueOf("commit-ids", Weigher.COMMIT_ID);
+          Threading.submit(scope, createCommitReader(commitOutput));
+          val writers = startWriters(scope);
+          Threading.submit(
+              scope,
+              () -> {
+                processCommits(commitOutput, null, (commit, _) -> streamCommit(writers, commit));
+                writers.stop();
+              });
         });
   }
 
+  private IndentationRollup createIndentationRollup() {
+    val branches =
+        MultiBranchCommitReader.resolveBranches(
+            this.config.projectDirectory(), this.config.branches());
+    val modules =
+        ModuleResolver.create(
+            this.config.moduleLayout(),
+            this.config.projectDirectory(),
+            this.config.startCommit() != null ? List.of(this.config.startCommit()) : branches,
+            this.config.count());
+    val file =
+        this.config
+            .outputDirectory()
+            .resolve(String.format(this.config.filePattern("indentation-modules"), 0));
+    try {
+      return new IndentationRollup(modules, file);
+    } catch (final IOException e) {
+      throw new ProgramException("Failed to create " + file, e);
+    }
+  }
+
+  private FileLineage readLineage(final List<String> branches) {
+    return FileLineage.create(
+        this.config.projectDirectory(),
+        branches,
+        this.config.startCommit(),
+        this.config.count(),
+        this.config
+            .outputDirectory()
+            .resolve(String.format(this.config.filePattern("lineage"), 0)));
+  }
+
+  private Runnable createCommitReader(final Queue<Action<String>> output) {
+    if (this.config.shard() != null) {
+      return new CommitListReader(this.config.shard().commits(), output)::run;
+    }
+    val branches =
+        MultiBranchCommitReader.resolveBranches(
+            this.config.projectDirectory(), this.config.branches());
+    if (this.config.sampler() != null) {
+      if (branches.size() != 1) {
+        throw new ProgramException("Sampling cannot be used with several branches");
+      }
+      val branch = branches.getFirst();
+      val sampledCommitReader =
+          new SampledCommitReader(
+              this.config.projectDirectory(),
+              Objects.requireNonNullElse(this.config.startCommit(), branch),
+              this.config.count(),
+              this.config.sampler(),
+              output);
+      return sampledCommitReader::run;
+    }
+    if (branches.size() == 1) {
+      val branch = branches.getFirst();
+      val branchCommitReader =
+          new BranchCommitReader(
+              this.config.projectDirectory(),
+              branch,
+              Objects.requireNonNullElse(this.config.startCommit(), branch),
+              this.config.count(),
+              output);
+      return branchCommitReader::run;
+    }
+    if (this.config.startCommit() != null) {
+      throw new ProgramException("A start commit cannot be used with several branches");
+    }
+    val multiBranchCommitReader =
+        new MultiBranchCommitReader(
+            this.config.projectDirectory(),
+            new BranchMembership(branches),
+            this.config.count(),
+            output);
+    return multiBranchCommitReader::run;
+  }
+
+  /**
+   * Forks the fetch of every commit, numbered in traversal order.
+   *
+   * @param ordering buffer restoring the traversal order, waited for before forking a fetch, or
+   *     {@code null}
+   */
   private void processCommits(
-      final Queue<Action<String>> input, final Queue<Action<CommitDetails>> output) {
-    final var semaphore = new Semaphore(MAX_CONCURRENT_FETCHES);
+      final Queue<Action<String>> input,
+      final ReorderBuffer<?> ordering,
+      final ObjLongConsumer<String> fetcher) {
+    final var permits = this.fetchBudget.register(this.config.projectDirectory().toString());
     Threading.execute(
         scope -> {
           String lastCommit = null;
+          long count = 0;
           while (true) {
             val action = input.take();
             switch (action) {
               case Value(final var commit) -> {
                 lastCommit = commit;
-                semaphore.acquire();
+                final long sequence = count++;
+                if (ordering != null) {
+                  ordering.reserve(sequence);
+                }
+                permits.acquire();
                 Threading.submit(
                     scope,
                     () -> {
                       try {
-                        fetchCommit(output, commit);
+                        fetcher.accept(commit, sequence);
                       } finally {
-                        semaphore.release();
+                        permits.release();
                       }
                     });
               }
@@ -98,12 +338,12 @@ public class TreeStatsProgram {
             }
           }
         });
-    output.put(Action.stop());
+    permits.unregister();
   }
 
   private final Set<String> commits = Collections.synchronizedSet(new HashSet<>());
 
-  private void fetchCommit(Queue<Action<CommitDetails>> output, String commit) {
+  private void fetchCommit(final Consumer<CommitDetails> output, final String commit) {
     commits.add(commit);
     val reader =
         new ReadCommitDetails(
@@ -111,40 +351,70 @@ public class TreeStatsProgram {
             commit,
             this.config.indentSpec(),
             FetchMode.TREE_STATS,
-            this.config.allFiles());
+            this.config.allFiles(),
+            null,
+            this.paths,
+            this.config.partitionByMonth());
     val details = reader.read();
-    output.put(Action.value(details));
+    if (this.indentationRollup != null) {
+      this.indentationRollup.add(details);
+    }
+    output.accept(details);
+    commits.remove(commit);
+  }
+
+  private void streamCommit(final Writers writers, final String commit) {
+    commits.add(commit);
+    val reader =
+        new ReadCommitDetails(
+            this.config.projectDirectory(),
+            commit,
+            this.config.indentSpec(),
+            FetchMode.TREE_STATS,
+            this.config.allFiles());
+    // Dates are only needed to partition the rows
+    val info =
+        new CommitInfo(
+            commit, this.config.partitionByMonth() ? reader.readCommitDate() : Instant.EPOCH);
+    val rollup = this.indentationRollup != null ? this.indentationRollup.start(info) : null;
+    try (val lines =
+            new ChunkedSink<FileLineCount>(
+                STREAM_CHUNK_SIZE,
+                chunk -> {
+                  val part = new CommitDetails(info, List.of(), List.of(), chunk, List.of());
+                  writers.lines().put(commit, new WriteLinesAction(List.of(part)));
+                });
+        val indentations =
+            new ChunkedSink<FileIndentationStats>(
+                STREAM_CHUNK_SIZE,
+                chunk -> {
+                  if (rollup != null) {
+                    chunk.forEach(stats -> rollup.add(stats.path(), stats.histogram()));
+                  }
+                  val part = new CommitDetails(info, List.of(), List.of(), List.of(), chunk);
+                  writers.indentation().put(commit, new WriteIndentationAction(List.of(part)));
+                })) {
+      reader.streamTreeStats(lines, indentations);
+    }
+    if (rollup != null) {
+      rollup.complete();
+    }
     commits.remove(commit);
   }
 
   private void processDetailsToCsv(final Queue<Action<CommitDetails>> input) {
     Threading.execute(
         scope -> {
-          val linesQueue = new Queue<Action<WriteLinesAction>>(20);
-          val linesWriter =
-              new LinesCsvWriterPipeline(
-                  linesQueue, this.config.outputDirectory(), "lines-%04d.csv");
-          Threading.submit(scope, linesWriter);
-
-          val indentQueue = new Queue<Action<WriteIndentationAction>>(20);
-          val indentWriter =
-              new IndentationCsvWriterPipeline(
-                  indentQueue, this.config.outputDirectory(), "indentation-%04d.csv");
-          Threading.submit(scope, indentWriter);
-
+          val writers = startWriters(scope);
           Threading.submit(
               scope,
               () -> {
                 while (true) {
                   final var action = input.take();
                   switch (action) {
-                    case Value(final var details) -> {
-                      linesQueue.put(new Value<>(new WriteLinesAction(List.of(details))));
-                      indentQueue.put(new Value<>(new WriteIndentationAction(List.of(details))));
-                    }
+                    case Value(final var details) -> writers.write(details);
                     case Stop<?> _ -> {
-                      linesQueue.put(Stop.create());
-                      indentQueue.put(Stop.create());
+                      writers.stop();
                       return;
                     }
                   }
@@ -152,4 +422,64 @@ public class TreeStatsProgram {
               });
         });
   }
+
+  private Writers startWriters(final StructuredTaskScope<?, ?> scope) {
+    val linesQueues = writerQueues("lines", Weigher.LINES);
+    val indentQueues = writerQueues("indentation", Weigher.INDENTATIONS);
+    for (int i = 0; i < this.config.writers(); i++) {
+      if (this.database != null) {
+        Threading.submit(
+            scope, DatabaseWritePipeline.lines(linesQueues.queue(i), this.database, this.lineage));
+        Threading.submit(
+            scope,
+            DatabaseWritePipeline.indentation(indentQueues.queue(i), this.database, this.lineage));
+        continue;
+      }
+      val linesWriter =
+          new LinesCsvWriterPipeline(
+              linesQueues.queue(i),
+              this.config.outputDirectory(),
+              this.config.filePattern("lines", i),
+              this.lineage);
+      Threading.submit(scope, configured(linesWriter));
+
+      val indentWriter =
+          new IndentationCsvWriterPipeline(
+              indentQueues.queue(i),
+              this.config.outputDirectory(),
+              this.config.filePattern("indentation", i),
+              this.lineage);
+      Threading.submit(scope, configured(indentWriter));
+    }
+    return new Writers(linesQueues, indentQueues);
+  }
+
+  private Runnable configured(final ACsvWritePipeline<?> writer) {
+    if (this.manifest != null) {
+      writer.withManifest(this.manifest);
+    }
+    return this.config.partitionByMonth() ? writer.partitionByMonth() : writer;
+  }
+
+  private <T> WriterShards<T> writerQueues(final String dataset, final Weigher<T> weigher) {
+    return new WriterShards<>(
+        this.config.writers(),
+        i -> queueOf(this.config.writers() > 1 ? dataset + "-w" + i : dataset, weigher));
+  }
+
+  /** Input queues of the writers of each dataset. */
+  private record Writers(
+      WriterShards<WriteLinesAction> lines, WriterShards<WriteIndentationAction> indentation) {
+
+    void write(final CommitDetails details) {
+      val commit = details.commit().sha1();
+      this.lines.put(commit, new WriteLinesAction(List.of(details)));
+      this.indentation.put(commit, new WriteIndentationAction(List.of(details)));
+    }
+
+    void stop() {
+      this.lines.stop();
+      this.indentation.stop();
+    }
+  }
 }
@@ -0,0 +1,125 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver.Layout;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import lombok.val;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * @author ActiveViam
+ */
+@Command(
+    name = "watch",
+    mixinStandardHelpOptions = true,
+    description =
+        "Follow a branch, appending the history of its new commits to the output as they arrive")
+public class WatchCommand implements Callable<Integer> {
+
+  @Option(
+      names = {"-p", "--project"},
+      required = true,
+      description = "Project to watch")
+  private Path projectDirectory;
+
+  @Option(
+      names = {"-o", "--output"},
+      required = true,
+      description = "Output directory, whose files are appended to")
+  private Path outputDirectory;
+
+  @Option(
+      names = {"-b", "--branch"},
+      required = true,
+      description = "Branch to follow")
+  private String branch;
+
+  @Option(
+      names = {"--after"},
+      description =
+          "Last commit already extracted, such as the start commit of a previous history run."
+              + " Defaults to the current tip of the branch")
+  private String after;
+
+  @Option(
+      names = {"--quiet-period"},
+      defaultValue = "500",
+      description = "Milliseconds without ref updates before extracting, to group a push")
+  private long quietPeriod;
+
+  @Option(
+      names = {"--max-updates"},
+      defaultValue = "0",
+      description = "Stop after this number of branch updates, 0 to watch until interrupted")
+  private int maxUpdates;
+
+  @Option(
+      names = {"--in-process-diff"},
+      description = "Compute additions/deletions in Java from blobs instead of git show --numstat")
+  private boolean inProcessDiff;
+
+  @Option(
+      names = {"--modules"},
+      defaultValue = "BUILD_FILES",
+      description =
+          "How modules are found: BUILD_FILES (directories with a pom.xml, build.gradle or"
+              + " package.json) or SOURCE_DIRECTORIES (directories containing src/main)")
+  private Layout moduleLayout;
+
+  @Option(
+      names = {"--writers"},
+      defaultValue = "1",
+      description = "Number of writers per dataset, as used by the history run being continued")
+  private int writers;
+
+  @Option(
+      names = {"--database"},
+      description = "Append the rows to the tables of an embedded SQLite database file instead")
+  private Path database;
+
+  @Option(
+      names = {"--partition-by-month"},
+      description = "Append to files partitioned by month of commit dates")
+  private boolean partitionByMonth;
+
+  @Override
+  public Integer call() {
+    val program =
+        new WatchProgram(
+            this.projectDirectory,
+            this.branch,
+            this.after,
+            Duration.ofMillis(this.quietPeriod),
+            this.maxUpdates,
+            this::extraction);
+    program.run();
+    return 0;
+  }
+
+  private Application.Config extraction(final String tip, final List<String> commits) {
+    return Application.Config.builder()
+        .projectDirectory(this.projectDirectory)
+        .outputDirectory(this.outputDirectory)
+        .branches(List.of(this.branch))
+        .startCommit(tip)
+        .count(commits.size())
+        .inProcessDiff(this.inProcessDiff)
+        .moduleLayout(this.moduleLayout)
+        .writers(this.writers)
+        .database(this.database)
+        .partitionByMonth(this.partitionByMonth)
+        .commits(commits)
+        .append(true)
+        .build();
+  }
+}
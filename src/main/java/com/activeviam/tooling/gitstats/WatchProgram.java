@@ -0,0 +1,129 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.Application.Config;
+import com.activeviam.tooling.gitstats.internal.explorer.BranchCommitReader;
+import com.activeviam.tooling.gitstats.internal.explorer.RefWatcher;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell.Output;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Follows a branch, extracting the history of its new commits as soon as they arrive.
+ *
+ * <p>The program waits for the ref of the branch to change, then lists the commits between the last
+ * processed tip and the new one. These commits go through a regular history extraction, appending
+ * to the files of the output directory. A force-push is handled the same way, the commits no longer
+ * on the branch being kept in the output.
+ *
+ * <p>The modules are discovered with the first update, then extended with the build files of the
+ * commits of each following update.
+ *
+ * @author ActiveViam
+ */
+@Log
+@RequiredArgsConstructor
+public class WatchProgram {
+
+  /** Time after which the ref is checked again when no event is received. */
+  private static final Duration RECHECK_PERIOD = Duration.ofMinutes(1);
+
+  private final Path projectDirectory;
+  private final String branch;
+
+  /** Last commit already extracted, or {@code null} to start from the current tip. */
+  private final String after;
+
+  /** Time without ref events before processing, grouping the updates of a push. */
+  private final Duration quiet;
+
+  /** Number of updates to process before stopping, or 0 to run until interrupted. */
+  private final int maxUpdates;
+
+  /** Creates the configuration of an extraction, from the new tip and the commits to extract. */
+  private final BiFunction<String, List<String>, Config> extraction;
+
+  public void run() {
+    val ref = git("rev-parse", "--symbolic-full-name", this.branch);
+    if (ref.isEmpty()) {
+      throw new ProgramException("Cannot watch " + this.branch + ", which is not a branch");
+    }
+    val gitDirectory = this.projectDirectory.resolve(git("rev-parse", "--git-common-dir"));
+    val commitsToIgnore = BranchCommitReader.readCommitsToIgnore(this.projectDirectory);
+    var last = git("rev-parse", this.after != null ? this.after : ref);
+    ModuleResolver modules = null;
+    log.log(Level.INFO, "Watching {0} from {1}", new Object[] {ref, last});
+    try (val watcher = new RefWatcher(gitDirectory, ref)) {
+      int updates = 0;
+      while (this.maxUpdates <= 0 || updates < this.maxUpdates) {
+        final long start = System.nanoTime();
+        final String tip;
+        try {
+          tip = git("rev-parse", ref);
+        } catch (final ProgramException e) {
+          log.log(Level.WARNING, "Cannot resolve " + ref + ", waiting for it to reappear", e);
+          watcher.await(this.quiet, RECHECK_PERIOD);
+          continue;
+        }
+        if (!tip.equals(last)) {
+          val commits =
+              listCommits(last + ".." + tip).stream()
+                  .filter(Predicate.not(commitsToIgnore::contains))
+                  .toList();
+          if (!commits.isEmpty()) {
+            val config = this.extraction.apply(tip, commits);
+            modules =
+                modules == null
+                    ? ModuleResolver.create(
+                        config.moduleLayout(), this.projectDirectory, List.of(tip), commits.size())
+                    : modules.extend(this.projectDirectory, last + ".." + tip);
+            new HistoryProgram(config).withModules(modules).run();
+          }
+          log.log(
+              Level.INFO,
+              "Extracted {0} commits up to {1} in {2} ms",
+              new Object[] {
+                commits.size(), tip, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+              });
+          last = tip;
+          updates++;
+          continue;
+        }
+        watcher.await(this.quiet, RECHECK_PERIOD);
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.info("Watch interrupted");
+    }
+  }
+
+  private String git(final String... arguments) {
+    val command = new ArrayList<String>(List.of("git"));
+    command.addAll(List.of(arguments));
+    return Output.readStream(Shell.execute(command, this.projectDirectory).stdout()).trim();
+  }
+
+  private List<String> listCommits(final String range) {
+    // Read while git runs, as a long range does not fit in the pipe buffer
+    val process = Shell.start(List.of("git", "rev-list", range, "--"), this.projectDirectory);
+    return Output.consumeStdout(
+        process, reader -> reader.lines().filter(Predicate.not(String::isBlank)).toList());
+  }
+}
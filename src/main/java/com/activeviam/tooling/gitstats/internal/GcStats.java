@@ -0,0 +1,43 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * Garbage collection activity of the JVM, as reported by its collectors.
+ *
+ * @author ActiveViam
+ */
+@Log
+public record GcStats(long collections, long timeMillis) {
+
+  public static GcStats now() {
+    long collections = 0;
+    long time = 0;
+    for (final var collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collections += Math.max(0, collector.getCollectionCount());
+      time += Math.max(0, collector.getCollectionTime());
+    }
+    return new GcStats(collections, time);
+  }
+
+  /** Returns the activity since an earlier snapshot. */
+  public GcStats since(final GcStats start) {
+    return new GcStats(this.collections - start.collections, this.timeMillis - start.timeMillis);
+  }
+
+  public void log(final String label) {
+    log.log(
+        Level.INFO,
+        "Garbage collection with {0}: {1} collections, {2} ms",
+        new Object[] {label, this.collections, this.timeMillis});
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.age;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Number of lines by age bucket, where the age of a line is the time since the commit introducing
+ * it.
+ *
+ * @author ActiveViam
+ */
+public class AgeDistribution {
+
+  public static final String HEADER =
+      "lines,lt_1m,lt_3m,lt_6m,lt_1y,lt_2y,ge_2y,before_range,mean_age_days";
+
+  /** Upper bounds of the buckets, in days. */
+  private static final long[] BOUNDS = {30, 91, 182, 365, 730};
+
+  private static final long SECONDS_PER_DAY = 86_400;
+
+  private final long[] buckets = new long[BOUNDS.length + 1];
+  private long lines = 0;
+  private long beforeRange = 0;
+  private long totalAgeDays = 0;
+
+  /**
+   * Adds lines, introduced by a commit of the traversal.
+   *
+   * @param ageSeconds time between the introduction of the lines and the observation
+   */
+  public void add(final long ageSeconds, final long count) {
+    final long days = Math.max(0, ageSeconds) / SECONDS_PER_DAY;
+    int bucket = 0;
+    while (bucket < BOUNDS.length && days >= BOUNDS[bucket]) {
+      bucket++;
+    }
+    this.buckets[bucket] += count;
+    this.lines += count;
+    this.totalAgeDays += days * count;
+  }
+
+  /** Adds lines already present before the first commit of the traversal, of unknown age. */
+  public void addBeforeRange(final long count) {
+    this.beforeRange += count;
+    this.lines += count;
+  }
+
+  public long lines() {
+    return this.lines;
+  }
+
+  /** Formats the distribution as the {@link #HEADER} columns. */
+  public String toCsv() {
+    final var builder = new StringBuilder().append(this.lines);
+    Arrays.stream(this.buckets).forEach(count -> builder.append(',').append(count));
+    final long dated = this.lines - this.beforeRange;
+    return builder
+        .append(',')
+        .append(this.beforeRange)
+        .append(',')
+        .append(
+            dated == 0
+                ? ""
+                : String.format(Locale.ROOT, "%.1f", (double) this.totalAgeDays / dated))
+        .toString();
+  }
+}
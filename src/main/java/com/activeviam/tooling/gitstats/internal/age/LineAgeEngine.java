@@ -0,0 +1,172 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.age;
+
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader.FileDiff;
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader.Listener;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tracks the origin of every line of the tree while replaying a history, oldest commit first.
+ *
+ * <p>Each commit only updates the files it changes, by applying its diff hunks to their {@link
+ * LineOrigins}. At sampled commits, the age distribution of the lines of the whole tree is written,
+ * per module and optionally per file. Lines present before the first replayed commit are counted
+ * apart, as their origin is unknown. Binary files are not tracked.
+ *
+ * <p>Only first parents are followed, so lines brought by a merge are dated by the merge commit.
+ *
+ * @author ActiveViam
+ */
+public class LineAgeEngine implements Listener {
+
+  public static final String MODULE_HEADER = "commit,date,module," + AgeDistribution.HEADER;
+  public static final String FILE_HEADER = "commit,date,path,module," + AgeDistribution.HEADER;
+
+  /** Origin of the lines present before the first replayed commit. */
+  static final int BEFORE_RANGE = -1;
+
+  private final Map<String, LineOrigins> files = new HashMap<>();
+  private final Set<String> samples;
+  private final ModuleResolver modules;
+  private final PrintWriter moduleWriter;
+  private final PrintWriter fileWriter;
+
+  /** Committer dates of the replayed commits, indexed by origin. */
+  private long[] dates = new long[1024];
+
+  private int commits = 0;
+  private String currentCommit;
+
+  /** Changes of the current commit, applied together so that swapped paths do not collide. */
+  private final List<String> removedPaths = new ArrayList<>();
+
+  private final Map<String, LineOrigins> updatedFiles = new HashMap<>();
+
+  private int emitted = 0;
+
+  /**
+   * Creates an engine.
+   *
+   * @param samples commits at which distributions are written
+   * @param fileWriter receives the distribution of every file, or {@code null} to skip them
+   */
+  public LineAgeEngine(
+      final Set<String> samples,
+      final ModuleResolver modules,
+      final PrintWriter moduleWriter,
+      final PrintWriter fileWriter) {
+    this.samples = samples;
+    this.modules = modules;
+    this.moduleWriter = moduleWriter;
+    this.fileWriter = fileWriter;
+    this.moduleWriter.println(MODULE_HEADER);
+    if (this.fileWriter != null) {
+      this.fileWriter.println(FILE_HEADER);
+    }
+  }
+
+  /** Registers a file existing before the first replayed commit. */
+  public void initialize(final String path, final int lines) {
+    this.files.put(path, LineOrigins.of(BEFORE_RANGE, lines));
+  }
+
+  @Override
+  public void onCommit(final String sha1, final long epochSecond) {
+    completeCommit();
+    if (this.commits == this.dates.length) {
+      this.dates = Arrays.copyOf(this.dates, this.commits * 2);
+    }
+    this.dates[this.commits++] = epochSecond;
+    this.currentCommit = sha1;
+  }
+
+  @Override
+  public void onFile(final FileDiff diff) {
+    if (diff.oldPath() != null) {
+      this.removedPaths.add(diff.oldPath());
+    }
+    if (diff.binary() || diff.newPath() == null) {
+      return;
+    }
+    var origins = diff.oldPath() == null ? null : this.files.get(diff.oldPath());
+    if (origins == null) {
+      // Created file, or file which was binary until now
+      origins = new LineOrigins();
+    }
+    origins.apply(diff.hunks(), this.commits - 1);
+    this.updatedFiles.put(diff.newPath(), origins);
+  }
+
+  /** Completes the replay, once all commits are read. */
+  public void finish() {
+    completeCommit();
+  }
+
+  /** Returns the number of commits for which distributions were written. */
+  public int emitted() {
+    return this.emitted;
+  }
+
+  private void completeCommit() {
+    if (this.currentCommit == null) {
+      return;
+    }
+    this.removedPaths.forEach(this.files::remove);
+    this.files.putAll(this.updatedFiles);
+    this.removedPaths.clear();
+    this.updatedFiles.clear();
+    if (this.samples.contains(this.currentCommit)) {
+      emit(this.currentCommit, this.dates[this.commits - 1]);
+    }
+    this.currentCommit = null;
+  }
+
+  private void emit(final String commit, final long epochSecond) {
+    final var prefix =
+        commit + "," + Instant.ofEpochSecond(epochSecond).atOffset(ZoneOffset.UTC).toLocalDate();
+    final var byModule = new TreeMap<String, AgeDistribution>();
+    new TreeMap<>(this.files)
+        .forEach(
+            (path, origins) -> {
+              final var module = this.modules.resolve(path);
+              final var fileDistribution = new AgeDistribution();
+              final var moduleDistribution =
+                  byModule.computeIfAbsent(module, _ -> new AgeDistribution());
+              origins.forEachRun(
+                  (origin, length) -> {
+                    if (origin == BEFORE_RANGE) {
+                      fileDistribution.addBeforeRange(length);
+                      moduleDistribution.addBeforeRange(length);
+                    } else {
+                      final long age = epochSecond - this.dates[origin];
+                      fileDistribution.add(age, length);
+                      moduleDistribution.add(age, length);
+                    }
+                  });
+              if (this.fileWriter != null && fileDistribution.lines() > 0) {
+                this.fileWriter.println(
+                    prefix + "," + path + "," + module + "," + fileDistribution.toCsv());
+              }
+            });
+    byModule.forEach(
+        (module, distribution) ->
+            this.moduleWriter.println(prefix + "," + module + "," + distribution.toCsv()));
+    this.emitted++;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.age;
+
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader.Hunk;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Origin of every line of a file, as runs of consecutive lines introduced by the same commit.
+ *
+ * <p>Runs are stored as (origin, length) pairs in a single primitive array. Applying the hunks of a
+ * commit rebuilds the runs in one pass, so the cost of a change is linear in the number of runs of
+ * the file and not in its number of lines.
+ *
+ * @author ActiveViam
+ */
+public class LineOrigins {
+
+  private int[] runs;
+  private int size = 0;
+  private int lines = 0;
+
+  public LineOrigins() {
+    this.runs = new int[8];
+  }
+
+  /** Creates the origins of a file whose lines all come from the same commit. */
+  public static LineOrigins of(final int origin, final int lines) {
+    final var result = new LineOrigins();
+    result.append(origin, lines);
+    return result;
+  }
+
+  public int lines() {
+    return this.lines;
+  }
+
+  public int runs() {
+    return this.size / 2;
+  }
+
+  /**
+   * Applies the hunks of a commit.
+   *
+   * @param hunks hunks of the diff, in file order
+   * @param origin origin of the added lines
+   */
+  public void apply(final List<Hunk> hunks, final int origin) {
+    final int[] source = this.runs;
+    final int sourceSize = this.size;
+    this.runs = new int[Math.max(8, sourceSize + 4 * hunks.size())];
+    this.size = 0;
+    this.lines = 0;
+    int run = 0;
+    int used = 0;
+    int position = 0;
+    for (final var hunk : hunks) {
+      // Pure insertions come after their start line, replacements start at it
+      final int keepUntil = hunk.oldCount() == 0 ? hunk.oldStart() : hunk.oldStart() - 1;
+      int remaining = keepUntil - position;
+      while (remaining > 0 && run < sourceSize) {
+        final int taken = Math.min(remaining, source[run + 1] - used);
+        append(source[run], taken);
+        remaining -= taken;
+        used += taken;
+        if (used == source[run + 1]) {
+          run += 2;
+          used = 0;
+        }
+      }
+      remaining = hunk.oldCount();
+      while (remaining > 0 && run < sourceSize) {
+        final int taken = Math.min(remaining, source[run + 1] - used);
+        remaining -= taken;
+        used += taken;
+        if (used == source[run + 1]) {
+          run += 2;
+          used = 0;
+        }
+      }
+      position = keepUntil + hunk.oldCount();
+      append(origin, hunk.newCount());
+    }
+    while (run < sourceSize) {
+      append(source[run], source[run + 1] - used);
+      run += 2;
+      used = 0;
+    }
+  }
+
+  /** Calls the consumer with every run of lines, in file order. */
+  public void forEachRun(final RunConsumer consumer) {
+    for (int i = 0; i < this.size; i += 2) {
+      consumer.accept(this.runs[i], this.runs[i + 1]);
+    }
+  }
+
+  private void append(final int origin, final int count) {
+    if (count <= 0) {
+      return;
+    }
+    this.lines += count;
+    if (this.size > 0 && this.runs[this.size - 2] == origin) {
+      this.runs[this.size - 1] += count;
+      return;
+    }
+    if (this.size == this.runs.length) {
+      this.runs = Arrays.copyOf(this.runs, this.size * 2);
+    }
+    this.runs[this.size++] = origin;
+    this.runs[this.size++] = count;
+  }
+
+  @FunctionalInterface
+  public interface RunConsumer {
+
+    void accept(int origin, int length);
+  }
+}
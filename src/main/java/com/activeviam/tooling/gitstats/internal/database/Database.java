@@ -0,0 +1,131 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.database;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Embedded SQLite database receiving the rows of all datasets, as an alternative to CSV files.
+ *
+ * <p>Writers hand over batches of rows, inserted through one prepared statement per table and
+ * committed in large transactions. SQLite accepts a single writer at a time, so batches of
+ * concurrent writers are serialized on the database.
+ *
+ * <p>The database can be rebuilt from the repository at any time, so the journal is not synced to
+ * disk.
+ *
+ * @author ActiveViam
+ */
+@Log
+public class Database implements AutoCloseable {
+
+  /** Rows inserted between two commits of the transaction. */
+  private static final int COMMIT_ROWS = 1 << 17;
+
+  private final Path file;
+  private final Connection connection;
+  private final Map<Table, PreparedStatement> inserts = new EnumMap<>(Table.class);
+  private final Map<Table, Long> counts = new EnumMap<>(Table.class);
+  private long pendingRows = 0;
+
+  private Database(final Path file, final Connection connection) {
+    this.file = file;
+    this.connection = connection;
+  }
+
+  public static Database open(final Path file) {
+    final Connection connection;
+    try {
+      connection = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+    } catch (final SQLException e) {
+      throw new ProgramException("Cannot open database " + file, e);
+    }
+    try {
+      try (val statement = connection.createStatement()) {
+        statement.execute("PRAGMA synchronous = OFF");
+      }
+      connection.setAutoCommit(false);
+    } catch (final SQLException e) {
+      closeQuietly(connection);
+      throw new ProgramException("Cannot configure database " + file, e);
+    }
+    return new Database(file, connection);
+  }
+
+  /** Inserts rows into a table, created on first use, each row holding a value per column. */
+  public synchronized void append(final Table table, final List<Object[]> rows) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    try {
+      val insert = insertInto(table);
+      for (val row : rows) {
+        for (int i = 0; i < row.length; i++) {
+          insert.setObject(i + 1, row[i]);
+        }
+        insert.addBatch();
+      }
+      insert.executeBatch();
+      this.counts.merge(table, (long) rows.size(), Long::sum);
+      this.pendingRows += rows.size();
+      if (this.pendingRows >= COMMIT_ROWS) {
+        this.connection.commit();
+        this.pendingRows = 0;
+      }
+    } catch (final SQLException e) {
+      throw new ProgramException("Cannot insert into " + table.tableName(), e);
+    }
+  }
+
+  private PreparedStatement insertInto(final Table table) throws SQLException {
+    var insert = this.inserts.get(table);
+    if (insert == null) {
+      try (val statement = this.connection.createStatement()) {
+        statement.execute(table.createStatement());
+      }
+      insert = this.connection.prepareStatement(table.insertStatement());
+      this.inserts.put(table, insert);
+    }
+    return insert;
+  }
+
+  /** Commits the last rows and closes the database. */
+  @Override
+  public synchronized void close() {
+    try {
+      this.connection.commit();
+      for (val insert : this.inserts.values()) {
+        insert.close();
+      }
+    } catch (final SQLException e) {
+      throw new ProgramException("Cannot commit into database " + this.file, e);
+    } finally {
+      closeQuietly(this.connection);
+    }
+    log.log(Level.INFO, "Rows written into {0}: {1}", new Object[] {this.file, this.counts});
+  }
+
+  private static void closeQuietly(final Connection connection) {
+    try {
+      connection.close();
+    } catch (final SQLException e) {
+      log.log(Level.WARNING, "Failed to close the database", e);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.database;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tables of the embedded database, with the columns of the matching CSV files.
+ *
+ * <p>The optional {@code file} column holds the stable file id when lineage is computed, and is
+ * {@code NULL} otherwise. Names are quoted, as {@code commit}, {@code before} or {@code after} are
+ * SQL keywords.
+ *
+ * @author ActiveViam
+ */
+public enum Table {
+  BRANCHES("branches", List.of(text("branch"), text("commit"))),
+  COMMITS("commits", List.of(text("commit"), integer("timestamp"), text("date"))),
+  CHANGES(
+      "changes",
+      List.of(
+          text("commit"),
+          text("module"),
+          text("filename"),
+          text("path"),
+          integer("additions"),
+          integer("deletions"),
+          text("file"))),
+  RENAMINGS("renamings", List.of(text("commit"), text("before"), text("after"))),
+  LINES("lines", List.of(text("commit"), text("path"), integer("lines"), text("file"))),
+  INDENTATION(
+      "indentation",
+      List.of(
+          text("commit"),
+          text("path"),
+          integer("min_indent"),
+          integer("max_indent"),
+          new Column("mean_indent", "REAL"),
+          integer("median_indent"),
+          integer("bumps"),
+          text("histogram"),
+          text("file")));
+
+  private final String name;
+  private final List<Column> columns;
+
+  Table(final String name, final List<Column> columns) {
+    this.name = name;
+    this.columns = columns;
+  }
+
+  public String tableName() {
+    return this.name;
+  }
+
+  public int columnCount() {
+    return this.columns.size();
+  }
+
+  public String createStatement() {
+    return "CREATE TABLE IF NOT EXISTS "
+        + quote(this.name)
+        + " ("
+        + this.columns.stream()
+            .map(column -> quote(column.name()) + " " + column.type())
+            .collect(Collectors.joining(", "))
+        + ")";
+  }
+
+  public String insertStatement() {
+    return "INSERT INTO "
+        + quote(this.name)
+        + " VALUES ("
+        + this.columns.stream().map(_ -> "?").collect(Collectors.joining(", "))
+        + ")";
+  }
+
+  private static String quote(final String identifier) {
+    return '"' + identifier + '"';
+  }
+
+  private static Column text(final String name) {
+    return new Column(name, "TEXT");
+  }
+
+  private static Column integer(final String name) {
+    return new Column(name, "INTEGER");
+  }
+
+  private record Column(String name, String type) {}
+}
@@ -0,0 +1,166 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.diff;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Line diff computing the same additions/deletions as {@code git diff --numstat}.
+ *
+ * <p>Lines are hashed to integer ids, common prefix and suffix are trimmed, then the size of the
+ * shortest edit script is found with Myers' greedy algorithm. Only the edit distance is needed for
+ * the numstat, so no trace is kept and memory stays linear in the size of the files.
+ *
+ * @author ActiveViam
+ */
+public class LineDiff {
+
+  /** Number of leading bytes inspected by git to decide if a blob is binary. */
+  private static final int BINARY_PROBE_SIZE = 8000;
+
+  private LineDiff() {}
+
+  public record Numstat(int additions, int deletions) {
+
+    /** Marker for binary files, printed as {@code -} by git. */
+    public static final Numstat BINARY = new Numstat(-1, -1);
+
+    public boolean isBinary() {
+      return this.additions < 0;
+    }
+  }
+
+  public static Numstat compute(final byte[] before, final byte[] after) {
+    if (isBinary(before) || isBinary(after)) {
+      return Numstat.BINARY;
+    }
+    final var dictionary = new HashMap<String, Integer>();
+    final int[] a = hashLines(before, dictionary);
+    final int[] b = hashLines(after, dictionary);
+    return compute(a, b);
+  }
+
+  static Numstat compute(final int[] a, final int[] b) {
+    // Lines present on one side only can never be matched, drop them before running Myers
+    final int[] filteredA = keepShared(a, b);
+    final int[] filteredB = keepShared(b, a);
+    int start = 0;
+    while (start < filteredA.length
+        && start < filteredB.length
+        && filteredA[start] == filteredB[start]) {
+      start++;
+    }
+    int endA = filteredA.length;
+    int endB = filteredB.length;
+    while (endA > start && endB > start && filteredA[endA - 1] == filteredB[endB - 1]) {
+      endA--;
+      endB--;
+    }
+    final int n = endA - start;
+    final int m = endB - start;
+    final int distance = editDistance(filteredA, start, n, filteredB, start, m);
+    final int common = filteredA.length - (distance - m + n) / 2;
+    return new Numstat(b.length - common, a.length - common);
+  }
+
+  private static int[] keepShared(final int[] lines, final int[] other) {
+    int maxId = -1;
+    for (final int id : lines) {
+      maxId = Math.max(maxId, id);
+    }
+    final var present = new boolean[maxId + 1];
+    for (final int id : other) {
+      if (id <= maxId) {
+        present[id] = true;
+      }
+    }
+    int count = 0;
+    final int[] result = new int[lines.length];
+    for (final int id : lines) {
+      if (present[id]) {
+        result[count++] = id;
+      }
+    }
+    return count == lines.length ? lines : Arrays.copyOf(result, count);
+  }
+
+  /** Myers' greedy algorithm, returning the length of the shortest edit script. */
+  private static int editDistance(
+      final int[] a,
+      final int offsetA,
+      final int n,
+      final int[] b,
+      final int offsetB,
+      final int m) {
+    if (n == 0 || m == 0) {
+      return n + m;
+    }
+    final int max = n + m;
+    final int[] v = new int[2 * max + 2];
+    for (int d = 0; d <= max; d++) {
+      for (int k = -d; k <= d; k += 2) {
+        int x;
+        if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1])) {
+          x = v[max + k + 1];
+        } else {
+          x = v[max + k - 1] + 1;
+        }
+        int y = x - k;
+        while (x < n && y < m && a[offsetA + x] == b[offsetB + y]) {
+          x++;
+          y++;
+        }
+        v[max + k] = x;
+        if (x >= n && y >= m) {
+          return d;
+        }
+      }
+    }
+    return max;
+  }
+
+  static boolean isBinary(final byte[] content) {
+    final int limit = Math.min(content.length, BINARY_PROBE_SIZE);
+    for (int i = 0; i < limit; i++) {
+      if (content[i] == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Splits the content into lines, git-style: a trailing line without final newline still counts.
+   */
+  static int[] hashLines(final byte[] content, final Map<String, Integer> dictionary) {
+    int count = 0;
+    for (int i = 0; i < content.length; i++) {
+      if (content[i] == '\n') {
+        count++;
+      }
+    }
+    final boolean unterminated = content.length > 0 && content[content.length - 1] != '\n';
+    final int[] ids = new int[unterminated ? count + 1 : count];
+    int lineStart = 0;
+    int index = 0;
+    for (int i = 0; i <= content.length; i++) {
+      if (i == content.length ? unterminated : content[i] == '\n') {
+        // Lines differing only by their final newline are different lines for git
+        final int end = i == content.length ? i : i + 1;
+        final var line =
+            new String(content, lineStart, end - lineStart, StandardCharsets.ISO_8859_1);
+        ids[index++] = dictionary.computeIfAbsent(line, _ -> dictionary.size());
+        lineStart = i + 1;
+      }
+    }
+    return ids;
+  }
+}
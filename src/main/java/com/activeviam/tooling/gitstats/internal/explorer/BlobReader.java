@@ -0,0 +1,128 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reads blob contents through a long-running {@code git cat-file --batch} process.
+ *
+ * <p>Readers are not thread-safe. Use a {@link Pool} to share processes between fetch tasks.
+ *
+ * @author ActiveViam
+ */
+public class BlobReader implements AutoCloseable {
+
+  private static final String NULL_SHA1 = "0".repeat(40);
+
+  private final Process process;
+  private final OutputStream input;
+  private final InputStream output;
+
+  BlobReader(final Path projectDir) {
+    this.process = Shell.startDiscardingStderr(List.of("git", "cat-file", "--batch"), projectDir);
+    this.input = this.process.getOutputStream();
+    this.output = new BufferedInputStream(this.process.getInputStream(), 1 << 16);
+  }
+
+  public byte[] read(final String sha1) {
+    if (sha1.equals(NULL_SHA1)) {
+      return new byte[0];
+    }
+    try {
+      this.input.write((sha1 + "\n").getBytes(StandardCharsets.US_ASCII));
+      this.input.flush();
+      final var header = readHeader();
+      if (header.endsWith(" missing")) {
+        throw new ProgramException("Missing blob " + sha1);
+      }
+      final var size = Integer.parseInt(header.substring(header.lastIndexOf(' ') + 1));
+      final var content = this.output.readNBytes(size);
+      if (content.length != size || this.output.read() != '\n') {
+        throw new ProgramException("Truncated content for blob " + sha1);
+      }
+      return content;
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot read blob " + sha1, e);
+    }
+  }
+
+  private String readHeader() throws IOException {
+    final var buffer = new ByteArrayOutputStream(64);
+    int b;
+    while ((b = this.output.read()) != '\n') {
+      if (b < 0) {
+        throw new ProgramException("git cat-file terminated unexpectedly");
+      }
+      buffer.write(b);
+    }
+    return buffer.toString(StandardCharsets.US_ASCII);
+  }
+
+  @Override
+  public void close() {
+    try {
+      this.input.close();
+    } catch (final IOException e) {
+      // The process is destroyed anyway
+    }
+    this.process.destroy();
+  }
+
+  /**
+   * Pool of readers, growing up to the number of concurrent fetches.
+   *
+   * @author ActiveViam
+   */
+  public static class Pool implements AutoCloseable {
+
+    private final Path projectDir;
+    private final ConcurrentLinkedQueue<BlobReader> available = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<BlobReader> all = new ConcurrentLinkedQueue<>();
+
+    public Pool(final Path projectDir) {
+      this.projectDir = projectDir;
+    }
+
+    public BlobReader acquire() {
+      final var reader = this.available.poll();
+      if (reader != null) {
+        return reader;
+      }
+      final var created = new BlobReader(this.projectDir);
+      this.all.add(created);
+      return created;
+    }
+
+    public void release(final BlobReader reader) {
+      this.available.add(reader);
+    }
+
+    /** Closes a reader that may be left in the middle of a blob, instead of releasing it. */
+    public void discard(final BlobReader reader) {
+      this.all.remove(reader);
+      reader.close();
+    }
+
+    @Override
+    public void close() {
+      this.all.forEach(BlobReader::close);
+      this.all.clear();
+      this.available.clear();
+    }
+  }
+}
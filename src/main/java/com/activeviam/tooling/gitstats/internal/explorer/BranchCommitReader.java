@@ -46,7 +46,7 @@ public class BranchCommitReader {
   private final String resolvedCommit = resolveStartCommit();
 
   @Getter(lazy = true, value = lombok.AccessLevel.PRIVATE)
-  private final Set<String> commitsToIgnore = readCommitsToIgnore();
+  private final Set<String> commitsToIgnore = readCommitsToIgnore(this.projectDir);
 
   public void run() {
     final var increment = 100;
@@ -91,8 +91,8 @@ public class BranchCommitReader {
     return Shell.Output.readStream(commandOutput.stdout()).trim();
   }
 
-  private Set<String> readCommitsToIgnore() {
-    val ignoredFile = this.projectDir.resolve(".git-blame-ignore-revs");
+  public static Set<String> readCommitsToIgnore(final Path projectDir) {
+    val ignoredFile = projectDir.resolve(".git-blame-ignore-revs");
     if (Files.exists(ignoredFile)) {
       try {
         return Files.readAllLines(ignoredFile).stream()
@@ -0,0 +1,162 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Set of commits, each associated with the branches containing it.
+ *
+ * <p>Commits are stored as raw 160-bit ids in primitive arrays, with one bit per branch, so that
+ * millions of (branch, commit) pairs fit in a few dozen bytes per commit. Commits keep their
+ * insertion order.
+ *
+ * <p>The structure is filled by a single thread, then only read.
+ *
+ * @author ActiveViam
+ */
+public class BranchMembership {
+
+  private static final HexFormat HEX = HexFormat.of();
+
+  private final List<String> branches;
+  private final int words;
+  private long[] high = new long[1024];
+  private long[] middle = new long[1024];
+  private int[] low = new int[1024];
+  private long[] masks;
+  private int size = 0;
+
+  /** Open-addressing index of commit positions, shifted by one so that 0 marks a free slot. */
+  private int[] slots = new int[2048];
+
+  public BranchMembership(final List<String> branches) {
+    this.branches = List.copyOf(branches);
+    this.words = Math.max(1, (branches.size() + 63) / 64);
+    this.masks = new long[this.high.length * this.words];
+  }
+
+  public List<String> branches() {
+    return this.branches;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Records that a branch contains a commit.
+   *
+   * @return {@code true} if the commit was not known before
+   */
+  public boolean add(final String sha1, final int branch) {
+    checkSha1(sha1);
+    final long h = Long.parseUnsignedLong(sha1, 0, 16, 16);
+    final long m = Long.parseUnsignedLong(sha1, 16, 32, 16);
+    final int l = (int) Long.parseUnsignedLong(sha1, 32, 40, 16);
+    final int slot = findSlot(h, m, l);
+    final boolean created = this.slots[slot] == 0;
+    final int index;
+    if (created) {
+      index = append(h, m, l);
+      this.slots[slot] = index + 1;
+      if (this.size * 2 > this.slots.length) {
+        rehash();
+      }
+    } else {
+      index = this.slots[slot] - 1;
+    }
+    this.masks[index * this.words + branch / 64] |= 1L << (branch % 64);
+    return created;
+  }
+
+  public boolean contains(final String sha1) {
+    return indexOf(sha1) >= 0;
+  }
+
+  /** Calls the action with the name of every branch containing the commit. */
+  public void forEachBranch(final String sha1, final Consumer<String> action) {
+    final int index = indexOf(sha1);
+    if (index < 0) {
+      return;
+    }
+    for (int w = 0; w < this.words; w++) {
+      long mask = this.masks[index * this.words + w];
+      while (mask != 0) {
+        final int bit = Long.numberOfTrailingZeros(mask);
+        action.accept(this.branches.get(w * 64 + bit));
+        mask &= mask - 1;
+      }
+    }
+  }
+
+  /** Calls the action with every commit, in insertion order. */
+  public void forEachCommit(final Consumer<String> action) {
+    for (int i = 0; i < this.size; i++) {
+      action.accept(
+          HEX.toHexDigits(this.high[i])
+              + HEX.toHexDigits(this.middle[i])
+              + HEX.toHexDigits(this.low[i]));
+    }
+  }
+
+  private int indexOf(final String sha1) {
+    checkSha1(sha1);
+    final long h = Long.parseUnsignedLong(sha1, 0, 16, 16);
+    final long m = Long.parseUnsignedLong(sha1, 16, 32, 16);
+    final int l = (int) Long.parseUnsignedLong(sha1, 32, 40, 16);
+    return this.slots[findSlot(h, m, l)] - 1;
+  }
+
+  private int findSlot(final long h, final long m, final int l) {
+    final int mask = this.slots.length - 1;
+    // Commit ids are uniformly distributed, their first bits are a good enough hash
+    int slot = (int) h & mask;
+    while (true) {
+      final int position = this.slots[slot];
+      if (position == 0) {
+        return slot;
+      }
+      final int index = position - 1;
+      if (this.high[index] == h && this.middle[index] == m && this.low[index] == l) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private int append(final long h, final long m, final int l) {
+    if (this.size == this.high.length) {
+      final int capacity = this.high.length * 2;
+      this.high = Arrays.copyOf(this.high, capacity);
+      this.middle = Arrays.copyOf(this.middle, capacity);
+      this.low = Arrays.copyOf(this.low, capacity);
+      this.masks = Arrays.copyOf(this.masks, capacity * this.words);
+    }
+    this.high[this.size] = h;
+    this.middle[this.size] = m;
+    this.low[this.size] = l;
+    return this.size++;
+  }
+
+  private void rehash() {
+    this.slots = new int[this.slots.length * 2];
+    for (int i = 0; i < this.size; i++) {
+      this.slots[findSlot(this.high[i], this.middle[i], this.low[i])] = i + 1;
+    }
+  }
+
+  private static void checkSha1(final String sha1) {
+    if (sha1.length() != 40) {
+      throw new IllegalArgumentException("Not a SHA-1 commit id: " + sha1);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action;
+import com.activeviam.tooling.gitstats.internal.orchestration.Queue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Predicate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Emits the commits listed in a file, one per line.
+ *
+ * @author ActiveViam
+ */
+@RequiredArgsConstructor
+public class CommitListReader {
+
+  private final Path commitFile;
+  private final Queue<Action<String>> output;
+
+  public void run() {
+    try (final var lines = Files.lines(this.commitFile)) {
+      lines
+          .map(String::trim)
+          .filter(Predicate.not(String::isEmpty))
+          .forEach(commit -> this.output.put(Action.value(commit)));
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot read commit list " + this.commitFile, e);
+    }
+    this.output.put(Action.stop());
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+
+/**
+ * Strategy selecting the commits to process among the traversed history.
+ *
+ * <p>Commits are presented newest first, with their committer date.
+ *
+ * @author ActiveViam
+ */
+public sealed interface CommitSampler
+    permits CommitSampler.EveryNth, CommitSampler.LastPerPeriod, CommitSampler.Evenly {
+
+  /**
+   * Parses a sampling spec: {@code every:<n>}, {@code daily}, {@code weekly}, {@code monthly} or
+   * {@code samples:<n>}.
+   */
+  static CommitSampler parse(final String spec) {
+    final var separator = spec.indexOf(':');
+    final var kind = separator < 0 ? spec : spec.substring(0, separator);
+    final var argument = separator < 0 ? null : spec.substring(separator + 1);
+    final CommitSampler sampler =
+        switch (kind) {
+          case "every" -> new EveryNth(parseCount(spec, argument));
+          case "samples" -> new Evenly(parseCount(spec, argument));
+          case "daily" -> new LastPerPeriod(Period.DAY);
+          case "weekly" -> new LastPerPeriod(Period.WEEK);
+          case "monthly" -> new LastPerPeriod(Period.MONTH);
+          default -> throw new IllegalArgumentException("Invalid sampling spec: " + spec);
+        };
+    if (sampler instanceof LastPerPeriod && argument != null) {
+      throw new IllegalArgumentException("Invalid sampling spec: " + spec);
+    }
+    return sampler;
+  }
+
+  private static int parseCount(final String spec, final String argument) {
+    if (argument == null) {
+      throw new IllegalArgumentException("Missing count in sampling spec: " + spec);
+    }
+    final var count = Integer.parseInt(argument);
+    if (count <= 0) {
+      throw new IllegalArgumentException("Sampling count must be positive: " + spec);
+    }
+    return count;
+  }
+
+  /** Whether the total number of traversed commits must be known before filtering. */
+  default boolean needsTotal() {
+    return false;
+  }
+
+  /**
+   * Creates the stateful filter for one traversal.
+   *
+   * @param total number of commits in the traversal, only meaningful if {@link #needsTotal()}
+   */
+  Filter start(int total);
+
+  interface Filter {
+
+    boolean accept(Instant date);
+  }
+
+  enum Period {
+    DAY,
+    WEEK,
+    MONTH;
+
+    long bucketOf(final Instant date) {
+      return startOf(date).toEpochDay();
+    }
+
+    /** Returns the first day of the period containing the date, in UTC. */
+    public LocalDate startOf(final Instant date) {
+      final var day = date.atOffset(ZoneOffset.UTC).toLocalDate();
+      return switch (this) {
+        case DAY -> day;
+        case WEEK -> day.with(DayOfWeek.MONDAY);
+        case MONTH -> day.withDayOfMonth(1);
+      };
+    }
+  }
+
+  record EveryNth(int step) implements CommitSampler {
+
+    @Override
+    public Filter start(final int total) {
+      final var index = new int[1];
+      return _ -> index[0]++ % this.step == 0;
+    }
+  }
+
+  /** Keeps the most recent commit of every period. */
+  record LastPerPeriod(Period period) implements CommitSampler {
+
+    @Override
+    public Filter start(final int total) {
+      final var seen = new HashSet<Long>();
+      return date -> seen.add(this.period.bucketOf(date));
+    }
+  }
+
+  /** Keeps a target number of commits, evenly spaced in the traversal. */
+  record Evenly(int samples) implements CommitSampler {
+
+    @Override
+    public boolean needsTotal() {
+      return true;
+    }
+
+    @Override
+    public Filter start(final int total) {
+      final var index = new int[1];
+      final var lastBucket = new long[] {-1};
+      return _ -> {
+        // Commit i belongs to bucket floor(i * samples / total), the first of each bucket is kept
+        final long bucket = (long) index[0]++ * this.samples / Math.max(total, 1);
+        if (bucket != lastBucket[0]) {
+          lastBucket[0] = bucket;
+          return true;
+        }
+        return false;
+      };
+    }
+  }
+}
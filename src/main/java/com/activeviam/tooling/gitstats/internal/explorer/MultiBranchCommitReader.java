@@ -0,0 +1,98 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell.Output;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action;
+import com.activeviam.tooling.gitstats.internal.orchestration.Queue;
+import com.activeviam.tooling.gitstats.internal.shell.BranchListReader;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Reads the history of several branches, emitting each commit only once.
+ *
+ * <p>The histories of all branches are first merged into a {@link BranchMembership}, which is
+ * cheap compared to fetching commit details. Commits are then emitted in the order of their first
+ * appearance.
+ *
+ * @author ActiveViam
+ */
+@RequiredArgsConstructor
+@Log
+public class MultiBranchCommitReader {
+
+  private final Path projectDir;
+  private final BranchMembership membership;
+  private final int historySize;
+  private final Queue<Action<String>> output;
+
+  /** Expands the branch patterns into the list of matching branches. */
+  public static List<String> resolveBranches(final Path projectDir, final List<String> branches) {
+    val result = new LinkedHashSet<String>();
+    for (val branch : branches) {
+      if (BranchListReader.isPattern(branch)) {
+        val commandOutput = Shell.execute(BranchListReader.getCommand(branch), projectDir);
+        Output.readStream(commandOutput.stdout())
+            .lines()
+            .filter(Predicate.not(String::isBlank))
+            .map(BranchListReader::parseLine)
+            .forEach(result::add);
+      } else {
+        result.add(branch);
+      }
+    }
+    if (result.isEmpty()) {
+      throw new ProgramException("No branch matching " + branches);
+    }
+    return new ArrayList<>(result);
+  }
+
+  public void run() {
+    val commitsToIgnore = BranchCommitReader.readCommitsToIgnore(this.projectDir);
+    val branches = this.membership.branches();
+    for (int i = 0; i < branches.size(); i++) {
+      readBranch(branches.get(i), i, Predicate.not(commitsToIgnore::contains));
+    }
+    log.log(
+        Level.INFO,
+        "Found {0} distinct commits in {1} branches",
+        new Object[] {this.membership.size(), branches.size()});
+    this.membership.forEachCommit(commit -> this.output.put(Action.value(commit)));
+    this.output.put(Action.stop());
+  }
+
+  @WithSpan("Read branch membership")
+  private void readBranch(final String branch, final int index, final Predicate<String> filter) {
+    Span.current().setAttribute("branch", branch);
+    val process =
+        Shell.startDiscardingStderr(
+            List.of("git", "rev-list", branch, "-n", String.valueOf(this.historySize)),
+            this.projectDir);
+    Output.consumeStdout(
+        process,
+        reader -> {
+          reader
+              .lines()
+              .filter(Predicate.not(String::isBlank))
+              .filter(filter)
+              .forEach(commit -> this.membership.add(commit, index));
+          return null;
+        });
+  }
+}
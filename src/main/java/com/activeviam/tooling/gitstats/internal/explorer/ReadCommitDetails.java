@@ -9,20 +9,28 @@ package com.activeviam.tooling.gitstats.internal.explorer;
 
 import com.activeviam.tooling.gitstats.Application.IndentSpec;
 import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.diff.LineDiff;
 import com.activeviam.tooling.gitstats.internal.explorer.Shell.Output;
+import com.activeviam.tooling.gitstats.internal.offheap.PathDictionary;
+import com.activeviam.tooling.gitstats.internal.offheap.TreeStatsBatch;
 import com.activeviam.tooling.gitstats.internal.shell.ChangeReader;
 import com.activeviam.tooling.gitstats.internal.shell.CommitDateReader;
 import com.activeviam.tooling.gitstats.internal.shell.IndentationReader;
 import com.activeviam.tooling.gitstats.internal.shell.LineCountReader;
+import com.activeviam.tooling.gitstats.internal.shell.RawDiffReader;
 import com.activeviam.tooling.gitstats.internal.shell.RenameReader;
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.StructuredTaskScope.Joiner;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import lombok.val;
 
@@ -41,6 +49,9 @@ public class ReadCommitDetails {
   private final IndentSpec indentSpec;
   private final FetchMode mode;
   private final boolean allFiles;
+  private final BlobReader.Pool blobs;
+  private final PathDictionary paths;
+  private final boolean treeStatsDate;
 
   public ReadCommitDetails(
       final Path projectDir,
@@ -56,42 +67,134 @@ public class ReadCommitDetails {
       final IndentSpec indentSpec,
       final FetchMode mode,
       final boolean allFiles) {
+    this(projectDir, commit, indentSpec, mode, allFiles, null);
+  }
+
+  public ReadCommitDetails(
+      final Path projectDir,
+      final String commit,
+      final IndentSpec indentSpec,
+      final FetchMode mode,
+      final boolean allFiles,
+      final BlobReader.Pool blobs) {
+    this(projectDir, commit, indentSpec, mode, allFiles, blobs, null);
+  }
+
+  public ReadCommitDetails(
+      final Path projectDir,
+      final String commit,
+      final IndentSpec indentSpec,
+      final FetchMode mode,
+      final boolean allFiles,
+      final BlobReader.Pool blobs,
+      final PathDictionary paths) {
+    this(projectDir, commit, indentSpec, mode, allFiles, blobs, paths, false);
+  }
+
+  /**
+   * Creates a reader.
+   *
+   * @param paths dictionary of the off-heap tree statistics, or {@code null} to read records
+   * @param treeStatsDate whether tree statistics read the commit date, left at the epoch otherwise
+   *     to save a git process per commit. The history always reads it.
+   */
+  public ReadCommitDetails(
+      final Path projectDir,
+      final String commit,
+      final IndentSpec indentSpec,
+      final FetchMode mode,
+      final boolean allFiles,
+      final BlobReader.Pool blobs,
+      final PathDictionary paths,
+      final boolean treeStatsDate) {
     this.projectDir = projectDir;
     this.commit = commit;
     this.indentSpec = indentSpec;
     this.mode = mode;
     this.allFiles = allFiles;
+    this.blobs = blobs;
+    this.paths = paths;
+    this.treeStatsDate = treeStatsDate;
   }
 
-  private Instant readCommitDate() {
+  public Instant readCommitDate() {
     final var output = Shell.execute(CommitDateReader.getCommand(this.commit), this.projectDir);
     final var stdout = Output.readStream(output.stdout()).trim();
     return CommitDateReader.parseLine(stdout);
   }
 
   private List<FileChanges> readFileChanges() {
+    val result = new ArrayList<FileChanges>();
+    readFileChanges(result::add);
+    return result;
+  }
+
+  private void readFileChanges(final Consumer<FileChanges> consumer) {
+    if (this.blobs != null) {
+      diffFileChanges(consumer);
+      return;
+    }
     final var process =
         Shell.startDiscardingStderr(ChangeReader.getCommand(this.commit), this.projectDir);
 
-    return Shell.Output.consumeStdout(
+    Shell.Output.consumeStdout(
         process,
-        reader ->
-            reader
-                .lines()
-                .skip(1)
-                .filter(Predicate.not(String::isBlank))
-                .map(ChangeReader::parseLine)
-                .toList());
+        reader -> {
+          reader
+              .lines()
+              .skip(1)
+              .filter(Predicate.not(String::isBlank))
+              .map(ChangeReader::parseLine)
+              .forEach(consumer);
+          return null;
+        });
+  }
+
+  /** Computes the numstat in process, fetching blobs from the shared readers. */
+  private void diffFileChanges(final Consumer<FileChanges> consumer) {
+    val process =
+        Shell.startDiscardingStderr(RawDiffReader.getCommand(this.commit), this.projectDir);
+    val rawChanges =
+        Shell.Output.consumeStdout(
+            process,
+            reader ->
+                reader.lines().map(RawDiffReader::parseLine).flatMap(Optional::stream).toList());
+
+    val reader = this.blobs.acquire();
+    try {
+      for (val change : rawChanges) {
+        val numstat =
+            LineDiff.compute(reader.read(change.beforeBlob()), reader.read(change.afterBlob()));
+        consumer.accept(new FileChanges(change.path(), numstat.additions(), numstat.deletions()));
+      }
+    } catch (final RuntimeException | Error e) {
+      this.blobs.discard(reader);
+      throw e;
+    }
+    this.blobs.release(reader);
   }
 
   private List<FileRenaming> readFileRenamings() {
+    val result = new ArrayList<FileRenaming>();
+    readFileRenamings(result::add);
+    return result;
+  }
+
+  private void readFileRenamings(final Consumer<FileRenaming> consumer) {
     val process =
         Shell.startDiscardingStderr(RenameReader.getCommand(this.commit), this.projectDir);
 
-    return Shell.Output.consumeStdout(
+    Shell.Output.consumeStdout(
         process,
-        reader ->
-            reader.lines().skip(1).map(this::parseFileInfo).filter(Objects::nonNull).toList());
+        reader -> {
+          reader
+              .lines()
+              .skip(1)
+              .map(this::parseFileInfo)
+              .filter(Objects::nonNull)
+              .forEach(consumer);
+          return null;
+        });
   }
 
   private FileRenaming parseFileInfo(final String line) {
@@ -106,26 +209,109 @@ public class ReadCommitDetails {
   }
 
   private List<FileLineCount> readFileLineCounts(final List<String> changedPaths) {
+    val result = new ArrayList<FileLineCount>();
+    readFileLineCounts(changedPaths, result::add);
+    return result;
+  }
+
+  private void readFileLineCounts(
+      final List<String> changedPaths, final Consumer<FileLineCount> consumer) {
     val command =
         changedPaths != null
             ? LineCountReader.getCommand(this.commit, changedPaths)
             : LineCountReader.getCommand(this.commit);
     val process = Shell.startDiscardingStderr(command, this.projectDir);
 
-    return Shell.Output.consumeStdout(
+    Shell.Output.consumeStdout(
         process,
-        reader -> reader.lines().map(LineCountReader::parseLine).filter(Objects::nonNull).toList());
+        reader -> {
+          reader.lines().map(LineCountReader::parseLine).filter(Objects::nonNull).forEach(consumer);
+          return null;
+        });
   }
 
   private List<FileIndentationStats> readFileIndentation(final List<String> changedPaths) {
+    val result = new ArrayList<FileIndentationStats>();
+    readFileIndentation(changedPaths, result::add);
+    return result;
+  }
+
+  private void readFileIndentation(
+      final List<String> changedPaths, final Consumer<FileIndentationStats> consumer) {
     val command =
         changedPaths != null
             ? IndentationReader.getCommand(this.commit, changedPaths)
             : IndentationReader.getCommand(this.commit);
     val process = Shell.startDiscardingStderr(command, this.projectDir);
 
-    return Shell.Output.consumeStdout(
-        process, reader -> IndentationReader.parseOutput(reader, this.indentSpec));
+    Shell.Output.consumeStdout(
+        process,
+        reader -> {
+          IndentationReader.parseOutput(reader, this.indentSpec, consumer);
+          return null;
+        });
+  }
+
+  /** Reads the tree statistics straight into off-heap rows, released by the two writers. */
+  private TreeStatsBatch readTreeStatsBatch(final List<String> changedPaths)
+      throws InterruptedException {
+    val batch = new TreeStatsBatch(this.paths, 2);
+    try (val scope = StructuredTaskScope.open(Joiner.allSuccessfulOrThrow())) {
+      scope.fork(
+          () ->
+              readFileLineCounts(
+                  changedPaths, count -> batch.addLineCount(count.path(), count.lineCount())));
+      scope.fork(
+          () ->
+              readFileIndentation(
+                  changedPaths,
+                  stats ->
+                      batch.addIndentation(
+                          stats.path(),
+                          stats.minIndent(),
+                          stats.maxIndent(),
+                          stats.meanIndent(),
+                          stats.medianIndent(),
+                          stats.bumps(),
+                          stats.histogram())));
+      scope.join();
+    } catch (final RuntimeException | InterruptedException e) {
+      batch.discard();
+      throw e;
+    }
+    return batch;
+  }
+
+  /**
+   * Streams the changes and renamings of the commit to the consumers as git outputs them, instead
+   * of collecting them. Each consumer is called from a single thread, concurrently with the other.
+   */
+  @WithSpan("Stream commit changes")
+  public void streamHistory(
+      final Consumer<FileChanges> changes, final Consumer<FileRenaming> renamings) {
+    forkBoth(() -> readFileChanges(changes), () -> readFileRenamings(renamings));
+  }
+
+  /** Same as {@link #streamHistory} for the line counts and indentation statistics. */
+  @WithSpan("Stream tree statistics")
+  public void streamTreeStats(
+      final Consumer<FileLineCount> lineCounts, final Consumer<FileIndentationStats> indentations) {
+    val changedPaths = this.allFiles ? null : readChangedFiles();
+    forkBoth(
+        () -> readFileLineCounts(changedPaths, lineCounts),
+        () -> readFileIndentation(changedPaths, indentations));
+  }
+
+  private void forkBoth(final Runnable first, final Runnable second) {
+    Span.current().setAttribute("commit", this.commit);
+    try (val scope = StructuredTaskScope.open(Joiner.allSuccessfulOrThrow())) {
+      scope.fork(first);
+      scope.fork(second);
+      scope.join();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProgramException("Read interrupted while streaming details", e);
+    }
   }
 
   @WithSpan("Read commit details")
@@ -136,8 +322,8 @@ public class ReadCommitDetails {
       return switch (this.mode) {
         case HISTORY -> {
           val dateTask = scope.fork(this::readCommitDate);
-          val changesTask = scope.fork(this::readFileChanges);
-          val renameTask = scope.fork(this::readFileRenamings);
+          val changesTask = scope.fork(() -> readFileChanges());
+          val renameTask = scope.fork(() -> readFileRenamings());
           scope.join();
           yield new CommitDetails(
               new CommitInfo(this.commit, dateTask.get()),
@@ -147,12 +333,29 @@ public class ReadCommitDetails {
               List.of());
         }
         case TREE_STATS -> {
+          val dateTask = scope.fork(() -> this.treeStatsDate ? readCommitDate() : Instant.EPOCH);
           val changedPaths = this.allFiles ? null : readChangedFiles();
+          if (this.paths != null) {
+            val batch = readTreeStatsBatch(changedPaths);
+            try {
+              scope.join();
+            } catch (final RuntimeException | InterruptedException e) {
+              batch.discard();
+              throw e;
+            }
+            yield new CommitDetails(
+                new CommitInfo(this.commit, dateTask.get()),
+                List.of(),
+                List.of(),
+                List.of(),
+                List.of(),
+                batch);
+          }
           val lineCountTask = scope.fork(() -> readFileLineCounts(changedPaths));
           val indentTask = scope.fork(() -> readFileIndentation(changedPaths));
           scope.join();
           yield new CommitDetails(
-              new CommitInfo(this.commit, Instant.EPOCH),
+              new CommitInfo(this.commit, dateTask.get()),
               List.of(),
               List.of(),
               lineCountTask.get(),
@@ -165,12 +368,29 @@ public class ReadCommitDetails {
     }
   }
 
+  /**
+   * Details of a commit.
+   *
+   * @param treeStats off-heap line counts and indentation, replacing the lists when not {@code
+   *     null}
+   */
   public record CommitDetails(
       CommitInfo commit,
       List<FileChanges> fileChanges,
       List<FileRenaming> fileRenamings,
       List<FileLineCount> fileLineCounts,
-      List<FileIndentationStats> fileIndentations) {}
+      List<FileIndentationStats> fileIndentations,
+      TreeStatsBatch treeStats) {
+
+    public CommitDetails(
+        final CommitInfo commit,
+        final List<FileChanges> fileChanges,
+        final List<FileRenaming> fileRenamings,
+        final List<FileLineCount> fileLineCounts,
+        final List<FileIndentationStats> fileIndentations) {
+      this(commit, fileChanges, fileRenamings, fileLineCounts, fileIndentations, null);
+    }
+  }
 
   public record CommitInfo(String sha1, Instant date) {}
 
@@ -180,6 +400,17 @@ public class ReadCommitDetails {
 
   public record FileLineCount(String path, int lineCount) {}
 
+  /**
+   * Indentation of the lines of a file.
+   *
+   * @param histogram number of lines at each indentation level, mergeable into module statistics
+   */
   public record FileIndentationStats(
-      String path, int minIndent, int maxIndent, double meanIndent, int medianIndent, int bumps) {}
+      String path,
+      int minIndent,
+      int maxIndent,
+      double meanIndent,
+      int medianIndent,
+      int bumps,
+      LevelHistogram histogram) {}
 }
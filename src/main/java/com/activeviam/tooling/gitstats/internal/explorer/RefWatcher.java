@@ -0,0 +1,131 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Waits for a ref of a repository to be updated, without polling git.
+ *
+ * <p>Git updates a loose ref by renaming a lock file over it, and rewrites {@code packed-refs} the
+ * same way when refs are packed. The watcher listens to the directory of the ref and to the git
+ * directory, keeping only events on these two files. Once an event is seen, it waits for the
+ * directories to stay quiet for a while, so that the burst of events of a single push or fetch is
+ * reported once.
+ *
+ * <p>Events can be lost, for instance when the queue of the file system overflows. Callers are
+ * expected to check the ref anyway after a timeout.
+ *
+ * @author ActiveViam
+ */
+@Log
+public class RefWatcher implements AutoCloseable {
+
+  private final WatchService service;
+  private final Path refFile;
+  private final Path packedRefs;
+
+  /**
+   * @param gitDirectory the common git directory, holding {@code refs} and {@code packed-refs}
+   * @param ref the full name of the ref, such as {@code refs/heads/main}
+   */
+  public RefWatcher(final Path gitDirectory, final String ref) {
+    this.refFile = gitDirectory.resolve(ref).toAbsolutePath().normalize();
+    this.packedRefs = gitDirectory.resolve("packed-refs").toAbsolutePath().normalize();
+    try {
+      this.service = FileSystems.getDefault().newWatchService();
+      register(gitDirectory);
+      // A packed ref has no directory of its own until it is updated
+      var directory = this.refFile.getParent();
+      while (!Files.isDirectory(directory)) {
+        directory = directory.getParent();
+      }
+      register(directory);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot watch the refs of " + gitDirectory, e);
+    }
+  }
+
+  private void register(final Path directory) throws IOException {
+    directory.register(
+        this.service,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY,
+        StandardWatchEventKinds.ENTRY_DELETE);
+  }
+
+  /**
+   * Waits for the ref to change.
+   *
+   * @param quiet time without events after the first one, before returning
+   * @param timeout maximum time to wait for a first event
+   * @return {@code true} if the ref may have changed, {@code false} on timeout
+   */
+  public boolean await(final Duration quiet, final Duration timeout) throws InterruptedException {
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    boolean changed = false;
+    while (true) {
+      final long wait = changed ? quiet.toNanos() : Math.max(0, deadline - System.nanoTime());
+      final WatchKey key;
+      try {
+        key = this.service.poll(wait, TimeUnit.NANOSECONDS);
+      } catch (final ClosedWatchServiceException e) {
+        return changed;
+      }
+      if (key == null) {
+        return changed;
+      }
+      val directory = (Path) key.watchable();
+      for (val event : key.pollEvents()) {
+        changed |= isRelevant(directory, event);
+      }
+      key.reset();
+    }
+  }
+
+  private boolean isRelevant(final Path directory, final WatchEvent<?> event) {
+    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+      log.log(Level.FINE, "Events lost while watching {0}", directory);
+      return true;
+    }
+    val file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+    if (!file.equals(this.refFile) && this.refFile.startsWith(file) && Files.isDirectory(file)) {
+      // Creating the directory of a packed ref is the first step of its update
+      try {
+        register(file);
+      } catch (final IOException e) {
+        log.log(Level.WARNING, "Cannot watch " + file, e);
+      }
+      return true;
+    }
+    return file.equals(this.refFile) || file.equals(this.packedRefs);
+  }
+
+  @Override
+  public void close() {
+    try {
+      this.service.close();
+    } catch (final IOException e) {
+      log.log(Level.WARNING, "Failed to close the ref watcher", e);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import com.activeviam.tooling.gitstats.internal.explorer.Shell.Output;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action;
+import com.activeviam.tooling.gitstats.internal.orchestration.Queue;
+import com.activeviam.tooling.gitstats.internal.shell.TimestampedCommitReader;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Reads the history of a branch, only emitting the commits selected by a {@link CommitSampler}.
+ *
+ * <p>Commit dates come with the traversal itself, so commits left out are never fetched.
+ *
+ * @author ActiveViam
+ */
+@RequiredArgsConstructor
+@Log
+public class SampledCommitReader {
+
+  private final Path projectDir;
+  private final String startCommit;
+  private final int historySize;
+  private final CommitSampler sampler;
+  private final Queue<Action<String>> output;
+
+  @WithSpan("Read sampled commits")
+  public void run() {
+    Span.current().setAttribute("start-commit", this.startCommit);
+    val commitsToIgnore = BranchCommitReader.readCommitsToIgnore(this.projectDir);
+    val filter = this.sampler.start(this.sampler.needsTotal() ? countCommits() : 0);
+    val process =
+        Shell.startDiscardingStderr(
+            TimestampedCommitReader.getCommand(this.startCommit, this.historySize),
+            this.projectDir);
+    val sampled =
+        Output.consumeStdout(
+            process,
+            reader -> {
+              int count = 0;
+              for (final var line : (Iterable<String>) reader.lines()::iterator) {
+                if (line.isBlank()) {
+                  continue;
+                }
+                val commit = TimestampedCommitReader.parseLine(line);
+                if (!commitsToIgnore.contains(commit.sha1()) && filter.accept(commit.date())) {
+                  this.output.put(Action.value(commit.sha1()));
+                  count++;
+                }
+              }
+              return count;
+            });
+    log.log(Level.INFO, "Sampled {0} commits with {1}", new Object[] {sampled, this.sampler});
+    this.output.put(Action.stop());
+  }
+
+  private int countCommits() {
+    val commandOutput =
+        Shell.execute(
+            TimestampedCommitReader.getCountCommand(this.startCommit, this.historySize),
+            this.projectDir);
+    return Integer.parseInt(Output.readStream(commandOutput.stdout()).trim());
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell.Output;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import lombok.val;
+
+/**
+ * Splits the history of a branch into contiguous ranges of commits, one file per shard.
+ *
+ * @author ActiveViam
+ */
+public class ShardPlanner {
+
+  private ShardPlanner() {}
+
+  public static String shardFileName(final int index) {
+    return String.format("shard-%03d.txt", index);
+  }
+
+  /**
+   * Writes the commit list of each shard into the target directory.
+   *
+   * @return the files, in shard order
+   */
+  public static List<Path> plan(
+      final Path projectDir,
+      final String startCommit,
+      final int count,
+      final int shards,
+      final Path directory) {
+    val commitsToIgnore = BranchCommitReader.readCommitsToIgnore(projectDir);
+    // Read while git runs, as a long history does not fit in the pipe buffer
+    val process =
+        Shell.startDiscardingStderr(
+            List.of("git", "rev-list", startCommit, "-n", String.valueOf(count)), projectDir);
+    val commits =
+        Output.consumeStdout(
+            process,
+            reader ->
+                reader
+                    .lines()
+                    .filter(Predicate.not(String::isBlank))
+                    .filter(Predicate.not(commitsToIgnore::contains))
+                    .toList());
+    return write(partition(commits, shards), directory);
+  }
+
+  /** Splits the commits into ranges whose sizes differ by at most one. */
+  static List<List<String>> partition(final List<String> commits, final int shards) {
+    val result = new ArrayList<List<String>>();
+    for (int i = 0; i < shards; i++) {
+      final int from = (int) ((long) commits.size() * i / shards);
+      final int to = (int) ((long) commits.size() * (i + 1) / shards);
+      result.add(commits.subList(from, to));
+    }
+    return result;
+  }
+
+  private static List<Path> write(final List<List<String>> shards, final Path directory) {
+    try {
+      Files.createDirectories(directory);
+      val files = new ArrayList<Path>();
+      for (int i = 0; i < shards.size(); i++) {
+        val file = directory.resolve(shardFileName(i));
+        Files.write(file, shards.get(i));
+        files.add(file);
+      }
+      return files;
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot write shard plan in " + directory, e);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.index;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HexFormat;
+import lombok.val;
+
+/**
+ * Memory-mapped index of the commits changing each path, written by {@link PathIndexBuilder}.
+ *
+ * <p>All numbers are little-endian. The file holds:
+ *
+ * <ul>
+ *   <li>a header: magic, version, commit count, path count as ints, then the offsets of the
+ *       commits, postings, names and entries sections as longs;
+ *   <li>the commits, numbered from 0, as 20 bytes of SHA-1 and the commit time in epoch seconds;
+ *   <li>the postings of each path: the numbers of its commits in increasing order, the first one as
+ *       is and the following ones as the difference with the previous, as unsigned LEB128 varints;
+ *   <li>the paths in UTF-8, concatenated;
+ *   <li>one entry per path, sorted by the bytes of the paths: name offset (long), name length
+ *       (int), posting count (int), postings offset (long), offsets being relative to their
+ *       section.
+ * </ul>
+ *
+ * <p>Entries are sorted so that the paths starting with a prefix form a range, found by binary
+ * search without reading the other sections.
+ *
+ * @author ActiveViam
+ */
+public class PathIndex implements AutoCloseable {
+
+  /** Name of the index in the output directory of a history extraction. */
+  public static final String FILE_NAME = "path-index.bin";
+
+  static final int MAGIC = 0x58505347; // "GSPX"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 48;
+  private static final int COMMIT_SIZE = 28;
+  private static final int ENTRY_SIZE = 24;
+
+  private static final ValueLayout.OfInt INT =
+      ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfLong LONG =
+      ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+  private final Arena arena;
+  private final MemorySegment segment;
+  private final int commitCount;
+  private final int pathCount;
+  private final long commitsOffset;
+  private final long postingsOffset;
+  private final long namesOffset;
+  private final long entriesOffset;
+
+  private PathIndex(final Arena arena, final MemorySegment segment) {
+    this.arena = arena;
+    this.segment = segment;
+    this.commitCount = segment.get(INT, 8);
+    this.pathCount = segment.get(INT, 12);
+    this.commitsOffset = segment.get(LONG, 16);
+    this.postingsOffset = segment.get(LONG, 24);
+    this.namesOffset = segment.get(LONG, 32);
+    this.entriesOffset = segment.get(LONG, 40);
+  }
+
+  public static PathIndex open(final Path file) {
+    val arena = Arena.ofShared();
+    try (val channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      val segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+      if (segment.byteSize() < HEADER_SIZE
+          || segment.get(INT, 0) != MAGIC
+          || segment.get(INT, 4) != VERSION) {
+        throw new ProgramException("Not a path index of version " + VERSION + ": " + file);
+      }
+      return new PathIndex(arena, segment);
+    } catch (final IOException e) {
+      arena.close();
+      throw new ProgramException("Cannot open path index " + file, e);
+    } catch (final RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  public int commitCount() {
+    return this.commitCount;
+  }
+
+  public int pathCount() {
+    return this.pathCount;
+  }
+
+  /**
+   * @return the entry of the path, or -1 if no commit changed it
+   */
+  public int find(final String path) {
+    val key = path.getBytes(StandardCharsets.UTF_8);
+    final int entry = lowerBound(key);
+    return entry < this.pathCount && compare(entry, key) == 0 ? entry : -1;
+  }
+
+  /** Returns the first entry, then the entry after the last one, of the paths with a prefix. */
+  public int[] prefixRange(final String prefix) {
+    val bytes = prefix.getBytes(StandardCharsets.UTF_8);
+    final int from = lowerBound(bytes);
+    int low = from;
+    int high = this.pathCount;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (startsWith(middle, bytes)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return new int[] {from, low};
+  }
+
+  /** Finds the first entry whose path is not lower than the given bytes. */
+  private int lowerBound(final byte[] key) {
+    int low = 0;
+    int high = this.pathCount;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (compare(middle, key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int compare(final int entry, final byte[] key) {
+    final long name = this.namesOffset + nameOffset(entry);
+    final int length = nameLength(entry);
+    final int common = Math.min(length, key.length);
+    for (int i = 0; i < common; i++) {
+      final int difference =
+          Byte.toUnsignedInt(this.segment.get(ValueLayout.JAVA_BYTE, name + i))
+              - Byte.toUnsignedInt(key[i]);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return Integer.compare(length, key.length);
+  }
+
+  private boolean startsWith(final int entry, final byte[] prefix) {
+    if (nameLength(entry) < prefix.length) {
+      return false;
+    }
+    final long name = this.namesOffset + nameOffset(entry);
+    for (int i = 0; i < prefix.length; i++) {
+      if (this.segment.get(ValueLayout.JAVA_BYTE, name + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public String path(final int entry) {
+    val bytes =
+        this.segment
+            .asSlice(this.namesOffset + nameOffset(entry), nameLength(entry))
+            .toArray(ValueLayout.JAVA_BYTE);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Returns the numbers of the commits changing the path of an entry, in increasing order. */
+  public int[] commits(final int entry) {
+    final int count = this.segment.get(INT, entryOffset(entry) + 12);
+    long position = this.postingsOffset + this.segment.get(LONG, entryOffset(entry) + 16);
+    val result = new int[count];
+    int previous = 0;
+    for (int i = 0; i < count; i++) {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = this.segment.get(ValueLayout.JAVA_BYTE, position++);
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      previous = i == 0 ? value : previous + value;
+      result[i] = previous;
+    }
+    return result;
+  }
+
+  public CommitInfo commit(final int number) {
+    final long offset = this.commitsOffset + (long) number * COMMIT_SIZE;
+    val sha1 = this.segment.asSlice(offset, 20).toArray(ValueLayout.JAVA_BYTE);
+    return new CommitInfo(
+        HexFormat.of().formatHex(sha1), Instant.ofEpochSecond(this.segment.get(LONG, offset + 20)));
+  }
+
+  private long entryOffset(final int entry) {
+    return this.entriesOffset + (long) entry * ENTRY_SIZE;
+  }
+
+  private long nameOffset(final int entry) {
+    return this.segment.get(LONG, entryOffset(entry));
+  }
+
+  private int nameLength(final int entry) {
+    return this.segment.get(INT, entryOffset(entry) + 8);
+  }
+
+  @Override
+  public void close() {
+    this.arena.close();
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.index;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.query.Dictionary;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Builds the index of the commits changing each path, while the changes are fetched.
+ *
+ * <p>Each change is buffered as a pair of path id and commit number. Full buffers are sorted and
+ * written to disk as runs, so postings never accumulate on the heap. Only the dictionary of paths
+ * and the list of commits stay in memory. At the end, the runs are merged into the index file, the
+ * postings of each path being delta-encoded as varints. See {@link PathIndex} for the layout.
+ *
+ * @author ActiveViam
+ */
+@Log
+public class PathIndexBuilder {
+
+  /** Postings held in memory before being written as a sorted run. */
+  static final int RUN_SIZE = 1 << 20;
+
+  private final Path file;
+  private final int runSize;
+  private final Dictionary paths = new Dictionary();
+  private final Map<String, Integer> commitIds = new HashMap<>();
+  private final List<CommitInfo> commits = new ArrayList<>();
+  private final List<Path> runs = new ArrayList<>();
+  private final long[] buffer;
+  private int buffered = 0;
+  private Path runDirectory;
+
+  public PathIndexBuilder(final Path file) {
+    this(file, RUN_SIZE);
+  }
+
+  PathIndexBuilder(final Path file, final int runSize) {
+    this.file = file;
+    this.runSize = runSize;
+    this.buffer = new long[runSize];
+  }
+
+  /** Records that a commit changed the given files. Changes of a commit can come in parts. */
+  public synchronized void add(final CommitInfo commit, final List<FileChanges> changes) {
+    var commitId = this.commitIds.get(commit.sha1());
+    if (commitId == null) {
+      commitId = this.commits.size();
+      this.commitIds.put(commit.sha1(), commitId);
+      this.commits.add(commit);
+    }
+    for (val change : changes) {
+      if (this.buffered == this.runSize) {
+        writeRun();
+      }
+      final long pathId = this.paths.encode(change.filename());
+      this.buffer[this.buffered++] = (pathId << 32) | commitId;
+    }
+  }
+
+  private void writeRun() {
+    Arrays.sort(this.buffer, 0, this.buffered);
+    try {
+      if (this.runDirectory == null) {
+        this.runDirectory =
+            Files.createTempDirectory(this.file.toAbsolutePath().getParent(), "path-index-");
+      }
+      val run = this.runDirectory.resolve("run-" + this.runs.size());
+      try (val output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+        for (int i = 0; i < this.buffered; i++) {
+          output.writeLong(this.buffer[i]);
+        }
+      }
+      this.runs.add(run);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot write a run of the path index", e);
+    }
+    this.buffered = 0;
+  }
+
+  /** Merges the runs into the index file, then deletes them. */
+  public synchronized void write() {
+    Arrays.sort(this.buffer, 0, this.buffered);
+    val pathCount = this.paths.size();
+    val postingOffsets = new long[pathCount];
+    val postingCounts = new int[pathCount];
+    try (val channel =
+        FileChannel.open(
+            this.file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      val output = new Output(channel);
+      output.skip(PathIndex.HEADER_SIZE);
+
+      val commitsOffset = output.position();
+      val hex = HexFormat.of();
+      for (val commit : this.commits) {
+        output.put(hex.parseHex(commit.sha1()));
+        output.putLong(commit.date().getEpochSecond());
+      }
+
+      val postingsOffset = output.position();
+      mergeRuns(output, postingsOffset, postingOffsets, postingCounts);
+
+      // Paths are sorted by their bytes so that a prefix covers a range of entries
+      val names = new byte[pathCount][];
+      val order = new Integer[pathCount];
+      for (int i = 0; i < pathCount; i++) {
+        names[i] = this.paths.decode(i).getBytes(StandardCharsets.UTF_8);
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(names[a], names[b]));
+      val namesOffset = output.position();
+      val nameOffsets = new long[pathCount];
+      for (final int id : order) {
+        nameOffsets[id] = output.position() - namesOffset;
+        output.put(names[id]);
+      }
+      val entriesOffset = output.position();
+      for (final int id : order) {
+        output.putLong(nameOffsets[id]);
+        output.putInt(names[id].length);
+        output.putInt(postingCounts[id]);
+        output.putLong(postingOffsets[id]);
+      }
+      output.flush();
+
+      val header = ByteBuffer.allocate(PathIndex.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      header
+          .putInt(PathIndex.MAGIC)
+          .putInt(PathIndex.VERSION)
+          .putInt(this.commits.size())
+          .putInt(pathCount)
+          .putLong(commitsOffset)
+          .putLong(postingsOffset)
+          .putLong(namesOffset)
+          .putLong(entriesOffset)
+          .flip();
+      channel.write(header, 0);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot write path index " + this.file, e);
+    } finally {
+      deleteRuns();
+    }
+    log.log(
+        Level.INFO,
+        "Path index {0}: {1} paths, {2} commits, merged from {3} runs",
+        new Object[] {this.file, pathCount, this.commits.size(), this.runs.size() + 1});
+  }
+
+  private void mergeRuns(
+      final Output output,
+      final long postingsOffset,
+      final long[] postingOffsets,
+      final int[] postingCounts)
+      throws IOException {
+    val sources = new PriorityQueue<RunReader>((a, b) -> Long.compare(a.current, b.current));
+    try {
+      for (val run : this.runs) {
+        val reader = new RunReader(run);
+        if (reader.next()) {
+          sources.add(reader);
+        }
+      }
+      val memory = new RunReader(this.buffer, this.buffered);
+      if (memory.next()) {
+        sources.add(memory);
+      }
+      int currentPath = -1;
+      int lastCommit = -1;
+      while (!sources.isEmpty()) {
+        val source = sources.poll();
+        final long posting = source.current;
+        if (source.next()) {
+          sources.add(source);
+        }
+        final int pathId = (int) (posting >>> 32);
+        final int commitId = (int) posting;
+        if (pathId != currentPath) {
+          currentPath = pathId;
+          lastCommit = -1;
+          postingOffsets[pathId] = output.position() - postingsOffset;
+        } else if (commitId == lastCommit) {
+          // A commit changing a path twice, such as a commit received in parts
+          continue;
+        }
+        output.putVarint(lastCommit < 0 ? commitId : commitId - lastCommit);
+        postingCounts[pathId]++;
+        lastCommit = commitId;
+      }
+    } finally {
+      for (val source : sources) {
+        source.close();
+      }
+    }
+  }
+
+  private void deleteRuns() {
+    if (this.runDirectory == null) {
+      return;
+    }
+    try {
+      for (val run : this.runs) {
+        Files.deleteIfExists(run);
+      }
+      Files.deleteIfExists(this.runDirectory);
+    } catch (final IOException e) {
+      log.log(Level.WARNING, "Failed to delete the runs of the path index", e);
+    }
+  }
+
+  /** Sorted postings of a run, read from disk or from the last buffer. */
+  private static final class RunReader implements AutoCloseable {
+
+    private final DataInputStream input;
+    private final long[] values;
+    private final int size;
+    private int index = 0;
+    private long current;
+
+    private RunReader(final Path run) throws IOException {
+      this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+      this.values = null;
+      this.size = 0;
+    }
+
+    private RunReader(final long[] values, final int size) {
+      this.input = null;
+      this.values = values;
+      this.size = size;
+    }
+
+    private boolean next() throws IOException {
+      if (this.input == null) {
+        if (this.index == this.size) {
+          return false;
+        }
+        this.current = this.values[this.index++];
+        return true;
+      }
+      try {
+        this.current = this.input.readLong();
+        return true;
+      } catch (final EOFException _) {
+        this.input.close();
+        return false;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (this.input != null) {
+        this.input.close();
+      }
+    }
+  }
+
+  /** Buffered little-endian output into a file channel, tracking its position. */
+  private static final class Output {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer =
+        ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private long flushed = 0;
+
+    private Output(final FileChannel channel) {
+      this.channel = channel;
+    }
+
+    private long position() {
+      return this.flushed + this.buffer.position();
+    }
+
+    private void skip(final int bytes) throws IOException {
+      put(new byte[bytes]);
+    }
+
+    private void put(final byte[] bytes) throws IOException {
+      int offset = 0;
+      while (offset < bytes.length) {
+        if (!this.buffer.hasRemaining()) {
+          flush();
+        }
+        final int length = Math.min(bytes.length - offset, this.buffer.remaining());
+        this.buffer.put(bytes, offset, length);
+        offset += length;
+      }
+    }
+
+    private void putInt(final int value) throws IOException {
+      ensure(Integer.BYTES);
+      this.buffer.putInt(value);
+    }
+
+    private void putLong(final long value) throws IOException {
+      ensure(Long.BYTES);
+      this.buffer.putLong(value);
+    }
+
+    /** Writes an unsigned LEB128 varint: 7 bits per byte, the high bit marking continuation. */
+    private void putVarint(final int value) throws IOException {
+      ensure(5);
+      int remaining = value;
+      while ((remaining & ~0x7F) != 0) {
+        this.buffer.put((byte) ((remaining & 0x7F) | 0x80));
+        remaining >>>= 7;
+      }
+      this.buffer.put((byte) remaining);
+    }
+
+    private void ensure(final int bytes) throws IOException {
+      if (this.buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      this.buffer.flip();
+      while (this.buffer.hasRemaining()) {
+        this.flushed += this.channel.write(this.buffer);
+      }
+      this.buffer.clear();
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.lineage;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileRenaming;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell;
+import com.activeviam.tooling.gitstats.internal.shell.LineageReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import lombok.val;
+
+/**
+ * Stable identity of files across renamings.
+ *
+ * <p>The id of a file is the path it has in the most recent commit of the traversal. Going back in
+ * history, a renaming gives the file id to the previous path, and the renamed path, as well as the
+ * path of a created file, is retired: an older file at that path is another file, whose id is the
+ * path suffixed with {@code ~<n>}. This handles chains of renamings, swaps within a commit and
+ * files deleted then created again at the same path.
+ *
+ * <p>Only paths taking part in a renaming or a creation are tracked, with the commit positions
+ * where their id changes. Every other path is its own id. The lineage is computed once, by a single
+ * traversal, and then only read by concurrent writers.
+ *
+ * @author ActiveViam
+ */
+public class FileLineage {
+
+  public static final String HEADER = "file,commit,before,after";
+
+  /** Position of each traversed commit, 0 being the most recent. */
+  private final Map<String, Integer> commitPositions = new HashMap<>();
+
+  /** Ids of the tracked paths, by position range. */
+  private final Map<String, Segments> segments = new HashMap<>();
+
+  /** Current id of the tracked paths, during the traversal. */
+  private final Map<String, String> currentIds = new HashMap<>();
+
+  private final Map<String, Integer> incarnations = new HashMap<>();
+
+  /**
+   * Computes the lineage of the history of a single branch, writing its renamings into a file.
+   *
+   * @param startCommit commit to start from, the head of the branch if {@code null}
+   * @param lineageFile receives one {@link #HEADER} row per renaming
+   */
+  public static FileLineage create(
+      final Path projectDir,
+      final List<String> branches,
+      final String startCommit,
+      final int count,
+      final Path lineageFile) {
+    if (branches.size() != 1) {
+      throw new ProgramException("File lineage cannot be used with several branches");
+    }
+    try (val writer = new PrintWriter(Files.newBufferedWriter(lineageFile))) {
+      return read(
+          projectDir, Objects.requireNonNullElse(startCommit, branches.getFirst()), count, writer);
+    } catch (final IOException e) {
+      throw new ProgramException("Failed to write " + lineageFile, e);
+    }
+  }
+
+  /**
+   * Computes the lineage of the history of a commit.
+   *
+   * @param lineageWriter receives one {@link #HEADER} row per renaming
+   */
+  public static FileLineage read(
+      final Path projectDir,
+      final String startCommit,
+      final int count,
+      final PrintWriter lineageWriter) {
+    val lineage = new FileLineage();
+    lineageWriter.println(HEADER);
+    val process =
+        Shell.startDiscardingStderr(LineageReader.getCommand(startCommit, count), projectDir);
+    Shell.Output.consumeStdout(
+        process,
+        reader -> {
+          val batch = new CommitEvents();
+          reader
+              .lines()
+              .map(LineageReader::parseLine)
+              .flatMap(Optional::stream)
+              .forEach(
+                  event -> {
+                    switch (event.type()) {
+                      case COMMIT -> {
+                        batch.flush(lineage, lineageWriter);
+                        batch.commit = event.value();
+                      }
+                      case RENAMING ->
+                          batch.renamings.add(new FileRenaming(event.value(), event.target()));
+                      case CREATION -> batch.creations.add(event.value());
+                    }
+                  });
+          batch.flush(lineage, lineageWriter);
+          return null;
+        });
+    return lineage;
+  }
+
+  /**
+   * Applies the events of the next commit of the traversal, older than all previous ones.
+   *
+   * @return the id of each renamed file
+   */
+  List<String> apply(
+      final String commit, final List<FileRenaming> renamings, final List<String> creations) {
+    final int position = this.commitPositions.size();
+    this.commitPositions.put(commit, position);
+    // Ids are read before any update, so that swaps and chains within the commit see the same state
+    val ids = new ArrayList<String>(renamings.size());
+    val sources = new HashSet<String>();
+    for (val renaming : renamings) {
+      ids.add(currentId(renaming.to()));
+      sources.add(renaming.from());
+    }
+    for (val renaming : renamings) {
+      if (!sources.contains(renaming.to())) {
+        retire(renaming.to(), position);
+      }
+    }
+    for (val creation : creations) {
+      retire(creation, position);
+    }
+    for (int i = 0; i < renamings.size(); i++) {
+      assign(renamings.get(i).from(), ids.get(i), position);
+    }
+    return ids;
+  }
+
+  /** Returns the id of the file at a path in a commit of the traversal. */
+  public String fileId(final String commit, final String path) {
+    val pathSegments = this.segments.get(path);
+    if (pathSegments == null) {
+      return path;
+    }
+    val position = this.commitPositions.get(commit);
+    return position == null ? path : pathSegments.idAt(position, path);
+  }
+
+  /** Formats the file id as an extra CSV column, or nothing when lineage is not computed. */
+  public static String column(final FileLineage lineage, final String commit, final String path) {
+    return lineage == null ? "" : "," + lineage.fileId(commit, path);
+  }
+
+  private String currentId(final String path) {
+    return this.currentIds.getOrDefault(path, path);
+  }
+
+  private void retire(final String path, final int position) {
+    val incarnation = this.incarnations.merge(path, 1, Integer::sum);
+    assign(path, path + "~" + incarnation, position);
+  }
+
+  /** Gives an id to the path, for commits older than the given position. */
+  private void assign(final String path, final String id, final int position) {
+    this.currentIds.put(path, id);
+    this.segments.computeIfAbsent(path, _ -> new Segments()).add(position + 1, id);
+  }
+
+  /** Ids of a path, each starting at a commit position. */
+  private static final class Segments {
+
+    private int[] starts = new int[2];
+    private String[] ids = new String[2];
+    private int size = 0;
+
+    private void add(final int start, final String id) {
+      if (this.size > 0 && this.starts[this.size - 1] == start) {
+        this.ids[this.size - 1] = id;
+        return;
+      }
+      if (this.size == this.starts.length) {
+        this.starts = Arrays.copyOf(this.starts, this.size * 2);
+        this.ids = Arrays.copyOf(this.ids, this.size * 2);
+      }
+      this.starts[this.size] = start;
+      this.ids[this.size] = id;
+      this.size++;
+    }
+
+    private String idAt(final int position, final String path) {
+      int index = Arrays.binarySearch(this.starts, 0, this.size, position);
+      if (index < 0) {
+        index = -index - 2;
+      }
+      return index < 0 ? path : this.ids[index];
+    }
+  }
+
+  private static final class CommitEvents {
+
+    private String commit;
+    private final List<FileRenaming> renamings = new ArrayList<>();
+    private final List<String> creations = new ArrayList<>();
+
+    private void flush(final FileLineage lineage, final PrintWriter writer) {
+      if (this.commit == null) {
+        return;
+      }
+      val ids = lineage.apply(this.commit, this.renamings, this.creations);
+      for (int i = 0; i < this.renamings.size(); i++) {
+        val renaming = this.renamings.get(i);
+        writer.printf("%s,%s,%s,%s%n", ids.get(i), this.commit, renaming.from(), renaming.to());
+      }
+      this.commit = null;
+      this.renamings.clear();
+      this.creations.clear();
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.modules;
+
+import com.activeviam.tooling.gitstats.internal.explorer.Shell;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell.Output;
+import com.activeviam.tooling.gitstats.internal.shell.BuildFileReader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.val;
+
+/**
+ * Resolves the module of a path as its deepest directory containing a build file.
+ *
+ * <p>Module roots are discovered once, then stored in a character trie. Each node keeps the name of
+ * the module ending there, so that resolving a path is a single walk over its characters, returning
+ * a shared string without allocating.
+ *
+ * @author ActiveViam
+ */
+public class BuildFileModuleResolver implements ModuleResolver {
+
+  private final Node root = new Node();
+
+  /** Directories of the modules, empty for the root of the repository. */
+  private final Set<String> moduleRoots;
+
+  public BuildFileModuleResolver(final Collection<String> moduleRoots) {
+    this.moduleRoots = Set.copyOf(moduleRoots);
+    for (val module : moduleRoots) {
+      if (module.isEmpty()) {
+        this.root.module = ROOT;
+        continue;
+      }
+      var node = this.root;
+      for (int i = 0; i < module.length(); i++) {
+        node = node.getOrCreate(module.charAt(i));
+      }
+      node.module = module;
+    }
+  }
+
+  /** Finds the module roots in the trees of the revisions and in their recent history. */
+  public static BuildFileModuleResolver discover(
+      final Path projectDir, final List<String> revisions, final int count) {
+    val modules = new HashSet<String>();
+    for (val revision : revisions) {
+      readBuildFiles(projectDir, BuildFileReader.getTreeCommand(revision), modules);
+      readBuildFiles(projectDir, BuildFileReader.getHistoryCommand(revision, count), modules);
+    }
+    return new BuildFileModuleResolver(modules);
+  }
+
+  @Override
+  public BuildFileModuleResolver extend(final Path projectDir, final String range) {
+    val modules = new HashSet<>(this.moduleRoots);
+    readBuildFiles(projectDir, BuildFileReader.getHistoryCommand(range, 0), modules);
+    return modules.size() > this.moduleRoots.size() ? new BuildFileModuleResolver(modules) : this;
+  }
+
+  private static void readBuildFiles(
+      final Path projectDir, final List<String> command, final Collection<String> modules) {
+    // Read while git runs, the listing of a large tree does not fit in the pipe buffer
+    val process = Shell.startDiscardingStderr(command, projectDir);
+    Output.consumeStdout(
+        process,
+        reader -> {
+          reader
+              .lines()
+              .filter(line -> !line.isBlank() && BuildFileReader.isBuildFile(line))
+              .map(BuildFileReader::moduleOf)
+              .forEach(modules::add);
+          return null;
+        });
+  }
+
+  @Override
+  public String resolve(final String path) {
+    var node = this.root;
+    var module = this.root.module;
+    for (int i = 0; i < path.length(); i++) {
+      node = node.get(path.charAt(i));
+      if (node == null) {
+        break;
+      }
+      // Only whole directory names match, "core" is not the module of "core-api/pom.xml"
+      if (node.module != null && i + 1 < path.length() && path.charAt(i + 1) == '/') {
+        module = node.module;
+      }
+    }
+    return module != null ? module : UNKNOWN;
+  }
+
+  private static final class Node {
+
+    private char[] keys = new char[0];
+    private Node[] children = new Node[0];
+    private String module;
+
+    private Node get(final char key) {
+      for (int i = 0; i < this.keys.length; i++) {
+        if (this.keys[i] == key) {
+          return this.children[i];
+        }
+      }
+      return null;
+    }
+
+    private Node getOrCreate(final char key) {
+      val existing = get(key);
+      if (existing != null) {
+        return existing;
+      }
+      val child = new Node();
+      this.keys = Arrays.copyOf(this.keys, this.keys.length + 1);
+      this.children = Arrays.copyOf(this.children, this.children.length + 1);
+      this.keys[this.keys.length - 1] = key;
+      this.children[this.children.length - 1] = child;
+      return child;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.modules;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Maps the path of a file to the module containing it.
+ *
+ * <p>Resolvers are shared by all writing threads and must be thread-safe.
+ *
+ * @author ActiveViam
+ */
+public interface ModuleResolver {
+
+  /** Module of the files at the root of the repository. */
+  String ROOT = "<root>";
+
+  /** Module of the files outside any known module. */
+  String UNKNOWN = "n/a";
+
+  String resolve(String path);
+
+  /**
+   * Returns a resolver also knowing the modules created by a range of commits, such as {@code
+   * a..b}, so that a resolver is reused as new commits arrive. Resolvers independent of the history
+   * return themselves.
+   */
+  default ModuleResolver extend(final Path projectDir, final String range) {
+    return this;
+  }
+
+  /** How modules are identified in a repository. */
+  enum Layout {
+    /** Modules are the directories containing a build file, discovered from the repository. */
+    BUILD_FILES,
+    /** Modules are the directories containing {@code src/main}, {@code src/test}... */
+    SOURCE_DIRECTORIES
+  }
+
+  /**
+   * Creates the resolver of a repository.
+   *
+   * @param revisions revisions whose tree and history are searched for build files
+   * @param count number of commits of history to search, or 0 for the whole history
+   */
+  static ModuleResolver create(
+      final Layout layout, final Path projectDir, final List<String> revisions, final int count) {
+    return switch (layout) {
+      case BUILD_FILES -> BuildFileModuleResolver.discover(projectDir, revisions, count);
+      case SOURCE_DIRECTORIES -> new SourceDirectoryModuleResolver();
+    };
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.modules;
+
+import java.util.regex.Pattern;
+
+/**
+ * Resolves modules from the Maven source layout: the module of {@code a/b/src/main/X.java} is
+ * {@code a/b}, and {@code pom.xml} files belong to their directory.
+ *
+ * @author ActiveViam
+ */
+public class SourceDirectoryModuleResolver implements ModuleResolver {
+
+  private static final Pattern SOURCE_PATTERN = Pattern.compile("^(.*)/src/(main|test|generated)/");
+
+  @Override
+  public String resolve(final String path) {
+    final var matcher = SOURCE_PATTERN.matcher(path);
+    if (matcher.find()) {
+      return matcher.group(1);
+    }
+    if (path.endsWith("pom.xml")) {
+      final var separator = path.lastIndexOf('/');
+      return separator < 0 ? ROOT : path.substring(0, separator);
+    }
+    return UNKNOWN;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.offheap;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of the paths seen during a run, shared by all threads.
+ *
+ * <p>Each distinct path is kept once on the heap, however many commits list it.
+ *
+ * @author ActiveViam
+ */
+public class PathDictionary {
+
+  private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+  private volatile String[] paths = new String[1024];
+  private int size = 0;
+
+  public int idOf(final String path) {
+    final var id = this.ids.get(path);
+    return id != null ? id : register(path);
+  }
+
+  public String pathOf(final int id) {
+    return this.paths[id];
+  }
+
+  private synchronized int register(final String path) {
+    final var existing = this.ids.get(path);
+    if (existing != null) {
+      return existing;
+    }
+    final int id = this.size++;
+    if (id == this.paths.length) {
+      this.paths = Arrays.copyOf(this.paths, id * 2);
+    }
+    this.paths[id] = path;
+    // Published after the path, so that readers of the id always find it
+    this.ids.put(path, id);
+    return id;
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.offheap;
+
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Line counts and indentation statistics of a commit, stored off-heap as fixed-width rows.
+ *
+ * <p>Rows are appended to chunks allocated in an arena owned by the batch, paths being replaced by
+ * their id in a {@link PathDictionary}. A batch is filled by the fetching threads, one thread per
+ * kind of row, then read by the writers. Each writer releases the batch once done, and the arena is
+ * freed with the last release, without any work for the garbage collector.
+ *
+ * @author ActiveViam
+ */
+public class TreeStatsBatch {
+
+  /**
+   * Rows of the first chunk, doubled for each new chunk up to 4096, so small commits stay small.
+   */
+  private static final int MIN_CHUNK_ROWS = 64;
+
+  /** {@code path:int, lines:int}. */
+  private static final long LINE_ROW = 8;
+
+  /** {@code path:int, min:int, max:int, median:int, bumps:int, levels:int, mean:double}. */
+  private static final long INDENTATION_ROW = 32;
+
+  /** {@code count:int}, one row per level of the histogram of each indentation row, in order. */
+  private static final long LEVEL_ROW = 4;
+
+  private final Arena arena = Arena.ofShared();
+  private final PathDictionary dictionary;
+  private final AtomicInteger readers;
+  private final Rows lineCounts = new Rows(LINE_ROW);
+  private final Rows indentations = new Rows(INDENTATION_ROW);
+  private final Rows levels = new Rows(LEVEL_ROW);
+
+  /**
+   * Creates an empty batch.
+   *
+   * @param readers number of {@link #release()} calls freeing the batch
+   */
+  public TreeStatsBatch(final PathDictionary dictionary, final int readers) {
+    this.dictionary = dictionary;
+    this.readers = new AtomicInteger(readers);
+  }
+
+  public int lineCountSize() {
+    return this.lineCounts.size;
+  }
+
+  public int indentationSize() {
+    return this.indentations.size;
+  }
+
+  public long lineCountByteSize() {
+    return this.lineCounts.size * LINE_ROW;
+  }
+
+  public long indentationByteSize() {
+    return this.indentations.size * INDENTATION_ROW + this.levels.size * LEVEL_ROW;
+  }
+
+  /** Returns the size of the rows, excluding unused space of the chunks. */
+  public long byteSize() {
+    return lineCountByteSize() + indentationByteSize();
+  }
+
+  public void addLineCount(final String path, final int lines) {
+    final long offset = this.lineCounts.append();
+    final var segment = this.lineCounts.current();
+    segment.set(ValueLayout.JAVA_INT, offset, this.dictionary.idOf(path));
+    segment.set(ValueLayout.JAVA_INT, offset + 4, lines);
+  }
+
+  public void addIndentation(
+      final String path,
+      final int minIndent,
+      final int maxIndent,
+      final double meanIndent,
+      final int medianIndent,
+      final int bumps,
+      final LevelHistogram histogram) {
+    final long offset = this.indentations.append();
+    final var segment = this.indentations.current();
+    segment.set(ValueLayout.JAVA_INT, offset, this.dictionary.idOf(path));
+    segment.set(ValueLayout.JAVA_INT, offset + 4, minIndent);
+    segment.set(ValueLayout.JAVA_INT, offset + 8, maxIndent);
+    segment.set(ValueLayout.JAVA_INT, offset + 12, medianIndent);
+    segment.set(ValueLayout.JAVA_INT, offset + 16, bumps);
+    segment.set(ValueLayout.JAVA_INT, offset + 20, histogram.size());
+    segment.set(ValueLayout.JAVA_DOUBLE, offset + 24, meanIndent);
+    for (int level = 0; level < histogram.size(); level++) {
+      final long levelOffset = this.levels.append();
+      this.levels
+          .current()
+          .set(ValueLayout.JAVA_INT, levelOffset, Math.toIntExact(histogram.countAt(level)));
+    }
+  }
+
+  public void forEachLineCount(final LineCountConsumer consumer) {
+    this.lineCounts.forEach(
+        (segment, offset) ->
+            consumer.accept(
+                this.dictionary.pathOf(segment.get(ValueLayout.JAVA_INT, offset)),
+                segment.get(ValueLayout.JAVA_INT, offset + 4)));
+  }
+
+  /** Visits the indentation rows, rebuilding their histograms on the heap. */
+  public void forEachIndentation(final IndentationConsumer consumer) {
+    final var levelCursor = this.levels.cursor();
+    this.indentations.forEach(
+        (segment, offset) -> {
+          final var histogram = new LevelHistogram();
+          final int size = segment.get(ValueLayout.JAVA_INT, offset + 20);
+          for (int level = 0; level < size; level++) {
+            histogram.add(level, levelCursor.nextInt());
+          }
+          consumer.accept(
+              this.dictionary.pathOf(segment.get(ValueLayout.JAVA_INT, offset)),
+              segment.get(ValueLayout.JAVA_INT, offset + 4),
+              segment.get(ValueLayout.JAVA_INT, offset + 8),
+              segment.get(ValueLayout.JAVA_DOUBLE, offset + 24),
+              segment.get(ValueLayout.JAVA_INT, offset + 12),
+              segment.get(ValueLayout.JAVA_INT, offset + 16),
+              histogram);
+        });
+  }
+
+  /** Signals that a reader is done with the batch, freeing its memory after the last one. */
+  public void release() {
+    final int remaining = this.readers.decrementAndGet();
+    if (remaining == 0) {
+      this.arena.close();
+    } else if (remaining < 0) {
+      throw new IllegalStateException("Batch released too many times");
+    }
+  }
+
+  /** Frees the memory of a batch which will not be read. */
+  public void discard() {
+    this.readers.set(0);
+    this.arena.close();
+  }
+
+  @FunctionalInterface
+  public interface LineCountConsumer {
+
+    void accept(String path, int lines);
+  }
+
+  @FunctionalInterface
+  public interface IndentationConsumer {
+
+    void accept(
+        String path,
+        int minIndent,
+        int maxIndent,
+        double meanIndent,
+        int medianIndent,
+        int bumps,
+        LevelHistogram histogram);
+  }
+
+  /** Rows of one kind, appended by a single thread. */
+  private final class Rows {
+
+    private final long rowSize;
+    private final List<MemorySegment> chunks = new ArrayList<>();
+    private int size = 0;
+
+    private Rows(final long rowSize) {
+      this.rowSize = rowSize;
+    }
+
+    /** Number of rows in the last chunk. */
+    private int used = 0;
+
+    /** Reserves a row in the {@link #current()} chunk, returning its offset. */
+    private long append() {
+      if (this.chunks.isEmpty() || this.used * this.rowSize == current().byteSize()) {
+        final int rows = MIN_CHUNK_ROWS << Math.min(this.chunks.size(), 6);
+        this.chunks.add(arena.allocate(this.rowSize * rows, 8));
+        this.used = 0;
+      }
+      this.size++;
+      return this.used++ * this.rowSize;
+    }
+
+    private MemorySegment current() {
+      return this.chunks.getLast();
+    }
+
+    /** Reads the rows of 4-byte ints one after the other. */
+    private IntCursor cursor() {
+      return new IntCursor() {
+        private int chunk = 0;
+        private long offset = 0;
+
+        @Override
+        public int nextInt() {
+          if (this.offset == end(Rows.this.chunks.get(this.chunk))) {
+            this.chunk++;
+            this.offset = 0;
+          }
+          final int value = Rows.this.chunks.get(this.chunk).get(ValueLayout.JAVA_INT, this.offset);
+          this.offset += Rows.this.rowSize;
+          return value;
+        }
+      };
+    }
+
+    private long end(final MemorySegment chunk) {
+      return chunk == current() ? this.used * this.rowSize : chunk.byteSize();
+    }
+
+    private void forEach(final RowVisitor visitor) {
+      for (final var chunk : this.chunks) {
+        final long end = end(chunk);
+        for (long offset = 0; offset < end; offset += this.rowSize) {
+          visitor.visit(chunk, offset);
+        }
+      }
+    }
+  }
+
+  private interface IntCursor {
+
+    int nextInt();
+  }
+
+  @FunctionalInterface
+  private interface RowVisitor {
+
+    void visit(MemorySegment segment, long offset);
+  }
+}
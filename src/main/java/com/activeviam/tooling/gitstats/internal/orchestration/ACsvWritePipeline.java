@@ -14,24 +14,85 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 
 /**
+ * Writes the rows of a dataset into a series of CSV files, rotated when they reach a number of
+ * rows.
+ *
+ * <p>When partitioned by month, each month of commit dates has its own series of files, in a
+ * directory such as {@code changes/month=2024-05/}, so that readers can skip whole months. A
+ * bounded number of partition files is kept open, the least recently used one being closed and
+ * reopened later in append mode.
+ *
+ * <p>When given a manifest, the writer describes each file it closes, using {@link
+ * #describe(Object, FileStats)} to collect the statistics of the rows as they are written. When
+ * given {@link Watermarks}, it records the last file of each series, from which a later run
+ * appending to the output resumes.
+ *
  * @author ActiveViam
  */
 @RequiredArgsConstructor
-abstract class ACsvWritePipeline<T> implements Runnable {
+public abstract class ACsvWritePipeline<T> implements Runnable {
+
+  /** Partition files kept open at once by a writer. */
+  private static final int MAX_OPEN_PARTITIONS = 32;
 
   private final Queue<Action<T>> queue;
   private final AtomicBoolean started = new AtomicBoolean(false);
   private final Path outputDirectory;
   private final String filePattern;
   private final int limit;
-  private int count = 0;
-  private int lines;
-  private PrintWriter writer;
+  private final Map<String, Series> series = new HashMap<>();
+  private final LinkedHashMap<String, Series> openSeries = new LinkedHashMap<>(16, 0.75f, true);
+  private boolean partitioned = false;
+  private OutputManifest manifest;
+  private boolean appending = false;
+  private Watermarks watermarks;
+
+  /**
+   * Splits the output by month of commit dates.
+   *
+   * <p>The file pattern receives the index of the file, then the month, as in {@code
+   * changes/month=%2$s/part-%1$04d.csv}.
+   */
+  public final ACsvWritePipeline<T> partitionByMonth() {
+    this.partitioned = true;
+    return this;
+  }
+
+  /**
+   * Continues the series of files left by a previous run, appending to their last file instead of
+   * overwriting the first one.
+   */
+  public final ACsvWritePipeline<T> appendToExisting() {
+    this.appending = true;
+    return this;
+  }
+
+  /** Records the last file of each series into watermarks, written when the writer stops. */
+  public final ACsvWritePipeline<T> withWatermarks(final Watermarks watermarks) {
+    this.watermarks = watermarks;
+    return this;
+  }
+
+  /** Records the written files into a manifest, written when the writer stops. */
+  public final ACsvWritePipeline<T> withManifest(final OutputManifest manifest) {
+    this.manifest = manifest;
+    return this;
+  }
 
   @WithSpan("Write commit stream")
   public final void run() {
@@ -43,15 +104,13 @@ abstract class ACsvWritePipeline<T> implements Runnable {
         final var action = this.queue.take();
         switch (action) {
           case Value(final var command) -> {
-            if (this.lines >= this.limit || this.writer == null) {
-              if (this.writer != null) {
-                this.writer.close();
+            if (this.partitioned) {
+              for (val entry : splitByMonth(command).entrySet()) {
+                write(entry.getKey().toString(), entry.getValue());
               }
-              this.writer = createNewWrite();
-              this.lines = 0;
+            } else {
+              write("", command);
             }
-            val writtenLines = processCommand(command, this.writer);
-            this.lines += writtenLines;
             Span.current().addEvent("Batch of values written");
           }
           case Action.Stop<?> _ -> {
@@ -62,26 +121,166 @@ abstract class ACsvWritePipeline<T> implements Runnable {
     } catch (IOException e) {
       throw new IllegalStateException("Could not write data", e);
     } finally {
-      if (this.writer != null) {
-        this.writer.close();
+      for (val file : this.openSeries.values()) {
+        close(file);
+      }
+      this.openSeries.clear();
+      if (this.manifest != null) {
+        this.manifest.write();
+      }
+      if (this.watermarks != null) {
+        this.watermarks.write();
       }
       this.started.set(false);
     }
   }
 
-  private PrintWriter createNewWrite() throws IOException {
-    val name = generateFileName();
-    final var targetFile = this.outputDirectory.resolve(name);
-    val instance = new PrintWriter(Files.newBufferedWriter(targetFile));
-    writeHeader(instance);
-    return instance;
+  private void write(final String partition, final T command) throws IOException {
+    val file = this.series.computeIfAbsent(partition, _ -> new Series(fileOf(0, partition)));
+    if (file.writer == null || file.lines >= this.limit) {
+      open(partition, file);
+    } else {
+      // Refresh the position of the partition in the order of use
+      this.openSeries.get(partition);
+    }
+    if (file.stats != null) {
+      describe(command, file.stats);
+    }
+    file.lines += processCommand(command, file.writer);
+  }
+
+  private void open(final String partition, final Series file) throws IOException {
+    final boolean rotate = file.index < 0 || file.lines >= this.limit;
+    boolean append = !rotate;
+    if (file.writer != null) {
+      close(file);
+      this.openSeries.remove(partition);
+    }
+    if (this.openSeries.size() >= MAX_OPEN_PARTITIONS) {
+      close(this.openSeries.pollFirstEntry().getValue());
+    }
+    if (rotate) {
+      file.index++;
+      file.lines = 0;
+      if (file.index == 0 && this.appending) {
+        append = resume(partition, file);
+      }
+      file.path = fileOf(file.index, partition);
+      file.stats = this.manifest != null ? new FileStats() : null;
+    }
+    if (this.partitioned) {
+      Files.createDirectories(file.path.getParent());
+    }
+    file.writer =
+        append
+            ? new PrintWriter(Files.newBufferedWriter(file.path, StandardOpenOption.APPEND))
+            : new PrintWriter(Files.newBufferedWriter(file.path));
+    if (!append) {
+      writeHeader(file.writer);
+    }
+    this.openSeries.put(partition, file);
+  }
+
+  /**
+   * Moves a new series to the last file written by a previous run, if any.
+   *
+   * <p>The last file is given by the watermarks of the previous run. Without them, as for files
+   * written by shard workers, the files of the series are listed and the last one is read.
+   *
+   * @return whether the rows are to be appended to that file, or written in the next one
+   */
+  private boolean resume(final String partition, final Series file) throws IOException {
+    val position = this.watermarks != null ? this.watermarks.get(seriesOf(file)) : null;
+    final int last;
+    final long rows;
+    if (position != null) {
+      last = position.index();
+      rows = position.rows();
+    } else {
+      int found = -1;
+      while (Files.exists(fileOf(found + 1, partition))) {
+        found++;
+      }
+      if (found < 0) {
+        return false;
+      }
+      last = found;
+      try (val lines = Files.lines(fileOf(last, partition))) {
+        // Not counting the header
+        rows = Math.max(0, lines.count() - 1);
+      }
+    }
+    if (rows >= this.limit) {
+      file.index = last + 1;
+      return false;
+    }
+    file.index = last;
+    file.lines = (int) rows;
+    return true;
+  }
+
+  private Path fileOf(final int index, final String partition) {
+    return this.outputDirectory.resolve(String.format(this.filePattern, index, partition));
+  }
+
+  private String seriesOf(final Series file) {
+    return this.outputDirectory.relativize(file.first).toString().replace('\\', '/');
+  }
+
+  private void close(final Series file) {
+    file.writer.close();
+    file.writer = null;
+    if (this.watermarks != null) {
+      this.watermarks.put(seriesOf(file), new Watermarks.Position(file.index, file.lines));
+    }
+    if (file.stats != null) {
+      this.manifest.record(file.path, file.lines, file.stats);
+    }
   }
 
   protected abstract void writeHeader(PrintWriter writer);
 
   protected abstract int processCommand(T command, PrintWriter writer);
 
-  private String generateFileName() {
-    return String.format(this.filePattern, this.count++);
+  /** Splits a command into commands holding the commits of a single month. */
+  protected abstract Map<YearMonth, T> splitByMonth(T command);
+
+  /** Records the commits and paths of the rows of a command, before the command is written. */
+  protected abstract void describe(T command, FileStats stats);
+
+  /** Groups the elements of a command by month of their date, in UTC. */
+  protected static <T, E> Map<YearMonth, T> groupByMonth(
+      final List<E> elements,
+      final Function<E, Instant> date,
+      final Function<List<E>, T> builder) {
+    if (elements.size() == 1) {
+      final var element = elements.getFirst();
+      return Map.of(monthOf(date.apply(element)), builder.apply(elements));
+    }
+    final var groups = new LinkedHashMap<YearMonth, List<E>>();
+    for (final var element : elements) {
+      groups.computeIfAbsent(monthOf(date.apply(element)), _ -> new ArrayList<>()).add(element);
+    }
+    final var result = new LinkedHashMap<YearMonth, T>();
+    groups.forEach((month, group) -> result.put(month, builder.apply(group)));
+    return result;
+  }
+
+  private static YearMonth monthOf(final Instant date) {
+    return YearMonth.from(date.atOffset(ZoneOffset.UTC));
+  }
+
+  /** Files of a partition: the current one is the last of the series. */
+  @RequiredArgsConstructor
+  private static final class Series {
+
+    /** First file of the series, identifying it in the watermarks. */
+    private final Path first;
+
+    private int index = -1;
+    private int lines = 0;
+    private Path path;
+    private PrintWriter writer;
+    private FileStats stats;
   }
 }
@@ -7,9 +7,13 @@
 
 package com.activeviam.tooling.gitstats.internal.orchestration;
 
+import com.activeviam.tooling.gitstats.internal.explorer.BranchMembership;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteCommits;
 import java.io.PrintWriter;
 import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Map;
 
 /**
  * @author ActiveViam
@@ -17,6 +21,7 @@ import java.nio.file.Path;
 public final class BranchCsvWritePipeline extends ACsvWritePipeline<WriteCommits> {
 
   private final String branch;
+  private final BranchMembership membership;
 
   public BranchCsvWritePipeline(
       Queue<Action<WriteCommits>> queue,
@@ -25,6 +30,30 @@ public final class BranchCsvWritePipeline extends ACsvWritePipeline<WriteCommits
       final String branch) {
     super(queue, outputDirectory, filePattern, 1 << 22);
     this.branch = branch;
+    this.membership = null;
+  }
+
+  /** Creates a writer emitting a row for every branch containing each commit. */
+  public BranchCsvWritePipeline(
+      Queue<Action<WriteCommits>> queue,
+      Path outputDirectory,
+      String filePattern,
+      final BranchMembership membership) {
+    super(queue, outputDirectory, filePattern, 1 << 22);
+    this.branch = null;
+    this.membership = membership;
+  }
+
+  @Override
+  protected Map<YearMonth, WriteCommits> splitByMonth(final WriteCommits command) {
+    return groupByMonth(command.commits(), CommitInfo::date, WriteCommits::new);
+  }
+
+  @Override
+  protected void describe(final WriteCommits command, final FileStats stats) {
+    for (final var commit : command.commits()) {
+      stats.addCommit(commit);
+    }
   }
 
   @Override
@@ -34,9 +63,23 @@ public final class BranchCsvWritePipeline extends ACsvWritePipeline<WriteCommits
 
   @Override
   protected int processCommand(WriteCommits command, PrintWriter writer) {
+    if (this.membership == null) {
+      for (final var commit : command.commits()) {
+        writer.printf("%s,%s%n", this.branch, commit.sha1());
+      }
+      return command.commits().size();
+    }
+    int lines = 0;
     for (final var commit : command.commits()) {
-      writer.printf("%s,%s%n", this.branch, commit.sha1());
+      final var rows = new int[1];
+      this.membership.forEachBranch(
+          commit.sha1(),
+          branch -> {
+            writer.printf("%s,%s%n", branch, commit.sha1());
+            rows[0]++;
+          });
+      lines += rows[0];
     }
-    return command.commits().size();
+    return lines;
   }
 }
@@ -7,12 +7,14 @@
 
 package com.activeviam.tooling.gitstats.internal.orchestration;
 
-import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.lineage.FileLineage;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteChangesAction;
 import java.io.PrintWriter;
 import java.nio.file.Path;
-import java.util.Optional;
-import java.util.regex.Pattern;
+import java.time.YearMonth;
+import java.util.Map;
 import lombok.val;
 
 /**
@@ -20,50 +22,77 @@ import lombok.val;
  */
 public class ChangeCsvWriterPipeline extends ACsvWritePipeline<WriteChangesAction> {
 
+  private final ModuleResolver modules;
+  private final FileLineage lineage;
+
   public ChangeCsvWriterPipeline(
-      Queue<Action<WriteChangesAction>> queue, Path outputDirectory, String filePattern) {
+      Queue<Action<WriteChangesAction>> queue,
+      Path outputDirectory,
+      String filePattern,
+      ModuleResolver modules,
+      FileLineage lineage) {
     super(queue, outputDirectory, filePattern, 1 << 14);
+    this.modules = modules;
+    this.lineage = lineage;
+  }
+
+  public static final String HEADER = "commit,module,filename,path,additions,deletions";
+
+  @Override
+  protected Map<YearMonth, WriteChangesAction> splitByMonth(final WriteChangesAction command) {
+    return groupByMonth(
+        command.commits(), details -> details.commit().date(), WriteChangesAction::new);
+  }
+
+  @Override
+  protected void describe(final WriteChangesAction command, final FileStats stats) {
+    for (val details : command.commits()) {
+      stats.addCommit(details.commit());
+      for (val change : details.fileChanges()) {
+        stats.addPath(change.filename());
+      }
+    }
   }
 
   @Override
   protected void writeHeader(PrintWriter writer) {
-    writer.println("commit,module,filename,path,additions,deletions");
+    writer.println(this.lineage == null ? HEADER : HEADER + ",file");
   }
 
   @Override
   protected int processCommand(WriteChangesAction command, PrintWriter writer) {
     int lines = 0;
     for (val details : command.commits()) {
-      for (val change : details.fileChanges()) {
-        writer.printf(
-            "%s,%s,%s,%s,%d,%d%n",
-            details.commit().sha1(),
-            change.filename(),
-            computeModule(change),
-            computeFileName(change),
-            change.additions(),
-            change.deletions());
-        lines++;
-      }
+      lines += writeRows(details, this.modules, this.lineage, writer);
     }
     return lines;
   }
 
-  private static final Pattern SOURCE_PATTERN = Pattern.compile("^(.*)/src/(main|test|generated)/");
+  public static int writeRows(
+      final CommitDetails details, final ModuleResolver modules, final PrintWriter writer) {
+    return writeRows(details, modules, null, writer);
+  }
 
-  private static String computeModule(FileChanges changes) {
-    val matcher = SOURCE_PATTERN.matcher(changes.filename());
-    if (matcher.find()) {
-      return matcher.group(1);
-    }
-    if (changes.filename().endsWith("pom.xml")) {
-      final var filePath = Path.of(changes.filename());
-      return Optional.ofNullable(filePath.getParent()).map(Path::toString).orElse("<root>");
+  public static int writeRows(
+      final CommitDetails details,
+      final ModuleResolver modules,
+      final FileLineage lineage,
+      final PrintWriter writer) {
+    for (val change : details.fileChanges()) {
+      writer.printf(
+          "%s,%s,%s,%s,%d,%d%s%n",
+          details.commit().sha1(),
+          modules.resolve(change.filename()),
+          computeFileName(change.filename()),
+          change.filename(),
+          change.additions(),
+          change.deletions(),
+          FileLineage.column(lineage, details.commit().sha1(), change.filename()));
     }
-    return "n/a";
+    return details.fileChanges().size();
   }
 
-  private static String computeFileName(FileChanges changes) {
-    return Path.of(changes.filename()).getFileName().toString();
+  private static String computeFileName(final String path) {
+    return path.substring(path.lastIndexOf('/') + 1);
   }
 }
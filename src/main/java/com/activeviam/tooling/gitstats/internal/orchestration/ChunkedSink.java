@@ -0,0 +1,63 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Groups streamed rows into chunks of bounded size, handed downstream as soon as they are full.
+ *
+ * <p>When the downstream queue is full, the thread producing rows blocks, which in turn stops
+ * reading the output of git. The rows of a commit held in memory are thus bounded by the chunk size
+ * times the queue capacity, whatever the size of the commit.
+ *
+ * @author ActiveViam
+ */
+public class ChunkedSink<T> implements Consumer<T>, AutoCloseable {
+
+  private final int chunkSize;
+  private final Consumer<List<T>> downstream;
+  private List<T> chunk;
+  private boolean emitted = false;
+
+  public ChunkedSink(final int chunkSize, final Consumer<List<T>> downstream) {
+    this.chunkSize = chunkSize;
+    this.downstream = downstream;
+    this.chunk = new ArrayList<>();
+  }
+
+  @Override
+  public void accept(final T row) {
+    this.chunk.add(row);
+    if (this.chunk.size() == this.chunkSize) {
+      emit();
+    }
+  }
+
+  /**
+   * Emits the last rows.
+   *
+   * <p>A source without any row still emits one empty chunk, so that writers see every commit, as
+   * when commits are collected whole.
+   */
+  @Override
+  public void close() {
+    if (!this.chunk.isEmpty() || !this.emitted) {
+      emit();
+    }
+  }
+
+  private void emit() {
+    final var full = this.chunk;
+    this.chunk = new ArrayList<>();
+    this.emitted = true;
+    this.downstream.accept(full);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.query.Dictionary;
+import com.activeviam.tooling.gitstats.internal.sketch.CountMinSketch;
+import com.activeviam.tooling.gitstats.internal.sketch.HyperLogLog;
+import com.activeviam.tooling.gitstats.internal.sketch.SpaceSaving;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import lombok.val;
+
+/**
+ * Churn hotspots estimated in bounded memory while the history is extracted.
+ *
+ * <p>Space-Saving summaries track the most changed paths and modules, by number of changes and by
+ * churn, the sum of additions and deletions. A Count-Min sketch estimates the number of changes of
+ * any path, and a HyperLogLog per module and period counts the distinct files changed. All sketches
+ * have a fixed size, except for the HyperLogLogs which start small and grow up to 1 KiB each.
+ *
+ * <p>All sketches are mergeable, so that sketches computed on parts of a history combine into the
+ * sketches of the whole history.
+ *
+ * @author ActiveViam
+ */
+public class ChurnSketches {
+
+  public static final String HOTSPOTS_HEADER = "ranking,rank,key,count,error,changes_estimate";
+  public static final String DISTINCT_FILES_HEADER = "module,period,files";
+
+  /** Counters of each Space-Saving summary, ten times the reported keys for accurate ranks. */
+  static final int COUNTERS = 1000;
+
+  static final int TOP = 100;
+  private static final int COUNT_MIN_WIDTH = 1 << 16;
+  private static final int COUNT_MIN_DEPTH = 4;
+
+  /** Standard error of 3.25%. */
+  private static final int HLL_PRECISION = 10;
+
+  private final Period period;
+  private final ModuleResolver modules;
+  private final SpaceSaving pathsByChanges = new SpaceSaving(COUNTERS);
+  private final SpaceSaving pathsByChurn = new SpaceSaving(COUNTERS);
+  private final SpaceSaving modulesByChanges = new SpaceSaving(COUNTERS);
+  private final SpaceSaving modulesByChurn = new SpaceSaving(COUNTERS);
+  private final CountMinSketch pathChanges = new CountMinSketch(COUNT_MIN_WIDTH, COUNT_MIN_DEPTH);
+  private final Dictionary moduleIds = new Dictionary();
+
+  /** Distinct files by cell, keyed by module id in the high bits and epoch day of the period. */
+  private final Map<Long, HyperLogLog> distinctFiles = new HashMap<>();
+
+  public ChurnSketches(final Period period, final ModuleResolver modules) {
+    this.period = period;
+    this.modules = modules;
+  }
+
+  /** Name of the dataset of the distinct files, such as {@code distinct-files-month}. */
+  public String distinctFilesDataset() {
+    return "distinct-files-" + this.period.name().toLowerCase(Locale.ROOT);
+  }
+
+  /** Adds the changes of a commit, or part of them. */
+  public synchronized void add(final CommitDetails details) {
+    final long day = this.period.startOf(details.commit().date()).toEpochDay();
+    for (val change : details.fileChanges()) {
+      val path = change.filename();
+      val module = this.modules.resolve(path);
+      // Binary files have no line counts, they only count as changes
+      final long churn = Math.max(change.additions(), 0) + Math.max(change.deletions(), 0);
+      this.pathsByChanges.add(path, 1);
+      this.pathsByChurn.add(path, churn);
+      this.modulesByChanges.add(module, 1);
+      this.modulesByChurn.add(module, churn);
+      this.pathChanges.add(path, 1);
+      final long cell = (long) this.moduleIds.encode(module) << 32 | (day & 0xFFFFFFFFL);
+      this.distinctFiles.computeIfAbsent(cell, _ -> new HyperLogLog(HLL_PRECISION)).add(path);
+    }
+  }
+
+  /** Adds the sketches of another part of the history, computed on the same period. */
+  public synchronized void merge(final ChurnSketches other) {
+    if (other.period != this.period) {
+      throw new IllegalArgumentException("Cannot merge sketches of different periods");
+    }
+    this.pathsByChanges.merge(other.pathsByChanges);
+    this.pathsByChurn.merge(other.pathsByChurn);
+    this.modulesByChanges.merge(other.modulesByChanges);
+    this.modulesByChurn.merge(other.modulesByChurn);
+    this.pathChanges.merge(other.pathChanges);
+    other.distinctFiles.forEach(
+        (cell, sketch) -> {
+          val module = other.moduleIds.decode((int) (cell >>> 32));
+          final long ownCell = (long) this.moduleIds.encode(module) << 32 | (cell & 0xFFFFFFFFL);
+          this.distinctFiles
+              .computeIfAbsent(ownCell, _ -> new HyperLogLog(HLL_PRECISION))
+              .merge(sketch);
+        });
+  }
+
+  /** Estimates the number of changes of a path, never below the actual number. */
+  public synchronized long changesOf(final String path) {
+    return this.pathChanges.estimate(path);
+  }
+
+  /**
+   * Writes the top keys of each ranking, with the bounds of their counts.
+   *
+   * <p>The count of a key overestimates its actual value by at most its error. For paths, the
+   * Count-Min estimate of the number of changes is also given.
+   */
+  public synchronized void writeHotspots(final Path file) throws IOException {
+    try (val writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println(HOTSPOTS_HEADER);
+      writeRanking(writer, "path-changes", this.pathsByChanges, true);
+      writeRanking(writer, "path-churn", this.pathsByChurn, true);
+      writeRanking(writer, "module-changes", this.modulesByChanges, false);
+      writeRanking(writer, "module-churn", this.modulesByChurn, false);
+    }
+  }
+
+  private void writeRanking(
+      final PrintWriter writer,
+      final String ranking,
+      final SpaceSaving summary,
+      final boolean paths) {
+    int rank = 1;
+    for (val counter : summary.top(TOP)) {
+      writer.printf(
+          "%s,%d,%s,%d,%d,%s%n",
+          ranking,
+          rank++,
+          counter.key(),
+          counter.count(),
+          counter.error(),
+          paths ? String.valueOf(this.pathChanges.estimate(counter.key())) : "");
+    }
+  }
+
+  /** Writes the estimated number of distinct files changed, sorted by period then module. */
+  public synchronized void writeDistinctFiles(final Path file) throws IOException {
+    val cells = new ArrayList<>(this.distinctFiles.keySet());
+    cells.sort(
+        Comparator.<Long>comparingInt(cell -> (int) (long) cell)
+            .thenComparing(cell -> this.moduleIds.decode((int) (cell >>> 32))));
+    try (val writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println(DISTINCT_FILES_HEADER);
+      for (val cell : cells) {
+        writer.printf(
+            "%s,%s,%d%n",
+            this.moduleIds.decode((int) (cell >>> 32)),
+            LocalDate.ofEpochDay((int) (long) cell),
+            this.distinctFiles.get(cell).estimate());
+      }
+    }
+  }
+}
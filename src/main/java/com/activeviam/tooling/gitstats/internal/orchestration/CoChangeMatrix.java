@@ -0,0 +1,317 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.Threading;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Stop;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Value;
+import com.activeviam.tooling.gitstats.internal.query.Dictionary;
+import com.activeviam.tooling.gitstats.internal.sketch.Hashing;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Joiner;
+import java.util.logging.Level;
+import java.util.stream.IntStream;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Logical coupling of files: the number of commits changing each pair of files together.
+ *
+ * <p>Paths are encoded as dense ids and the pairs of each commit are routed by hash to shards, each
+ * counted by its own worker thread in a {@link PairCounts} table, so that counting scales with the
+ * threads without locks. Commits changing more than {@code maxFiles} files, such as reformattings
+ * or dependency upgrades, are skipped: they would add many pairs without telling anything about the
+ * design. The tables of all shards share the memory budget, dropping their rarest pairs when full,
+ * so that the reported counts are upper bounds of the commits of the pairs.
+ *
+ * <p>The workers run in a scope owned by the thread creating the matrix, which must close it.
+ *
+ * <p>Once all commits are added, the matrix is closed and writes for each path the paths changed
+ * most often with it.
+ *
+ * @author ActiveViam
+ */
+@Log
+public class CoChangeMatrix implements AutoCloseable {
+
+  public static final String HEADER =
+      "path,coupled_path,commits,path_commits,coupled_path_commits,degree";
+
+  /** Fewest commits of a reported pair, a single common commit being a coincidence. */
+  static final int MIN_COMMITS = 2;
+
+  private static final int QUEUE_CAPACITY = 64;
+
+  private final int maxFiles;
+  private final int top;
+  private final List<PairCounts> shards;
+  private final List<Queue<Action<long[]>>> queues;
+
+  /** Scope of the workers, joined when the matrix is closed. */
+  private final StructuredTaskScope<?, ?> scope;
+
+  /** Ids of the paths and number of counted commits changing each of them, guarded by paths. */
+  private final Dictionary paths = new Dictionary();
+
+  private int[] pathCommits = new int[1024];
+  private long commits = 0;
+  private long skippedCommits = 0;
+  private boolean closed = false;
+
+  public CoChangeMatrix(
+      final int maxFiles, final int top, final long memoryBudget, final int workers) {
+    if (maxFiles < 2 || top <= 0 || workers <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid co-change settings: maxFiles=%d, top=%d, workers=%d"
+              .formatted(maxFiles, top, workers));
+    }
+    this.maxFiles = maxFiles;
+    this.top = top;
+    this.shards =
+        IntStream.range(0, workers).mapToObj(_ -> new PairCounts(memoryBudget / workers)).toList();
+    this.queues =
+        IntStream.range(0, workers)
+            .mapToObj(_ -> new Queue<Action<long[]>>(QUEUE_CAPACITY))
+            .toList();
+    this.scope = StructuredTaskScope.open(Joiner.allSuccessfulOrThrow());
+    Threading.parallelize(
+        this.scope, workers, i -> () -> count(this.queues.get(i), this.shards.get(i)));
+  }
+
+  private static void count(final Queue<Action<long[]>> queue, final PairCounts counts) {
+    while (true) {
+      final var action = queue.take();
+      switch (action) {
+        case Value(final var pairs) -> {
+          for (val pair : pairs) {
+            counts.increment(pair);
+          }
+        }
+        case Stop<?> _ -> {
+          return;
+        }
+      }
+    }
+  }
+
+  /** Largest number of changed files of a counted commit. */
+  public int maxFiles() {
+    return this.maxFiles;
+  }
+
+  /** Counts the pairs of files changed by a commit, unless it changes too many files. */
+  public void add(final List<FileChanges> changes) {
+    if (changes.size() > this.maxFiles) {
+      synchronized (this.paths) {
+        this.skippedCommits++;
+      }
+      return;
+    }
+    final int[] ids;
+    synchronized (this.paths) {
+      ids =
+          changes.stream()
+              .mapToInt(change -> this.paths.encode(change.filename()))
+              .distinct()
+              .sorted()
+              .toArray();
+      if (this.paths.size() > this.pathCommits.length) {
+        this.pathCommits = Arrays.copyOf(this.pathCommits, this.paths.size() * 2);
+      }
+      for (val id : ids) {
+        this.pathCommits[id]++;
+      }
+      this.commits++;
+    }
+    dispatch(ids);
+  }
+
+  /** Routes each pair of files, given by their sorted distinct ids, to its shard. */
+  private void dispatch(final int[] ids) {
+    val pairs = new long[ids.length * (ids.length - 1) / 2];
+    val targets = new int[pairs.length];
+    val sizes = new int[this.shards.size()];
+    int count = 0;
+    for (int i = 0; i < ids.length; i++) {
+      for (int j = i + 1; j < ids.length; j++) {
+        final long pair = PairCounts.pair(ids[i], ids[j]);
+        pairs[count] = pair;
+        targets[count] = shardOf(pair);
+        sizes[targets[count]]++;
+        count++;
+      }
+    }
+    val batches = new long[this.shards.size()][];
+    for (int shard = 0; shard < batches.length; shard++) {
+      batches[shard] = new long[sizes[shard]];
+      sizes[shard] = 0;
+    }
+    for (int k = 0; k < count; k++) {
+      batches[targets[k]][sizes[targets[k]]++] = pairs[k];
+    }
+    for (int shard = 0; shard < batches.length; shard++) {
+      if (batches[shard].length > 0) {
+        this.queues.get(shard).put(Action.value(batches[shard]));
+      }
+    }
+  }
+
+  /** Waits for the workers to count all added commits, doing nothing once closed. */
+  @Override
+  public void close() {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    this.queues.forEach(queue -> queue.put(Action.stop()));
+    try {
+      this.scope.join();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProgramException("Interrupted while counting co-changes", e);
+    } catch (final StructuredTaskScope.FailedException e) {
+      throw new ProgramException("Failed to count co-changes", e);
+    } finally {
+      this.scope.close();
+    }
+    log.log(
+        Level.INFO,
+        "Co-changes: {0} pairs counted in {1} MiB from {2} commits, {3} commits too large skipped",
+        new Object[] {
+          this.shards.stream().mapToLong(PairCounts::size).sum(),
+          this.shards.stream().mapToLong(PairCounts::byteSize).sum() >> 20,
+          this.commits,
+          this.skippedCommits
+        });
+    final int threshold = threshold();
+    if (threshold > 0) {
+      log.log(
+          Level.WARNING,
+          "Co-changes exceeded the memory budget: counts may exceed the commits by up to {0},"
+              + " pairs with no more commits may be missing",
+          threshold);
+    }
+  }
+
+  /**
+   * Bucket of the pairs dropped to stay within the memory budget: the most commits of a dropped
+   * pair, and the most commits a count may include in excess.
+   */
+  int threshold() {
+    return this.shards.stream().mapToInt(PairCounts::threshold).max().orElse(0);
+  }
+
+  /** Upper bound of the number of commits changing both paths, once closed. */
+  int commitsOf(final String path, final String other) {
+    final int first = this.paths.find(path);
+    final int second = this.paths.find(other);
+    if (first < 0 || second < 0 || first == second) {
+      return 0;
+    }
+    final long pair = PairCounts.pair(Math.min(first, second), Math.max(first, second));
+    return this.shards.get(shardOf(pair)).count(pair);
+  }
+
+  /** Shard of a pair, picked by the high bits of its hash as the low bits pick its slot. */
+  private int shardOf(final long pair) {
+    return Math.floorMod((int) (Hashing.mix(pair) >>> 32), this.shards.size());
+  }
+
+  /**
+   * Writes the paths most often changed with each path, once closed.
+   *
+   * <p>The degree is the share of the commits of the path also changing the coupled path. Pairs
+   * changed together in fewer than {@value #MIN_COMMITS} commits are not reported.
+   */
+  public void write(final Path file) throws IOException {
+    val best = new long[this.paths.size()][];
+    val sizes = new int[this.paths.size()];
+    for (val shard : this.shards) {
+      shard.forEach(
+          (pair, count) -> {
+            if (count >= MIN_COMMITS) {
+              offer(best, sizes, PairCounts.first(pair), PairCounts.second(pair), count);
+              offer(best, sizes, PairCounts.second(pair), PairCounts.first(pair), count);
+            }
+          });
+    }
+    val order =
+        IntStream.range(0, this.paths.size())
+            .filter(id -> sizes[id] > 0)
+            .boxed()
+            .sorted(Comparator.comparing(this.paths::decode))
+            .toList();
+    try (val writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println(HEADER);
+      for (val id : order) {
+        val entries = new ArrayList<Long>(sizes[id]);
+        for (int i = 0; i < sizes[id]; i++) {
+          entries.add(best[id][i]);
+        }
+        entries.sort(this::compareEntries);
+        for (val entry : entries) {
+          final int other = (int) (long) entry;
+          final int count = (int) (entry >>> 32);
+          writer.printf(
+              Locale.ROOT,
+              "%s,%s,%d,%d,%d,%.3f%n",
+              this.paths.decode(id),
+              this.paths.decode(other),
+              count,
+              this.pathCommits[id],
+              this.pathCommits[other],
+              (double) count / this.pathCommits[id]);
+        }
+      }
+    }
+  }
+
+  /** Keeps the {@code top} best entries of a path, as {@code count << 32 | other}. */
+  private void offer(
+      final long[][] best, final int[] sizes, final int id, final int other, final int count) {
+    final long entry = (long) count << 32 | other;
+    if (best[id] == null) {
+      best[id] = new long[Math.min(this.top, 4)];
+    }
+    if (sizes[id] < this.top) {
+      if (sizes[id] == best[id].length) {
+        best[id] = Arrays.copyOf(best[id], Math.min(this.top, best[id].length * 2));
+      }
+      best[id][sizes[id]++] = entry;
+      return;
+    }
+    int worst = 0;
+    for (int i = 1; i < sizes[id]; i++) {
+      if (compareEntries(best[id][i], best[id][worst]) > 0) {
+        worst = i;
+      }
+    }
+    if (compareEntries(entry, best[id][worst]) < 0) {
+      best[id][worst] = entry;
+    }
+  }
+
+  /** Orders entries by decreasing count, then by path. */
+  private int compareEntries(final long entry, final long other) {
+    final int byCount = Long.compare(other >>> 32, entry >>> 32);
+    return byCount != 0
+        ? byCount
+        : this.paths.decode((int) entry).compareTo(this.paths.decode((int) other));
+  }
+}
@@ -7,11 +7,14 @@
 
 package com.activeviam.tooling.gitstats.internal.orchestration;
 
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteCommits;
 import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
+import java.util.Map;
 
 /**
  * @author ActiveViam
@@ -23,20 +26,38 @@ public class CommitCsvWritePipeline extends ACsvWritePipeline<WriteCommits> {
     super(queue, outputDirectory, filePattern, 1 << 22);
   }
 
+  public static final String HEADER = "commit,timestamp,date";
+
+  @Override
+  protected Map<YearMonth, WriteCommits> splitByMonth(final WriteCommits command) {
+    return groupByMonth(command.commits(), CommitInfo::date, WriteCommits::new);
+  }
+
+  @Override
+  protected void describe(final WriteCommits command, final FileStats stats) {
+    for (final var commit : command.commits()) {
+      stats.addCommit(commit);
+    }
+  }
+
   @Override
   protected void writeHeader(PrintWriter writer) {
-    writer.println("commit,timestamp,date");
+    writer.println(HEADER);
   }
 
   @Override
   protected int processCommand(WriteCommits command, PrintWriter writer) {
     for (final var commit : command.commits()) {
-      writer.printf(
-          "%s,%d,%s%n", commit.sha1(), commit.date().getEpochSecond(), getDate(commit.date()));
+      writeRow(commit, writer);
     }
     return command.commits().size();
   }
 
+  public static void writeRow(final CommitInfo commit, final PrintWriter writer) {
+    writer.printf(
+        "%s,%d,%s%n", commit.sha1(), commit.date().getEpochSecond(), getDate(commit.date()));
+  }
+
   private static String getDate(Instant commit) {
     return commit.atOffset(ZoneOffset.UTC).toLocalDate().toString();
   }
@@ -0,0 +1,194 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileIndentationStats;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileLineCount;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileRenaming;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Stop;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Value;
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact encoding of fetched commits.
+ *
+ * <p>Commit ids are stored as raw bytes and counts as variable-length integers. Paths are written
+ * once and then referenced by id, as consecutive commits of a tree mostly list the same files. The
+ * decoded commits share the path instances.
+ *
+ * @author ActiveViam
+ */
+public class CommitDetailsSpillCodec implements SpillCodec<Action<CommitDetails>> {
+
+  private static final HexFormat HEX = HexFormat.of();
+  private static final int STOP = 0;
+  private static final int VALUE = 1;
+
+  private final Map<String, Integer> writtenStrings = new HashMap<>();
+  private final List<String> readStrings = new ArrayList<>();
+
+  @Override
+  public void write(final Action<CommitDetails> element, final DataOutputStream output)
+      throws IOException {
+    switch (element) {
+      case Stop<?> _ -> output.writeByte(STOP);
+      case Value(final var details) -> {
+        output.writeByte(VALUE);
+        writeDetails(details, output);
+      }
+    }
+  }
+
+  @Override
+  public Action<CommitDetails> read(final DataInputStream input) throws IOException {
+    return input.readByte() == STOP ? Action.stop() : Action.value(readDetails(input));
+  }
+
+  @Override
+  public void reset() {
+    this.writtenStrings.clear();
+    this.readStrings.clear();
+  }
+
+  private void writeDetails(final CommitDetails details, final DataOutputStream output)
+      throws IOException {
+    output.write(HEX.parseHex(details.commit().sha1()));
+    output.writeLong(details.commit().date().getEpochSecond());
+    writeVarInt(details.commit().date().getNano(), output);
+
+    writeVarInt(details.fileChanges().size(), output);
+    for (final var changes : details.fileChanges()) {
+      writeString(changes.filename(), output);
+      writeVarInt(changes.additions() + 1, output);
+      writeVarInt(changes.deletions() + 1, output);
+    }
+    writeVarInt(details.fileRenamings().size(), output);
+    for (final var renaming : details.fileRenamings()) {
+      writeString(renaming.from(), output);
+      writeString(renaming.to(), output);
+    }
+    writeVarInt(details.fileLineCounts().size(), output);
+    for (final var count : details.fileLineCounts()) {
+      writeString(count.path(), output);
+      writeVarInt(count.lineCount(), output);
+    }
+    writeVarInt(details.fileIndentations().size(), output);
+    for (final var stats : details.fileIndentations()) {
+      writeString(stats.path(), output);
+      writeVarInt(stats.minIndent(), output);
+      writeVarInt(stats.maxIndent(), output);
+      output.writeDouble(stats.meanIndent());
+      writeVarInt(stats.medianIndent(), output);
+      writeVarInt(stats.bumps(), output);
+      writeVarInt(stats.histogram().size(), output);
+      for (int level = 0; level < stats.histogram().size(); level++) {
+        writeVarInt(Math.toIntExact(stats.histogram().countAt(level)), output);
+      }
+    }
+  }
+
+  private CommitDetails readDetails(final DataInputStream input) throws IOException {
+    final var sha1 = new byte[20];
+    input.readFully(sha1);
+    final var date = Instant.ofEpochSecond(input.readLong(), readVarInt(input));
+    final var commit = new CommitInfo(HEX.formatHex(sha1), date);
+
+    final int changeCount = readVarInt(input);
+    final var changes = new ArrayList<FileChanges>(changeCount);
+    for (int i = 0; i < changeCount; i++) {
+      // Binary files have -1 additions and deletions
+      changes.add(
+          new FileChanges(readString(input), readVarInt(input) - 1, readVarInt(input) - 1));
+    }
+    final int renamingCount = readVarInt(input);
+    final var renamings = new ArrayList<FileRenaming>(renamingCount);
+    for (int i = 0; i < renamingCount; i++) {
+      renamings.add(new FileRenaming(readString(input), readString(input)));
+    }
+    final int lineCountCount = readVarInt(input);
+    final var lineCounts = new ArrayList<FileLineCount>(lineCountCount);
+    for (int i = 0; i < lineCountCount; i++) {
+      lineCounts.add(new FileLineCount(readString(input), readVarInt(input)));
+    }
+    final int indentationCount = readVarInt(input);
+    final var indentations = new ArrayList<FileIndentationStats>(indentationCount);
+    for (int i = 0; i < indentationCount; i++) {
+      final var path = readString(input);
+      final int minIndent = readVarInt(input);
+      final int maxIndent = readVarInt(input);
+      final double meanIndent = input.readDouble();
+      final int medianIndent = readVarInt(input);
+      final int bumps = readVarInt(input);
+      final var histogram = new LevelHistogram();
+      final int levels = readVarInt(input);
+      for (int level = 0; level < levels; level++) {
+        histogram.add(level, readVarInt(input));
+      }
+      indentations.add(
+          new FileIndentationStats(
+              path, minIndent, maxIndent, meanIndent, medianIndent, bumps, histogram));
+    }
+    return new CommitDetails(commit, changes, renamings, lineCounts, indentations);
+  }
+
+  /** Writes a known string as its id plus one, or 0 followed by the string on first use. */
+  private void writeString(final String value, final DataOutputStream output) throws IOException {
+    final var id = this.writtenStrings.get(value);
+    if (id != null) {
+      writeVarInt(id + 1, output);
+    } else {
+      this.writtenStrings.put(value, this.writtenStrings.size());
+      writeVarInt(0, output);
+      output.writeUTF(value);
+    }
+  }
+
+  private String readString(final DataInputStream input) throws IOException {
+    final int id = readVarInt(input);
+    if (id > 0) {
+      return this.readStrings.get(id - 1);
+    }
+    final var value = input.readUTF();
+    this.readStrings.add(value);
+    return value;
+  }
+
+  private static void writeVarInt(final int value, final DataOutputStream output)
+      throws IOException {
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      output.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    output.writeByte(remaining);
+  }
+
+  private static int readVarInt(final DataInputStream input) throws IOException {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = input.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
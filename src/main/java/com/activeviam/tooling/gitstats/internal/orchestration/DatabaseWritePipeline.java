@@ -0,0 +1,272 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.database.Database;
+import com.activeviam.tooling.gitstats.internal.database.Table;
+import com.activeviam.tooling.gitstats.internal.explorer.BranchMembership;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.lineage.FileLineage;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Stop;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Value;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteChangesAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteCommits;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteIndentationAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteLinesAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteRenamingAction;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Writes the rows of a dataset into its table of the embedded database, in batches.
+ *
+ * <p>The rows hold the same values as the CSV files, minus the formatting of numbers.
+ *
+ * @author ActiveViam
+ */
+@RequiredArgsConstructor
+public class DatabaseWritePipeline<T> implements Runnable {
+
+  /** Rows accumulated before being handed to the database. */
+  private static final int BATCH_ROWS = 4096;
+
+  private final Queue<Action<T>> queue;
+  private final Database database;
+  private final Table table;
+  private final BiConsumer<T, Consumer<Object[]>> rows;
+
+  public static DatabaseWritePipeline<WriteCommits> branches(
+      final Queue<Action<WriteCommits>> queue, final Database database, final String branch) {
+    return new DatabaseWritePipeline<>(
+        queue,
+        database,
+        Table.BRANCHES,
+        (command, output) -> {
+          for (val commit : command.commits()) {
+            output.accept(new Object[] {branch, commit.sha1()});
+          }
+        });
+  }
+
+  public static DatabaseWritePipeline<WriteCommits> branches(
+      final Queue<Action<WriteCommits>> queue,
+      final Database database,
+      final BranchMembership membership) {
+    return new DatabaseWritePipeline<>(
+        queue,
+        database,
+        Table.BRANCHES,
+        (command, output) -> {
+          for (val commit : command.commits()) {
+            membership.forEachBranch(
+                commit.sha1(), branch -> output.accept(new Object[] {branch, commit.sha1()}));
+          }
+        });
+  }
+
+  public static DatabaseWritePipeline<WriteCommits> commits(
+      final Queue<Action<WriteCommits>> queue, final Database database) {
+    return new DatabaseWritePipeline<>(
+        queue,
+        database,
+        Table.COMMITS,
+        (command, output) -> {
+          for (val commit : command.commits()) {
+            output.accept(
+                new Object[] {
+                  commit.sha1(),
+                  commit.date().getEpochSecond(),
+                  commit.date().atOffset(ZoneOffset.UTC).toLocalDate().toString()
+                });
+          }
+        });
+  }
+
+  public static DatabaseWritePipeline<WriteChangesAction> changes(
+      final Queue<Action<WriteChangesAction>> queue,
+      final Database database,
+      final ModuleResolver modules,
+      final FileLineage lineage) {
+    return new DatabaseWritePipeline<>(
+        queue,
+        database,
+        Table.CHANGES,
+        (command, output) -> {
+          for (val details : command.commits()) {
+            val commit = details.commit().sha1();
+            for (val change : details.fileChanges()) {
+              val path = change.filename();
+              output.accept(
+                  new Object[] {
+                    commit,
+                    modules.resolve(path),
+                    path.substring(path.lastIndexOf('/') + 1),
+                    path,
+                    change.additions(),
+                    change.deletions(),
+                    fileId(lineage, commit, path)
+                  });
+            }
+          }
+        });
+  }
+
+  public static DatabaseWritePipeline<WriteRenamingAction> renamings(
+      final Queue<Action<WriteRenamingAction>> queue, final Database database) {
+    return new DatabaseWritePipeline<>(
+        queue,
+        database,
+        Table.RENAMINGS,
+        (command, output) -> {
+          for (val details : command.commits()) {
+            for (val renaming : details.fileRenamings()) {
+              output.accept(
+                  new Object[] {details.commit().sha1(), renaming.from(), renaming.to()});
+            }
+          }
+        });
+  }
+
+  public static DatabaseWritePipeline<WriteLinesAction> lines(
+      final Queue<Action<WriteLinesAction>> queue,
+      final Database database,
+      final FileLineage lineage) {
+    return new DatabaseWritePipeline<>(
+        queue,
+        database,
+        Table.LINES,
+        (command, output) -> {
+          for (val details : command.commits()) {
+            writeLines(details, lineage, output);
+          }
+        });
+  }
+
+  private static void writeLines(
+      final CommitDetails details, final FileLineage lineage, final Consumer<Object[]> output) {
+    val commit = details.commit().sha1();
+    if (details.treeStats() != null) {
+      details
+          .treeStats()
+          .forEachLineCount(
+              (path, lineCount) ->
+                  output.accept(
+                      new Object[] {commit, path, lineCount, fileId(lineage, commit, path)}));
+      details.treeStats().release();
+      return;
+    }
+    for (val lineCount : details.fileLineCounts()) {
+      output.accept(
+          new Object[] {
+            commit,
+            lineCount.path(),
+            lineCount.lineCount(),
+            fileId(lineage, commit, lineCount.path())
+          });
+    }
+  }
+
+  public static DatabaseWritePipeline<WriteIndentationAction> indentation(
+      final Queue<Action<WriteIndentationAction>> queue,
+      final Database database,
+      final FileLineage lineage) {
+    return new DatabaseWritePipeline<>(
+        queue,
+        database,
+        Table.INDENTATION,
+        (command, output) -> {
+          for (val details : command.commits()) {
+            writeIndentation(details, lineage, output);
+          }
+        });
+  }
+
+  private static void writeIndentation(
+      final CommitDetails details, final FileLineage lineage, final Consumer<Object[]> output) {
+    val commit = details.commit().sha1();
+    if (details.treeStats() != null) {
+      details
+          .treeStats()
+          .forEachIndentation(
+              (path, minIndent, maxIndent, meanIndent, medianIndent, bumps, histogram) ->
+                  output.accept(
+                      new Object[] {
+                        commit,
+                        path,
+                        minIndent,
+                        maxIndent,
+                        meanIndent,
+                        medianIndent,
+                        bumps,
+                        histogram.encode(),
+                        fileId(lineage, commit, path)
+                      }));
+      details.treeStats().release();
+      return;
+    }
+    for (val stats : details.fileIndentations()) {
+      output.accept(
+          new Object[] {
+            commit,
+            stats.path(),
+            stats.minIndent(),
+            stats.maxIndent(),
+            stats.meanIndent(),
+            stats.medianIndent(),
+            stats.bumps(),
+            stats.histogram().encode(),
+            fileId(lineage, commit, stats.path())
+          });
+    }
+  }
+
+  private static String fileId(final FileLineage lineage, final String commit, final String path) {
+    return lineage == null ? null : lineage.fileId(commit, path);
+  }
+
+  /** Converts a command into rows, as written into the table. */
+  List<Object[]> rowsOf(final T command) {
+    val result = new ArrayList<Object[]>();
+    this.rows.accept(command, result::add);
+    return result;
+  }
+
+  @Override
+  public void run() {
+    final var batch = new ArrayList<Object[]>(BATCH_ROWS);
+    while (true) {
+      final var action = this.queue.take();
+      switch (action) {
+        case Value(final var command) ->
+            this.rows.accept(
+                command,
+                row -> {
+                  batch.add(row);
+                  if (batch.size() == BATCH_ROWS) {
+                    flush(batch);
+                  }
+                });
+        case Stop<?> _ -> {
+          flush(batch);
+          return;
+        }
+      }
+    }
+  }
+
+  private void flush(final List<Object[]> batch) {
+    this.database.append(this.table, batch);
+    batch.clear();
+  }
+}
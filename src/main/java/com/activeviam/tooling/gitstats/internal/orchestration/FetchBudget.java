@@ -0,0 +1,136 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Limits the number of concurrent commit fetches, shared between several programs.
+ *
+ * <p>When permits are contended, they are handed round-robin to the registered tenants, so that a
+ * repository with a long history cannot starve the others.
+ *
+ * @author ActiveViam
+ */
+public class FetchBudget {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final List<Tenant> tenants = new ArrayList<>();
+  private int available;
+  private int waiting = 0;
+  private int cursor = 0;
+
+  public FetchBudget(final int permits) {
+    this.available = permits;
+  }
+
+  public Tenant register(final String name) {
+    this.lock.lock();
+    try {
+      final var tenant = new Tenant(name);
+      this.tenants.add(tenant);
+      return tenant;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private void grantNext() {
+    for (int i = 0; i < this.tenants.size(); i++) {
+      final var tenant = this.tenants.get((this.cursor + i) % this.tenants.size());
+      final var waiter = tenant.waiters.poll();
+      if (waiter != null) {
+        this.cursor = (this.cursor + i + 1) % this.tenants.size();
+        this.waiting--;
+        waiter.granted = true;
+        waiter.condition.signal();
+        return;
+      }
+    }
+    this.available++;
+  }
+
+  /**
+   * Share of the budget used by one program.
+   *
+   * @author ActiveViam
+   */
+  @RequiredArgsConstructor
+  public final class Tenant {
+
+    private final String name;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    public String name() {
+      return this.name;
+    }
+
+    public void acquire() {
+      lock.lock();
+      try {
+        if (available > 0 && waiting == 0) {
+          available--;
+          return;
+        }
+        final var waiter = new Waiter(lock.newCondition());
+        this.waiters.add(waiter);
+        waiting++;
+        try {
+          while (!waiter.granted) {
+            waiter.condition.await();
+          }
+        } catch (final InterruptedException e) {
+          if (waiter.granted) {
+            grantNext();
+          } else {
+            this.waiters.remove(waiter);
+            waiting--;
+          }
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for a fetch permit", e);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    public void release() {
+      lock.lock();
+      try {
+        grantNext();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    public void unregister() {
+      lock.lock();
+      try {
+        tenants.remove(this);
+        cursor = tenants.isEmpty() ? 0 : cursor % tenants.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private static final class Waiter {
+
+    private final Condition condition;
+    private boolean granted = false;
+
+    private Waiter(final Condition condition) {
+      this.condition = condition;
+    }
+  }
+}
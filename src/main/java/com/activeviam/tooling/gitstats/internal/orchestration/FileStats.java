@@ -0,0 +1,149 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Statistics of the rows of one output file, maintained while the rows are written.
+ *
+ * <p>The commits of the file are summarized by a Bloom filter. Bit {@code i} of the filter is set
+ * for a commit when {@code i = (h1 + k * h2) mod bits} for {@code k} in {@code [0, hashes)}, with
+ * {@code h1} and {@code h2} the unsigned values of the first and second groups of 16 hexadecimal
+ * digits of the commit SHA-1, {@code h2} being made odd. The hashes of the commits are kept until
+ * the file is described, so that the filter is sized for the actual number of commits, with about
+ * 10 bits per commit. Beyond {@link #MAX_COMMITS}, the hashes are dropped and the file has no
+ * filter.
+ *
+ * <p>Tree statistics leave commit dates at the epoch unless partitioned by month. Such dates are
+ * unknown and not part of the date range.
+ *
+ * @author ActiveViam
+ */
+public final class FileStats {
+
+  /** Commits kept for the filter of a file, using 16 bytes each. */
+  static final int MAX_COMMITS = 1 << 16;
+
+  static final int MIN_BITS = 64;
+
+  static final int BITS_PER_COMMIT = 10;
+
+  /** Optimal number of hashes for 10 bits per element, giving about 1% of false positives. */
+  static final int HASHES = 7;
+
+  /** Pairs of hashes of the recorded commits, or {@code null} beyond {@link #MAX_COMMITS}. */
+  private long[] hashes = new long[32];
+
+  private int commits = 0;
+  private String lastCommit;
+  private Instant minDate;
+  private Instant maxDate;
+  private String minPath;
+  private String maxPath;
+
+  /** Records a commit having rows in the file. */
+  public void addCommit(final CommitInfo commit) {
+    final var date = commit.date();
+    if (!date.equals(Instant.EPOCH)) {
+      if (this.minDate == null || date.isBefore(this.minDate)) {
+        this.minDate = date;
+      }
+      if (this.maxDate == null || date.isAfter(this.maxDate)) {
+        this.maxDate = date;
+      }
+    }
+    // Rows of a commit are written together, so only consecutive duplicates are skipped
+    if (commit.sha1().equals(this.lastCommit)) {
+      return;
+    }
+    this.lastCommit = commit.sha1();
+    this.commits++;
+    if (this.hashes == null) {
+      return;
+    }
+    if (this.commits > MAX_COMMITS) {
+      this.hashes = null;
+      return;
+    }
+    if (this.commits * 2 > this.hashes.length) {
+      this.hashes = Arrays.copyOf(this.hashes, this.hashes.length * 2);
+    }
+    this.hashes[this.commits * 2 - 2] = Long.parseUnsignedLong(commit.sha1(), 0, 16, 16);
+    this.hashes[this.commits * 2 - 1] = Long.parseUnsignedLong(commit.sha1(), 16, 32, 16) | 1;
+  }
+
+  /** Records a path appearing in the rows of the file. */
+  public void addPath(final String path) {
+    if (this.minPath == null || path.compareTo(this.minPath) < 0) {
+      this.minPath = path;
+    }
+    if (this.maxPath == null || path.compareTo(this.maxPath) > 0) {
+      this.maxPath = path;
+    }
+  }
+
+  public int commitCount() {
+    return this.commits;
+  }
+
+  public Instant minDate() {
+    return this.minDate;
+  }
+
+  public Instant maxDate() {
+    return this.maxDate;
+  }
+
+  public String minPath() {
+    return this.minPath;
+  }
+
+  public String maxPath() {
+    return this.maxPath;
+  }
+
+  /** Tells whether the file has a filter, that is, at most {@link #MAX_COMMITS} commits. */
+  public boolean hasFilter() {
+    return this.hashes != null;
+  }
+
+  /** Returns the number of bits of the filter, a power of two of about 10 bits per commit. */
+  public int filterBits() {
+    int bits = MIN_BITS;
+    while (bits < (long) this.commits * BITS_PER_COMMIT) {
+      bits *= 2;
+    }
+    return bits;
+  }
+
+  /** Returns the filter, bit {@code i} being bit {@code i % 8} of byte {@code i / 8}. */
+  public byte[] filter() {
+    if (this.hashes == null) {
+      throw new IllegalStateException("No filter beyond " + MAX_COMMITS + " commits");
+    }
+    final int bits = filterBits();
+    final byte[] bytes = new byte[bits / Byte.SIZE];
+    for (int i = 0; i < this.commits; i++) {
+      final long h1 = this.hashes[2 * i];
+      final long h2 = this.hashes[2 * i + 1];
+      for (int k = 0; k < HASHES; k++) {
+        final int bit = (int) ((h1 + k * h2) & (bits - 1));
+        bytes[bit >>> 3] |= (byte) (1 << (bit & 7));
+      }
+    }
+    return bytes;
+  }
+
+  String encodedFilter() {
+    return Base64.getEncoder().encodeToString(filter());
+  }
+}
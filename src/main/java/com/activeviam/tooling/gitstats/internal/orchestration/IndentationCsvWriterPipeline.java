@@ -7,9 +7,13 @@
 
 package com.activeviam.tooling.gitstats.internal.orchestration;
 
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.lineage.FileLineage;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteIndentationAction;
 import java.io.PrintWriter;
 import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Map;
 import lombok.val;
 
 /**
@@ -17,33 +21,95 @@ import lombok.val;
  */
 public class IndentationCsvWriterPipeline extends ACsvWritePipeline<WriteIndentationAction> {
 
+  private final FileLineage lineage;
+
   public IndentationCsvWriterPipeline(
-      Queue<Action<WriteIndentationAction>> queue, Path outputDirectory, String filePattern) {
+      Queue<Action<WriteIndentationAction>> queue,
+      Path outputDirectory,
+      String filePattern,
+      FileLineage lineage) {
     super(queue, outputDirectory, filePattern, 1 << 16);
+    this.lineage = lineage;
+  }
+
+  public static final String HEADER =
+      "commit,path,min_indent,max_indent,mean_indent,median_indent,bumps,histogram";
+
+  @Override
+  protected Map<YearMonth, WriteIndentationAction> splitByMonth(
+      final WriteIndentationAction command) {
+    return groupByMonth(
+        command.commits(), details -> details.commit().date(), WriteIndentationAction::new);
+  }
+
+  @Override
+  protected void describe(final WriteIndentationAction command, final FileStats stats) {
+    for (val details : command.commits()) {
+      stats.addCommit(details.commit());
+      if (details.treeStats() != null) {
+        details.treeStats().forEachIndentation((path, _, _, _, _, _, _) -> stats.addPath(path));
+      } else {
+        for (val indentation : details.fileIndentations()) {
+          stats.addPath(indentation.path());
+        }
+      }
+    }
   }
 
   @Override
   protected void writeHeader(PrintWriter writer) {
-    writer.println("commit,path,min_indent,max_indent,mean_indent,median_indent,bumps");
+    writer.println(this.lineage == null ? HEADER : HEADER + ",file");
   }
 
   @Override
   protected int processCommand(WriteIndentationAction command, PrintWriter writer) {
     int lines = 0;
     for (val details : command.commits()) {
-      for (val stats : details.fileIndentations()) {
-        writer.printf(
-            "%s,%s,%d,%d,%.2f,%d,%d%n",
-            details.commit().sha1(),
-            stats.path(),
-            stats.minIndent(),
-            stats.maxIndent(),
-            stats.meanIndent(),
-            stats.medianIndent(),
-            stats.bumps());
-        lines++;
+      lines += writeRows(details, this.lineage, writer);
+      if (details.treeStats() != null) {
+        details.treeStats().release();
       }
     }
     return lines;
   }
+
+  public static int writeRows(final CommitDetails details, final PrintWriter writer) {
+    return writeRows(details, null, writer);
+  }
+
+  public static int writeRows(
+      final CommitDetails details, final FileLineage lineage, final PrintWriter writer) {
+    if (details.treeStats() != null) {
+      details
+          .treeStats()
+          .forEachIndentation(
+              (path, minIndent, maxIndent, meanIndent, medianIndent, bumps, histogram) ->
+                  writer.printf(
+                      "%s,%s,%d,%d,%.2f,%d,%d,%s%s%n",
+                      details.commit().sha1(),
+                      path,
+                      minIndent,
+                      maxIndent,
+                      meanIndent,
+                      medianIndent,
+                      bumps,
+                      histogram.encode(),
+                      FileLineage.column(lineage, details.commit().sha1(), path)));
+      return details.treeStats().indentationSize();
+    }
+    for (val stats : details.fileIndentations()) {
+      writer.printf(
+          "%s,%s,%d,%d,%.2f,%d,%d,%s%s%n",
+          details.commit().sha1(),
+          stats.path(),
+          stats.minIndent(),
+          stats.maxIndent(),
+          stats.meanIndent(),
+          stats.medianIndent(),
+          stats.bumps(),
+          stats.histogram().encode(),
+          FileLineage.column(lineage, details.commit().sha1(), stats.path()));
+    }
+    return details.fileIndentations().size();
+  }
 }
@@ -0,0 +1,118 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.val;
+
+/**
+ * Indentation of each module at each commit, merged from the histograms of its files.
+ *
+ * <p>The histograms of the files of a commit are merged by module as the commit is fetched, and the
+ * rows of the commit are written as soon as it is complete. Module percentiles are thus exact,
+ * without going back to the lines of the files. Commits are written in the order they complete.
+ *
+ * @author ActiveViam
+ */
+public class IndentationRollup implements AutoCloseable {
+
+  public static final String HEADER =
+      "commit,module,files,lines,mean_indent,p50_indent,p90_indent,p99_indent,max_indent,histogram";
+
+  private final ModuleResolver modules;
+  private final PrintWriter writer;
+
+  public IndentationRollup(final ModuleResolver modules, final Path file) throws IOException {
+    this.modules = modules;
+    this.writer = new PrintWriter(Files.newBufferedWriter(file));
+    this.writer.println(HEADER);
+  }
+
+  /** Starts the rollup of a commit, whose files are added by a single thread. */
+  public Commit start(final CommitInfo commit) {
+    return new Commit(commit);
+  }
+
+  /** Adds all the files of a fetched commit, before the writers release its statistics. */
+  public void add(final CommitDetails details) {
+    val commit = start(details.commit());
+    if (details.treeStats() != null) {
+      details
+          .treeStats()
+          .forEachIndentation((path, _, _, _, _, _, histogram) -> commit.add(path, histogram));
+    } else {
+      for (val stats : details.fileIndentations()) {
+        commit.add(stats.path(), stats.histogram());
+      }
+    }
+    commit.complete();
+  }
+
+  private synchronized void write(final CommitInfo commit, final Map<String, ModuleStats> rows) {
+    rows.forEach(
+        (module, stats) ->
+            this.writer.printf(
+                Locale.ROOT,
+                "%s,%s,%d,%d,%.2f,%d,%d,%d,%d,%s%n",
+                commit.sha1(),
+                module,
+                stats.files,
+                stats.histogram.count(),
+                stats.histogram.mean(),
+                stats.histogram.quantile(0.5),
+                stats.histogram.quantile(0.9),
+                stats.histogram.quantile(0.99),
+                stats.histogram.maxLevel(),
+                stats.histogram.encode()));
+  }
+
+  @Override
+  public synchronized void close() {
+    this.writer.close();
+  }
+
+  /** Histograms of the modules of a commit, by module name. */
+  public final class Commit {
+
+    private final CommitInfo commit;
+    private final Map<String, ModuleStats> modules = new TreeMap<>();
+
+    private Commit(final CommitInfo commit) {
+      this.commit = commit;
+    }
+
+    public void add(final String path, final LevelHistogram histogram) {
+      val stats =
+          this.modules.computeIfAbsent(
+              IndentationRollup.this.modules.resolve(path), _ -> new ModuleStats());
+      stats.files++;
+      stats.histogram.merge(histogram);
+    }
+
+    /** Writes the rows of the commit, one per module. */
+    public void complete() {
+      write(this.commit, this.modules);
+    }
+  }
+
+  private static final class ModuleStats {
+
+    private int files = 0;
+    private final LevelHistogram histogram = new LevelHistogram();
+  }
+}
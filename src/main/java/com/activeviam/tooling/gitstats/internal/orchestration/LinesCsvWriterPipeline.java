@@ -7,9 +7,13 @@
 
 package com.activeviam.tooling.gitstats.internal.orchestration;
 
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.lineage.FileLineage;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteLinesAction;
 import java.io.PrintWriter;
 import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Map;
 import lombok.val;
 
 /**
@@ -17,26 +21,83 @@ import lombok.val;
  */
 public class LinesCsvWriterPipeline extends ACsvWritePipeline<WriteLinesAction> {
 
+  private final FileLineage lineage;
+
   public LinesCsvWriterPipeline(
-      Queue<Action<WriteLinesAction>> queue, Path outputDirectory, String filePattern) {
+      Queue<Action<WriteLinesAction>> queue,
+      Path outputDirectory,
+      String filePattern,
+      FileLineage lineage) {
     super(queue, outputDirectory, filePattern, 1 << 16);
+    this.lineage = lineage;
+  }
+
+  public static final String HEADER = "commit,path,lines";
+
+  @Override
+  protected Map<YearMonth, WriteLinesAction> splitByMonth(final WriteLinesAction command) {
+    return groupByMonth(
+        command.commits(), details -> details.commit().date(), WriteLinesAction::new);
+  }
+
+  @Override
+  protected void describe(final WriteLinesAction command, final FileStats stats) {
+    for (val details : command.commits()) {
+      stats.addCommit(details.commit());
+      if (details.treeStats() != null) {
+        details.treeStats().forEachLineCount((path, _) -> stats.addPath(path));
+      } else {
+        for (val lineCount : details.fileLineCounts()) {
+          stats.addPath(lineCount.path());
+        }
+      }
+    }
   }
 
   @Override
   protected void writeHeader(PrintWriter writer) {
-    writer.println("commit,path,lines");
+    writer.println(this.lineage == null ? HEADER : HEADER + ",file");
   }
 
   @Override
   protected int processCommand(WriteLinesAction command, PrintWriter writer) {
     int lines = 0;
     for (val details : command.commits()) {
-      for (val fileLineCount : details.fileLineCounts()) {
-        writer.printf(
-            "%s,%s,%d%n", details.commit().sha1(), fileLineCount.path(), fileLineCount.lineCount());
-        lines++;
+      lines += writeRows(details, this.lineage, writer);
+      if (details.treeStats() != null) {
+        details.treeStats().release();
       }
     }
     return lines;
   }
+
+  public static int writeRows(final CommitDetails details, final PrintWriter writer) {
+    return writeRows(details, null, writer);
+  }
+
+  public static int writeRows(
+      final CommitDetails details, final FileLineage lineage, final PrintWriter writer) {
+    if (details.treeStats() != null) {
+      details
+          .treeStats()
+          .forEachLineCount(
+              (path, lineCount) ->
+                  writer.printf(
+                      "%s,%s,%d%s%n",
+                      details.commit().sha1(),
+                      path,
+                      lineCount,
+                      FileLineage.column(lineage, details.commit().sha1(), path)));
+      return details.treeStats().lineCountSize();
+    }
+    for (val fileLineCount : details.fileLineCounts()) {
+      writer.printf(
+          "%s,%s,%d%s%n",
+          details.commit().sha1(),
+          fileLineCount.path(),
+          fileLineCount.lineCount(),
+          FileLineage.column(lineage, details.commit().sha1(), fileLineCount.path()));
+    }
+    return details.fileLineCounts().size();
+  }
 }
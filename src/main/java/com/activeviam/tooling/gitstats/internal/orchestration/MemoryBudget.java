@@ -0,0 +1,186 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * Bounds the estimated heap retained by the queues of a program, instead of their number of
+ * elements.
+ *
+ * <p>All the queues of a budget draw from a single pool of bytes. A producer waits while the pool
+ * cannot hold its element, unless the target queue is empty: an element larger than the budget is
+ * still accepted, and a consumer can always make progress, which rules out deadlocks between stages
+ * sharing the pool.
+ *
+ * <p>Time spent blocked is measured per queue and reported by {@link #report()}.
+ *
+ * @author ActiveViam
+ */
+@Log
+public class MemoryBudget {
+
+  private final long limit;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = this.lock.newCondition();
+  private final List<BudgetedQueue<?>> queues = new ArrayList<>();
+  private long used = 0;
+  private long peak = 0;
+
+  public MemoryBudget(final long limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Memory budget must be positive: " + limit);
+    }
+    this.limit = limit;
+  }
+
+  /** Parses a size in bytes, with an optional {@code k}, {@code m} or {@code g} suffix. */
+  public static long parseSize(final String spec) {
+    if (spec == null || spec.isBlank()) {
+      throw new IllegalArgumentException("Invalid size: " + spec);
+    }
+    final var lower = spec.trim().toLowerCase(Locale.ROOT);
+    final long unit =
+        switch (lower.charAt(lower.length() - 1)) {
+          case 'k' -> 1L << 10;
+          case 'm' -> 1L << 20;
+          case 'g' -> 1L << 30;
+          default -> 1;
+        };
+    final var digits = unit == 1 ? lower : lower.substring(0, lower.length() - 1);
+    try {
+      return Math.multiplyExact(Long.parseLong(digits), unit);
+    } catch (final NumberFormatException | ArithmeticException e) {
+      throw new IllegalArgumentException("Invalid size: " + spec, e);
+    }
+  }
+
+  public long limit() {
+    return this.limit;
+  }
+
+  /** Creates a queue drawing from this budget. */
+  public <T> Queue<Action<T>> queue(final String name, final Weigher<T> weigher) {
+    this.lock.lock();
+    try {
+      final var queue = new BudgetedQueue<>(name, Weigher.ofActions(weigher));
+      this.queues.add(queue);
+      return queue;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /** Logs the peak usage of the budget and the time each queue spent blocked. */
+  public void report() {
+    this.lock.lock();
+    try {
+      log.log(
+          Level.INFO, "Memory budget: peak {0} of {1} bytes", new Object[] {this.peak, this.limit});
+      for (final var queue : this.queues) {
+        log.log(
+            Level.INFO,
+            "Queue {0}: {1} elements, producers blocked {2} ms, consumers blocked {3} ms",
+            new Object[] {
+              queue.name,
+              queue.count,
+              TimeUnit.NANOSECONDS.toMillis(queue.blockedPutNanos),
+              TimeUnit.NANOSECONDS.toMillis(queue.blockedTakeNanos)
+            });
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private final class BudgetedQueue<T> extends Queue<T> {
+
+    private final String name;
+    private final Weigher<T> weigher;
+    private final ArrayDeque<T> elements = new ArrayDeque<>();
+    private final ArrayDeque<Long> weights = new ArrayDeque<>();
+    private final Condition notEmpty = lock.newCondition();
+    private long count = 0;
+    private long blockedPutNanos = 0;
+    private long blockedTakeNanos = 0;
+
+    private BudgetedQueue(final String name, final Weigher<T> weigher) {
+      this.name = name;
+      this.weigher = weigher;
+    }
+
+    @Override
+    public Collection<T> values() {
+      lock.lock();
+      try {
+        return List.copyOf(this.elements);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void put(final T element) {
+      // Weighing may walk large lists, keep it out of the lock
+      final long weight = this.weigher.weigh(element);
+      lock.lock();
+      try {
+        if (used + weight > limit && !this.elements.isEmpty()) {
+          final long start = System.nanoTime();
+          while (used + weight > limit && !this.elements.isEmpty()) {
+            released.await();
+          }
+          this.blockedPutNanos += System.nanoTime() - start;
+        }
+        used += weight;
+        peak = Math.max(peak, used);
+        this.elements.add(element);
+        this.weights.add(weight);
+        this.count++;
+        this.notEmpty.signal();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while putting element", e);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public T take() {
+      lock.lock();
+      try {
+        if (this.elements.isEmpty()) {
+          final long start = System.nanoTime();
+          while (this.elements.isEmpty()) {
+            this.notEmpty.await();
+          }
+          this.blockedTakeNanos += System.nanoTime() - start;
+        }
+        used -= this.weights.poll();
+        // Producers of every queue may be waiting for these bytes
+        released.signalAll();
+        return this.elements.poll();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while taking element", e);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
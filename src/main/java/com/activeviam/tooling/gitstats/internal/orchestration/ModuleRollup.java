@@ -0,0 +1,166 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.val;
+
+/**
+ * Changes aggregated by module and period, computed while the history is extracted.
+ *
+ * <p>Commits are added concurrently by the fetching threads. Each (module, period) cell is a small
+ * array of atomic counters, so that adding a commit never blocks on the other fetches.
+ *
+ * @author ActiveViam
+ */
+public class ModuleRollup {
+
+  public static final String HEADER = "module,period,additions,deletions,changes,commits";
+
+  /** Prefix of the rollup datasets. */
+  public static final String DATASET_PREFIX = "rollup-";
+
+  private static final int ADDITIONS = 0;
+  private static final int DELETIONS = 1;
+  private static final int CHANGES = 2;
+  private static final int COMMITS = 3;
+
+  private final Period period;
+  private final ModuleResolver modules;
+  private final ConcurrentHashMap<String, Integer> moduleIds = new ConcurrentHashMap<>();
+  private final AtomicInteger nextModuleId = new AtomicInteger();
+
+  /** Counters by cell, keyed by module id in the high bits and epoch day of the period start. */
+  private final ConcurrentHashMap<Long, AtomicLongArray> cells = new ConcurrentHashMap<>();
+
+  public ModuleRollup(final Period period, final ModuleResolver modules) {
+    this.period = period;
+    this.modules = modules;
+  }
+
+  /** Name of the dataset, such as {@code rollup-week}. */
+  public String dataset() {
+    return DATASET_PREFIX + this.period.name().toLowerCase(Locale.ROOT);
+  }
+
+  public void add(final CommitDetails details) {
+    add(details, new HashSet<>());
+  }
+
+  /**
+   * Adds part of the changes of a commit.
+   *
+   * @param touched ids of the modules already counted for the commit, shared by all its parts
+   */
+  public void add(final CommitDetails details, final Set<Integer> touched) {
+    final long day = this.period.startOf(details.commit().date()).toEpochDay();
+    for (val change : details.fileChanges()) {
+      final int module =
+          this.moduleIds.computeIfAbsent(
+              this.modules.resolve(change.filename()), _ -> this.nextModuleId.getAndIncrement());
+      val cell =
+          this.cells.computeIfAbsent(
+              (long) module << 32 | (day & 0xFFFFFFFFL), _ -> new AtomicLongArray(4));
+      // Binary files have no line counts, they only count as changes
+      cell.addAndGet(ADDITIONS, Math.max(change.additions(), 0));
+      cell.addAndGet(DELETIONS, Math.max(change.deletions(), 0));
+      cell.incrementAndGet(CHANGES);
+      if (touched.add(module)) {
+        cell.incrementAndGet(COMMITS);
+      }
+    }
+  }
+
+  /** Writes the rollup, sorted by period then module, once all commits are added. */
+  public void write(final Path file) throws IOException {
+    val modules = new String[this.nextModuleId.get()];
+    this.moduleIds.forEach((name, id) -> modules[id] = name);
+    val keys = new ArrayList<>(this.cells.keySet());
+    keys.sort(
+        Comparator.<Long>comparingInt(key -> (int) (long) key)
+            .thenComparing(key -> modules[(int) (key >>> 32)]));
+    try (val writer = new PrintWriter(Files.newBufferedWriter(file))) {
+      writer.println(HEADER);
+      for (val key : keys) {
+        val cell = this.cells.get(key);
+        writer.printf(
+            "%s,%s,%d,%d,%d,%d%n",
+            modules[(int) (key >>> 32)],
+            LocalDate.ofEpochDay((int) (long) key),
+            cell.get(ADDITIONS),
+            cell.get(DELETIONS),
+            cell.get(CHANGES),
+            cell.get(COMMITS));
+      }
+    }
+  }
+
+  /**
+   * Sums rollups computed over disjoint sets of commits, such as the files of shard workers, into a
+   * single file sorted like {@link #write(Path)}.
+   */
+  public static void merge(final List<Path> files, final Path target) throws IOException {
+    // Period then module, ISO dates sort chronologically
+    val cells = new TreeMap<String, TreeMap<String, long[]>>();
+    for (val file : files) {
+      try (val lines = Files.lines(file)) {
+        lines
+            .skip(1)
+            .forEach(
+                line -> {
+                  // Fields are read from the end, module names may contain commas
+                  val fields = line.split(",", -1);
+                  final int last = fields.length - 1;
+                  val module = String.join(",", Arrays.copyOf(fields, last - 4));
+                  val counters =
+                      cells
+                          .computeIfAbsent(fields[last - 4], _ -> new TreeMap<>())
+                          .computeIfAbsent(module, _ -> new long[4]);
+                  for (int i = 0; i < counters.length; i++) {
+                    counters[i] += Long.parseLong(fields[last - 3 + i]);
+                  }
+                });
+      }
+    }
+    try (val writer =
+        new PrintWriter(Files.newBufferedWriter(target, StandardOpenOption.CREATE_NEW))) {
+      writer.println(HEADER);
+      cells.forEach(
+          (period, modules) ->
+              modules.forEach(
+                  (module, counters) ->
+                      writer.printf(
+                          "%s,%s,%d,%d,%d,%d%n",
+                          module,
+                          period,
+                          counters[ADDITIONS],
+                          counters[DELETIONS],
+                          counters[CHANGES],
+                          counters[COMMITS])));
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.server.Ndjson;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.val;
+
+/**
+ * Lists the files written by a run with statistics of their rows, so that readers can skip files
+ * without opening them.
+ *
+ * <p>Writers record a file each time they close it, and write the manifest when they stop,
+ * replacing the previous version atomically, so a reader never sees a partial manifest. Each file
+ * has its number of rows and bytes, the range of commit dates and paths, and a Bloom filter of its
+ * commits, as described in {@link FileStats}. Files with too many commits have no filter, with
+ * {@code bloomBits} 0 and a null {@code bloom}.
+ *
+ * @author ActiveViam
+ */
+public class OutputManifest {
+
+  private final Path outputDirectory;
+  private final Path file;
+
+  /** JSON description of each file, by path relative to the output directory. */
+  private final Map<String, String> entries = new TreeMap<>();
+
+  public OutputManifest(final Path outputDirectory, final String name) {
+    this.outputDirectory = outputDirectory;
+    this.file = outputDirectory.resolve(name);
+  }
+
+  public Path file() {
+    return this.file;
+  }
+
+  /** Records the statistics of a closed file, replacing the previous ones of the same file. */
+  public synchronized void record(final Path dataFile, final long rows, final FileStats stats) {
+    final long bytes;
+    try {
+      bytes = Files.size(dataFile);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot read the size of " + dataFile, e);
+    }
+    val name = this.outputDirectory.relativize(dataFile).toString().replace('\\', '/');
+    this.entries.put(name, describe(name, rows, bytes, stats));
+  }
+
+  /** Writes the manifest with all the files recorded so far. */
+  public synchronized void write() {
+    val json = new StringBuilder(256 + 512 * this.entries.size());
+    json.append("{\"version\":1,\"hashes\":").append(FileStats.HASHES).append(",\"files\":[");
+    var first = true;
+    for (val entry : this.entries.values()) {
+      json.append(first ? "\n" : ",\n").append(entry);
+      first = false;
+    }
+    json.append("\n]}\n");
+    val temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    try {
+      Files.writeString(temporary, json);
+      Files.move(
+          temporary,
+          this.file,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot write manifest " + this.file, e);
+    }
+  }
+
+  private static String describe(
+      final String name, final long rows, final long bytes, final FileStats stats) {
+    return "{\"file\":"
+        + Ndjson.quote(name)
+        + ",\"rows\":"
+        + rows
+        + ",\"bytes\":"
+        + bytes
+        + ",\"minDate\":"
+        + date(stats.minDate())
+        + ",\"maxDate\":"
+        + date(stats.maxDate())
+        + ",\"minPath\":"
+        + (stats.minPath() == null ? "null" : Ndjson.quote(stats.minPath()))
+        + ",\"maxPath\":"
+        + (stats.maxPath() == null ? "null" : Ndjson.quote(stats.maxPath()))
+        + ",\"commits\":"
+        + stats.commitCount()
+        + ",\"bloomBits\":"
+        + (stats.hasFilter() ? stats.filterBits() : 0)
+        + ",\"bloom\":"
+        + (stats.hasFilter() ? "\"" + stats.encodedFilter() + "\"" : "null")
+        + "}";
+  }
+
+  private static String date(final Instant date) {
+    return date == null ? "null" : "\"" + date + "\"";
+  }
+}
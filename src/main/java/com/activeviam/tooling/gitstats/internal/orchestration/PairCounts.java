@@ -0,0 +1,163 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.sketch.Hashing;
+
+/**
+ * Counts of pairs of files, in an open-addressing table of primitive keys owned by a single thread.
+ *
+ * <p>Keys are pairs of file ids packed into a {@code long}, never 0 since the second id of a pair
+ * is greater than the first one. The table doubles while it fits in its memory limit. Past it, the
+ * table is pruned as in lossy counting. Each pair has a count and a {@code delta}, the bucket when
+ * it was inserted, bounding the commits it may have had before. Pruning raises the bucket until a
+ * quarter of the table is free, dropping the pairs whose {@code count + delta} is at most the
+ * bucket. A dropped pair thus had at most {@code bucket} commits, so a pair missing from the table
+ * has at most the final bucket of commits, and a kept pair has between {@code count} and {@code
+ * count + delta} commits.
+ *
+ * @author ActiveViam
+ */
+final class PairCounts {
+
+  /** Bytes of each slot of the table. */
+  static final int SLOT_BYTES = Long.BYTES + 2 * Integer.BYTES;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private final long maxBytes;
+  private long[] keys;
+  private int[] counts;
+  private int[] deltas;
+  private int size = 0;
+  private int bucket = 0;
+
+  PairCounts(final long maxBytes) {
+    this.maxBytes = maxBytes;
+    int capacity = MIN_CAPACITY;
+    while (capacity < 1024 && (long) capacity * 2 * SLOT_BYTES <= maxBytes) {
+      capacity *= 2;
+    }
+    this.keys = new long[capacity];
+    this.counts = new int[capacity];
+    this.deltas = new int[capacity];
+  }
+
+  static long pair(final int first, final int second) {
+    return (long) first << 32 | second;
+  }
+
+  static int first(final long pair) {
+    return (int) (pair >>> 32);
+  }
+
+  static int second(final long pair) {
+    return (int) pair;
+  }
+
+  void increment(final long key) {
+    final int mask = this.keys.length - 1;
+    int slot = (int) Hashing.mix(key) & mask;
+    while (this.keys[slot] != 0) {
+      if (this.keys[slot] == key) {
+        this.counts[slot]++;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    this.keys[slot] = key;
+    this.counts[slot] = 1;
+    this.deltas[slot] = this.bucket;
+    this.size++;
+    if (this.size * 2 > this.keys.length) {
+      if ((long) this.keys.length * 2 * SLOT_BYTES <= this.maxBytes) {
+        rehash(this.keys.length * 2, this.bucket);
+      } else {
+        prune();
+      }
+    }
+  }
+
+  private void prune() {
+    final int target = this.keys.length * 3 / 8;
+    while (this.size > target) {
+      this.bucket++;
+      rehash(this.keys.length, this.bucket);
+    }
+  }
+
+  /**
+   * Rebuilds the table with a new capacity, keeping the pairs whose {@code count + delta} is more
+   * than {@code bucket}.
+   */
+  private void rehash(final int capacity, final int bucket) {
+    final long[] oldKeys = this.keys;
+    final int[] oldCounts = this.counts;
+    final int[] oldDeltas = this.deltas;
+    this.keys = new long[capacity];
+    this.counts = new int[capacity];
+    this.deltas = new int[capacity];
+    this.size = 0;
+    final int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0 && oldCounts[i] + oldDeltas[i] > bucket) {
+        int slot = (int) Hashing.mix(oldKeys[i]) & mask;
+        while (this.keys[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        this.keys[slot] = oldKeys[i];
+        this.counts[slot] = oldCounts[i];
+        this.deltas[slot] = oldDeltas[i];
+        this.size++;
+      }
+    }
+  }
+
+  /** Upper bound of the commits of a pair, {@code count + delta}, or 0 if it is not counted. */
+  int count(final long key) {
+    final int mask = this.keys.length - 1;
+    int slot = (int) Hashing.mix(key) & mask;
+    while (this.keys[slot] != 0) {
+      if (this.keys[slot] == key) {
+        return this.counts[slot] + this.deltas[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return 0;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Bucket of the last pruning, 0 if none happened: the most commits of a dropped pair, and of the
+   * commits the count of a kept pair may include in excess.
+   */
+  int threshold() {
+    return this.bucket;
+  }
+
+  long byteSize() {
+    return (long) this.keys.length * SLOT_BYTES;
+  }
+
+  /** Visits the counted pairs with the upper bound of their commits. */
+  void forEach(final PairConsumer consumer) {
+    for (int i = 0; i < this.keys.length; i++) {
+      if (this.keys[i] != 0) {
+        consumer.accept(this.keys[i], this.counts[i] + this.deltas[i]);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  interface PairConsumer {
+    void accept(long pair, int count);
+  }
+}
@@ -13,7 +13,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 /**
  * @author ActiveViam
  */
-public class Queue<T> {
+public class Queue<T> implements AutoCloseable {
 
   private final LinkedBlockingQueue<T> inner;
 
@@ -21,6 +21,11 @@ public class Queue<T> {
     this.inner = new LinkedBlockingQueue<>(capacity);
   }
 
+  /** For queues managing their own storage. */
+  protected Queue() {
+    this.inner = null;
+  }
+
   public Collection<T> values() {
     return inner;
   }
@@ -42,4 +47,8 @@ public class Queue<T> {
       throw new IllegalStateException("Interrupted while taking element", e);
     }
   }
+
+  /** Releases the resources held by the queue, once producers and consumers are done. */
+  @Override
+  public void close() {}
 }
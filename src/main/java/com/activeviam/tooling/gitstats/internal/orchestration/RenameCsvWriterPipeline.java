@@ -7,9 +7,12 @@
 
 package com.activeviam.tooling.gitstats.internal.orchestration;
 
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
 import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteRenamingAction;
 import java.io.PrintWriter;
 import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Map;
 import lombok.val;
 
 /**
@@ -22,20 +25,43 @@ public class RenameCsvWriterPipeline extends ACsvWritePipeline<WriteRenamingActi
     super(queue, outputDirectory, filePattern, 1 << 18);
   }
 
+  public static final String HEADER = "commit,before,after";
+
+  @Override
+  protected Map<YearMonth, WriteRenamingAction> splitByMonth(final WriteRenamingAction command) {
+    return groupByMonth(
+        command.commits(), details -> details.commit().date(), WriteRenamingAction::new);
+  }
+
+  @Override
+  protected void describe(final WriteRenamingAction command, final FileStats stats) {
+    for (val details : command.commits()) {
+      stats.addCommit(details.commit());
+      for (val renaming : details.fileRenamings()) {
+        stats.addPath(renaming.from());
+        stats.addPath(renaming.to());
+      }
+    }
+  }
+
   @Override
   protected void writeHeader(PrintWriter writer) {
-    writer.println("commit,before,after");
+    writer.println(HEADER);
   }
 
   @Override
   protected int processCommand(WriteRenamingAction command, PrintWriter writer) {
     int lines = 0;
     for (val details : command.commits()) {
-      for (val change : details.fileRenamings()) {
-        writer.printf("%s,%s,%s%n", details.commit().sha1(), change.from(), change.to());
-        lines++;
-      }
+      lines += writeRows(details, writer);
     }
     return lines;
   }
+
+  public static int writeRows(final CommitDetails details, final PrintWriter writer) {
+    for (val change : details.fileRenamings()) {
+      writer.printf("%s,%s,%s%n", details.commit().sha1(), change.from(), change.to());
+    }
+    return details.fileRenamings().size();
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * Releases results completed in any order, in the order of their sequence numbers.
+ *
+ * <p>Results are numbered in traversal order before being computed. A result completed ahead of its
+ * predecessors waits in a ring of fixed capacity, and a new sequence number is only reserved once
+ * it fits in the ring. When the head-of-line result is slow, producers thus stop starting new work
+ * instead of piling up results.
+ *
+ * <p>Results are handed downstream outside of the lock, by one thread at a time, so that a blocked
+ * downstream does not prevent other results from being stored.
+ *
+ * @author ActiveViam
+ */
+@Log
+public class ReorderBuffer<T> {
+
+  private final Object[] slots;
+  private final Consumer<T> downstream;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = this.lock.newCondition();
+
+  /** Sequence number of the next result to release. */
+  private long next = 0;
+
+  private boolean draining = false;
+  private int held = 0;
+  private int peak = 0;
+  private long blockedNanos = 0;
+
+  public ReorderBuffer(final int capacity, final Consumer<T> downstream) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.slots = new Object[capacity];
+    this.downstream = downstream;
+  }
+
+  /** Waits until the result of the given sequence number can be held by the buffer. */
+  public void reserve(final long sequence) {
+    this.lock.lock();
+    try {
+      if (sequence < this.next + this.slots.length) {
+        return;
+      }
+      final long start = System.nanoTime();
+      while (sequence >= this.next + this.slots.length) {
+        this.released.await();
+      }
+      this.blockedNanos += System.nanoTime() - start;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the reorder buffer", e);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Stores the result of a reserved sequence number, then releases all the results following the
+   * last released one.
+   */
+  public void complete(final long sequence, final T result) {
+    this.lock.lock();
+    try {
+      if (sequence < this.next || sequence >= this.next + this.slots.length) {
+        throw new IllegalStateException("Sequence " + sequence + " was not reserved");
+      }
+      this.slots[slot(sequence)] = result;
+      this.held++;
+      this.peak = Math.max(this.peak, this.held);
+      if (this.draining) {
+        // The thread releasing results will also release this one
+        return;
+      }
+      this.draining = true;
+    } finally {
+      this.lock.unlock();
+    }
+    drain();
+  }
+
+  private void drain() {
+    while (true) {
+      final T head;
+      this.lock.lock();
+      try {
+        @SuppressWarnings("unchecked")
+        final T value = (T) this.slots[slot(this.next)];
+        if (value == null) {
+          this.draining = false;
+          return;
+        }
+        this.slots[slot(this.next)] = null;
+        this.next++;
+        this.held--;
+        this.released.signalAll();
+        head = value;
+      } finally {
+        this.lock.unlock();
+      }
+      try {
+        this.downstream.accept(head);
+      } catch (final RuntimeException e) {
+        this.lock.lock();
+        try {
+          this.draining = false;
+        } finally {
+          this.lock.unlock();
+        }
+        throw e;
+      }
+    }
+  }
+
+  private int slot(final long sequence) {
+    return (int) (sequence % this.slots.length);
+  }
+
+  /** Logs how many results were held at most and how long producers waited. */
+  public void report() {
+    this.lock.lock();
+    try {
+      log.log(
+          Level.INFO,
+          "Reorder buffer: {0} results released, peak {1} of {2} held, producers blocked {3} ms",
+          new Object[] {
+            this.next,
+            this.peak,
+            this.slots.length,
+            TimeUnit.NANOSECONDS.toMillis(this.blockedNanos)
+          });
+    } finally {
+      this.lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.val;
+
+/**
+ * Renames the files written by shard workers into a single numbered series per dataset.
+ *
+ * <p>A file {@code changes-s002-0001.csv} comes after all files of shard 1 and before all files of
+ * shard 3, so the final numbering follows the history order of the shard plan. Module rollups are
+ * summed into a single file instead, as every shard holds rows for the same modules and periods.
+ *
+ * @author ActiveViam
+ */
+public class ShardMerger {
+
+  private static final Pattern SHARD_FILE =
+      Pattern.compile("^(?<dataset>[a-z]+(?:-[a-z]+)*)-s(?<shard>\\d+)-(?<index>\\d+)\\.csv$");
+
+  private ShardMerger() {}
+
+  /**
+   * Merges the shard files found in the directory.
+   *
+   * @return the number of merged shard files
+   */
+  public static int merge(final Path directory) {
+    final List<ShardFile> files;
+    try (val stream = Files.list(directory)) {
+      files =
+          stream
+              .map(ShardMerger::parse)
+              .filter(Objects::nonNull)
+              .sorted(
+                  Comparator.comparing(ShardFile::dataset)
+                      .thenComparingInt(ShardFile::shard)
+                      .thenComparingInt(ShardFile::index))
+              .toList();
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot list shard files in " + directory, e);
+    }
+
+    val datasets = new TreeMap<String, List<ShardFile>>();
+    files.forEach(
+        file -> datasets.computeIfAbsent(file.dataset(), _ -> new ArrayList<>()).add(file));
+    datasets.forEach(
+        (dataset, shardFiles) -> {
+          if (dataset.startsWith(ModuleRollup.DATASET_PREFIX)) {
+            mergeRollups(directory, dataset, shardFiles);
+          } else {
+            rename(directory, dataset, shardFiles);
+          }
+        });
+    return files.size();
+  }
+
+  private static void rename(
+      final Path directory, final String dataset, final List<ShardFile> files) {
+    int next = 0;
+    for (val file : files) {
+      val target = directory.resolve(String.format("%s-%04d.csv", dataset, next++));
+      try {
+        // Refuse to overwrite the output of a previous run
+        Files.move(file.path(), target);
+      } catch (final IOException e) {
+        throw new ProgramException("Cannot rename " + file.path() + " to " + target, e);
+      }
+    }
+  }
+
+  private static void mergeRollups(
+      final Path directory, final String dataset, final List<ShardFile> files) {
+    val target = directory.resolve(String.format("%s-%04d.csv", dataset, 0));
+    try {
+      ModuleRollup.merge(files.stream().map(ShardFile::path).toList(), target);
+      for (val file : files) {
+        Files.delete(file.path());
+      }
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot merge rollups into " + target, e);
+    }
+  }
+
+  private static ShardFile parse(final Path path) {
+    final Matcher matcher = SHARD_FILE.matcher(path.getFileName().toString());
+    if (!matcher.matches()) {
+      return null;
+    }
+    return new ShardFile(
+        path,
+        matcher.group("dataset"),
+        Integer.parseInt(matcher.group("shard")),
+        Integer.parseInt(matcher.group("index")));
+  }
+
+  private record ShardFile(Path path, String dataset, int shard, int index) {}
+}
@@ -0,0 +1,30 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary encoding of the elements spilled by a {@link SpillingQueue}.
+ *
+ * <p>Codecs may keep state between elements, such as dictionaries of repeated strings: elements are
+ * read in the order they were written, and {@link #reset()} is called when the spill file starts
+ * over.
+ *
+ * @author ActiveViam
+ */
+public interface SpillCodec<T> {
+
+  void write(T element, DataOutputStream output) throws IOException;
+
+  T read(DataInputStream input) throws IOException;
+
+  void reset();
+}
@@ -0,0 +1,176 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * Queue keeping a bounded window of elements in memory and spilling the overflow to a temporary
+ * file, so that producers never wait for slow consumers.
+ *
+ * <p>Once an element is spilled, all the following ones are spilled too, until the consumer has
+ * read back the whole file, which preserves the FIFO order. The file is truncated whenever it is
+ * drained.
+ *
+ * @author ActiveViam
+ */
+@Log
+public class SpillingQueue<T> extends Queue<T> {
+
+  private final int capacity;
+  private final Path directory;
+  private final SpillCodec<T> codec;
+  private final ArrayDeque<T> window;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = this.lock.newCondition();
+
+  private Path file;
+  private DataOutputStream output;
+  private DataInputStream input;
+
+  /** Number of elements in the file, not read yet. */
+  private int spilled = 0;
+
+  private long totalSpilled = 0;
+  private int maxSpilled = 0;
+
+  public SpillingQueue(final int capacity, final Path directory, final SpillCodec<T> codec) {
+    this.capacity = capacity;
+    this.directory = directory;
+    this.codec = codec;
+    this.window = new ArrayDeque<>(capacity);
+  }
+
+  @Override
+  public Collection<T> values() {
+    this.lock.lock();
+    try {
+      return List.copyOf(this.window);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(final T element) {
+    this.lock.lock();
+    try {
+      if (this.spilled == 0 && this.window.size() < this.capacity) {
+        this.window.add(element);
+      } else {
+        spill(element);
+      }
+      this.notEmpty.signal();
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Cannot spill element to " + this.file, e);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public T take() {
+    this.lock.lock();
+    try {
+      while (this.window.isEmpty() && this.spilled == 0) {
+        this.notEmpty.await();
+      }
+      if (this.window.isEmpty()) {
+        refill();
+      }
+      final var element = this.window.poll();
+      if (this.spilled > 0 && this.window.size() < this.capacity / 2) {
+        refill();
+      }
+      return element;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while taking element", e);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Cannot read spilled element from " + this.file, e);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /** Deletes the spill file, if any. */
+  @Override
+  public void close() {
+    this.lock.lock();
+    try {
+      if (this.file != null) {
+        closeStreams();
+        Files.deleteIfExists(this.file);
+        this.file = null;
+      }
+    } catch (final IOException e) {
+      log.log(Level.WARNING, "Cannot delete spill file " + this.file, e);
+    } finally {
+      this.lock.unlock();
+    }
+    if (this.totalSpilled > 0) {
+      log.log(
+          Level.INFO,
+          "Spilled {0} elements to disk, up to {1} at once",
+          new Object[] {this.totalSpilled, this.maxSpilled});
+    }
+  }
+
+  private void spill(final T element) throws IOException {
+    if (this.output == null) {
+      if (this.file == null) {
+        Files.createDirectories(this.directory);
+        this.file = Files.createTempFile(this.directory, "queue-", ".spill");
+      }
+      this.output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.file)));
+      this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)));
+    }
+    this.codec.write(element, this.output);
+    this.spilled++;
+    this.totalSpilled++;
+    this.maxSpilled = Math.max(this.maxSpilled, this.spilled);
+  }
+
+  /** Moves spilled elements back to memory, up to the window capacity. */
+  private void refill() throws IOException {
+    this.output.flush();
+    while (this.spilled > 0 && this.window.size() < this.capacity) {
+      this.window.add(this.codec.read(this.input));
+      this.spilled--;
+    }
+    if (this.spilled == 0) {
+      // Drained: start the next spill from an empty file, with fresh codec state
+      closeStreams();
+      this.codec.reset();
+    }
+  }
+
+  private void closeStreams() throws IOException {
+    if (this.output != null) {
+      this.output.close();
+      this.input.close();
+      this.output = null;
+      this.input = null;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.val;
+
+/**
+ * Last file of each series of CSV files written into an output directory, with its number of rows,
+ * so that a run appending to the output resumes each series without reading its files.
+ *
+ * <p>Series are identified by the path of their first file, relative to the output directory. The
+ * file has a {@code series,index,rows} line per series. Writers update the watermark of a series
+ * each time they close one of its files, and write the watermarks when they stop.
+ *
+ * @author ActiveViam
+ */
+public class Watermarks {
+
+  public static final String FILE_NAME = ".watermarks";
+
+  private final Path file;
+
+  /** Position of each series, by path of its first file. */
+  private final Map<String, Position> positions = new TreeMap<>();
+
+  /** Index of the last file of a series and its number of rows, not counting the header. */
+  public record Position(int index, int rows) {}
+
+  /** Creates empty watermarks, replacing the existing ones of the directory when written. */
+  public Watermarks(final Path outputDirectory) {
+    this.file = outputDirectory.resolve(FILE_NAME);
+  }
+
+  /** Reads the watermarks of an output directory, empty if the directory has none. */
+  public static Watermarks read(final Path outputDirectory) {
+    val watermarks = new Watermarks(outputDirectory);
+    if (!Files.exists(watermarks.file)) {
+      return watermarks;
+    }
+    try {
+      for (val line : Files.readAllLines(watermarks.file)) {
+        if (line.isBlank()) {
+          continue;
+        }
+        val fields = line.split(",", -1);
+        if (fields.length != 3) {
+          throw new ProgramException("Invalid watermark in " + watermarks.file + ": " + line);
+        }
+        watermarks.positions.put(
+            fields[0], new Position(Integer.parseInt(fields[1]), Integer.parseInt(fields[2])));
+      }
+    } catch (final IOException | NumberFormatException e) {
+      throw new ProgramException("Cannot read watermarks " + watermarks.file, e);
+    }
+    return watermarks;
+  }
+
+  public Path file() {
+    return this.file;
+  }
+
+  /** Returns the position of a series, or {@code null} if it is unknown. */
+  public synchronized Position get(final String series) {
+    return this.positions.get(series);
+  }
+
+  public synchronized void put(final String series, final Position position) {
+    this.positions.put(series, position);
+  }
+
+  /** Writes the watermarks, replacing the previous version atomically. */
+  public synchronized void write() {
+    val content = new StringBuilder(64 * this.positions.size());
+    this.positions.forEach(
+        (series, position) ->
+            content
+                .append(series)
+                .append(',')
+                .append(position.index())
+                .append(',')
+                .append(position.rows())
+                .append('\n'));
+    val temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    try {
+      Files.writeString(temporary, content);
+      Files.move(
+          temporary,
+          this.file,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot write watermarks " + this.file, e);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteChangesAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteCommits;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteIndentationAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteLinesAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteRenamingAction;
+import java.util.List;
+
+/**
+ * Estimates the heap retained by a queued element.
+ *
+ * <p>Estimates assume compressed oops and Latin-1 strings. Each action only counts the part of the
+ * commits read by its writer, since the rest is shared with other queues. Off-heap rows are counted
+ * as well, for the budget to bound the whole memory held by queues.
+ *
+ * @author ActiveViam
+ */
+@FunctionalInterface
+public interface Weigher<T> {
+
+  long weigh(T element);
+
+  Weigher<String> COMMIT_ID = Weigher::string;
+
+  Weigher<CommitDetails> COMMIT_DETAILS =
+      details ->
+          48
+              + commitInfo(details.commit())
+              + changes(List.of(details))
+              + renamings(List.of(details))
+              + lineCounts(List.of(details))
+              + indentations(List.of(details))
+              + (details.treeStats() != null ? details.treeStats().byteSize() : 0);
+
+  Weigher<WriteChangesAction> CHANGES = action -> 16 + changes(action.commits());
+
+  Weigher<WriteRenamingAction> RENAMINGS = action -> 16 + renamings(action.commits());
+
+  Weigher<WriteCommits> COMMITS =
+      action -> 16 + action.commits().stream().mapToLong(Weigher::commitInfo).sum();
+
+  Weigher<WriteLinesAction> LINES = action -> 16 + lineCounts(action.commits());
+
+  Weigher<WriteIndentationAction> INDENTATIONS = action -> 16 + indentations(action.commits());
+
+  /** Weighs the value of an action, a stop being free. */
+  static <T> Weigher<Action<T>> ofActions(final Weigher<T> weigher) {
+    return action ->
+        switch (action) {
+          case Action.Value(final var value) -> 16 + weigher.weigh(value);
+          case Action.Stop<?> _ -> 0;
+        };
+  }
+
+  static long string(final String value) {
+    // String object and its byte array, both with headers
+    return 40 + value.length();
+  }
+
+  private static long commitInfo(final CommitInfo info) {
+    return 40 + string(info.sha1());
+  }
+
+  private static long changes(final List<CommitDetails> commits) {
+    long weight = 0;
+    for (final var details : commits) {
+      weight += list(details.fileChanges().size());
+      for (final var changes : details.fileChanges()) {
+        weight += 24 + string(changes.filename());
+      }
+    }
+    return weight;
+  }
+
+  private static long renamings(final List<CommitDetails> commits) {
+    long weight = 0;
+    for (final var details : commits) {
+      weight += list(details.fileRenamings().size());
+      for (final var renaming : details.fileRenamings()) {
+        weight += 24 + string(renaming.from()) + string(renaming.to());
+      }
+    }
+    return weight;
+  }
+
+  private static long lineCounts(final List<CommitDetails> commits) {
+    long weight = 0;
+    for (final var details : commits) {
+      weight += list(details.fileLineCounts().size());
+      if (details.treeStats() != null) {
+        weight += details.treeStats().lineCountByteSize();
+      }
+      for (final var count : details.fileLineCounts()) {
+        weight += 24 + string(count.path());
+      }
+    }
+    return weight;
+  }
+
+  private static long indentations(final List<CommitDetails> commits) {
+    long weight = 0;
+    for (final var details : commits) {
+      weight += list(details.fileIndentations().size());
+      if (details.treeStats() != null) {
+        weight += details.treeStats().indentationByteSize();
+      }
+      for (final var stats : details.fileIndentations()) {
+        weight += 40 + string(stats.path()) + 40 + 8L * stats.histogram().size();
+      }
+    }
+    return weight;
+  }
+
+  private static long list(final int size) {
+    return 24 + 4L * size;
+  }
+}
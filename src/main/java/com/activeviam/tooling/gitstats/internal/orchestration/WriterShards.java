@@ -0,0 +1,64 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Stop;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Value;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Input queues of the writers sharing a dataset, each writing its own file series.
+ *
+ * <p>Commands are routed by commit id, so that all the rows of a commit land in the same series,
+ * even when the commit is streamed in several chunks. Each writer rotates its files on its own
+ * limit.
+ *
+ * @author ActiveViam
+ */
+public class WriterShards<T> {
+
+  private final List<Queue<Action<T>>> queues;
+
+  public WriterShards(final int count, final IntFunction<Queue<Action<T>>> queueFactory) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("Number of writers must be positive: " + count);
+    }
+    this.queues = IntStream.range(0, count).mapToObj(queueFactory).toList();
+  }
+
+  public int size() {
+    return this.queues.size();
+  }
+
+  /** Queue consumed by the writer of the given shard. */
+  public Queue<Action<T>> queue(final int shard) {
+    return this.queues.get(shard);
+  }
+
+  /** Sends a command to the writer owning the commit. */
+  public void put(final String commit, final T command) {
+    this.queues.get(shardOf(commit, this.queues.size())).put(new Value<>(command));
+  }
+
+  /** Stops all writers. */
+  public void stop() {
+    for (final var queue : this.queues) {
+      queue.put(Stop.create());
+    }
+  }
+
+  /** Returns the shard of a commit, from the first bits of its id, which are uniformly spread. */
+  static int shardOf(final String commit, final int count) {
+    if (count == 1) {
+      return 0;
+    }
+    return (int) Long.remainderUnsigned(Long.parseUnsignedLong(commit, 0, 8, 16), count);
+  }
+}
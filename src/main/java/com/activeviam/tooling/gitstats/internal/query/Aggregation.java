@@ -0,0 +1,284 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.query;
+
+import com.activeviam.tooling.gitstats.internal.Threading;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.val;
+
+/**
+ * Group-by query over a {@link ChangeTable}.
+ *
+ * <p>The table is split into chunks scanned in parallel. Each scan aggregates its rows into a
+ * private map, and the partial results are merged at the end. Filters on dictionary columns are
+ * resolved once against the dictionary, so that scans only compare integer ids.
+ *
+ * @author ActiveViam
+ */
+public class Aggregation {
+
+  /** Minimum number of rows per scanned chunk, so that small tables use few tasks. */
+  private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+  private final List<Dimension> groupBy;
+  private final List<Condition> conditions = new ArrayList<>();
+  private long since = Long.MIN_VALUE;
+  private long until = Long.MAX_VALUE;
+  private Measure orderBy = Measure.CHURN;
+  private int limit = Integer.MAX_VALUE;
+
+  /**
+   * @param groupBy at most two dimensions, or none to aggregate the whole table
+   */
+  public Aggregation(final List<Dimension> groupBy) {
+    if (groupBy.size() > 2) {
+      throw new IllegalArgumentException("Cannot group by more than 2 dimensions: " + groupBy);
+    }
+    this.groupBy = List.copyOf(groupBy);
+  }
+
+  /** Keeps the rows whose value for the dimension is the given one, or starts with it for paths. */
+  public Aggregation where(final Dimension dimension, final String value) {
+    if (dimension.isTime()) {
+      throw new IllegalArgumentException("Use since/until to filter on dates, not " + dimension);
+    }
+    this.conditions.add(new Condition(dimension, value));
+    return this;
+  }
+
+  /** Keeps the commits made at or after the given epoch second. */
+  public Aggregation since(final long epochSecond) {
+    this.since = epochSecond;
+    return this;
+  }
+
+  /** Keeps the commits made before the given epoch second. */
+  public Aggregation until(final long epochSecond) {
+    this.until = epochSecond;
+    return this;
+  }
+
+  /** Sorts the results by decreasing value of the measure, and keeps the first ones. */
+  public Aggregation top(final Measure measure, final int count) {
+    this.orderBy = measure;
+    this.limit = count;
+    return this;
+  }
+
+  public List<Row> execute(final ChangeTable table) {
+    val accepted = new boolean[Dimension.values().length][];
+    for (val condition : this.conditions) {
+      accepted[condition.dimension().ordinal()] =
+          intersect(accepted[condition.dimension().ordinal()], condition.resolve(table));
+    }
+
+    val size = table.size();
+    val chunkSize =
+        Math.max(
+            MIN_CHUNK_SIZE,
+            (size + Runtime.getRuntime().availableProcessors() - 1)
+                / Runtime.getRuntime().availableProcessors());
+    val chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+    @SuppressWarnings("unchecked")
+    final Map<Long, long[]>[] partials = new Map[chunks];
+    Threading.execute(
+        scope ->
+            Threading.parallelize(
+                scope,
+                chunks,
+                i ->
+                    () ->
+                        partials[i] =
+                            scan(
+                                table,
+                                accepted,
+                                i * chunkSize,
+                                Math.min(size, (i + 1) * chunkSize))));
+
+    val merged = partials[0];
+    for (int i = 1; i < chunks; i++) {
+      partials[i].forEach(
+          (key, values) -> {
+            val existing = merged.putIfAbsent(key, values);
+            if (existing != null) {
+              Measure.add(existing, values);
+            }
+          });
+    }
+
+    return merged.entrySet().stream()
+        .sorted(
+            Comparator.<Map.Entry<Long, long[]>>comparingLong(
+                    entry -> entry.getValue()[this.orderBy.ordinal()])
+                .reversed()
+                .thenComparingLong(Map.Entry::getKey))
+        .limit(this.limit)
+        .map(entry -> new Row(decode(table, entry.getKey()), entry.getValue()))
+        .toList();
+  }
+
+  private Map<Long, long[]> scan(
+      final ChangeTable table, final boolean[][] accepted, final int from, final int to) {
+    val result = new HashMap<Long, long[]>();
+    val commitFilter = accepted[Dimension.COMMIT.ordinal()];
+    val pathFilter = accepted[Dimension.PATH.ordinal()];
+    val moduleFilter = accepted[Dimension.MODULE.ordinal()];
+    val first = this.groupBy.isEmpty() ? null : this.groupBy.get(0);
+    val second = this.groupBy.size() < 2 ? null : this.groupBy.get(1);
+    for (int row = from; row < to; row++) {
+      final long time = table.timestamp[row];
+      if (time < this.since
+          || time >= this.until
+          || (commitFilter != null && !commitFilter[table.commit[row]])
+          || (pathFilter != null && !pathFilter[table.path[row]])
+          || (moduleFilter != null && !moduleFilter[table.module[row]])) {
+        continue;
+      }
+      final long key =
+          (first == null ? 0L : (long) first.keyOf(table, row) << 32)
+              | (second == null ? 0L : second.keyOf(table, row) & 0xFFFFFFFFL);
+      final long[] values = result.computeIfAbsent(key, _ -> new long[Measure.values().length]);
+      values[Measure.CHANGES.ordinal()]++;
+      values[Measure.ADDITIONS.ordinal()] += table.additions[row];
+      values[Measure.DELETIONS.ordinal()] += table.deletions[row];
+      values[Measure.CHURN.ordinal()] += table.additions[row] + table.deletions[row];
+    }
+    return result;
+  }
+
+  private List<String> decode(final ChangeTable table, final long key) {
+    val keys = new ArrayList<String>(this.groupBy.size());
+    if (!this.groupBy.isEmpty()) {
+      keys.add(this.groupBy.get(0).decode(table, (int) (key >>> 32)));
+    }
+    if (this.groupBy.size() > 1) {
+      keys.add(this.groupBy.get(1).decode(table, (int) key));
+    }
+    return keys;
+  }
+
+  private static boolean[] intersect(final boolean[] current, final boolean[] added) {
+    if (current == null) {
+      return added;
+    }
+    val result = Arrays.copyOf(current, current.length);
+    for (int i = 0; i < result.length; i++) {
+      result[i] &= added[i];
+    }
+    return result;
+  }
+
+  public enum Dimension {
+    COMMIT,
+    MODULE,
+    PATH,
+    DAY,
+    WEEK,
+    MONTH,
+    YEAR;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    boolean isTime() {
+      return ordinal() >= DAY.ordinal();
+    }
+
+    int keyOf(final ChangeTable table, final int row) {
+      return switch (this) {
+        case COMMIT -> table.commit[row];
+        case MODULE -> table.module[row];
+        case PATH -> table.path[row];
+        case DAY -> epochDay(table.timestamp[row]);
+        case WEEK -> {
+          // 1970-01-01 was a Thursday, weeks start on Monday
+          final int day = epochDay(table.timestamp[row]);
+          yield day - Math.floorMod(day + 3, 7);
+        }
+        case MONTH -> {
+          final var date = LocalDate.ofEpochDay(epochDay(table.timestamp[row]));
+          yield date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+        case YEAR -> LocalDate.ofEpochDay(epochDay(table.timestamp[row])).getYear();
+      };
+    }
+
+    String decode(final ChangeTable table, final int key) {
+      return switch (this) {
+        case COMMIT -> table.commits.decode(key);
+        case MODULE -> table.modules.decode(key);
+        case PATH -> table.paths.decode(key);
+        case DAY, WEEK -> LocalDate.ofEpochDay(key).toString();
+        case MONTH ->
+            String.format("%04d-%02d", Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1);
+        case YEAR -> String.valueOf(key);
+      };
+    }
+
+    private static int epochDay(final long epochSecond) {
+      return (int) Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+    }
+  }
+
+  public enum Measure {
+    CHANGES,
+    ADDITIONS,
+    DELETIONS,
+    CHURN;
+
+    static void add(final long[] target, final long[] values) {
+      for (int i = 0; i < target.length; i++) {
+        target[i] += values[i];
+      }
+    }
+  }
+
+  /**
+   * One group of the result.
+   *
+   * @param keys values of the group-by dimensions
+   * @param values aggregated values, indexed by {@link Measure#ordinal()}
+   */
+  public record Row(List<String> keys, long[] values) {
+
+    public long get(final Measure measure) {
+      return this.values[measure.ordinal()];
+    }
+  }
+
+  private record Condition(Dimension dimension, String value) {
+
+    boolean[] resolve(final ChangeTable table) {
+      val dictionary =
+          switch (this.dimension) {
+            case COMMIT -> table.commits;
+            case MODULE -> table.modules;
+            case PATH -> table.paths;
+            default ->
+                throw new IllegalStateException("Not a dictionary column: " + this.dimension);
+          };
+      val accepted = new boolean[dictionary.size()];
+      if (this.dimension == Dimension.PATH) {
+        for (int id = 0; id < accepted.length; id++) {
+          accepted[id] = dictionary.decode(id).startsWith(this.value);
+        }
+      } else {
+        val id = dictionary.find(this.value);
+        if (id >= 0) {
+          accepted[id] = true;
+        }
+      }
+      return accepted;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.query;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import java.util.Arrays;
+
+/**
+ * Column store of file changes, one row per file changed by a commit.
+ *
+ * <p>Every column is a primitive array; commits, paths and modules are dictionary-encoded. The
+ * table is filled by a single thread, then scanned concurrently by {@link Aggregation}.
+ *
+ * @author ActiveViam
+ */
+public class ChangeTable {
+
+  final Dictionary commits = new Dictionary();
+  final Dictionary paths = new Dictionary();
+  final Dictionary modules = new Dictionary();
+
+  int[] commit = new int[1024];
+  long[] timestamp = new long[1024];
+  int[] path = new int[1024];
+  int[] module = new int[1024];
+  int[] additions = new int[1024];
+  int[] deletions = new int[1024];
+  private int size = 0;
+
+  /** Adds the file changes of a commit. */
+  public void add(final CommitDetails details, final ModuleResolver modules) {
+    final var sha1 = details.commit().sha1();
+    final long time = details.commit().date().getEpochSecond();
+    for (final var change : details.fileChanges()) {
+      add(
+          sha1,
+          time,
+          change.filename(),
+          modules.resolve(change.filename()),
+          change.additions(),
+          change.deletions());
+    }
+  }
+
+  /**
+   * Adds the change of one file.
+   *
+   * @param added number of added lines, negative for binary files
+   */
+  public void add(
+      final String sha1,
+      final long epochSecond,
+      final String filePath,
+      final String moduleName,
+      final int added,
+      final int deleted) {
+    if (this.size == this.commit.length) {
+      final int capacity = this.size * 2;
+      this.commit = Arrays.copyOf(this.commit, capacity);
+      this.timestamp = Arrays.copyOf(this.timestamp, capacity);
+      this.path = Arrays.copyOf(this.path, capacity);
+      this.module = Arrays.copyOf(this.module, capacity);
+      this.additions = Arrays.copyOf(this.additions, capacity);
+      this.deletions = Arrays.copyOf(this.deletions, capacity);
+    }
+    this.commit[this.size] = this.commits.encode(sha1);
+    this.timestamp[this.size] = epochSecond;
+    this.path[this.size] = this.paths.encode(filePath);
+    this.module[this.size] = this.modules.encode(moduleName);
+    // Binary files have no line counts, they only count as changes
+    this.additions[this.size] = Math.max(added, 0);
+    this.deletions[this.size] = Math.max(deleted, 0);
+    this.size++;
+  }
+
+  public int size() {
+    return this.size;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.query;
+
+import com.activeviam.tooling.gitstats.ProgramException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.val;
+
+/**
+ * Loads the commits and changes CSV files of a {@code history} output into a {@link ChangeTable}.
+ *
+ * <p>Files are found at the top of the output, such as {@code changes-0000.csv}, or partitioned by
+ * month, such as {@code changes/month=2024-05/part-0000.csv}.
+ *
+ * @author ActiveViam
+ */
+public class ChangeTableLoader {
+
+  private ChangeTableLoader() {}
+
+  public static ChangeTable load(final Path outputDirectory) {
+    val timestamps = new HashMap<String, Long>();
+    for (val file : listFiles(outputDirectory, "commits")) {
+      readRows(file, parts -> timestamps.put(parts[0], Long.parseLong(parts[1])));
+    }
+    val table = new ChangeTable();
+    for (val file : listFiles(outputDirectory, "changes")) {
+      readRows(file, parts -> addChange(table, timestamps, parts));
+    }
+    return table;
+  }
+
+  private static void addChange(
+      final ChangeTable table, final Map<String, Long> timestamps, final String[] parts) {
+    val timestamp = timestamps.get(parts[0]);
+    if (timestamp == null) {
+      throw new ProgramException("Unknown commit " + parts[0] + " in changes");
+    }
+    table.add(
+        parts[0],
+        timestamp,
+        parts[3],
+        parts[1],
+        Integer.parseInt(parts[4]),
+        Integer.parseInt(parts[5]));
+  }
+
+  /** Lists the files of a dataset, at the top of the output and in its month partitions. */
+  private static List<Path> listFiles(final Path directory, final String dataset) {
+    val files = new ArrayList<Path>();
+    addFiles(directory, dataset + "-*.csv", files);
+    val partitions = directory.resolve(dataset);
+    if (Files.isDirectory(partitions)) {
+      for (val month : listDirectory(partitions, "month=*")) {
+        addFiles(month, "part-*.csv", files);
+      }
+    }
+    files.sort(null);
+    return files;
+  }
+
+  private static void addFiles(final Path directory, final String glob, final List<Path> files) {
+    listDirectory(directory, glob).stream().filter(Files::isRegularFile).forEach(files::add);
+  }
+
+  private static List<Path> listDirectory(final Path directory, final String glob) {
+    val entries = new ArrayList<Path>();
+    try (val stream = Files.newDirectoryStream(directory, glob)) {
+      stream.forEach(entries::add);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot list files in " + directory, e);
+    }
+    return entries;
+  }
+
+  private static void readRows(final Path file, final Consumer<String[]> consumer) {
+    try (Stream<String> lines = Files.lines(file)) {
+      lines.skip(1).filter(line -> !line.isEmpty()).map(line -> line.split(",")).forEach(consumer);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot read " + file, e);
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of strings into dense integer ids, starting at 0.
+ *
+ * @author ActiveViam
+ */
+public class Dictionary {
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final List<String> values = new ArrayList<>();
+
+  public int encode(final String value) {
+    final var existing = this.ids.get(value);
+    if (existing != null) {
+      return existing;
+    }
+    final int id = this.values.size();
+    this.ids.put(value, id);
+    this.values.add(value);
+    return id;
+  }
+
+  /**
+   * @return the id of the value, or -1 if it was never encoded
+   */
+  public int find(final String value) {
+    return this.ids.getOrDefault(value, -1);
+  }
+
+  public String decode(final int id) {
+    return this.values.get(id);
+  }
+
+  public int size() {
+    return this.values.size();
+  }
+}
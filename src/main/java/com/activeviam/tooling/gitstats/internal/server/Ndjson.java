@@ -0,0 +1,118 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.server;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.function.Function;
+import lombok.val;
+
+/**
+ * Writes commit details as one JSON object per line.
+ *
+ * @author ActiveViam
+ */
+public final class Ndjson {
+
+  private Ndjson() {}
+
+  static void write(final CommitDetails details, final PrintWriter writer) {
+    val json = new StringBuilder(256);
+    json.append("{\"commit\":")
+        .append(quote(details.commit().sha1()))
+        .append(",\"timestamp\":")
+        .append(details.commit().date().getEpochSecond());
+    array(
+        json,
+        "changes",
+        details.fileChanges(),
+        change ->
+            "{\"path\":"
+                + quote(change.filename())
+                + ",\"additions\":"
+                + change.additions()
+                + ",\"deletions\":"
+                + change.deletions()
+                + "}");
+    array(
+        json,
+        "renamings",
+        details.fileRenamings(),
+        renaming ->
+            "{\"before\":" + quote(renaming.from()) + ",\"after\":" + quote(renaming.to()) + "}");
+    array(
+        json,
+        "lines",
+        details.fileLineCounts(),
+        count -> "{\"path\":" + quote(count.path()) + ",\"lines\":" + count.lineCount() + "}");
+    array(
+        json,
+        "indentation",
+        details.fileIndentations(),
+        stats ->
+            "{\"path\":"
+                + quote(stats.path())
+                + ",\"min\":"
+                + stats.minIndent()
+                + ",\"max\":"
+                + stats.maxIndent()
+                + ",\"mean\":"
+                + stats.meanIndent()
+                + ",\"median\":"
+                + stats.medianIndent()
+                + ",\"bumps\":"
+                + stats.bumps()
+                + ",\"histogram\":\""
+                + stats.histogram().encode()
+                + "\"}");
+    json.append('}');
+    writer.println(json);
+  }
+
+  private static <T> void array(
+      final StringBuilder json,
+      final String name,
+      final List<T> values,
+      final Function<T, String> format) {
+    if (values.isEmpty()) {
+      return;
+    }
+    json.append(",\"").append(name).append("\":[");
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append(format.apply(values.get(i)));
+    }
+    json.append(']');
+  }
+
+  /** Quotes a value as a JSON string. */
+  public static String quote(final String value) {
+    val result = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '"' -> result.append("\\\"");
+        case '\\' -> result.append("\\\\");
+        case '\n' -> result.append("\\n");
+        case '\r' -> result.append("\\r");
+        case '\t' -> result.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            result.append(String.format("\\u%04x", (int) c));
+          } else {
+            result.append(c);
+          }
+        }
+      }
+    }
+    return result.append('"').toString();
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.server;
+
+import com.activeviam.tooling.gitstats.Application.IndentSpec;
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FetchMode;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.orchestration.ChangeCsvWriterPipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.CommitCsvWritePipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.IndentationCsvWriterPipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.LinesCsvWriterPipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.RenameCsvWriterPipeline;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+import lombok.val;
+
+/**
+ * Local HTTP API serving history and tree statistics of warm repositories.
+ *
+ * <p>Endpoints:
+ *
+ * <ul>
+ *   <li>{@code GET /history?repository=&revisions=&count=&format=ndjson|csv&dataset=}
+ *   <li>{@code GET /tree-stats?repository=&revisions=&count=&indent=&all-files=&format=&dataset=}
+ *   <li>{@code GET /health}
+ * </ul>
+ *
+ * <p>{@code revisions} is a start commit or a range such as {@code v1..v2}. Results are streamed in
+ * history order as soon as they are fetched: one JSON object per commit for NDJSON, or the rows of
+ * one dataset for CSV. Each request is handled on its own virtual thread.
+ *
+ * @author ActiveViam
+ */
+@Log
+public class QueryServer implements AutoCloseable {
+
+  /** Number of commits fetched ahead of the one being written. */
+  private static final int FETCH_WINDOW = 32;
+
+  private static final int DEFAULT_COUNT = 100;
+
+  private final Map<String, RepositoryState> repositories;
+  private final HttpServer server;
+
+  public QueryServer(final InetSocketAddress address, final List<RepositoryState> repositories) {
+    this.repositories = new HashMap<>();
+    repositories.forEach(repository -> this.repositories.put(repository.getName(), repository));
+    try {
+      this.server = HttpServer.create(address, 0);
+    } catch (final IOException e) {
+      throw new ProgramException("Cannot listen on " + address, e);
+    }
+    this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    this.server.createContext("/health", exchange -> respond(exchange, 200, "ok\n"));
+    this.server.createContext("/history", exchange -> handle(exchange, FetchMode.HISTORY));
+    this.server.createContext("/tree-stats", exchange -> handle(exchange, FetchMode.TREE_STATS));
+  }
+
+  public void start() {
+    this.server.start();
+    log.log(Level.INFO, "Listening on {0}", this.server.getAddress());
+  }
+
+  private void handle(final HttpExchange exchange, final FetchMode mode) throws IOException {
+    final Query query;
+    try {
+      if (!exchange.getRequestMethod().equals("GET")) {
+        throw new IllegalArgumentException("Only GET is supported");
+      }
+      query = Query.parse(exchange.getRequestURI().getRawQuery(), mode, this.repositories);
+    } catch (final IllegalArgumentException e) {
+      respond(exchange, 400, e.getMessage() + "\n");
+      return;
+    }
+    final List<String> commits;
+    try {
+      commits = query.repository().listCommits(query.revisions(), query.count());
+    } catch (final ProgramException e) {
+      respond(exchange, 404, "Unknown revisions " + query.revisions() + "\n");
+      return;
+    }
+
+    exchange
+        .getResponseHeaders()
+        .set("Content-Type", query.csv() ? "text/csv" : "application/x-ndjson");
+    exchange.sendResponseHeaders(200, 0);
+    try (val writer =
+        new PrintWriter(
+            new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)))) {
+      final BiConsumer<CommitDetails, PrintWriter> format;
+      if (query.csv()) {
+        writer.println(query.dataset().header());
+        val modules = query.repository().getModules();
+        format = (details, output) -> query.dataset().rows().write(details, modules, output);
+      } else {
+        format = Ndjson::write;
+      }
+      stream(
+          query,
+          commits,
+          details -> {
+            format.accept(details, writer);
+            writer.flush();
+          });
+    } catch (final RuntimeException e) {
+      // Headers are sent, the truncated body is the only way to signal the failure
+      log.log(Level.WARNING, "Failed to serve " + exchange.getRequestURI(), e);
+    }
+  }
+
+  /** Fetches the commits concurrently, passing them to the consumer in history order. */
+  private static void stream(
+      final Query query, final List<String> commits, final Consumer<CommitDetails> consumer) {
+    try (val executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      val pending = new ArrayDeque<Future<CommitDetails>>();
+      for (val commit : commits) {
+        pending.add(
+            executor.submit(
+                () ->
+                    query
+                        .repository()
+                        .fetch(commit, query.mode(), query.indentSpec(), query.allFiles())));
+        if (pending.size() >= FETCH_WINDOW) {
+          consumer.accept(await(pending.poll()));
+        }
+      }
+      while (!pending.isEmpty()) {
+        consumer.accept(await(pending.poll()));
+      }
+    }
+  }
+
+  private static CommitDetails await(final Future<CommitDetails> future) {
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProgramException("Interrupted while fetching commits", e);
+    } catch (final ExecutionException e) {
+      throw new ProgramException("Failed to fetch commit", e);
+    }
+  }
+
+  private static void respond(final HttpExchange exchange, final int status, final String body)
+      throws IOException {
+    val bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (val output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    this.server.stop(0);
+  }
+
+  enum Dataset {
+    COMMITS(
+        CommitCsvWritePipeline.HEADER,
+        (details, _, writer) -> CommitCsvWritePipeline.writeRow(details.commit(), writer)),
+    CHANGES(ChangeCsvWriterPipeline.HEADER, ChangeCsvWriterPipeline::writeRows),
+    RENAMINGS(
+        RenameCsvWriterPipeline.HEADER,
+        (details, _, writer) -> RenameCsvWriterPipeline.writeRows(details, writer)),
+    LINES(
+        LinesCsvWriterPipeline.HEADER,
+        (details, _, writer) -> LinesCsvWriterPipeline.writeRows(details, writer)),
+    INDENTATION(
+        IndentationCsvWriterPipeline.HEADER,
+        (details, _, writer) -> IndentationCsvWriterPipeline.writeRows(details, writer));
+
+    private final String header;
+    private final RowWriter rows;
+
+    Dataset(final String header, final RowWriter rows) {
+      this.header = header;
+      this.rows = rows;
+    }
+
+    String header() {
+      return this.header;
+    }
+
+    RowWriter rows() {
+      return this.rows;
+    }
+  }
+
+  interface RowWriter {
+
+    void write(CommitDetails details, ModuleResolver modules, PrintWriter writer);
+  }
+
+  record Query(
+      RepositoryState repository,
+      FetchMode mode,
+      String revisions,
+      int count,
+      IndentSpec indentSpec,
+      boolean allFiles,
+      boolean csv,
+      Dataset dataset) {
+
+    /**
+     * Reads the parameters of a request.
+     *
+     * @param rawQuery the query string of the request URI, still URL-encoded
+     * @throws IllegalArgumentException if a parameter is missing or invalid
+     */
+    static Query parse(
+        final String rawQuery,
+        final FetchMode mode,
+        final Map<String, RepositoryState> repositories) {
+      val parameters = parseParameters(rawQuery);
+      val repositoryName = parameters.get("repository");
+      final RepositoryState repository;
+      if (repositoryName == null && repositories.size() == 1) {
+        repository = repositories.values().iterator().next();
+      } else {
+        repository = repositories.get(repositoryName);
+        if (repository == null) {
+          throw new IllegalArgumentException("Unknown repository " + repositoryName);
+        }
+      }
+      val revisions = parameters.getOrDefault("revisions", "HEAD");
+      if (revisions.startsWith("-")) {
+        throw new IllegalArgumentException("Invalid revisions " + revisions);
+      }
+      val count = Integer.parseInt(parameters.getOrDefault("count", String.valueOf(DEFAULT_COUNT)));
+      if (count <= 0) {
+        throw new IllegalArgumentException("Invalid count " + count);
+      }
+      val indent = parameters.get("indent");
+      if (mode == FetchMode.TREE_STATS && indent == null) {
+        throw new IllegalArgumentException("Missing indent for tree statistics");
+      }
+      val csv = parameters.getOrDefault("format", "ndjson").equals("csv");
+      final Dataset dataset;
+      if (csv) {
+        val name = parameters.get("dataset");
+        if (name == null) {
+          throw new IllegalArgumentException("Missing dataset for CSV output");
+        }
+        dataset = Dataset.valueOf(name.toUpperCase(Locale.ROOT));
+      } else {
+        dataset = null;
+      }
+      return new Query(
+          repository,
+          mode,
+          revisions,
+          count,
+          indent != null ? IndentSpec.parse(indent) : null,
+          Boolean.parseBoolean(parameters.get("all-files")),
+          csv,
+          dataset);
+    }
+
+    static Map<String, String> parseParameters(final String query) {
+      val parameters = new HashMap<String, String>();
+      if (query == null) {
+        return parameters;
+      }
+      for (val pair : query.split("&")) {
+        val separator = pair.indexOf('=');
+        if (separator > 0) {
+          parameters.put(
+              URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+              URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+      }
+      return parameters;
+    }
+  }
+}
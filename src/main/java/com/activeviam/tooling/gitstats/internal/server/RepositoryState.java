@@ -0,0 +1,125 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.server;
+
+import com.activeviam.tooling.gitstats.Application.IndentSpec;
+import com.activeviam.tooling.gitstats.internal.explorer.BlobReader;
+import com.activeviam.tooling.gitstats.internal.explorer.BranchCommitReader;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FetchMode;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell;
+import com.activeviam.tooling.gitstats.internal.explorer.Shell.Output;
+import com.activeviam.tooling.gitstats.internal.modules.ModuleResolver;
+import com.activeviam.tooling.gitstats.internal.orchestration.FetchBudget;
+import com.activeviam.tooling.gitstats.internal.shell.LineCountReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import lombok.Getter;
+import lombok.val;
+
+/**
+ * Warm state of a served repository: ignored revisions, blob readers and recently fetched commits.
+ *
+ * @author ActiveViam
+ */
+public class RepositoryState implements AutoCloseable {
+
+  @Getter private final String name;
+  @Getter private final Path projectDir;
+  @Getter private final ModuleResolver modules;
+  private final Set<String> commitsToIgnore;
+  private final BlobReader.Pool blobs;
+  private final FetchBudget.Tenant permits;
+  private final Map<CacheKey, CommitDetails> cache;
+
+  public RepositoryState(
+      final String name, final Path projectDir, final FetchBudget budget, final int cacheSize) {
+    this.name = name;
+    this.projectDir = projectDir;
+    this.commitsToIgnore = BranchCommitReader.readCommitsToIgnore(projectDir);
+    // Queries may target any range, look for modules in the whole history
+    this.modules =
+        ModuleResolver.create(ModuleResolver.Layout.BUILD_FILES, projectDir, List.of("HEAD"), 0);
+    this.blobs = new BlobReader.Pool(projectDir);
+    this.permits = budget.register(name);
+    this.cache =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<CacheKey, CommitDetails> eldest) {
+            return size() > cacheSize;
+          }
+        };
+    // Pay the shared one-off costs before the first query
+    LineCountReader.getEmptyTreeHash();
+  }
+
+  /**
+   * Lists the commits of a range.
+   *
+   * @param revisions a start commit, or a range such as {@code v1..v2}
+   */
+  public List<String> listCommits(final String revisions, final int count) {
+    val command = new ArrayList<>(List.of("git", "rev-list", "-n", String.valueOf(count)));
+    command.add(revisions);
+    command.add("--");
+    // Read while git runs, as a long range does not fit in the pipe buffer
+    val process = Shell.startDiscardingStderr(command, this.projectDir);
+    return Output.consumeStdout(
+        process,
+        reader ->
+            reader
+                .lines()
+                .filter(Predicate.not(String::isBlank))
+                .filter(Predicate.not(this.commitsToIgnore::contains))
+                .toList());
+  }
+
+  public CommitDetails fetch(
+      final String commit, final FetchMode mode, final IndentSpec indentSpec, final boolean all) {
+    val key = new CacheKey(commit, mode, indentSpec, all);
+    synchronized (this.cache) {
+      val cached = this.cache.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    this.permits.acquire();
+    final CommitDetails details;
+    try {
+      details =
+          new ReadCommitDetails(
+                  this.projectDir,
+                  commit,
+                  indentSpec,
+                  mode,
+                  all,
+                  mode == FetchMode.HISTORY ? this.blobs : null)
+              .read();
+    } finally {
+      this.permits.release();
+    }
+    synchronized (this.cache) {
+      this.cache.put(key, details);
+    }
+    return details;
+  }
+
+  @Override
+  public void close() {
+    this.permits.unregister();
+    this.blobs.close();
+  }
+
+  private record CacheKey(String commit, FetchMode mode, IndentSpec indentSpec, boolean all) {}
+}
@@ -0,0 +1,37 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.shell;
+
+import java.util.List;
+
+/**
+ * Lists the branches matching a ref glob.
+ *
+ * @author ActiveViam
+ */
+public class BranchListReader {
+
+  private BranchListReader() {}
+
+  public static boolean isPattern(final String branch) {
+    return branch.indexOf('*') >= 0 || branch.indexOf('?') >= 0 || branch.indexOf('[') >= 0;
+  }
+
+  /**
+   * Builds the command listing the refs for a pattern. Patterns not starting with {@code refs/}
+   * are matched against local branches.
+   */
+  public static List<String> getCommand(final String pattern) {
+    final var refPattern = pattern.startsWith("refs/") ? pattern : "refs/heads/" + pattern;
+    return List.of("git", "for-each-ref", "--format=%(refname:short)", refPattern);
+  }
+
+  public static String parseLine(final String line) {
+    return line.trim();
+  }
+}
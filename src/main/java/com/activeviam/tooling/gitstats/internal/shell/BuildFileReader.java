@@ -0,0 +1,61 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the build files marking module roots: {@code pom.xml}, {@code build.gradle}, {@code
+ * build.gradle.kts} and {@code package.json}.
+ *
+ * @author ActiveViam
+ */
+public class BuildFileReader {
+
+  private static final List<String> BUILD_FILES =
+      List.of("pom.xml", "build.gradle", "build.gradle.kts", "package.json");
+
+  private BuildFileReader() {}
+
+  /** Lists all files of the tree of a revision, to be filtered with {@link #isBuildFile}. */
+  public static List<String> getTreeCommand(final String revision) {
+    return List.of("git", "ls-tree", "-r", "--name-only", revision);
+  }
+
+  /**
+   * Lists the build files touched in the history of a revision, including deleted ones.
+   *
+   * @param count number of commits to inspect, or 0 for the whole history
+   */
+  public static List<String> getHistoryCommand(final String revision, final int count) {
+    final var command = new ArrayList<>(List.of("git", "log", "--format=", "--name-only"));
+    if (count > 0) {
+      command.add("-n");
+      command.add(String.valueOf(count));
+    }
+    command.add(revision);
+    command.add("--");
+    for (final var file : BUILD_FILES) {
+      command.add(file);
+      command.add(":(glob)**/" + file);
+    }
+    return command;
+  }
+
+  public static boolean isBuildFile(final String path) {
+    final var name = path.substring(path.lastIndexOf('/') + 1);
+    return BUILD_FILES.contains(name);
+  }
+
+  /** Returns the directory of a build file, empty for the root of the repository. */
+  public static String moduleOf(final String buildFile) {
+    final var separator = buildFile.lastIndexOf('/');
+    return separator < 0 ? "" : buildFile.substring(0, separator);
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Streams the diff hunks of a first-parent history, oldest commit first, in a single traversal.
+ *
+ * <p>Diffs have no context lines, so that each hunk only describes the replaced line ranges. The
+ * content of the lines is skipped.
+ *
+ * @author ActiveViam
+ */
+public class HunkReader {
+
+  private static final String COMMIT_PREFIX = "commit ";
+  private static final String DIFF_PREFIX = "diff --git a/";
+
+  private HunkReader() {}
+
+  public static List<String> getCommand(final String startCommit, final int count) {
+    return List.of(
+        "git",
+        "-c",
+        "core.quotePath=false",
+        "log",
+        "--reverse",
+        "--first-parent",
+        "--diff-merges=first-parent",
+        "-p",
+        "-U0",
+        "-M",
+        "--no-color",
+        "--no-ext-diff",
+        "--format=" + COMMIT_PREFIX + "%H %ct",
+        "-n",
+        String.valueOf(count),
+        startCommit);
+  }
+
+  /** Prints the commit followed by its parents. */
+  public static List<String> getParentsCommand(final String commit) {
+    return List.of("git", "rev-list", "--parents", "-n", "1", commit);
+  }
+
+  /**
+   * Lists the line counts of all text files of a commit.
+   *
+   * <p>Paths are printed unquoted, as in the output of {@link #getCommand}, so that the files
+   * registered from both commands match.
+   */
+  public static List<String> getLineCountCommand(final String commit) {
+    return List.of(
+        "git",
+        "-c",
+        "core.quotePath=false",
+        "diff",
+        "--numstat",
+        LineCountReader.getEmptyTreeHash(),
+        commit);
+  }
+
+  /** Parses a numstat line {@code <lines>\t0\t<path>}, skipping binary files. */
+  public static Optional<LineCount> parseLineCount(final String line) {
+    final var parts = line.split("\t");
+    if (parts.length < 3 || parts[0].equals("-")) {
+      return Optional.empty();
+    }
+    return Optional.of(new LineCount(parts[2], Integer.parseInt(parts[0])));
+  }
+
+  /** Parses a hunk header {@code @@ -<start>[,<count>] +<start>[,<count>] @@}. */
+  public static Hunk parseHunkHeader(final String line) {
+    final int end = line.indexOf(" @@", 3);
+    if (!line.startsWith("@@ -") || end < 0) {
+      throw new IllegalArgumentException("Cannot parse hunk header: " + line);
+    }
+    final var ranges = line.substring(4, end).split(" \\+");
+    final int[] before = parseRange(ranges[0]);
+    final int[] after = parseRange(ranges[1]);
+    return new Hunk(before[0], before[1], after[0], after[1]);
+  }
+
+  private static int[] parseRange(final String range) {
+    final int comma = range.indexOf(',');
+    return comma < 0
+        ? new int[] {Integer.parseInt(range), 1}
+        : new int[] {
+          Integer.parseInt(range.substring(0, comma)), Integer.parseInt(range.substring(comma + 1))
+        };
+  }
+
+  public record LineCount(String path, int lines) {}
+
+  /**
+   * Replacement of {@code oldCount} lines from {@code oldStart} by {@code newCount} lines. When
+   * {@code oldCount} is 0, lines are inserted after line {@code oldStart}.
+   */
+  public record Hunk(int oldStart, int oldCount, int newStart, int newCount) {}
+
+  /**
+   * Diff of one file.
+   *
+   * @param oldPath path before the commit, {@code null} for created files
+   * @param newPath path after the commit, {@code null} for deleted files
+   */
+  public record FileDiff(String oldPath, String newPath, boolean binary, List<Hunk> hunks) {}
+
+  public interface Listener {
+
+    void onCommit(String sha1, long epochSecond);
+
+    void onFile(FileDiff diff);
+  }
+
+  /** Parses the output of {@link #getCommand}, line by line. */
+  public static final class Parser {
+
+    private final Listener listener;
+    private boolean inFile = false;
+    private String oldPath;
+    private String newPath;
+    private String headerPath;
+    private boolean created;
+    private boolean deleted;
+    private boolean binary;
+    private List<Hunk> hunks = new ArrayList<>();
+
+    /** Content lines left in the current hunk, which may look like headers. */
+    private int pendingLines = 0;
+
+    public Parser(final Listener listener) {
+      this.listener = listener;
+    }
+
+    public void accept(final String line) {
+      if (this.pendingLines > 0) {
+        if (!line.startsWith("\\")) {
+          this.pendingLines--;
+        }
+        return;
+      }
+      if (line.startsWith(COMMIT_PREFIX)) {
+        flushFile();
+        final var parts = line.split(" ");
+        this.listener.onCommit(parts[1], Long.parseLong(parts[2]));
+      } else if (line.startsWith(DIFF_PREFIX)) {
+        flushFile();
+        this.inFile = true;
+        // "a/<path> b/<path>" when the path is unchanged, the only case without other headers
+        final var paths = line.substring(DIFF_PREFIX.length());
+        this.headerPath = paths.substring(0, (paths.length() - 3) / 2);
+      } else if (!this.inFile) {
+        return;
+      } else if (line.startsWith("@@ ")) {
+        final var hunk = parseHunkHeader(line);
+        this.hunks.add(hunk);
+        this.pendingLines = hunk.oldCount() + hunk.newCount();
+      } else if (line.startsWith("rename from ")) {
+        this.oldPath = line.substring("rename from ".length());
+      } else if (line.startsWith("rename to ")) {
+        this.newPath = line.substring("rename to ".length());
+      } else if (line.startsWith("--- ")) {
+        this.oldPath = line.equals("--- /dev/null") ? null : fileHeaderPath(line);
+        this.created = this.oldPath == null;
+      } else if (line.startsWith("+++ ")) {
+        this.newPath = line.equals("+++ /dev/null") ? null : fileHeaderPath(line);
+        this.deleted = this.newPath == null;
+      } else if (line.startsWith("new file mode")) {
+        this.created = true;
+      } else if (line.startsWith("deleted file mode")) {
+        this.deleted = true;
+      } else if (line.startsWith("Binary files ")) {
+        this.binary = true;
+      }
+    }
+
+    /**
+     * Returns the path of a {@code ---} or {@code +++} header, without its {@code a/} or {@code b/}
+     * prefix nor the tab git appends when the path contains a space.
+     */
+    private static String fileHeaderPath(final String line) {
+      final var end = line.endsWith("\t") ? line.length() - 1 : line.length();
+      return line.substring("--- a/".length(), end);
+    }
+
+    /** Completes the parsing, once all lines are read. */
+    public void finish() {
+      flushFile();
+    }
+
+    private void flushFile() {
+      if (!this.inFile) {
+        return;
+      }
+      final var before = this.created ? null : firstNonNull(this.oldPath, this.headerPath);
+      final var after = this.deleted ? null : firstNonNull(this.newPath, this.headerPath);
+      this.listener.onFile(new FileDiff(before, after, this.binary, this.hunks));
+      this.inFile = false;
+      this.oldPath = null;
+      this.newPath = null;
+      this.headerPath = null;
+      this.created = false;
+      this.deleted = false;
+      this.binary = false;
+      this.hunks = new ArrayList<>();
+    }
+
+    private static String firstNonNull(final String value, final String fallback) {
+      return value != null ? value : fallback;
+    }
+  }
+}
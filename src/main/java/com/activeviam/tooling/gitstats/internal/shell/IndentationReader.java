@@ -9,10 +9,12 @@ package com.activeviam.tooling.gitstats.internal.shell;
 
 import com.activeviam.tooling.gitstats.Application.IndentSpec;
 import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileIndentationStats;
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
 import java.io.BufferedReader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author ActiveViam
@@ -35,6 +37,15 @@ public class IndentationReader {
   public static List<FileIndentationStats> parseOutput(
       final BufferedReader reader, final IndentSpec indentSpec) {
     final var results = new ArrayList<FileIndentationStats>();
+    parseOutput(reader, indentSpec, results::add);
+    return results;
+  }
+
+  /** Parses the diff, passing the statistics of each file to the consumer as soon as complete. */
+  public static void parseOutput(
+      final BufferedReader reader,
+      final IndentSpec indentSpec,
+      final Consumer<FileIndentationStats> results) {
     final var indentUnit = indentSpec.indentUnit();
     String currentFile = null;
     var indentLevels = new ArrayList<Integer>();
@@ -43,7 +54,7 @@ public class IndentationReader {
       if (line.startsWith("+++ b/")) {
         // Flush previous file
         if (currentFile != null && !indentLevels.isEmpty()) {
-          results.add(computeStats(currentFile, indentLevels));
+          results.accept(computeStats(currentFile, indentLevels));
         }
         currentFile = line.substring("+++ b/".length());
         indentLevels = new ArrayList<>();
@@ -75,10 +86,8 @@ public class IndentationReader {
 
     // Flush last file
     if (currentFile != null && !indentLevels.isEmpty()) {
-      results.add(computeStats(currentFile, indentLevels));
+      results.accept(computeStats(currentFile, indentLevels));
     }
-
-    return results;
   }
 
   static int countIndentLevels(final String line, final String indentUnit) {
@@ -99,7 +108,11 @@ public class IndentationReader {
     final int max = sorted.getLast();
     final double mean = sorted.stream().mapToInt(Integer::intValue).average().orElse(0.0);
     final int median = computeMedian(sorted);
-    return new FileIndentationStats(path, min, max, mean, median, bumps);
+    final var histogram = new LevelHistogram();
+    for (final int level : sorted) {
+      histogram.add(level);
+    }
+    return new FileIndentationStats(path, min, max, mean, median, bumps, histogram);
   }
 
   static int countBumps(final List<Integer> levels) {
@@ -0,0 +1,61 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.shell;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lists the file creations and renamings of a history, newest commit first, in a single traversal.
+ *
+ * @author ActiveViam
+ */
+public class LineageReader {
+
+  private static final String COMMIT_PREFIX = "commit ";
+
+  private LineageReader() {}
+
+  public static List<String> getCommand(final String startCommit, final int count) {
+    return List.of(
+        "git",
+        "log",
+        "--format=" + COMMIT_PREFIX + "%H",
+        "-M",
+        "--name-status",
+        "-n",
+        String.valueOf(count),
+        startCommit);
+  }
+
+  /** Parses a line of the output, ignoring modifications and deletions. */
+  public static Optional<Event> parseLine(final String line) {
+    if (line.startsWith(COMMIT_PREFIX)) {
+      return Optional.of(new Event(EventType.COMMIT, line.substring(COMMIT_PREFIX.length()), null));
+    }
+    final var parts = line.split("\t");
+    if (parts.length == 3 && parts[0].startsWith("R")) {
+      return Optional.of(new Event(EventType.RENAMING, parts[1], parts[2]));
+    }
+    if (parts.length == 2 && parts[0].equals("A")) {
+      return Optional.of(new Event(EventType.CREATION, parts[1], null));
+    }
+    return Optional.empty();
+  }
+
+  public enum EventType {
+    /** Start of the events of a commit, {@code value} being the commit id. */
+    COMMIT,
+    /** File moved from {@code value} to {@code target}. */
+    RENAMING,
+    /** File created at {@code value}. */
+    CREATION
+  }
+
+  public record Event(EventType type, String value, String target) {}
+}
@@ -0,0 +1,52 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.shell;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the blob pairs modified by a commit, to diff them in process.
+ *
+ * @author ActiveViam
+ */
+public class RawDiffReader {
+
+  private RawDiffReader() {}
+
+  public static List<String> getCommand(final String commit) {
+    return List.of("git", "diff-tree", "-r", "-M", "--root", "--no-commit-id", "--raw", commit);
+  }
+
+  /**
+   * Parses a raw diff line such as {@code :100644 100644 <sha> <sha> M\tpath} or {@code :100644
+   * 100644 <sha> <sha> R090\tbefore\tafter}.
+   */
+  public static Optional<RawChange> parseLine(final String line) {
+    if (!line.startsWith(":")) {
+      return Optional.empty();
+    }
+    final var tab = line.indexOf('\t');
+    if (tab < 0) {
+      return Optional.empty();
+    }
+    final var header = line.substring(1, tab).split(" ");
+    if (header.length < 5) {
+      return Optional.empty();
+    }
+    final var paths = line.substring(tab + 1).split("\t");
+    final var path = paths[paths.length - 1];
+    // Submodules are commits, not blobs
+    if (header[0].equals("160000") || header[1].equals("160000")) {
+      return Optional.empty();
+    }
+    return Optional.of(new RawChange(header[2], header[3], path));
+  }
+
+  public record RawChange(String beforeBlob, String afterBlob, String path) {}
+}
@@ -22,10 +22,11 @@ public class RenameReader {
     return List.of("git", "show", "--format=oneline", "--raw", commit);
   }
 
+  /** Parses a raw line {@code :<modes> <blobs> R<score> <before> <after>}. */
   public static Optional<FileRenaming> parseLine(final String line) {
     final var parts = line.split("\\s+");
     if (parts.length == 7) {
-      return Optional.of(new FileRenaming(parts[6], parts[5]));
+      return Optional.of(new FileRenaming(parts[5], parts[6]));
     } else {
       return Optional.empty();
     }
@@ -0,0 +1,54 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.shell;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Lists the history of a commit along with committer dates, in a single traversal.
+ *
+ * @author ActiveViam
+ */
+public class TimestampedCommitReader {
+
+  private TimestampedCommitReader() {}
+
+  public static List<String> getCommand(final String startCommit, final int count) {
+    return List.of("git", "rev-list", "--timestamp", "-n", String.valueOf(count), startCommit);
+  }
+
+  /** Same as {@link #getCommand}, only following the first parent of merge commits. */
+  public static List<String> getFirstParentCommand(final String startCommit, final int count) {
+    return List.of(
+        "git",
+        "rev-list",
+        "--first-parent",
+        "--timestamp",
+        "-n",
+        String.valueOf(count),
+        startCommit);
+  }
+
+  public static List<String> getCountCommand(final String startCommit, final int count) {
+    return List.of("git", "rev-list", "--count", "-n", String.valueOf(count), startCommit);
+  }
+
+  /** Parses a line {@code <timestamp> <sha1>}. */
+  public static TimestampedCommit parseLine(final String line) {
+    final var separator = line.indexOf(' ');
+    if (separator < 0) {
+      throw new IllegalArgumentException("Cannot parse line: " + line);
+    }
+    return new TimestampedCommit(
+        line.substring(separator + 1).trim(),
+        Instant.ofEpochSecond(Long.parseLong(line.substring(0, separator))));
+  }
+
+  public record TimestampedCommit(String sha1, Instant date) {}
+}
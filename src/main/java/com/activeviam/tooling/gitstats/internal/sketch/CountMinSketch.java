@@ -0,0 +1,70 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.sketch;
+
+/**
+ * Count-Min sketch estimating the weight of any key of a stream, never below its true weight.
+ *
+ * <p>Each of the {@code depth} rows maps a key to one of its {@code width} counters. The estimate
+ * is the lowest of these counters, which exceeds the true weight by at most {@code e * total /
+ * width} with probability {@code 1 - exp(-depth)}. Sketches of the same dimensions merge by adding
+ * their counters.
+ *
+ * @author ActiveViam
+ */
+public class CountMinSketch {
+
+  private final int width;
+  private final long[][] rows;
+
+  /**
+   * @param width counters per row, a power of 2
+   * @param depth number of rows
+   */
+  public CountMinSketch(final int width, final int depth) {
+    if (Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("Width must be a power of 2: " + width);
+    }
+    this.width = width;
+    this.rows = new long[depth][width];
+  }
+
+  public void add(final String key, final long weight) {
+    final long hash = Hashing.hash(key);
+    for (int row = 0; row < this.rows.length; row++) {
+      this.rows[row][index(hash, row)] += weight;
+    }
+  }
+
+  public long estimate(final String key) {
+    final long hash = Hashing.hash(key);
+    long result = Long.MAX_VALUE;
+    for (int row = 0; row < this.rows.length; row++) {
+      result = Math.min(result, this.rows[row][index(hash, row)]);
+    }
+    return result;
+  }
+
+  public void merge(final CountMinSketch other) {
+    if (other.width != this.width || other.rows.length != this.rows.length) {
+      throw new IllegalArgumentException("Cannot merge sketches of different dimensions");
+    }
+    for (int row = 0; row < this.rows.length; row++) {
+      for (int i = 0; i < this.width; i++) {
+        this.rows[row][i] += other.rows[row][i];
+      }
+    }
+  }
+
+  /** Derives the hash of each row from the two halves of the key hash. */
+  private int index(final long hash, final int row) {
+    final int h1 = (int) hash;
+    final int h2 = (int) (hash >>> 32) | 1;
+    return (h1 + row * h2) & (this.width - 1);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.sketch;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog estimating the number of distinct keys of a stream.
+ *
+ * <p>The sketch has {@code 2^precision} registers, each keeping the longest run of leading zeros
+ * seen among the hashes routed to it, for a standard error of {@code 1.04 / sqrt(2^precision)}.
+ * Small sets are kept as a sorted list of register updates until they would take more room than the
+ * registers, so that the many sketches of rarely changed modules stay small. Sketches of the same
+ * precision merge by taking the largest value of each register.
+ *
+ * @author ActiveViam
+ */
+public class HyperLogLog {
+
+  private final int precision;
+
+  /** Registers, once the sparse list grows too big. */
+  private byte[] registers;
+
+  /** Sorted register updates as {@code index << 8 | rank}, while the set is small. */
+  private int[] sparse = new int[4];
+
+  private int sparseSize = 0;
+
+  public HyperLogLog(final int precision) {
+    if (precision < 4 || precision > 16) {
+      throw new IllegalArgumentException("Precision must be between 4 and 16: " + precision);
+    }
+    this.precision = precision;
+  }
+
+  public void add(final String key) {
+    addHash(Hashing.hash(key));
+  }
+
+  void addHash(final long hash) {
+    final int index = (int) (hash >>> (Long.SIZE - this.precision));
+    final int rank = Long.numberOfLeadingZeros((hash << this.precision) | 1) + 1;
+    update(index, rank);
+  }
+
+  private void update(final int index, final int rank) {
+    if (this.registers != null) {
+      this.registers[index] = (byte) Math.max(this.registers[index], rank);
+      return;
+    }
+    final int position = Arrays.binarySearch(this.sparse, 0, this.sparseSize, index << 8);
+    final int slot = position >= 0 ? position : -position - 1;
+    if (slot < this.sparseSize && this.sparse[slot] >>> 8 == index) {
+      this.sparse[slot] = Math.max(this.sparse[slot], index << 8 | rank);
+      return;
+    }
+    // Each entry takes 4 bytes, each register 1
+    if ((this.sparseSize + 1) * Integer.BYTES > (1 << this.precision)) {
+      densify();
+      update(index, rank);
+      return;
+    }
+    if (this.sparseSize == this.sparse.length) {
+      this.sparse = Arrays.copyOf(this.sparse, this.sparseSize * 2);
+    }
+    System.arraycopy(this.sparse, slot, this.sparse, slot + 1, this.sparseSize - slot);
+    this.sparse[slot] = index << 8 | rank;
+    this.sparseSize++;
+  }
+
+  private void densify() {
+    this.registers = new byte[1 << this.precision];
+    for (int i = 0; i < this.sparseSize; i++) {
+      this.registers[this.sparse[i] >>> 8] = (byte) (this.sparse[i] & 0xFF);
+    }
+    this.sparse = null;
+    this.sparseSize = 0;
+  }
+
+  public void merge(final HyperLogLog other) {
+    if (other.precision != this.precision) {
+      throw new IllegalArgumentException("Cannot merge sketches of different precisions");
+    }
+    if (other.registers != null) {
+      for (int i = 0; i < other.registers.length; i++) {
+        if (other.registers[i] != 0) {
+          update(i, other.registers[i]);
+        }
+      }
+    } else {
+      for (int i = 0; i < other.sparseSize; i++) {
+        update(other.sparse[i] >>> 8, other.sparse[i] & 0xFF);
+      }
+    }
+  }
+
+  public long estimate() {
+    final int m = 1 << this.precision;
+    double sum = 0;
+    int zeros = m;
+    if (this.registers != null) {
+      zeros = 0;
+      for (final byte register : this.registers) {
+        sum += 1.0 / (1L << register);
+        if (register == 0) {
+          zeros++;
+        }
+      }
+    } else {
+      for (int i = 0; i < this.sparseSize; i++) {
+        sum += 1.0 / (1L << (this.sparse[i] & 0xFF));
+      }
+      zeros = m - this.sparseSize;
+      sum += zeros;
+    }
+    final double alpha = 0.7213 / (1 + 1.079 / m);
+    final double raw = alpha * m * m / sum;
+    if (raw <= 2.5 * m && zeros > 0) {
+      // Linear counting is more accurate for small sets
+      return Math.round(m * Math.log((double) m / zeros));
+    }
+    return Math.round(raw);
+  }
+
+  /** Returns the size of the sketch in bytes, excluding the object headers. */
+  public int byteSize() {
+    return this.registers != null ? this.registers.length : this.sparse.length * Integer.BYTES;
+  }
+}
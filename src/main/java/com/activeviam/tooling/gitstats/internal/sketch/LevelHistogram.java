@@ -0,0 +1,145 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.sketch;
+
+import java.util.Arrays;
+
+/**
+ * Exact histogram of small non-negative levels, such as the indentation levels of lines.
+ *
+ * <p>Levels rarely go beyond a few dozens, so a count per level is both exact and smaller than an
+ * approximate quantile sketch. Histograms merge by adding their counts, giving the exact quantiles
+ * of the union. They are encoded as the counts of levels 0 to the maximum level, separated by
+ * {@code ;}, such as {@code 12;40;3} for 12 lines at level 0, 40 at level 1 and 3 at level 2.
+ *
+ * @author ActiveViam
+ */
+public final class LevelHistogram {
+
+  private static final long[] EMPTY = new long[0];
+
+  /** Count of each level, without trailing zeros. */
+  private long[] counts = EMPTY;
+
+  private long total = 0;
+
+  public void add(final int level) {
+    add(level, 1);
+  }
+
+  public void add(final int level, final long count) {
+    if (level < 0 || count < 0) {
+      throw new IllegalArgumentException("Invalid level count: " + level + " x" + count);
+    }
+    if (count == 0) {
+      return;
+    }
+    if (level >= this.counts.length) {
+      this.counts = Arrays.copyOf(this.counts, level + 1);
+    }
+    this.counts[level] += count;
+    this.total += count;
+  }
+
+  public void merge(final LevelHistogram other) {
+    for (int level = 0; level < other.counts.length; level++) {
+      add(level, other.counts[level]);
+    }
+  }
+
+  /** Number of values. */
+  public long count() {
+    return this.total;
+  }
+
+  public long countAt(final int level) {
+    return level < this.counts.length ? this.counts[level] : 0;
+  }
+
+  /** Highest level, -1 when empty. */
+  public int maxLevel() {
+    return this.counts.length - 1;
+  }
+
+  public double mean() {
+    long sum = 0;
+    for (int level = 0; level < this.counts.length; level++) {
+      sum += level * this.counts[level];
+    }
+    return this.total == 0 ? 0 : (double) sum / this.total;
+  }
+
+  /**
+   * Returns the level below or at which lie a fraction {@code q} of the values, using the nearest
+   * rank, or -1 when empty.
+   */
+  public int quantile(final double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("Quantile out of [0, 1]: " + q);
+    }
+    final long rank = Math.max(1, (long) Math.ceil(q * this.total));
+    long seen = 0;
+    for (int level = 0; level < this.counts.length; level++) {
+      seen += this.counts[level];
+      if (seen >= rank) {
+        return level;
+      }
+    }
+    return -1;
+  }
+
+  /** Number of levels in the encoding. */
+  public int size() {
+    return this.counts.length;
+  }
+
+  public String encode() {
+    final var result = new StringBuilder(this.counts.length * 3);
+    for (int level = 0; level < this.counts.length; level++) {
+      if (level > 0) {
+        result.append(';');
+      }
+      result.append(this.counts[level]);
+    }
+    return result.toString();
+  }
+
+  public static LevelHistogram decode(final String encoded) {
+    final var histogram = new LevelHistogram();
+    if (encoded.isEmpty()) {
+      return histogram;
+    }
+    int level = 0;
+    int start = 0;
+    while (start <= encoded.length()) {
+      int end = encoded.indexOf(';', start);
+      if (end < 0) {
+        end = encoded.length();
+      }
+      histogram.add(level++, Long.parseLong(encoded, start, end, 10));
+      start = end + 1;
+    }
+    return histogram;
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return other instanceof LevelHistogram histogram
+        && Arrays.equals(this.counts, histogram.counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(this.counts);
+  }
+
+  @Override
+  public String toString() {
+    return encode();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import lombok.val;
+
+/**
+ * Space-Saving summary of the heaviest keys of a weighted stream, in a fixed number of counters.
+ *
+ * <p>When a new key arrives and all counters are taken, the key replaces the one with the lowest
+ * count, inheriting that count as its error. The count of a key is thus an upper bound of its true
+ * weight, off by at most its error, and any key weighing more than {@code total / capacity} is
+ * guaranteed to be kept.
+ *
+ * <p>Two summaries merge as described by Agarwal et al. in "Mergeable Summaries": a key missing
+ * from a full summary may weigh up to the lowest count of that summary, which is added to its count
+ * and error.
+ *
+ * @author ActiveViam
+ */
+public class SpaceSaving {
+
+  /** Increasing counts, ties in decreasing keys so that the top keys are listed alphabetically. */
+  private static final Comparator<Counter> ORDER =
+      Comparator.comparingLong(Counter::count)
+          .thenComparing(Counter::key, Comparator.reverseOrder());
+
+  private final int capacity;
+  private final Map<String, Counter> counters = new HashMap<>();
+  private final TreeSet<Counter> byCount = new TreeSet<>(ORDER);
+  private long total = 0;
+
+  public SpaceSaving(final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  public void add(final String key, final long weight) {
+    this.total += weight;
+    val existing = this.counters.get(key);
+    if (existing != null) {
+      put(key, existing.count() + weight, existing.error());
+    } else if (this.counters.size() < this.capacity) {
+      put(key, weight, 0);
+    } else {
+      val smallest = this.byCount.pollFirst();
+      this.counters.remove(smallest.key());
+      put(key, smallest.count() + weight, smallest.count());
+    }
+  }
+
+  private void put(final String key, final long count, final long error) {
+    val previous = this.counters.get(key);
+    if (previous != null) {
+      this.byCount.remove(previous);
+    }
+    val counter = new Counter(key, count, error);
+    this.counters.put(key, counter);
+    this.byCount.add(counter);
+  }
+
+  /** Adds the keys of another summary, keeping the heaviest ones within the capacity. */
+  public void merge(final SpaceSaving other) {
+    final long ownFloor = floor();
+    final long otherFloor = other.floor();
+    val merged = new ArrayList<Counter>();
+    for (val counter : this.counters.values()) {
+      val match = other.counters.get(counter.key());
+      merged.add(
+          match != null
+              ? new Counter(
+                  counter.key(), counter.count() + match.count(), counter.error() + match.error())
+              : new Counter(
+                  counter.key(), counter.count() + otherFloor, counter.error() + otherFloor));
+    }
+    for (val counter : other.counters.values()) {
+      if (!this.counters.containsKey(counter.key())) {
+        merged.add(
+            new Counter(counter.key(), counter.count() + ownFloor, counter.error() + ownFloor));
+      }
+    }
+    merged.sort(Comparator.comparingLong(Counter::count).reversed());
+    this.counters.clear();
+    this.byCount.clear();
+    for (val counter : merged.subList(0, Math.min(this.capacity, merged.size()))) {
+      put(counter.key(), counter.count(), counter.error());
+    }
+    this.total += other.total;
+  }
+
+  /** Largest weight a key absent from the summary may have. */
+  private long floor() {
+    return this.counters.size() < this.capacity ? 0 : this.byCount.first().count();
+  }
+
+  /** Total weight of the stream. */
+  public long total() {
+    return this.total;
+  }
+
+  /** Returns the heaviest keys, by decreasing count. */
+  public List<Counter> top(final int count) {
+    return this.byCount.descendingSet().stream().limit(count).toList();
+  }
+
+  /**
+   * A monitored key.
+   *
+   * @param count upper bound of the weight of the key
+   * @param error maximum overestimation of the count
+   */
+  public record Counter(String key, long count, long error) {}
+}
@@ -0,0 +1,102 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.val;
+
+/**
+ * Git repository built by a test, with a fixed identity and explicit commit dates.
+ *
+ * @author ActiveViam
+ */
+public final class GitFixture {
+
+  private final Path directory;
+
+  private GitFixture(final Path directory) {
+    this.directory = directory;
+  }
+
+  /** Creates an empty repository on branch {@code main}, creating the directory if needed. */
+  public static GitFixture init(final Path directory) {
+    try {
+      Files.createDirectories(directory);
+    } catch (final IOException e) {
+      throw new IllegalStateException("Cannot create " + directory, e);
+    }
+    val fixture = new GitFixture(directory);
+    fixture.git("init", "-q", "-b", "main");
+    return fixture;
+  }
+
+  public Path directory() {
+    return this.directory;
+  }
+
+  public GitFixture write(final String path, final String content) {
+    return write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public GitFixture write(final String path, final byte[] content) {
+    val file = this.directory.resolve(path);
+    try {
+      Files.createDirectories(file.getParent());
+      Files.write(file, content);
+    } catch (final IOException e) {
+      throw new IllegalStateException("Cannot write " + file, e);
+    }
+    return this;
+  }
+
+  /** Commits all changes of the working tree at the given ISO date, returning the commit id. */
+  public String commit(final String message, final String date) {
+    git("add", "-A");
+    gitAt(date, "commit", "-q", "--allow-empty", "-m", message);
+    return git("rev-parse", "HEAD").trim();
+  }
+
+  /** Runs git in the repository, returning its output, failing if git fails. */
+  public String git(final String... arguments) {
+    return gitAt("2024-01-01T00:00:00Z", arguments);
+  }
+
+  private String gitAt(final String date, final String... arguments) {
+    val command = new ArrayList<>(List.of("git", "-c", "core.autocrlf=false"));
+    command.addAll(List.of(arguments));
+    val builder = new ProcessBuilder(command).directory(this.directory.toFile());
+    builder.redirectErrorStream(true);
+    val environment = builder.environment();
+    environment.put("GIT_CONFIG_NOSYSTEM", "1");
+    environment.put("GIT_AUTHOR_NAME", "Test");
+    environment.put("GIT_AUTHOR_EMAIL", "test@example.com");
+    environment.put("GIT_COMMITTER_NAME", "Test");
+    environment.put("GIT_COMMITTER_EMAIL", "test@example.com");
+    environment.put("GIT_AUTHOR_DATE", date);
+    environment.put("GIT_COMMITTER_DATE", date);
+    try {
+      val process = builder.start();
+      // Read before waiting, so that large outputs cannot fill the pipe
+      val output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      if (process.waitFor() != 0) {
+        throw new IllegalStateException("git " + String.join(" ", arguments) + ": " + output);
+      }
+      return output;
+    } catch (final IOException e) {
+      throw new IllegalStateException("Cannot run git", e);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while running git", e);
+    }
+  }
+}
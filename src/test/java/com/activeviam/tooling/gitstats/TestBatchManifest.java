@@ -0,0 +1,56 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.Application.IndentSpec;
+import java.nio.file.Path;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestBatchManifest {
+
+  private static final Path BASE = Path.of("/repos");
+
+  @Test
+  void testFullEntry() {
+    val entries = BatchManifest.parse(List.of("core,main;release/*,500,4s"), BASE);
+    Assertions.assertThat(entries)
+        .containsExactly(
+            new BatchManifest.Entry(
+                "core",
+                Path.of("/repos/core"),
+                List.of("main", "release/*"),
+                500,
+                new IndentSpec(4, 's')));
+  }
+
+  @Test
+  void testDefaultsAndComments() {
+    val entries = BatchManifest.parse(List.of("# header", "", "/abs/web,main"), BASE);
+    Assertions.assertThat(entries)
+        .containsExactly(
+            new BatchManifest.Entry("web", Path.of("/abs/web"), List.of("main"), 10, null));
+  }
+
+  @Test
+  void testDuplicatedNames() {
+    val entries = BatchManifest.parse(List.of("a/app,main", "b/app,main", "c/app,main"), BASE);
+    Assertions.assertThat(entries)
+        .extracting(BatchManifest.Entry::name)
+        .containsExactly("app", "app-2", "app-3");
+  }
+
+  @Test
+  void testInvalidLine() {
+    Assertions.assertThatThrownBy(() -> BatchManifest.parse(List.of("only-a-path"), BASE))
+        .isInstanceOf(ProgramException.class)
+        .hasMessageContaining("line 1");
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.internal.orchestration.ModuleRollup;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+class TestShardCommand {
+
+  @TempDir Path directory;
+
+  @Test
+  void testRunsOneWorkerProcessPerShard() throws IOException {
+    val fixture = GitFixture.init(this.directory.resolve("project"));
+    val commits = new ArrayList<String>();
+    for (int i = 0; i < 5; i++) {
+      fixture.write("src/file-" + i + ".txt", "line\n".repeat(i + 1));
+      commits.add(fixture.commit("Commit " + i, "2024-03-0" + (i + 1) + "T10:00:00Z"));
+    }
+    val output = this.directory.resolve("output");
+
+    val status =
+        new CommandLine(new Application())
+            .execute(
+                "shard",
+                "run",
+                "-p",
+                fixture.directory().toString(),
+                "-o",
+                output.toString(),
+                "-b",
+                "main",
+                "-n",
+                "10",
+                "--shards",
+                "2",
+                "--in-process-diff",
+                "--rollups",
+                "month");
+
+    Assertions.assertThat(status).isZero();
+    Assertions.assertThat(output.resolve(ShardCommand.PLAN_DIRECTORY).resolve("shard-000.txt"))
+        .exists();
+    Assertions.assertThat(output.resolve(ShardCommand.PLAN_DIRECTORY).resolve("shard-001.txt"))
+        .exists();
+    // Each worker wrote its own file, renamed in shard order by the merge
+    Assertions.assertThat(committed(output.resolve("changes-0000.csv")))
+        .containsExactlyInAnyOrder(commits.get(4), commits.get(3));
+    Assertions.assertThat(committed(output.resolve("changes-0001.csv")))
+        .containsExactlyInAnyOrder(commits.get(2), commits.get(1), commits.get(0));
+    Assertions.assertThat(Files.readAllLines(output.resolve("changes-0000.csv")))
+        .contains(commits.get(4) + ",n/a,file-4.txt,src/file-4.txt,5,0");
+    Assertions.assertThat(output.resolve("commits-0002.csv")).doesNotExist();
+    // Both shards counted commits of March, summed into a single row
+    Assertions.assertThat(Files.readAllLines(output.resolve("rollup-month-0000.csv")))
+        .containsExactly(ModuleRollup.HEADER, "n/a,2024-03-01,15,0,5,5");
+  }
+
+  private static List<String> committed(final Path file) throws IOException {
+    try (val lines = Files.lines(file)) {
+      return lines.skip(1).map(row -> row.substring(0, row.indexOf(','))).toList();
+    }
+  }
+}
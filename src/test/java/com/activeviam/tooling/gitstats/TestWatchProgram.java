@@ -0,0 +1,104 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats;
+
+import com.activeviam.tooling.gitstats.internal.orchestration.Watermarks;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+class TestWatchProgram {
+
+  @TempDir Path directory;
+
+  private static int execute(final String... arguments) {
+    return new CommandLine(new Application()).execute(arguments);
+  }
+
+  private int watch(final GitFixture fixture, final Path output, final String after) {
+    return execute(
+        "watch",
+        "-p",
+        fixture.directory().toString(),
+        "-o",
+        output.toString(),
+        "-b",
+        "main",
+        "--after",
+        after,
+        "--max-updates",
+        "1");
+  }
+
+  @Test
+  void testAppendsTheCommitsOfAnUpdate() throws IOException {
+    val fixture = GitFixture.init(this.directory.resolve("project"));
+    fixture.write("core/pom.xml", "<project/>").write("core/A.java", "a\n");
+    val first = fixture.commit("Core module", "2024-01-01T10:00:00Z");
+    fixture.write("core/A.java", "a\nb\n");
+    val second = fixture.commit("Change A", "2024-01-02T10:00:00Z");
+    val output = this.directory.resolve("output");
+    Assertions.assertThat(
+            execute(
+                "history",
+                "-p",
+                fixture.directory().toString(),
+                "-o",
+                output.toString(),
+                "-b",
+                "main",
+                "-n",
+                "2"))
+        .isZero();
+    Assertions.assertThat(output.resolve(HistoryProgram.MANIFEST_NAME)).exists();
+    Assertions.assertThat(Files.readAllLines(output.resolve(Watermarks.FILE_NAME)))
+        .contains("commits-0000.csv,0,2", "changes-0000.csv,0,3");
+
+    fixture.write("web/package.json", "{}").write("web/B.ts", "b\n");
+    val third = fixture.commit("Web module", "2024-01-03T10:00:00Z");
+    Assertions.assertThat(watch(fixture, output, second)).isZero();
+
+    Assertions.assertThat(committed(output.resolve("commits-0000.csv")))
+        .containsExactlyInAnyOrder(first, second, third);
+    Assertions.assertThat(Files.readAllLines(output.resolve("changes-0000.csv")))
+        .contains(third + ",web,B.ts,web/B.ts,1,0");
+    // The manifest no longer describes the appended files
+    Assertions.assertThat(output.resolve(HistoryProgram.MANIFEST_NAME)).doesNotExist();
+    Assertions.assertThat(Files.readAllLines(output.resolve(Watermarks.FILE_NAME)))
+        .contains("commits-0000.csv,0,3", "changes-0000.csv,0,5");
+
+    // The next update resumes from the watermarks, here marking the file of changes as full
+    val watermarks = Watermarks.read(output);
+    watermarks.put("changes-0000.csv", new Watermarks.Position(0, 1 << 14));
+    watermarks.write();
+    fixture.write("web/B.ts", "b\nc\n");
+    val fourth = fixture.commit("Change B", "2024-01-04T10:00:00Z");
+    Assertions.assertThat(watch(fixture, output, third)).isZero();
+
+    Assertions.assertThat(committed(output.resolve("commits-0000.csv")))
+        .containsExactlyInAnyOrder(first, second, third, fourth);
+    Assertions.assertThat(Files.readAllLines(output.resolve("changes-0001.csv")))
+        .containsExactly(
+            Files.readAllLines(output.resolve("changes-0000.csv")).getFirst(),
+            fourth + ",web,B.ts,web/B.ts,1,0");
+    Assertions.assertThat(Files.readAllLines(output.resolve(Watermarks.FILE_NAME)))
+        .contains("commits-0000.csv,0,4", "changes-0000.csv,1,1");
+  }
+
+  private static List<String> committed(final Path file) throws IOException {
+    try (val lines = Files.lines(file)) {
+      return lines.skip(1).map(row -> row.substring(0, row.indexOf(','))).toList();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.age;
+
+import com.activeviam.tooling.gitstats.GitFixture;
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestLineAgeEngine {
+
+  @TempDir Path directory;
+
+  /** Runs a command of the readers on the fixture, returning its output lines. */
+  private static List<String> run(final GitFixture fixture, final List<String> command) {
+    // The fixture adds the git executable itself
+    return fixture.git(command.subList(1, command.size()).toArray(String[]::new)).lines().toList();
+  }
+
+  @Test
+  void testReplaysAHistory() {
+    val fixture = GitFixture.init(this.directory);
+    fixture.write("core/A.java", "a\nb\nc\nd\n").write("docs/résumé.txt", "first\nsecond\n");
+    val initial = fixture.commit("Initial", "2024-01-01T10:00:00Z");
+    fixture.write("core/A.java", "a\nB\nc\nd\n").write("web/B.java", "alpha line\nbeta line\n");
+    val first = fixture.commit("Change A, create B", "2024-03-01T10:00:00Z");
+    fixture.git("mv", "web/B.java", "web/D.java");
+    fixture
+        .write("web/D.java", "alpha line\nbeta line\ngamma line\n")
+        .write("docs/résumé.txt", "FIRST\nsecond\n");
+    val second = fixture.commit("Rename B, change the notes", "2024-06-01T10:00:00Z");
+
+    val modules = new StringWriter();
+    val engine =
+        new LineAgeEngine(
+            Set.of(first, second),
+            path -> path.substring(0, path.indexOf('/')),
+            new PrintWriter(modules),
+            null);
+    run(fixture, HunkReader.getLineCountCommand(initial)).stream()
+        .map(HunkReader::parseLineCount)
+        .flatMap(Optional::stream)
+        .forEach(count -> engine.initialize(count.path(), count.lines()));
+    val parser = new HunkReader.Parser(engine);
+    run(fixture, HunkReader.getCommand(second, 2)).forEach(parser::accept);
+    parser.finish();
+    engine.finish();
+
+    Assertions.assertThat(engine.emitted()).isEqualTo(2);
+    // Lines of the initial commit are before the range, the notes keep their non-ASCII path
+    Assertions.assertThat(modules.toString().lines())
+        .containsExactly(
+            LineAgeEngine.MODULE_HEADER,
+            first + ",2024-03-01,core,4,1,0,0,0,0,0,3,0.0",
+            first + ",2024-03-01,docs,2,0,0,0,0,0,0,2,",
+            first + ",2024-03-01,web,2,2,0,0,0,0,0,0,0.0",
+            second + ",2024-06-01,core,4,0,0,1,0,0,0,3,92.0",
+            second + ",2024-06-01,docs,2,1,0,0,0,0,0,1,0.0",
+            second + ",2024-06-01,web,3,1,0,2,0,0,0,0,61.3");
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.age;
+
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader;
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader.Hunk;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestLineOrigins {
+
+  @Test
+  void testInsertion() {
+    val origins = LineOrigins.of(0, 5);
+    origins.apply(List.of(HunkReader.parseHunkHeader("@@ -2,0 +3,2 @@")), 1);
+    Assertions.assertThat(runsOf(origins)).containsExactly(0, 2, 1, 2, 0, 3);
+    Assertions.assertThat(origins.lines()).isEqualTo(7);
+  }
+
+  @Test
+  void testInsertionAtStart() {
+    val origins = LineOrigins.of(0, 3);
+    origins.apply(List.of(HunkReader.parseHunkHeader("@@ -0,0 +1 @@")), 1);
+    Assertions.assertThat(runsOf(origins)).containsExactly(1, 1, 0, 3);
+  }
+
+  @Test
+  void testReplacementAndDeletion() {
+    val origins = LineOrigins.of(0, 10);
+    origins.apply(
+        List.of(
+            HunkReader.parseHunkHeader("@@ -2,2 +2 @@"),
+            HunkReader.parseHunkHeader("@@ -8,3 +7,0 @@")),
+        1);
+    Assertions.assertThat(runsOf(origins)).containsExactly(0, 1, 1, 1, 0, 4);
+    Assertions.assertThat(origins.lines()).isEqualTo(6);
+  }
+
+  @Test
+  void testAdjacentRunsAreMerged() {
+    val origins = LineOrigins.of(0, 4);
+    origins.apply(List.of(new Hunk(1, 2, 1, 2)), 1);
+    origins.apply(List.of(new Hunk(3, 2, 3, 2)), 1);
+    Assertions.assertThat(runsOf(origins)).containsExactly(1, 4);
+  }
+
+  private static List<Integer> runsOf(final LineOrigins origins) {
+    val runs = new ArrayList<Integer>();
+    origins.forEachRun(
+        (origin, length) -> {
+          runs.add(origin);
+          runs.add(length);
+        });
+    return runs;
+  }
+}
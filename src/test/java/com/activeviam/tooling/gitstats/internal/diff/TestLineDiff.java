@@ -0,0 +1,72 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.diff;
+
+import com.activeviam.tooling.gitstats.internal.diff.LineDiff.Numstat;
+import java.nio.charset.StandardCharsets;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestLineDiff {
+
+  @Test
+  void testAddedFile() {
+    val stat = LineDiff.compute(new byte[0], bytes("a\nb\nc\n"));
+    Assertions.assertThat(stat).isEqualTo(new Numstat(3, 0));
+  }
+
+  @Test
+  void testDeletedFile() {
+    val stat = LineDiff.compute(bytes("a\nb\n"), new byte[0]);
+    Assertions.assertThat(stat).isEqualTo(new Numstat(0, 2));
+  }
+
+  @Test
+  void testModifiedLine() {
+    val stat = LineDiff.compute(bytes("a\nb\nc\n"), bytes("a\nB\nc\n"));
+    Assertions.assertThat(stat).isEqualTo(new Numstat(1, 1));
+  }
+
+  @Test
+  void testMovedBlock() {
+    val stat = LineDiff.compute(bytes("a\nb\nc\nd\n"), bytes("c\nd\na\nb\n"));
+    Assertions.assertThat(stat).isEqualTo(new Numstat(2, 2));
+  }
+
+  @Test
+  void testMissingFinalNewline() {
+    // git counts the last line as changed when only its newline is added
+    val stat = LineDiff.compute(bytes("a\nb"), bytes("a\nb\n"));
+    Assertions.assertThat(stat).isEqualTo(new Numstat(1, 1));
+  }
+
+  @Test
+  void testInterleavedChanges() {
+    val stat = LineDiff.compute(bytes("a\nb\nc\na\nb\nb\na\n"), bytes("c\nb\na\nb\na\nc\n"));
+    // Classic example from Myers' paper: edit distance of 5
+    Assertions.assertThat(stat).isEqualTo(new Numstat(2, 3));
+  }
+
+  @Test
+  void testDuplicatedLines() {
+    val stat = LineDiff.compute(bytes("x\nx\nx\n"), bytes("x\ny\nx\n"));
+    Assertions.assertThat(stat).isEqualTo(new Numstat(1, 1));
+  }
+
+  @Test
+  void testBinaryFile() {
+    val stat = LineDiff.compute(bytes("a\n"), new byte[] {'P', 'N', 'G', 0, 1});
+    Assertions.assertThat(stat.isBinary()).isTrue();
+    Assertions.assertThat(stat).isEqualTo(Numstat.BINARY);
+  }
+
+  private static byte[] bytes(final String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
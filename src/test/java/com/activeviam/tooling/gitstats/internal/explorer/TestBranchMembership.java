@@ -0,0 +1,62 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestBranchMembership {
+
+  private static final String A = "a94a8fe5ccb19ba61c4c0873d391e987982fbbd3";
+  private static final String B = "0000000000000000000000000000000000000001";
+
+  @Test
+  void testCommitsAreDeduplicated() {
+    val membership = new BranchMembership(List.of("main", "release"));
+    Assertions.assertThat(membership.add(A, 0)).isTrue();
+    Assertions.assertThat(membership.add(B, 0)).isTrue();
+    Assertions.assertThat(membership.add(A, 1)).isFalse();
+    Assertions.assertThat(membership.size()).isEqualTo(2);
+    Assertions.assertThat(branchesOf(membership, A)).containsExactly("main", "release");
+    Assertions.assertThat(branchesOf(membership, B)).containsExactly("main");
+  }
+
+  @Test
+  void testInsertionOrderIsKept() {
+    val membership = new BranchMembership(List.of("main"));
+    membership.add(B, 0);
+    membership.add(A, 0);
+    val commits = new ArrayList<String>();
+    membership.forEachCommit(commits::add);
+    Assertions.assertThat(commits).containsExactly(B, A);
+  }
+
+  @Test
+  void testManyBranchesAndCommits() {
+    val branches = IntStream.range(0, 70).mapToObj(i -> "b" + i).toList();
+    val membership = new BranchMembership(branches);
+    for (int i = 0; i < 10_000; i++) {
+      membership.add(String.format("%040x", i), i % 70);
+    }
+    membership.add(String.format("%040x", 42), 69);
+    Assertions.assertThat(membership.size()).isEqualTo(10_000);
+    Assertions.assertThat(branchesOf(membership, String.format("%040x", 42)))
+        .containsExactly("b42", "b69");
+    Assertions.assertThat(membership.contains(String.format("%040x", 10_000))).isFalse();
+  }
+
+  private static List<String> branchesOf(final BranchMembership membership, final String commit) {
+    val result = new ArrayList<String>();
+    membership.forEachBranch(commit, result::add);
+    return result;
+  }
+}
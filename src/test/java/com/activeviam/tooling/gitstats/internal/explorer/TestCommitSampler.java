@@ -0,0 +1,85 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Evenly;
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.EveryNth;
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.LastPerPeriod;
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestCommitSampler {
+
+  @Test
+  void testParse() {
+    Assertions.assertThat(CommitSampler.parse("every:5")).isEqualTo(new EveryNth(5));
+    Assertions.assertThat(CommitSampler.parse("samples:20")).isEqualTo(new Evenly(20));
+    Assertions.assertThat(CommitSampler.parse("weekly")).isEqualTo(new LastPerPeriod(Period.WEEK));
+    Assertions.assertThatThrownBy(() -> CommitSampler.parse("every"))
+        .isInstanceOf(IllegalArgumentException.class);
+    Assertions.assertThatThrownBy(() -> CommitSampler.parse("every:0"))
+        .isInstanceOf(IllegalArgumentException.class);
+    Assertions.assertThatThrownBy(() -> CommitSampler.parse("yearly"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void testEveryNth() {
+    val dates = hourly(10);
+    Assertions.assertThat(sample(new EveryNth(3), dates)).containsExactly(0, 3, 6, 9);
+  }
+
+  @Test
+  void testLastPerDayKeepsNewestCommit() {
+    // Newest first, 12 hours apart, starting at noon: two commits per day
+    val start = Instant.parse("2024-05-10T12:00:00Z");
+    val dates = new ArrayList<Instant>();
+    for (int i = 0; i < 6; i++) {
+      dates.add(start.minus(Duration.ofHours(12L * i)));
+    }
+    Assertions.assertThat(sample(new LastPerPeriod(Period.DAY), dates)).containsExactly(0, 2, 4);
+  }
+
+  @Test
+  void testEvenlySpaced() {
+    val dates = hourly(100);
+    Assertions.assertThat(sample(new Evenly(4), dates)).containsExactly(0, 25, 50, 75);
+  }
+
+  @Test
+  void testEvenlyWithMoreSamplesThanCommits() {
+    val dates = hourly(3);
+    Assertions.assertThat(sample(new Evenly(10), dates)).containsExactly(0, 1, 2);
+  }
+
+  private static List<Instant> hourly(final int count) {
+    val start = Instant.parse("2024-05-10T00:00:00Z");
+    val dates = new ArrayList<Instant>();
+    for (int i = 0; i < count; i++) {
+      dates.add(start.minus(Duration.ofHours(i)));
+    }
+    return dates;
+  }
+
+  private static List<Integer> sample(final CommitSampler sampler, final List<Instant> dates) {
+    val filter = sampler.start(dates.size());
+    val kept = new ArrayList<Integer>();
+    for (int i = 0; i < dates.size(); i++) {
+      if (filter.accept(dates.get(i))) {
+        kept.add(i);
+      }
+    }
+    return kept;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import com.activeviam.tooling.gitstats.GitFixture;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FetchMode;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Compares the numstat computed in process with the one of {@code git show --numstat}. */
+class TestInProcessDiff {
+
+  @TempDir Path directory;
+
+  private static String lines(final int from, final int to) {
+    return IntStream.range(from, to)
+        .mapToObj(i -> "line " + i + "\n")
+        .collect(Collectors.joining());
+  }
+
+  private static byte[] binary(final int seed) {
+    val bytes = new byte[2048];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i * seed);
+    }
+    return bytes;
+  }
+
+  private static List<FileChanges> read(
+      final Path directory, final String commit, final BlobReader.Pool blobs) {
+    val changes =
+        new ArrayList<>(
+            new ReadCommitDetails(directory, commit, null, FetchMode.HISTORY, false, blobs)
+                .read()
+                .fileChanges());
+    changes.sort(Comparator.comparing(FileChanges::filename));
+    return changes;
+  }
+
+  @Test
+  void testMatchesGitNumstat() {
+    val git = GitFixture.init(this.directory);
+    val commits = new ArrayList<String>();
+    git.write("src/A.java", lines(0, 40))
+        .write("src/B.java", lines(100, 130))
+        .write("notes.txt", lines(200, 260))
+        .write("logo.png", binary(1))
+        .write("no-newline.txt", "a\nb");
+    commits.add(git.commit("Initial", "2024-01-01T10:00:00Z"));
+
+    // Edits in the middle, a rename with a small edit and a modified binary
+    git.write("src/A.java", lines(0, 10) + "changed\n" + lines(12, 40) + lines(50, 55))
+        .write("docs/notes.md", lines(200, 258) + "edited\n")
+        .write("logo.png", binary(3))
+        .write("no-newline.txt", "a\nb\n");
+    git.git("rm", "-q", "notes.txt");
+    commits.add(git.commit("Edit and rename", "2024-01-02T10:00:00Z"));
+
+    // Full rewrite, deletions and a binary becoming text
+    git.write("src/B.java", lines(500, 520)).write("logo.png", "not binary anymore\n");
+    git.git("rm", "-q", "docs/notes.md");
+    commits.add(git.commit("Rewrite", "2024-01-03T10:00:00Z"));
+
+    try (val blobs = new BlobReader.Pool(this.directory)) {
+      for (val commit : commits) {
+        Assertions.assertThat(read(this.directory, commit, blobs))
+            .as("commit %s", commit)
+            .containsExactlyElementsOf(read(this.directory, commit, null));
+      }
+    }
+    // The fixture covers renames and binary files
+    Assertions.assertThat(read(this.directory, commits.get(1), null))
+        .contains(new FileChanges("docs/notes.md", 1, 2), new FileChanges("logo.png", -1, -1));
+  }
+
+  @Test
+  void testDiscardedReadersAreNotReused() {
+    val git = GitFixture.init(this.directory);
+    git.write("A.java", lines(0, 10));
+    git.commit("Initial", "2024-01-01T10:00:00Z");
+
+    try (val blobs = new BlobReader.Pool(this.directory)) {
+      val reader = blobs.acquire();
+      blobs.discard(reader);
+      Assertions.assertThat(blobs.acquire()).isNotSameAs(reader);
+      val released = blobs.acquire();
+      blobs.release(released);
+      Assertions.assertThat(blobs.acquire()).isSameAs(released);
+    }
+  }
+}
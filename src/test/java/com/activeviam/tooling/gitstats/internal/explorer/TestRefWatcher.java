@@ -0,0 +1,78 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.explorer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestRefWatcher {
+
+  private static final Duration QUIET = Duration.ofMillis(100);
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @TempDir Path gitDirectory;
+
+  @BeforeEach
+  void createRefs() throws IOException {
+    Files.createDirectories(this.gitDirectory.resolve("refs/heads"));
+    Files.writeString(this.gitDirectory.resolve("refs/heads/main"), "a\n");
+  }
+
+  /** Updates a file the way git does, renaming a lock file over it. */
+  private void update(final String file, final String content) throws IOException {
+    val target = this.gitDirectory.resolve(file);
+    val lock = target.resolveSibling(target.getFileName() + ".lock");
+    Files.writeString(lock, content);
+    Files.move(lock, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  @Test
+  void testDetectsLooseRefUpdates() throws Exception {
+    try (val watcher = new RefWatcher(this.gitDirectory, "refs/heads/main")) {
+      update("refs/heads/main", "b\n");
+      Assertions.assertThat(watcher.await(QUIET, TIMEOUT)).isTrue();
+      // Events were consumed
+      Assertions.assertThat(watcher.await(QUIET, QUIET)).isFalse();
+    }
+  }
+
+  @Test
+  void testDetectsPackedRefUpdates() throws Exception {
+    try (val watcher = new RefWatcher(this.gitDirectory, "refs/heads/main")) {
+      update("packed-refs", "b refs/heads/main\n");
+      Assertions.assertThat(watcher.await(QUIET, TIMEOUT)).isTrue();
+    }
+  }
+
+  @Test
+  void testIgnoresOtherRefs() throws Exception {
+    try (val watcher = new RefWatcher(this.gitDirectory, "refs/heads/main")) {
+      update("refs/heads/other", "c\n");
+      update("HEAD", "ref: refs/heads/other\n");
+      Assertions.assertThat(watcher.await(QUIET, Duration.ofMillis(500))).isFalse();
+    }
+  }
+
+  @Test
+  void testFollowsRefsInNewDirectories() throws Exception {
+    try (val watcher = new RefWatcher(this.gitDirectory, "refs/heads/feature/x")) {
+      Files.createDirectories(this.gitDirectory.resolve("refs/heads/feature"));
+      Assertions.assertThat(watcher.await(QUIET, TIMEOUT)).isTrue();
+      update("refs/heads/feature/x", "d\n");
+      Assertions.assertThat(watcher.await(QUIET, TIMEOUT)).isTrue();
+    }
+  }
+}
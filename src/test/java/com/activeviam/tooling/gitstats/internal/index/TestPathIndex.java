@@ -0,0 +1,101 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.index;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestPathIndex {
+
+  @TempDir Path directory;
+
+  private static CommitInfo commit(final int number) {
+    return new CommitInfo(
+        "%040x".formatted(number), Instant.ofEpochSecond(1_700_000_000L + number));
+  }
+
+  private static List<FileChanges> changes(final String... paths) {
+    return IntStream.range(0, paths.length).mapToObj(i -> new FileChanges(paths[i], 1, 0)).toList();
+  }
+
+  @Test
+  void testMergesRunsIntoPostings() throws IOException {
+    val file = this.directory.resolve(PathIndex.FILE_NAME);
+    // Tiny runs, so that most postings go through files on disk
+    val builder = new PathIndexBuilder(file, 4);
+    val expected = new TreeMap<String, List<Integer>>();
+    for (int i = 0; i < 300; i++) {
+      val paths = new ArrayList<String>();
+      paths.add("core/src/A.java");
+      if (i % 3 == 0) {
+        paths.add("core/src/B" + (i % 2) + ".java");
+      }
+      if (i == 299) {
+        paths.add("web/é.ts");
+      }
+      builder.add(commit(i), changes(paths.toArray(String[]::new)));
+      for (val path : paths) {
+        expected.computeIfAbsent(path, _ -> new ArrayList<>()).add(i);
+      }
+    }
+    // The second part of a commit streamed in chunks
+    builder.add(commit(299), changes("core/src/A.java", "web/b.ts"));
+    expected.computeIfAbsent("web/b.ts", _ -> new ArrayList<>()).add(299);
+    builder.write();
+
+    try (val index = PathIndex.open(file)) {
+      Assertions.assertThat(index.commitCount()).isEqualTo(300);
+      Assertions.assertThat(index.pathCount()).isEqualTo(expected.size());
+      for (final Map.Entry<String, List<Integer>> entry : expected.entrySet()) {
+        val found = index.find(entry.getKey());
+        Assertions.assertThat(found).as(entry.getKey()).isNotNegative();
+        Assertions.assertThat(index.path(found)).isEqualTo(entry.getKey());
+        Assertions.assertThat(index.commits(found))
+            .containsExactly(entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+      }
+      Assertions.assertThat(index.commit(200)).isEqualTo(commit(200));
+    }
+    try (val files = Files.list(this.directory)) {
+      Assertions.assertThat(files).containsExactly(file);
+    }
+  }
+
+  @Test
+  void testFindsPathsByPrefix() {
+    val file = this.directory.resolve(PathIndex.FILE_NAME);
+    val builder = new PathIndexBuilder(file);
+    builder.add(commit(0), changes("core/src/A.java", "core/srcgen/G.java", "web/index.ts"));
+    builder.add(commit(1), changes("core/src/B.java", "core.txt"));
+    builder.write();
+
+    try (val index = PathIndex.open(file)) {
+      val range = index.prefixRange("core/src/");
+      Assertions.assertThat(IntStream.range(range[0], range[1]).mapToObj(index::path))
+          .containsExactly("core/src/A.java", "core/src/B.java");
+      val all = index.prefixRange("");
+      Assertions.assertThat(all).containsExactly(0, 5);
+      val none = index.prefixRange("docs/");
+      Assertions.assertThat(none[0]).isEqualTo(none[1]);
+      Assertions.assertThat(index.find("core/src")).isEqualTo(-1);
+      Assertions.assertThat(index.find("zzz")).isEqualTo(-1);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.lineage;
+
+import com.activeviam.tooling.gitstats.GitFixture;
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileRenaming;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestFileLineage {
+
+  @TempDir Path directory;
+
+  @Test
+  void testChainOfRenamings() {
+    val lineage = new FileLineage();
+    // Newest first: b -> c in c3, a -> b in c2, a modified in c1
+    lineage.apply("c3", List.of(new FileRenaming("b", "c")), List.of());
+    lineage.apply("c2", List.of(new FileRenaming("a", "b")), List.of());
+    lineage.apply("c1", List.of(), List.of());
+
+    Assertions.assertThat(lineage.fileId("c3", "c")).isEqualTo("c");
+    Assertions.assertThat(lineage.fileId("c2", "b")).isEqualTo("c");
+    Assertions.assertThat(lineage.fileId("c1", "a")).isEqualTo("c");
+  }
+
+  @Test
+  void testSwap() {
+    val lineage = new FileLineage();
+    lineage.apply("c2", List.of(new FileRenaming("a", "b"), new FileRenaming("b", "a")), List.of());
+    lineage.apply("c1", List.of(), List.of());
+
+    Assertions.assertThat(lineage.fileId("c2", "a")).isEqualTo("a");
+    Assertions.assertThat(lineage.fileId("c2", "b")).isEqualTo("b");
+    Assertions.assertThat(lineage.fileId("c1", "a")).isEqualTo("b");
+    Assertions.assertThat(lineage.fileId("c1", "b")).isEqualTo("a");
+  }
+
+  @Test
+  void testResurrection() {
+    val lineage = new FileLineage();
+    // a is created again in c3, after being deleted in c2
+    lineage.apply("c3", List.of(), List.of("a"));
+    lineage.apply("c2", List.of(), List.of());
+    lineage.apply("c1", List.of(), List.of("a"));
+
+    Assertions.assertThat(lineage.fileId("c3", "a")).isEqualTo("a");
+    Assertions.assertThat(lineage.fileId("c1", "a")).isEqualTo("a~1");
+  }
+
+  @Test
+  void testRenamedPathReused() {
+    val lineage = new FileLineage();
+    // a -> b in c2, while an older file b was deleted in an earlier commit
+    lineage.apply("c2", List.of(new FileRenaming("a", "b")), List.of());
+    lineage.apply("c1", List.of(), List.of());
+
+    Assertions.assertThat(lineage.fileId("c1", "a")).isEqualTo("b");
+    Assertions.assertThat(lineage.fileId("c1", "b")).isEqualTo("b~1");
+    Assertions.assertThat(lineage.fileId("c0", "b")).isEqualTo("b");
+  }
+
+  @Test
+  void testCreatesTheLineageOfABranch() throws IOException {
+    val fixture = GitFixture.init(this.directory.resolve("project"));
+    fixture.write("a.txt", "some content\nthat is kept\nby the renaming\n");
+    val created = fixture.commit("Create", "2024-01-01T10:00:00Z");
+    fixture.git("mv", "a.txt", "b.txt");
+    val renamed = fixture.commit("Rename", "2024-01-02T10:00:00Z");
+    val file = this.directory.resolve("lineage-0000.csv");
+
+    val lineage = FileLineage.create(fixture.directory(), List.of("main"), null, 10, file);
+
+    Assertions.assertThat(lineage.fileId(created, "a.txt")).isEqualTo("b.txt");
+    Assertions.assertThat(lineage.fileId(renamed, "b.txt")).isEqualTo("b.txt");
+    Assertions.assertThat(Files.readAllLines(file))
+        .containsExactly(FileLineage.HEADER, "b.txt," + renamed + ",a.txt,b.txt");
+  }
+
+  @Test
+  void testRejectsSeveralBranches() {
+    val file = this.directory.resolve("lineage-0000.csv");
+    Assertions.assertThatThrownBy(
+            () -> FileLineage.create(this.directory, List.of("main", "release"), null, 10, file))
+        .isInstanceOf(ProgramException.class);
+  }
+}
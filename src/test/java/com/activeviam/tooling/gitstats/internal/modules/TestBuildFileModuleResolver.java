@@ -0,0 +1,93 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.modules;
+
+import com.activeviam.tooling.gitstats.GitFixture;
+import java.nio.file.Path;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestBuildFileModuleResolver {
+
+  @TempDir Path directory;
+
+  @Test
+  void testLongestPrefixMatch() {
+    val resolver = new BuildFileModuleResolver(List.of("core", "core/api", "web/ui"));
+    Assertions.assertThat(resolver.resolve("core/src/main/java/A.java")).isEqualTo("core");
+    Assertions.assertThat(resolver.resolve("core/api/src/B.java")).isEqualTo("core/api");
+    Assertions.assertThat(resolver.resolve("core/api/pom.xml")).isEqualTo("core/api");
+    Assertions.assertThat(resolver.resolve("web/ui/package.json")).isEqualTo("web/ui");
+    Assertions.assertThat(resolver.resolve("web/README.md")).isEqualTo(ModuleResolver.UNKNOWN);
+  }
+
+  @Test
+  void testOnlyWholeDirectoriesMatch() {
+    val resolver = new BuildFileModuleResolver(List.of("core"));
+    Assertions.assertThat(resolver.resolve("core-api/src/A.java"))
+        .isEqualTo(ModuleResolver.UNKNOWN);
+    Assertions.assertThat(resolver.resolve("core")).isEqualTo(ModuleResolver.UNKNOWN);
+  }
+
+  @Test
+  void testRootModule() {
+    val resolver = new BuildFileModuleResolver(List.of("", "lib"));
+    Assertions.assertThat(resolver.resolve("pom.xml")).isEqualTo(ModuleResolver.ROOT);
+    Assertions.assertThat(resolver.resolve("docs/index.md")).isEqualTo(ModuleResolver.ROOT);
+    Assertions.assertThat(resolver.resolve("lib/build.gradle")).isEqualTo("lib");
+  }
+
+  @Test
+  void testResolutionReturnsSharedInstances() {
+    val resolver = new BuildFileModuleResolver(List.of("core"));
+    Assertions.assertThat(resolver.resolve("core/A.java"))
+        .isSameAs(resolver.resolve("core/B.java"));
+  }
+
+  @Test
+  void testDiscoversModulesInListingsLargerThanThePipeBuffer() {
+    val fixture = GitFixture.init(this.directory);
+    fixture.write("legacy/pom.xml", "<project/>");
+    fixture.commit("Legacy module", "2024-01-01T10:00:00Z");
+    fixture.git("rm", "-q", "-r", "legacy");
+    fixture.write("core/pom.xml", "<project/>");
+    for (int i = 0; i < 2_000; i++) {
+      fixture.write(
+          String.format("core/src/main/java/com/example/generated/Generated%04d.java", i), "");
+    }
+    fixture.write("web/ui/package.json", "{}");
+    val head = fixture.commit("Generated sources", "2024-01-02T10:00:00Z");
+    Assertions.assertThat(fixture.git("ls-tree", "-r", "--name-only", head).length())
+        .isGreaterThan(64 * 1024);
+
+    val resolver = BuildFileModuleResolver.discover(this.directory, List.of(head), 10);
+    Assertions.assertThat(resolver.resolve("core/src/main/java/A.java")).isEqualTo("core");
+    Assertions.assertThat(resolver.resolve("web/ui/src/index.ts")).isEqualTo("web/ui");
+    // Only found in the history of the revision
+    Assertions.assertThat(resolver.resolve("legacy/src/B.java")).isEqualTo("legacy");
+  }
+
+  @Test
+  void testExtendsWithTheModulesOfNewCommits() {
+    val fixture = GitFixture.init(this.directory);
+    fixture.write("core/pom.xml", "<project/>");
+    val first = fixture.commit("Core module", "2024-01-01T10:00:00Z");
+    val resolver = BuildFileModuleResolver.discover(this.directory, List.of(first), 1);
+    Assertions.assertThat(resolver.extend(this.directory, first + ".." + first)).isSameAs(resolver);
+
+    fixture.write("web/package.json", "{}");
+    val second = fixture.commit("Web module", "2024-01-02T10:00:00Z");
+    val extended = resolver.extend(this.directory, first + ".." + second);
+    Assertions.assertThat(extended.resolve("web/src/index.ts")).isEqualTo("web");
+    Assertions.assertThat(extended.resolve("core/src/A.java")).isEqualTo("core");
+    Assertions.assertThat(resolver.resolve("web/src/index.ts")).isEqualTo(ModuleResolver.UNKNOWN);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.offheap;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileIndentationStats;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileLineCount;
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
+import java.util.ArrayList;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestTreeStatsBatch {
+
+  @Test
+  void testReadsRowsBackAcrossChunks() {
+    val dictionary = new PathDictionary();
+    val batch = new TreeStatsBatch(dictionary, 2);
+    val expectedCounts = new ArrayList<FileLineCount>();
+    val expectedStats = new ArrayList<FileIndentationStats>();
+    long levels = 0;
+    for (int i = 0; i < 10_000; i++) {
+      // Paths repeat, to share dictionary entries
+      val path = "src/F" + (i % 700) + ".java";
+      expectedCounts.add(new FileLineCount(path, i));
+      batch.addLineCount(path, i);
+      // Histograms of varying sizes, also spanning several chunks
+      val histogram = new LevelHistogram();
+      for (int level = 0; level <= i % 7; level++) {
+        histogram.add(level, (i + level) % 4 + 1);
+      }
+      levels += histogram.size();
+      expectedStats.add(new FileIndentationStats(path, i % 3, i % 7, i / 3.0, i % 5, i, histogram));
+      batch.addIndentation(path, i % 3, i % 7, i / 3.0, i % 5, i, histogram);
+    }
+
+    val counts = new ArrayList<FileLineCount>();
+    batch.forEachLineCount((path, lines) -> counts.add(new FileLineCount(path, lines)));
+    val stats = new ArrayList<FileIndentationStats>();
+    batch.forEachIndentation(
+        (path, min, max, mean, median, bumps, histogram) ->
+            stats.add(new FileIndentationStats(path, min, max, mean, median, bumps, histogram)));
+
+    Assertions.assertThat(counts).containsExactlyElementsOf(expectedCounts);
+    Assertions.assertThat(stats).containsExactlyElementsOf(expectedStats);
+    Assertions.assertThat(batch.byteSize()).isEqualTo(10_000 * (8 + 32) + levels * 4);
+    Assertions.assertThat(dictionary.idOf("src/F699.java")).isEqualTo(699);
+  }
+
+  @Test
+  void testFreesMemoryAfterLastRelease() {
+    val batch = new TreeStatsBatch(new PathDictionary(), 2);
+    batch.addLineCount("A.java", 12);
+
+    batch.release();
+    Assertions.assertThat(batch.lineCountSize()).isEqualTo(1);
+    batch.forEachLineCount((path, lines) -> Assertions.assertThat(lines).isEqualTo(12));
+
+    batch.release();
+    Assertions.assertThatThrownBy(() -> batch.forEachLineCount((path, lines) -> {}))
+        .isInstanceOf(IllegalStateException.class);
+    Assertions.assertThatThrownBy(batch::release).isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestChunkedSink {
+
+  @Test
+  void testEmitsFullChunksThenRemainder() {
+    val chunks = new ArrayList<List<Integer>>();
+    try (val sink = new ChunkedSink<Integer>(3, chunks::add)) {
+      for (int i = 0; i < 7; i++) {
+        sink.accept(i);
+      }
+      Assertions.assertThat(chunks).containsExactly(List.of(0, 1, 2), List.of(3, 4, 5));
+    }
+    Assertions.assertThat(chunks).containsExactly(List.of(0, 1, 2), List.of(3, 4, 5), List.of(6));
+  }
+
+  @Test
+  void testEmitsEmptyChunkWithoutRows() {
+    val chunks = new ArrayList<List<Integer>>();
+    try (val sink = new ChunkedSink<Integer>(3, chunks::add)) {
+      Assertions.assertThat(sink).isNotNull();
+    }
+    Assertions.assertThat(chunks).containsExactly(List.of());
+  }
+
+  @Test
+  void testDoesNotEmitEmptyRemainder() {
+    val chunks = new ArrayList<List<Integer>>();
+    try (val sink = new ChunkedSink<Integer>(2, chunks::add)) {
+      sink.accept(1);
+      sink.accept(2);
+    }
+    Assertions.assertThat(chunks).containsExactly(List.of(1, 2));
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.modules.SourceDirectoryModuleResolver;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestChurnSketches {
+
+  @TempDir Path directory;
+
+  private static CommitDetails commit(final String date, final FileChanges... changes) {
+    return new CommitDetails(
+        new CommitInfo("c" + date, Instant.parse(date + "T12:00:00Z")),
+        List.of(changes),
+        List.of(),
+        List.of(),
+        List.of());
+  }
+
+  private static void addHistory(final ChurnSketches sketches, final boolean firstHalf) {
+    if (firstHalf) {
+      sketches.add(
+          commit(
+              "2024-01-16",
+              new FileChanges("core/src/main/java/A.java", 10, 2),
+              new FileChanges("web/src/main/java/B.java", 100, 50)));
+      sketches.add(commit("2024-01-21", new FileChanges("core/src/main/java/A.java", 1, 1)));
+    } else {
+      sketches.add(
+          commit(
+              "2024-02-02",
+              new FileChanges("core/src/main/java/A.java", 3, 3),
+              new FileChanges("core/src/main/java/logo.png", -1, -1)));
+    }
+  }
+
+  @Test
+  void testWritesHotspotsAndDistinctFiles() throws IOException {
+    val sketches = new ChurnSketches(Period.MONTH, new SourceDirectoryModuleResolver());
+    addHistory(sketches, true);
+    addHistory(sketches, false);
+
+    val hotspots = this.directory.resolve("hotspots-0000.csv");
+    sketches.writeHotspots(hotspots);
+    Assertions.assertThat(Files.readAllLines(hotspots))
+        .containsExactly(
+            ChurnSketches.HOTSPOTS_HEADER,
+            "path-changes,1,core/src/main/java/A.java,3,0,3",
+            "path-changes,2,core/src/main/java/logo.png,1,0,1",
+            "path-changes,3,web/src/main/java/B.java,1,0,1",
+            "path-churn,1,web/src/main/java/B.java,150,0,1",
+            "path-churn,2,core/src/main/java/A.java,20,0,3",
+            "path-churn,3,core/src/main/java/logo.png,0,0,1",
+            "module-changes,1,core,4,0,",
+            "module-changes,2,web,1,0,",
+            "module-churn,1,web,150,0,",
+            "module-churn,2,core,20,0,");
+
+    val distinctFiles = this.directory.resolve("distinct-files-month-0000.csv");
+    sketches.writeDistinctFiles(distinctFiles);
+    Assertions.assertThat(sketches.distinctFilesDataset()).isEqualTo("distinct-files-month");
+    Assertions.assertThat(Files.readAllLines(distinctFiles))
+        .containsExactly(
+            ChurnSketches.DISTINCT_FILES_HEADER,
+            "core,2024-01-01,1",
+            "web,2024-01-01,1",
+            "core,2024-02-01,2");
+  }
+
+  @Test
+  void testMergesPartsOfTheHistory() throws IOException {
+    val modules = new SourceDirectoryModuleResolver();
+    val whole = new ChurnSketches(Period.MONTH, modules);
+    addHistory(whole, true);
+    addHistory(whole, false);
+    val first = new ChurnSketches(Period.MONTH, modules);
+    addHistory(first, true);
+    val second = new ChurnSketches(Period.MONTH, modules);
+    addHistory(second, false);
+
+    second.merge(first);
+    val expected = this.directory.resolve("expected.csv");
+    whole.writeHotspots(expected);
+    val merged = this.directory.resolve("merged.csv");
+    second.writeHotspots(merged);
+    Assertions.assertThat(Files.readAllLines(merged))
+        .containsExactlyElementsOf(Files.readAllLines(expected));
+    Assertions.assertThat(second.changesOf("core/src/main/java/A.java")).isEqualTo(3);
+
+    whole.writeDistinctFiles(expected);
+    second.writeDistinctFiles(merged);
+    Assertions.assertThat(Files.readAllLines(merged))
+        .containsExactlyElementsOf(Files.readAllLines(expected));
+  }
+
+  @Test
+  void testRejectsSketchesOfAnotherPeriod() {
+    val modules = new SourceDirectoryModuleResolver();
+    val sketches = new ChurnSketches(Period.MONTH, modules);
+    Assertions.assertThatThrownBy(() -> sketches.merge(new ChurnSketches(Period.WEEK, modules)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestCoChangeMatrix {
+
+  @TempDir Path directory;
+
+  private static List<FileChanges> commit(final String... paths) {
+    return Arrays.stream(paths).map(path -> new FileChanges(path, 1, 1)).toList();
+  }
+
+  @Test
+  void testWritesTheFilesChangedTogether() throws IOException {
+    val file = this.directory.resolve("coupling-0000.csv");
+    try (val matrix = new CoChangeMatrix(3, 10, 1 << 20, 4)) {
+      matrix.add(commit("A.java", "ATest.java"));
+      matrix.add(commit("A.java", "ATest.java", "B.java"));
+      matrix.add(commit("ATest.java", "A.java"));
+      matrix.add(commit("A.java", "B.java"));
+      matrix.add(commit("B.java", "C.java"));
+      matrix.add(commit("A.java", "B.java", "C.java", "D.java"));
+      matrix.close();
+      matrix.write(file);
+    }
+    Assertions.assertThat(Files.readAllLines(file))
+        .containsExactly(
+            CoChangeMatrix.HEADER,
+            "A.java,ATest.java,3,4,3,0.750",
+            "A.java,B.java,2,4,3,0.500",
+            "ATest.java,A.java,3,3,4,1.000",
+            "B.java,A.java,2,3,4,0.667");
+  }
+
+  @Test
+  void testKeepsTheTopFilesOfEachFile() throws IOException {
+    val file = this.directory.resolve("coupling-0000.csv");
+    try (val matrix = new CoChangeMatrix(10, 2, 1 << 20, 2)) {
+      for (int i = 0; i < 5; i++) {
+        matrix.add(commit("core.c", "d.c", "c.c", "b.c", "a.c"));
+        matrix.add(commit("core.c", "a.c"));
+      }
+      matrix.add(commit("core.c", "b.c"));
+      matrix.close();
+      matrix.write(file);
+    }
+    Assertions.assertThat(Files.readAllLines(file))
+        .filteredOn(line -> line.startsWith("core.c,"))
+        .containsExactly("core.c,a.c,10,11,10,0.909", "core.c,b.c,6,11,6,0.545");
+    Assertions.assertThat(Files.readAllLines(file))
+        .filteredOn(line -> line.startsWith("d.c,"))
+        .containsExactly("d.c,a.c,5,5,10,1.000", "d.c,b.c,5,5,6,1.000");
+  }
+
+  @Test
+  void testCountsConcurrentCommits() {
+    try (val matrix = new CoChangeMatrix(5, 10, 16 << 20, 4)) {
+      IntStream.range(0, 10_000)
+          .parallel()
+          .forEach(
+              i ->
+                  matrix.add(
+                      commit("common", "module-" + (i % 100), "file-" + i, "other-" + (i % 7))));
+      matrix.close();
+      Assertions.assertThat(matrix.threshold()).isZero();
+      Assertions.assertThat(matrix.commitsOf("common", "module-42")).isEqualTo(100);
+      Assertions.assertThat(matrix.commitsOf("module-42", "common")).isEqualTo(100);
+      Assertions.assertThat(matrix.commitsOf("module-3", "other-3")).isEqualTo(15);
+      Assertions.assertThat(matrix.commitsOf("file-1", "file-2")).isZero();
+    }
+  }
+
+  @Test
+  void testDropsRarePairsBeyondTheMemoryBudget() {
+    try (val matrix = new CoChangeMatrix(3, 10, 64 * PairCounts.SLOT_BYTES, 1)) {
+      for (int i = 0; i < 1000; i++) {
+        matrix.add(commit("hot", "spot"));
+        matrix.add(commit("noise-" + i, "noise-" + (i + 1)));
+      }
+      matrix.close();
+      Assertions.assertThat(matrix.threshold()).isPositive();
+      Assertions.assertThat(matrix.commitsOf("hot", "spot"))
+          .isBetween(1000, 1000 + matrix.threshold());
+    }
+  }
+
+  @Test
+  void testKeepsSparsePairsRecurringAcrossPrunings() {
+    // The table of 16 slots is pruned each time it has 9 pairs
+    val counts = new PairCounts(16 * PairCounts.SLOT_BYTES);
+    int noise = 0;
+    for (int i = 0; i < 40; i++) {
+      counts.increment(PairCounts.pair(1, 1000 + noise++));
+    }
+    val start = counts.threshold();
+    Assertions.assertThat(start).isPositive();
+
+    // Inserted once the bucket is high, recurring about twice between prunings
+    val sparse = PairCounts.pair(2, 3);
+    for (int window = 0; window < 10; window++) {
+      for (int k = 0; k < 2; k++) {
+        counts.increment(sparse);
+        for (int j = 0; j < 4; j++) {
+          counts.increment(PairCounts.pair(1, 1000 + noise++));
+        }
+      }
+    }
+    Assertions.assertThat(counts.threshold()).isGreaterThan(start + 5);
+    Assertions.assertThat(counts.count(sparse)).isBetween(20, 20 + counts.threshold());
+  }
+}
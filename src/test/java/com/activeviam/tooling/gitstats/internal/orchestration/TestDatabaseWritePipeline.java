@@ -0,0 +1,177 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.database.Database;
+import com.activeviam.tooling.gitstats.internal.database.Table;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileIndentationStats;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileRenaming;
+import com.activeviam.tooling.gitstats.internal.modules.SourceDirectoryModuleResolver;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteChangesAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteCommits;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteIndentationAction;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteRenamingAction;
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestDatabaseWritePipeline {
+
+  @TempDir Path directory;
+
+  private static final CommitInfo COMMIT =
+      new CommitInfo("c0ffee", Instant.parse("2024-05-17T10:00:00Z"));
+
+  @Test
+  void testQuotesKeywordsInStatements() {
+    Assertions.assertThat(Table.RENAMINGS.createStatement())
+        .isEqualTo(
+            "CREATE TABLE IF NOT EXISTS \"renamings\""
+                + " (\"commit\" TEXT, \"before\" TEXT, \"after\" TEXT)");
+    Assertions.assertThat(Table.RENAMINGS.insertStatement())
+        .isEqualTo("INSERT INTO \"renamings\" VALUES (?, ?, ?)");
+  }
+
+  @Test
+  void testCommitRows() {
+    val pipeline = DatabaseWritePipeline.commits(null, null);
+    Assertions.assertThat(pipeline.rowsOf(new WriteCommits(List.of(COMMIT))))
+        .containsExactly(new Object[] {"c0ffee", 1715940000L, "2024-05-17"});
+  }
+
+  @Test
+  void testChangeRowsMatchTableColumns() {
+    val pipeline =
+        DatabaseWritePipeline.changes(null, null, new SourceDirectoryModuleResolver(), null);
+    val details =
+        new CommitDetails(
+            COMMIT,
+            List.of(
+                new FileChanges("core/src/main/java/A.java", 3, 1),
+                new FileChanges("web/src/main/resources/logo.png", -1, -1)),
+            List.of(),
+            List.of(),
+            List.of());
+
+    val rows = pipeline.rowsOf(new WriteChangesAction(List.of(details)));
+    Assertions.assertThat(rows)
+        .containsExactly(
+            new Object[] {"c0ffee", "core", "A.java", "core/src/main/java/A.java", 3, 1, null},
+            new Object[] {
+              "c0ffee", "web", "logo.png", "web/src/main/resources/logo.png", -1, -1, null
+            });
+    Assertions.assertThat(rows)
+        .allSatisfy(row -> Assertions.assertThat(row).hasSize(Table.CHANGES.columnCount()));
+  }
+
+  @Test
+  void testIndentationRowsMatchTableColumns() {
+    val pipeline = DatabaseWritePipeline.indentation(null, null, null);
+    val details =
+        new CommitDetails(
+            COMMIT,
+            List.of(),
+            List.of(),
+            List.of(),
+            List.of(
+                new FileIndentationStats(
+                    "A.java", 0, 3, 1.5, 1, 2, LevelHistogram.decode("1;2;0;1"))));
+
+    Assertions.assertThat(pipeline.rowsOf(new WriteIndentationAction(List.of(details))))
+        .singleElement()
+        .satisfies(row -> Assertions.assertThat(row).hasSize(Table.INDENTATION.columnCount()));
+  }
+
+  private static <T> void write(
+      final DatabaseWritePipeline<T> pipeline, final Queue<Action<T>> queue, final T command) {
+    queue.put(Action.value(command));
+    queue.put(Action.stop());
+    pipeline.run();
+  }
+
+  private List<String> query(final Path file, final String sql) throws SQLException {
+    val rows = new ArrayList<String>();
+    try (val connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+        val statement = connection.createStatement();
+        val result = statement.executeQuery(sql)) {
+      final int columns = result.getMetaData().getColumnCount();
+      while (result.next()) {
+        val row = new ArrayList<String>();
+        for (int i = 1; i <= columns; i++) {
+          row.add(String.valueOf(result.getObject(i)));
+        }
+        rows.add(String.join(",", row));
+      }
+    }
+    return rows;
+  }
+
+  @Test
+  void testRowsAreReadBack() throws SQLException {
+    val file = this.directory.resolve("history.db");
+    val details =
+        new CommitDetails(
+            COMMIT,
+            List.of(
+                new FileChanges("core/src/main/java/A.java", 3, 1),
+                new FileChanges("web/src/main/resources/logo.png", -1, -1)),
+            List.of(new FileRenaming("core/src/main/java/Old.java", "core/src/main/java/A.java")),
+            List.of(),
+            List.of());
+    try (val database = Database.open(file)) {
+      val commits = new Queue<Action<WriteCommits>>(4);
+      write(
+          DatabaseWritePipeline.commits(commits, database),
+          commits,
+          new WriteCommits(List.of(COMMIT)));
+      val changes = new Queue<Action<WriteChangesAction>>(4);
+      write(
+          DatabaseWritePipeline.changes(
+              changes, database, new SourceDirectoryModuleResolver(), null),
+          changes,
+          new WriteChangesAction(List.of(details)));
+      val renamings = new Queue<Action<WriteRenamingAction>>(4);
+      write(
+          DatabaseWritePipeline.renamings(renamings, database),
+          renamings,
+          new WriteRenamingAction(List.of(details)));
+    }
+    // A second run appends to the existing tables
+    try (val database = Database.open(file)) {
+      val commits = new Queue<Action<WriteCommits>>(4);
+      val other = new CommitInfo("decade", Instant.parse("2024-05-18T10:00:00Z"));
+      write(
+          DatabaseWritePipeline.commits(commits, database),
+          commits,
+          new WriteCommits(List.of(other)));
+    }
+
+    Assertions.assertThat(query(file, "SELECT * FROM commits ORDER BY \"timestamp\""))
+        .containsExactly("c0ffee,1715940000,2024-05-17", "decade,1716026400,2024-05-18");
+    Assertions.assertThat(query(file, "SELECT * FROM changes ORDER BY path"))
+        .containsExactly(
+            "c0ffee,core,A.java,core/src/main/java/A.java,3,1,null",
+            "c0ffee,web,logo.png,web/src/main/resources/logo.png,-1,-1,null");
+    Assertions.assertThat(query(file, "SELECT \"before\", \"after\" FROM renamings"))
+        .containsExactly("core/src/main/java/Old.java,core/src/main/java/A.java");
+    Assertions.assertThat(
+            query(file, "SELECT typeof(additions), typeof(file) FROM changes LIMIT 1"))
+        .containsExactly("integer,null");
+  }
+}
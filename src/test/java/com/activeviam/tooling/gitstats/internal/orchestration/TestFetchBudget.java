@@ -0,0 +1,106 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestFetchBudget {
+
+  /** Waits until a thread blocks, so that waiters queue in a known order. */
+  private static void awaitBlocked(final Thread thread) throws InterruptedException {
+    while (thread.getState() != Thread.State.WAITING) {
+      Assertions.assertThat(thread.isAlive()).isTrue();
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  void testNeverExceedsThePermits() throws InterruptedException {
+    val budget = new FetchBudget(3);
+    val tenants = List.of(budget.register("core"), budget.register("web"));
+    val inUse = new AtomicInteger();
+    val maxInUse = new AtomicInteger();
+    val done = new CountDownLatch(16);
+    for (int i = 0; i < 16; i++) {
+      val tenant = tenants.get(i % 2);
+      Thread.ofPlatform()
+          .start(
+              () -> {
+                for (int j = 0; j < 50; j++) {
+                  tenant.acquire();
+                  maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                  Thread.onSpinWait();
+                  inUse.decrementAndGet();
+                  tenant.release();
+                }
+                done.countDown();
+              });
+    }
+
+    Assertions.assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+    Assertions.assertThat(maxInUse.get()).isBetween(1, 3);
+    // All permits are back
+    for (int i = 0; i < 3; i++) {
+      tenants.getFirst().acquire();
+    }
+  }
+
+  @Test
+  void testHandsPermitsRoundRobin() throws InterruptedException {
+    val budget = new FetchBudget(1);
+    val busy = budget.register("busy");
+    val quiet = budget.register("quiet");
+    busy.acquire();
+
+    val grants = Collections.synchronizedList(new ArrayList<String>());
+    val waiters = new ArrayList<Thread>();
+    for (val tenant : List.of(busy, busy, busy, quiet)) {
+      val thread =
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    tenant.acquire();
+                    grants.add(tenant.name());
+                    tenant.release();
+                  });
+      awaitBlocked(thread);
+      waiters.add(thread);
+    }
+    busy.release();
+    for (val thread : waiters) {
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+      Assertions.assertThat(thread.isAlive()).isFalse();
+    }
+
+    // The quiet tenant is served after one permit of the busy one, not after its whole queue
+    Assertions.assertThat(grants).containsExactly("busy", "quiet", "busy", "busy");
+  }
+
+  @Test
+  void testServesRemainingTenantsAfterUnregistering() throws InterruptedException {
+    val budget = new FetchBudget(1);
+    val leaving = budget.register("leaving");
+    val staying = budget.register("staying");
+    leaving.acquire();
+    val thread = Thread.ofPlatform().start(staying::acquire);
+    awaitBlocked(thread);
+
+    leaving.release();
+    leaving.unregister();
+    thread.join(TimeUnit.SECONDS.toMillis(10));
+    Assertions.assertThat(thread.isAlive()).isFalse();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileIndentationStats;
+import com.activeviam.tooling.gitstats.internal.modules.SourceDirectoryModuleResolver;
+import com.activeviam.tooling.gitstats.internal.offheap.PathDictionary;
+import com.activeviam.tooling.gitstats.internal.offheap.TreeStatsBatch;
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestIndentationRollup {
+
+  private static final CommitInfo COMMIT =
+      new CommitInfo("c1", Instant.parse("2024-01-16T12:00:00Z"));
+
+  @TempDir Path directory;
+
+  private static FileIndentationStats stats(final String path, final String histogram) {
+    // Only the histograms are rolled up
+    return new FileIndentationStats(path, 0, 0, 0, 0, 0, LevelHistogram.decode(histogram));
+  }
+
+  @Test
+  void testMergesHistogramsByModule() throws IOException {
+    val file = this.directory.resolve("indentation-modules-0000.csv");
+    try (val rollup = new IndentationRollup(new SourceDirectoryModuleResolver(), file)) {
+      rollup.add(
+          new CommitDetails(
+              COMMIT,
+              List.of(),
+              List.of(),
+              List.of(),
+              List.of(
+                  stats("web/src/main/java/B.java", "1;1"),
+                  stats("core/src/main/java/A.java", "10;80"),
+                  stats("core/src/test/java/ATest.java", "0;5;4;1"))));
+    }
+    Assertions.assertThat(Files.readAllLines(file))
+        .containsExactly(
+            IndentationRollup.HEADER,
+            // Merged 10;85;4;1: the median file line is at level 1, the 99th percentile at 2
+            "c1,core,2,100,0.96,1,1,2,3,10;85;4;1",
+            "c1,web,1,2,0.50,0,1,1,1,1;1");
+  }
+
+  @Test
+  void testReadsOffHeapStatistics() throws IOException {
+    val batch = new TreeStatsBatch(new PathDictionary(), 1);
+    batch.addIndentation(
+        "core/src/main/java/A.java", 0, 2, 1, 1, 0, LevelHistogram.decode("1;2;1"));
+    batch.addIndentation("core/src/main/java/B.java", 0, 1, 0, 0, 0, LevelHistogram.decode("3;1"));
+    val file = this.directory.resolve("indentation-modules-0000.csv");
+    try (val rollup = new IndentationRollup(new SourceDirectoryModuleResolver(), file)) {
+      rollup.add(new CommitDetails(COMMIT, List.of(), List.of(), List.of(), List.of(), batch));
+    }
+    batch.release();
+    Assertions.assertThat(Files.readAllLines(file))
+        .containsExactly(IndentationRollup.HEADER, "c1,core,2,8,0.63,0,2,2,2,4;3;1");
+  }
+
+  @Test
+  void testStreamsTheFilesOfACommit() throws IOException {
+    val file = this.directory.resolve("indentation-modules-0000.csv");
+    try (val rollup = new IndentationRollup(new SourceDirectoryModuleResolver(), file)) {
+      val commit = rollup.start(COMMIT);
+      commit.add("core/src/main/java/A.java", LevelHistogram.decode("0;2"));
+      commit.add("core/src/main/java/B.java", LevelHistogram.decode("0;0;2"));
+      commit.complete();
+    }
+    Assertions.assertThat(Files.readAllLines(file))
+        .containsExactly(IndentationRollup.HEADER, "c1,core,2,4,1.50,1,2,2,2,0;2;2");
+  }
+}
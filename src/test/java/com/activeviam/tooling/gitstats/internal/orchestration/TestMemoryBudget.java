@@ -0,0 +1,55 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestMemoryBudget {
+
+  @Test
+  void testParseSize() {
+    Assertions.assertThat(MemoryBudget.parseSize("512")).isEqualTo(512);
+    Assertions.assertThat(MemoryBudget.parseSize("4k")).isEqualTo(4096);
+    Assertions.assertThat(MemoryBudget.parseSize("512m")).isEqualTo(512L << 20);
+    Assertions.assertThat(MemoryBudget.parseSize("2G")).isEqualTo(2L << 30);
+    Assertions.assertThatThrownBy(() -> MemoryBudget.parseSize("lots"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void testAcceptsLargeElementInEmptyQueue() {
+    val budget = new MemoryBudget(100);
+    val queue = budget.queue("sizes", (Integer size) -> size);
+    queue.put(Action.value(1_000));
+    Assertions.assertThat(queue.take()).isEqualTo(Action.value(1_000));
+  }
+
+  @Test
+  void testBlocksUntilBytesAreReleased() throws Exception {
+    // Each action weighs its value plus 16 bytes
+    val budget = new MemoryBudget(150);
+    val first = budget.queue("first", (Integer size) -> size);
+    val second = budget.queue("second", (Integer size) -> size);
+    first.put(Action.value(40));
+    second.put(Action.value(40));
+
+    val blocked = CompletableFuture.runAsync(() -> second.put(Action.value(40)));
+    Assertions.assertThat(blocked).isNotDone();
+    Thread.sleep(50);
+    Assertions.assertThat(blocked).isNotDone();
+
+    // Bytes released by another queue unblock the producer
+    Assertions.assertThat(first.take()).isEqualTo(Action.value(40));
+    blocked.get(5, TimeUnit.SECONDS);
+    Assertions.assertThat(second.values()).hasSize(2);
+  }
+}
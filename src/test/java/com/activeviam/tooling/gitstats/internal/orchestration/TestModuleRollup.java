@@ -0,0 +1,96 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.CommitSampler.Period;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.modules.SourceDirectoryModuleResolver;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestModuleRollup {
+
+  @TempDir Path directory;
+
+  private static CommitDetails commit(final String date, final FileChanges... changes) {
+    return new CommitDetails(
+        new CommitInfo("c" + date, Instant.parse(date + "T12:00:00Z")),
+        List.of(changes),
+        List.of(),
+        List.of(),
+        List.of());
+  }
+
+  @Test
+  void testAggregatesByModuleAndWeek() throws IOException {
+    val rollup = new ModuleRollup(Period.WEEK, new SourceDirectoryModuleResolver());
+    rollup.add(
+        commit(
+            "2024-01-16",
+            new FileChanges("core/src/main/java/A.java", 10, 2),
+            new FileChanges("core/src/test/java/ATest.java", 5, 0),
+            new FileChanges("web/src/main/java/B.java", 1, 1)));
+    rollup.add(commit("2024-01-21", new FileChanges("core/src/main/java/logo.png", -1, -1)));
+    rollup.add(commit("2024-01-22", new FileChanges("core/src/main/java/A.java", 3, 3)));
+
+    val file = this.directory.resolve("rollup-week-0000.csv");
+    rollup.write(file);
+    Assertions.assertThat(Files.readAllLines(file))
+        .containsExactly(
+            ModuleRollup.HEADER,
+            "core,2024-01-15,15,2,3,2",
+            "web,2024-01-15,1,1,1,1",
+            "core,2024-01-22,3,3,1,1");
+  }
+
+  @Test
+  void testCountsStreamedCommitOnce() throws IOException {
+    val rollup = new ModuleRollup(Period.WEEK, new SourceDirectoryModuleResolver());
+    val touched = new HashSet<Integer>();
+    rollup.add(commit("2024-01-16", new FileChanges("core/src/main/java/A.java", 10, 2)), touched);
+    rollup.add(commit("2024-01-16", new FileChanges("core/src/main/java/B.java", 4, 0)), touched);
+
+    val file = this.directory.resolve("rollup-week-0000.csv");
+    rollup.write(file);
+    Assertions.assertThat(Files.readAllLines(file))
+        .containsExactly(ModuleRollup.HEADER, "core,2024-01-15,14,2,2,1");
+  }
+
+  @Test
+  void testConcurrentAdditions() throws IOException {
+    val rollup = new ModuleRollup(Period.MONTH, new SourceDirectoryModuleResolver());
+    IntStream.range(0, 10_000)
+        .parallel()
+        .forEach(
+            i ->
+                rollup.add(
+                    commit(
+                        "2024-03-" + String.format("%02d", 1 + i % 28),
+                        new FileChanges("m" + i % 3 + "/src/main/java/F.java", 1, 0))));
+
+    val file = this.directory.resolve("rollup-month-0000.csv");
+    rollup.write(file);
+    Assertions.assertThat(Files.readAllLines(file))
+        .containsExactly(
+            ModuleRollup.HEADER,
+            "m0,2024-03-01,3334,0,3334,3334",
+            "m1,2024-03-01,3333,0,3333,3333",
+            "m2,2024-03-01,3333,0,3333,3333");
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.modules.SourceDirectoryModuleResolver;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteChangesAction;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestOutputManifest {
+
+  @TempDir Path directory;
+
+  private static String sha1(final int index) {
+    final long hash = (index + 1) * 0x9E3779B97F4A7C15L;
+    return "%016x%016x%08x".formatted(hash, Long.rotateLeft(hash, 29) * 31, index);
+  }
+
+  private static CommitDetails commit(
+      final String sha1, final String date, final FileChanges... changes) {
+    return new CommitDetails(
+        new CommitInfo(sha1, Instant.parse(date + "T12:00:00Z")),
+        List.of(changes),
+        List.of(),
+        List.of(),
+        List.of());
+  }
+
+  @Test
+  void testDescribesWrittenFiles() throws IOException {
+    val manifest = new OutputManifest(this.directory, "manifest-history.json");
+    val queue = new Queue<Action<WriteChangesAction>>(10);
+    queue.put(
+        Action.value(
+            new WriteChangesAction(
+                List.of(
+                    commit(
+                        sha1(1),
+                        "2024-03-02",
+                        new FileChanges("core/src/main/java/B.java", 1, 0),
+                        new FileChanges("core/src/main/java/\"A\".java", 2, 1)),
+                    commit(
+                        sha1(2),
+                        "2024-01-20",
+                        new FileChanges("web/src/main/java/C.java", 4, 4))))));
+    queue.put(Action.stop());
+    new ChangeCsvWriterPipeline(
+            queue, this.directory, "changes-%04d.csv", new SourceDirectoryModuleResolver(), null)
+        .withManifest(manifest)
+        .run();
+
+    val size = Files.size(this.directory.resolve("changes-0000.csv"));
+    Assertions.assertThat(Files.readString(manifest.file()))
+        .startsWith("{\"version\":1,\"hashes\":7,\"files\":[\n")
+        .contains(
+            "{\"file\":\"changes-0000.csv\",\"rows\":3,\"bytes\":"
+                + size
+                + ",\"minDate\":\"2024-01-20T12:00:00Z\",\"maxDate\":\"2024-03-02T12:00:00Z\""
+                + ",\"minPath\":\"core/src/main/java/\\\"A\\\".java\""
+                + ",\"maxPath\":\"web/src/main/java/C.java\",\"commits\":2,\"bloomBits\":64,")
+        .endsWith("\"}\n]}\n");
+    Assertions.assertThat(this.directory.resolve("manifest-history.json.tmp")).doesNotExist();
+  }
+
+  @Test
+  void testDescribesEachRotatedFile() throws IOException {
+    val manifest = new OutputManifest(this.directory, "manifest-history.json");
+    val queue = new Queue<Action<WriteChangesAction>>(10);
+    // A single commit fills the first file, the next ones go into the second file
+    val changes =
+        IntStream.range(0, 1 << 14)
+            .mapToObj(i -> new FileChanges("core/F%05d.java".formatted(i), 1, 0))
+            .toArray(FileChanges[]::new);
+    queue.put(
+        Action.value(new WriteChangesAction(List.of(commit(sha1(0), "2024-01-10", changes)))));
+    queue.put(
+        Action.value(
+            new WriteChangesAction(
+                List.of(commit(sha1(1), "2024-02-10", new FileChanges("web/B.java", 1, 0))))));
+    queue.put(
+        Action.value(
+            new WriteChangesAction(
+                List.of(commit(sha1(2), "2024-03-10", new FileChanges("api/C.java", 1, 0))))));
+    queue.put(Action.stop());
+    new ChangeCsvWriterPipeline(
+            queue, this.directory, "changes-%04d.csv", new SourceDirectoryModuleResolver(), null)
+        .withManifest(manifest)
+        .run();
+
+    val lines = Files.readAllLines(manifest.file());
+    Assertions.assertThat(lines).hasSize(4);
+    Assertions.assertThat(lines.get(1))
+        .startsWith("{\"file\":\"changes-0000.csv\",\"rows\":16384,")
+        .contains(
+            ",\"minDate\":\"2024-01-10T12:00:00Z\",\"maxDate\":\"2024-01-10T12:00:00Z\""
+                + ",\"minPath\":\"core/F00000.java\",\"maxPath\":\"core/F16383.java\""
+                + ",\"commits\":1,\"bloomBits\":64,");
+    Assertions.assertThat(lines.get(2))
+        .startsWith("{\"file\":\"changes-0001.csv\",\"rows\":2,")
+        .contains(
+            ",\"minDate\":\"2024-02-10T12:00:00Z\",\"maxDate\":\"2024-03-10T12:00:00Z\""
+                + ",\"minPath\":\"api/C.java\",\"maxPath\":\"web/B.java\""
+                + ",\"commits\":2,\"bloomBits\":64,");
+  }
+
+  @Test
+  void testDropsFilterBeyondMaximalCommits() {
+    val stats = new FileStats();
+    for (int i = 0; i <= FileStats.MAX_COMMITS; i++) {
+      stats.addCommit(new CommitInfo(sha1(i), Instant.EPOCH));
+    }
+    Assertions.assertThat(stats.commitCount()).isEqualTo(FileStats.MAX_COMMITS + 1);
+    Assertions.assertThat(stats.hasFilter()).isFalse();
+    // Unknown dates of tree statistics are not part of the range
+    Assertions.assertThat(stats.minDate()).isNull();
+  }
+
+  @Test
+  void testSizesFilterWithoutFalseNegatives() {
+    val stats = new FileStats();
+    val commits = IntStream.range(0, 1000).mapToObj(TestOutputManifest::sha1).toList();
+    for (val sha1 : commits) {
+      stats.addCommit(new CommitInfo(sha1, Instant.EPOCH));
+    }
+    Assertions.assertThat(stats.commitCount()).isEqualTo(1000);
+    Assertions.assertThat(stats.filterBits()).isEqualTo(16384);
+
+    // Probe the filter the way a reader would
+    val bits = stats.filterBits();
+    val filter = stats.filter();
+    Assertions.assertThat(filter).hasSize(bits / 8);
+    for (val sha1 : commits) {
+      Assertions.assertThat(mayContain(filter, bits, sha1)).as(sha1).isTrue();
+    }
+    val falsePositives =
+        IntStream.range(1000, 11000)
+            .mapToObj(TestOutputManifest::sha1)
+            .filter(sha1 -> mayContain(filter, bits, sha1))
+            .count();
+    Assertions.assertThat(falsePositives).isLessThan(200);
+  }
+
+  private static boolean mayContain(final byte[] filter, final int bits, final String sha1) {
+    final long h1 = Long.parseUnsignedLong(sha1.substring(0, 16), 16);
+    final long h2 = Long.parseUnsignedLong(sha1.substring(16, 32), 16) | 1;
+    for (int k = 0; k < FileStats.HASHES; k++) {
+      final int bit = (int) ((h1 + k * h2) & (bits - 1));
+      if ((filter[bit / 8] & (1 << (bit % 8))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
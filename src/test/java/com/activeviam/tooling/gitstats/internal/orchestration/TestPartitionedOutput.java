@@ -0,0 +1,117 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.orchestration.WriteDispacher.WriteCommits;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestPartitionedOutput {
+
+  @TempDir Path directory;
+
+  private static CommitInfo commit(final String sha1, final String date) {
+    return new CommitInfo(sha1, Instant.parse(date + "T12:00:00Z"));
+  }
+
+  @Test
+  void testWritesOneDirectoryPerMonth() throws IOException {
+    val queue = new Queue<Action<WriteCommits>>(10);
+    queue.put(Action.value(new WriteCommits(List.of(commit("a", "2024-05-02")))));
+    queue.put(
+        Action.value(
+            new WriteCommits(List.of(commit("b", "2024-04-30"), commit("c", "2024-05-31")))));
+    queue.put(Action.stop());
+    new CommitCsvWritePipeline(queue, this.directory, "commits/month=%2$s/part-%04d.csv")
+        .partitionByMonth()
+        .run();
+
+    Assertions.assertThat(
+            Files.readAllLines(this.directory.resolve("commits/month=2024-05/part-0000.csv")))
+        .containsExactly(
+            CommitCsvWritePipeline.HEADER, "a,1714651200,2024-05-02", "c,1717156800,2024-05-31");
+    Assertions.assertThat(
+            Files.readAllLines(this.directory.resolve("commits/month=2024-04/part-0000.csv")))
+        .containsExactly(CommitCsvWritePipeline.HEADER, "b,1714478400,2024-04-30");
+  }
+
+  @Test
+  void testReopensEvictedPartitions() throws IOException {
+    // More months than open files, visited twice so that every partition is reopened
+    val months = 40;
+    val queue = new Queue<Action<WriteCommits>>(2 * months + 1);
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < months; i++) {
+        val date = YearMonth.of(2020, 1).plusMonths(i).atDay(1).atStartOfDay(ZoneOffset.UTC);
+        queue.put(
+            Action.value(
+                new WriteCommits(
+                    List.of(new CommitInfo("c" + round + "-" + i, date.toInstant())))));
+      }
+    }
+    queue.put(Action.stop());
+    new CommitCsvWritePipeline(queue, this.directory, "commits/month=%2$s/part-%04d.csv")
+        .partitionByMonth()
+        .run();
+
+    for (int i = 0; i < months; i++) {
+      val file =
+          this.directory.resolve(
+              "commits/month=" + YearMonth.of(2020, 1).plusMonths(i) + "/part-0000.csv");
+      Assertions.assertThat(Files.readAllLines(file))
+          .containsExactly(
+              CommitCsvWritePipeline.HEADER,
+              "c0-%d,%s".formatted(i, rowEnd(i)),
+              "c1-%d,%s".formatted(i, rowEnd(i)));
+    }
+  }
+
+  private static String rowEnd(final int month) {
+    val date = YearMonth.of(2020, 1).plusMonths(month).atDay(1);
+    return date.atStartOfDay(ZoneOffset.UTC).toEpochSecond() + "," + date;
+  }
+
+  @Test
+  void testAppendsToExistingFiles() throws IOException {
+    for (val sha1 : List.of("a", "b")) {
+      val queue = new Queue<Action<WriteCommits>>(10);
+      queue.put(Action.value(new WriteCommits(List.of(commit(sha1, "2024-05-02")))));
+      queue.put(Action.stop());
+      new CommitCsvWritePipeline(queue, this.directory, "commits/month=%2$s/part-%04d.csv")
+          .partitionByMonth()
+          .appendToExisting()
+          .run();
+    }
+
+    Assertions.assertThat(
+            Files.readAllLines(this.directory.resolve("commits/month=2024-05/part-0000.csv")))
+        .containsExactly(
+            CommitCsvWritePipeline.HEADER, "a,1714651200,2024-05-02", "b,1714651200,2024-05-02");
+  }
+
+  @Test
+  void testKeepsFlatSeriesWithoutPartitions() throws IOException {
+    val queue = new Queue<Action<WriteCommits>>(10);
+    queue.put(Action.value(new WriteCommits(List.of(commit("a", "2024-05-02")))));
+    queue.put(Action.stop());
+    new CommitCsvWritePipeline(queue, this.directory, "commits-%04d.csv").run();
+
+    Assertions.assertThat(Files.readAllLines(this.directory.resolve("commits-0000.csv")))
+        .containsExactly(CommitCsvWritePipeline.HEADER, "a,1714651200,2024-05-02");
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestReorderBuffer {
+
+  @Test
+  void testReleasesInSequenceOrder() {
+    val released = new ArrayList<String>();
+    val buffer = new ReorderBuffer<String>(4, released::add);
+    IntStream.range(0, 4).forEach(buffer::reserve);
+    buffer.complete(2, "c");
+    buffer.complete(1, "b");
+    Assertions.assertThat(released).isEmpty();
+
+    buffer.complete(0, "a");
+    Assertions.assertThat(released).containsExactly("a", "b", "c");
+    buffer.complete(3, "d");
+    Assertions.assertThat(released).containsExactly("a", "b", "c", "d");
+  }
+
+  @Test
+  void testBlocksProducersBehindSlowHead() throws InterruptedException {
+    val released = Collections.synchronizedList(new ArrayList<Integer>());
+    val buffer = new ReorderBuffer<Integer>(2, released::add);
+    buffer.reserve(0);
+    buffer.reserve(1);
+    buffer.complete(1, 1);
+
+    val reserved = new CountDownLatch(1);
+    val producer =
+        Thread.ofPlatform()
+            .start(
+                () -> {
+                  buffer.reserve(2);
+                  reserved.countDown();
+                });
+    Assertions.assertThat(reserved.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+    buffer.complete(0, 0);
+    Assertions.assertThat(reserved.await(5, TimeUnit.SECONDS)).isTrue();
+    producer.join();
+    Assertions.assertThat(released).containsExactly(0, 1);
+  }
+
+  @Test
+  void testConcurrentCompletions() throws InterruptedException {
+    val released = Collections.synchronizedList(new ArrayList<Integer>());
+    val buffer = new ReorderBuffer<Integer>(8, released::add);
+    try (val executor = Executors.newFixedThreadPool(4)) {
+      for (int i = 0; i < 1_000; i++) {
+        final int sequence = i;
+        buffer.reserve(sequence);
+        executor.submit(
+            () -> {
+              if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                Thread.sleep(1);
+              }
+              buffer.complete(sequence, sequence);
+              return null;
+            });
+      }
+    }
+    Assertions.assertThat(released).isEqualTo(IntStream.range(0, 1_000).boxed().toList());
+  }
+
+  @Test
+  void testRejectsUnreservedSequence() {
+    val buffer = new ReorderBuffer<String>(2, List.<String>of()::add);
+    Assertions.assertThatThrownBy(() -> buffer.complete(5, "x"))
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
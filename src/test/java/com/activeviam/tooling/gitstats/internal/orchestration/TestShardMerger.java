@@ -0,0 +1,70 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestShardMerger {
+
+  @TempDir Path directory;
+
+  @Test
+  void testFilesAreNumberedInShardOrder() throws IOException {
+    write("changes-s001-0000.csv", "shard 1, file 0");
+    write("changes-s000-0001.csv", "shard 0, file 1");
+    write("changes-s010-0000.csv", "shard 10, file 0");
+    write("changes-s000-0000.csv", "shard 0, file 0");
+    write("commits-s001-0000.csv", "commits of shard 1");
+    write("notes.txt", "untouched");
+
+    Assertions.assertThat(ShardMerger.merge(this.directory)).isEqualTo(5);
+
+    Assertions.assertThat(read("changes-0000.csv")).isEqualTo("shard 0, file 0");
+    Assertions.assertThat(read("changes-0001.csv")).isEqualTo("shard 0, file 1");
+    Assertions.assertThat(read("changes-0002.csv")).isEqualTo("shard 1, file 0");
+    Assertions.assertThat(read("changes-0003.csv")).isEqualTo("shard 10, file 0");
+    Assertions.assertThat(read("commits-0000.csv")).isEqualTo("commits of shard 1");
+    Assertions.assertThat(read("notes.txt")).isEqualTo("untouched");
+  }
+
+  @Test
+  void testSumsTheRollupsOfAllShards() throws IOException {
+    write(
+        "rollup-week-s000-0000.csv",
+        ModuleRollup.HEADER + "\ncore,2024-01-15,10,2,3,2\nweb,2024-01-22,1,1,1,1\n");
+    write(
+        "rollup-week-s001-0000.csv",
+        ModuleRollup.HEADER + "\napi,2024-01-15,4,0,1,1\ncore,2024-01-15,5,5,2,1\n");
+
+    Assertions.assertThat(ShardMerger.merge(this.directory)).isEqualTo(2);
+
+    Assertions.assertThat(Files.readAllLines(this.directory.resolve("rollup-week-0000.csv")))
+        .containsExactly(
+            ModuleRollup.HEADER,
+            "api,2024-01-15,4,0,1,1",
+            "core,2024-01-15,15,7,5,3",
+            "web,2024-01-22,1,1,1,1");
+    Assertions.assertThat(this.directory.resolve("rollup-week-s000-0000.csv")).doesNotExist();
+    Assertions.assertThat(this.directory.resolve("rollup-week-s001-0000.csv")).doesNotExist();
+  }
+
+  private void write(final String name, final String content) throws IOException {
+    Files.writeString(this.directory.resolve(name), content);
+  }
+
+  private String read(final String name) throws IOException {
+    val file = this.directory.resolve(name);
+    return Files.readString(file);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitDetails;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.CommitInfo;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileChanges;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileIndentationStats;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileLineCount;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FileRenaming;
+import com.activeviam.tooling.gitstats.internal.sketch.LevelHistogram;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestSpillingQueue {
+
+  @TempDir Path directory;
+
+  @Test
+  void testKeepsOrderAcrossSpills() {
+    val taken = new ArrayList<Action<CommitDetails>>();
+    val expected = new ArrayList<Action<CommitDetails>>();
+    try (val queue = new SpillingQueue<>(3, this.directory, new CommitDetailsSpillCodec())) {
+      for (int i = 0; i < 10; i++) {
+        expected.add(Action.value(details(i)));
+        queue.put(expected.getLast());
+      }
+      // Drain part of the file, then spill again behind it
+      for (int i = 0; i < 4; i++) {
+        taken.add(queue.take());
+      }
+      for (int i = 10; i < 15; i++) {
+        expected.add(Action.value(details(i)));
+        queue.put(expected.getLast());
+      }
+      expected.add(Action.stop());
+      queue.put(Action.stop());
+      while (taken.size() < expected.size()) {
+        taken.add(queue.take());
+      }
+    }
+    Assertions.assertThat(taken).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  void testRestartsAfterDrain() {
+    try (val queue = new SpillingQueue<>(1, this.directory, new CommitDetailsSpillCodec())) {
+      for (int round = 0; round < 3; round++) {
+        queue.put(Action.value(details(round)));
+        queue.put(Action.value(details(round + 10)));
+        Assertions.assertThat(queue.take()).isEqualTo(Action.value(details(round)));
+        Assertions.assertThat(queue.take()).isEqualTo(Action.value(details(round + 10)));
+      }
+    }
+  }
+
+  @Test
+  void testDeletesFileOnClose() throws IOException {
+    try (val queue = new SpillingQueue<>(1, this.directory, new CommitDetailsSpillCodec())) {
+      queue.put(Action.value(details(1)));
+      queue.put(Action.value(details(2)));
+      try (val files = Files.list(this.directory)) {
+        Assertions.assertThat(files).hasSize(1);
+      }
+    }
+    try (val files = Files.list(this.directory)) {
+      Assertions.assertThat(files).isEmpty();
+    }
+  }
+
+  private static CommitDetails details(final int index) {
+    return new CommitDetails(
+        new CommitInfo("%040x".formatted(index), Instant.ofEpochSecond(1_700_000_000L + index)),
+        List.of(new FileChanges("src/A.java", index, 2), new FileChanges("logo.png", -1, -1)),
+        List.of(new FileRenaming("src/B.java", "src/C" + index + ".java")),
+        List.of(new FileLineCount("src/A.java", 100 + index)),
+        List.of(
+            new FileIndentationStats(
+                "src/A.java",
+                0,
+                3 + index,
+                1.25,
+                1,
+                index,
+                LevelHistogram.decode("2;0;" + index))));
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.orchestration;
+
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Stop;
+import com.activeviam.tooling.gitstats.internal.orchestration.Action.Value;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestWriterShards {
+
+  @Test
+  void testRoutesChunksOfACommitToTheSameWriter() {
+    val shards = new WriterShards<String>(4, _ -> new Queue<>(10));
+    val commit = "c3a1f0e2b4d6a8c0e2f4a6b8c0d2e4f6a8b0c2d4";
+    shards.put(commit, "first");
+    shards.put(commit, "second");
+
+    val shard = WriterShards.shardOf(commit, 4);
+    Assertions.assertThat(shards.queue(shard).take()).isEqualTo(new Value<>("first"));
+    Assertions.assertThat(shards.queue(shard).take()).isEqualTo(new Value<>("second"));
+  }
+
+  @Test
+  void testSpreadsCommitsEvenly() {
+    val random = new Random(42);
+    val counts = new int[3];
+    for (int i = 0; i < 30_000; i++) {
+      val id = new byte[20];
+      random.nextBytes(id);
+      counts[WriterShards.shardOf(HexFormat.of().formatHex(id), 3)]++;
+    }
+    Assertions.assertThat(Arrays.stream(counts).boxed().toList())
+        .allSatisfy(count -> Assertions.assertThat(count).isBetween(9_500, 10_500));
+  }
+
+  @Test
+  void testStopsAllWriters() {
+    val shards = new WriterShards<String>(3, _ -> new Queue<>(10));
+    shards.stop();
+    IntStream.range(0, 3)
+        .forEach(i -> Assertions.assertThat(shards.queue(i).take()).isInstanceOf(Stop.class));
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.query;
+
+import com.activeviam.tooling.gitstats.internal.query.Aggregation.Dimension;
+import com.activeviam.tooling.gitstats.internal.query.Aggregation.Measure;
+import com.activeviam.tooling.gitstats.internal.query.Aggregation.Row;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestAggregation {
+
+  private static long epochSecond(final String date) {
+    return LocalDate.parse(date).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+  }
+
+  private static ChangeTable createTable() {
+    val table = new ChangeTable();
+    table.add("c1", epochSecond("2024-01-15"), "core/src/main/A.java", "core", 10, 2);
+    table.add("c1", epochSecond("2024-01-15"), "web/src/main/B.java", "web", 5, 0);
+    table.add("c2", epochSecond("2024-02-01"), "core/src/main/A.java", "core", 1, 1);
+    table.add("c3", epochSecond("2024-02-20"), "core/logo.png", "core", -1, -1);
+    return table;
+  }
+
+  @Test
+  void testGroupByModuleAndMonth() {
+    val rows =
+        new Aggregation(List.of(Dimension.MODULE, Dimension.MONTH))
+            .top(Measure.CHURN, 10)
+            .execute(createTable());
+    Assertions.assertThat(rows)
+        .extracting(Row::keys)
+        .containsExactly(
+            List.of("core", "2024-01"), List.of("web", "2024-01"), List.of("core", "2024-02"));
+    Assertions.assertThat(rows.get(2).get(Measure.CHANGES)).isEqualTo(2);
+    Assertions.assertThat(rows.get(2).get(Measure.CHURN)).isEqualTo(2);
+  }
+
+  @Test
+  void testFilters() {
+    val rows =
+        new Aggregation(List.of(Dimension.PATH))
+            .where(Dimension.PATH, "core/src/")
+            .since(epochSecond("2024-01-20"))
+            .execute(createTable());
+    Assertions.assertThat(rows).hasSize(1);
+    Assertions.assertThat(rows.get(0).keys()).containsExactly("core/src/main/A.java");
+    Assertions.assertThat(rows.get(0).get(Measure.ADDITIONS)).isEqualTo(1);
+  }
+
+  @Test
+  void testParallelScanMatchesTotal() {
+    val table = new ChangeTable();
+    for (int i = 0; i < 500_000; i++) {
+      table.add("c" + (i % 1000), i * 60L, "f" + (i % 7), "m" + (i % 3), 1, 2);
+    }
+    val rows = new Aggregation(List.of(Dimension.MODULE)).execute(table);
+    Assertions.assertThat(rows).hasSize(3);
+    Assertions.assertThat(rows.stream().mapToLong(row -> row.get(Measure.CHANGES)).sum())
+        .isEqualTo(500_000);
+    Assertions.assertThat(rows.stream().mapToLong(row -> row.get(Measure.CHURN)).sum())
+        .isEqualTo(1_500_000);
+  }
+
+  @Test
+  void testWeekStartsOnMonday() {
+    val rows = new Aggregation(List.of(Dimension.WEEK)).execute(createTable());
+    // 2024-01-15 is a Monday, 2024-02-01 a Thursday, 2024-02-20 a Tuesday
+    Assertions.assertThat(rows)
+        .extracting(row -> row.keys().get(0))
+        .containsExactlyInAnyOrder("2024-01-15", "2024-01-29", "2024-02-19");
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.query;
+
+import com.activeviam.tooling.gitstats.internal.orchestration.ChangeCsvWriterPipeline;
+import com.activeviam.tooling.gitstats.internal.orchestration.CommitCsvWritePipeline;
+import com.activeviam.tooling.gitstats.internal.query.Aggregation.Dimension;
+import com.activeviam.tooling.gitstats.internal.query.Aggregation.Measure;
+import com.activeviam.tooling.gitstats.internal.query.Aggregation.Row;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestChangeTableLoader {
+
+  @TempDir Path directory;
+
+  private void write(final String file, final String header, final String... rows)
+      throws IOException {
+    val path = this.directory.resolve(file);
+    Files.createDirectories(path.getParent());
+    Files.writeString(path, header + "\n" + String.join("\n", rows) + "\n");
+  }
+
+  @Test
+  void testLoadsFilesPartitionedByMonth() throws IOException {
+    write(
+        "commits/month=2024-01/part-0000.csv",
+        CommitCsvWritePipeline.HEADER,
+        "c1,1705312800,2024-01-15");
+    write(
+        "commits/month=2024-02/part-0000.csv",
+        CommitCsvWritePipeline.HEADER,
+        "c2,1706781600,2024-02-01");
+    write(
+        "changes/month=2024-01/part-0000.csv",
+        ChangeCsvWriterPipeline.HEADER,
+        "c1,core,A.java,core/A.java,10,2",
+        "c1,web,B.java,web/B.java,5,0");
+    write(
+        "changes/month=2024-02/part-0000.csv",
+        ChangeCsvWriterPipeline.HEADER,
+        "c2,core,A.java,core/A.java,1,1");
+
+    val table = ChangeTableLoader.load(this.directory);
+
+    Assertions.assertThat(table.size()).isEqualTo(3);
+    val rows =
+        new Aggregation(List.of(Dimension.MODULE, Dimension.MONTH))
+            .top(Measure.CHURN, 10)
+            .execute(table);
+    Assertions.assertThat(rows)
+        .extracting(Row::keys)
+        .containsExactly(
+            List.of("core", "2024-01"), List.of("web", "2024-01"), List.of("core", "2024-02"));
+    Assertions.assertThat(rows.get(2).get(Measure.CHURN)).isEqualTo(2);
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.server;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestNdjson {
+
+  @Test
+  void testQuotesPlainStrings() {
+    Assertions.assertThat(Ndjson.quote("src/Main.java")).isEqualTo("\"src/Main.java\"");
+    Assertions.assertThat(Ndjson.quote("")).isEqualTo("\"\"");
+  }
+
+  @Test
+  void testEscapesQuotesAndBackslashes() {
+    Assertions.assertThat(Ndjson.quote("say \"hi\"")).isEqualTo("\"say \\\"hi\\\"\"");
+    Assertions.assertThat(Ndjson.quote("C:\\dir\\")).isEqualTo("\"C:\\\\dir\\\\\"");
+  }
+
+  @Test
+  void testEscapesControlCharacters() {
+    Assertions.assertThat(Ndjson.quote("a\nb\rc\td")).isEqualTo("\"a\\nb\\rc\\td\"");
+    Assertions.assertThat(Ndjson.quote("\u0000\u001f")).isEqualTo("\"\\u0000\\u001f\"");
+    Assertions.assertThat(Ndjson.quote("\u007fé")).isEqualTo("\"\u007fé\"");
+  }
+}
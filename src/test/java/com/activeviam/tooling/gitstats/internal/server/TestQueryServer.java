@@ -0,0 +1,114 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.server;
+
+import com.activeviam.tooling.gitstats.GitFixture;
+import com.activeviam.tooling.gitstats.ProgramException;
+import com.activeviam.tooling.gitstats.internal.explorer.ReadCommitDetails.FetchMode;
+import com.activeviam.tooling.gitstats.internal.orchestration.FetchBudget;
+import com.activeviam.tooling.gitstats.internal.server.QueryServer.Dataset;
+import com.activeviam.tooling.gitstats.internal.server.QueryServer.Query;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestQueryServer {
+
+  @TempDir Path directory;
+
+  private final List<String> commits = new ArrayList<>();
+  private RepositoryState repository;
+
+  @BeforeEach
+  void createRepository() {
+    val fixture = GitFixture.init(this.directory);
+    for (int i = 0; i < 4; i++) {
+      fixture.write("file.txt", "version " + i + "\n");
+      this.commits.add(fixture.commit("Commit " + i, "2024-05-0" + (i + 1) + "T10:00:00Z"));
+    }
+    fixture.git("tag", "v1", this.commits.get(1));
+    this.repository = new RepositoryState("project", this.directory, new FetchBudget(1), 4);
+  }
+
+  @AfterEach
+  void closeRepository() {
+    this.repository.close();
+  }
+
+  private Query parse(final String rawQuery, final FetchMode mode) {
+    return Query.parse(rawQuery, mode, Map.of("project", this.repository));
+  }
+
+  @Test
+  void testDefaultsToTheHeadOfTheOnlyRepository() {
+    val query = parse(null, FetchMode.HISTORY);
+
+    Assertions.assertThat(query.repository()).isSameAs(this.repository);
+    Assertions.assertThat(query.revisions()).isEqualTo("HEAD");
+    Assertions.assertThat(query.count()).isEqualTo(100);
+    Assertions.assertThat(query.csv()).isFalse();
+    Assertions.assertThat(query.dataset()).isNull();
+  }
+
+  @Test
+  void testDecodesParameters() {
+    val query =
+        parse(
+            "repository=project&revisions=v1%2E%2EHEAD&count=2&indent=4s&all-files=true"
+                + "&format=csv&dataset=lines",
+            FetchMode.TREE_STATS);
+
+    Assertions.assertThat(query.revisions()).isEqualTo("v1..HEAD");
+    Assertions.assertThat(query.count()).isEqualTo(2);
+    Assertions.assertThat(query.indentSpec()).isNotNull();
+    Assertions.assertThat(query.allFiles()).isTrue();
+    Assertions.assertThat(query.csv()).isTrue();
+    Assertions.assertThat(query.dataset()).isEqualTo(Dataset.LINES);
+  }
+
+  @Test
+  void testRejectsInvalidParameters() {
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> parse("repository=other", FetchMode.HISTORY));
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> parse("revisions=--all", FetchMode.HISTORY));
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> parse("count=many", FetchMode.HISTORY));
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> parse("count=0", FetchMode.HISTORY));
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> parse("revisions=HEAD", FetchMode.TREE_STATS));
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> parse("format=csv", FetchMode.HISTORY));
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> parse("format=csv&dataset=unknown", FetchMode.HISTORY));
+  }
+
+  @Test
+  void testIgnoresParametersWithoutName() {
+    Assertions.assertThat(QueryServer.Query.parseParameters("=x&count=3&flag&a=b%26c"))
+        .containsExactlyInAnyOrderEntriesOf(Map.of("count", "3", "a", "b&c"));
+  }
+
+  @Test
+  void testListsTheCommitsOfARange() {
+    Assertions.assertThat(this.repository.listCommits("v1..HEAD", 10))
+        .containsExactly(this.commits.get(3), this.commits.get(2));
+    Assertions.assertThat(this.repository.listCommits("HEAD", 3))
+        .containsExactly(this.commits.get(3), this.commits.get(2), this.commits.get(1));
+    Assertions.assertThatThrownBy(() -> this.repository.listCommits("unknown..HEAD", 10))
+        .isInstanceOf(ProgramException.class);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.shell;
+
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader.FileDiff;
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader.Hunk;
+import com.activeviam.tooling.gitstats.internal.shell.HunkReader.LineCount;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestHunkReader {
+
+  @Test
+  void testParseHunkHeader() {
+    Assertions.assertThat(HunkReader.parseHunkHeader("@@ -2,0 +3,2 @@"))
+        .isEqualTo(new Hunk(2, 0, 3, 2));
+    Assertions.assertThat(HunkReader.parseHunkHeader("@@ -7 +7 @@ class A {"))
+        .isEqualTo(new Hunk(7, 1, 7, 1));
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> HunkReader.parseHunkHeader("@@@ -1 -1 +1 @@@"));
+  }
+
+  @Test
+  void testParseLineCount() {
+    Assertions.assertThat(HunkReader.parseLineCount("12\t0\tdocs/résumé.txt"))
+        .contains(new LineCount("docs/résumé.txt", 12));
+    Assertions.assertThat(HunkReader.parseLineCount("-\t-\tlogo.png")).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  void testParseDiff() {
+    val diffs = new ArrayList<FileDiff>();
+    val commits = new ArrayList<String>();
+    val parser =
+        new HunkReader.Parser(
+            new HunkReader.Listener() {
+              @Override
+              public void onCommit(final String sha1, final long epochSecond) {
+                commits.add(sha1 + "@" + epochSecond);
+              }
+
+              @Override
+              public void onFile(final FileDiff diff) {
+                diffs.add(diff);
+              }
+            });
+    List.of(
+            "commit abc 1700000000",
+            "",
+            "diff --git a/A.java b/A.java",
+            "index 1..2 100644",
+            "--- a/A.java",
+            "+++ b/A.java",
+            "@@ -1 +1 @@",
+            "-diff --git a/X b/X",
+            "+commit not a header",
+            "\\ No newline at end of file",
+            "diff --git a/old/B.java b/new/B.java",
+            "similarity index 100%",
+            "rename from old/B.java",
+            "rename to new/B.java",
+            "diff --git a/C.java b/C.java",
+            "deleted file mode 100644",
+            "--- a/C.java",
+            "+++ /dev/null",
+            "@@ -1,2 +0,0 @@",
+            "-a",
+            "-b",
+            "diff --git a/logo.png b/logo.png",
+            "new file mode 100644",
+            "Binary files /dev/null and b/logo.png differ")
+        .forEach(parser::accept);
+    parser.finish();
+
+    Assertions.assertThat(commits).containsExactly("abc@1700000000");
+    Assertions.assertThat(diffs)
+        .containsExactly(
+            new FileDiff("A.java", "A.java", false, List.of(new Hunk(1, 1, 1, 1))),
+            new FileDiff("old/B.java", "new/B.java", false, List.of()),
+            new FileDiff("C.java", null, false, List.of(new Hunk(1, 2, 0, 0))),
+            new FileDiff(null, "logo.png", true, List.of()));
+  }
+
+  @Test
+  void testParseDiffOfPathsWithSpaces() {
+    val diffs = new ArrayList<FileDiff>();
+    val parser =
+        new HunkReader.Parser(
+            new HunkReader.Listener() {
+              @Override
+              public void onCommit(final String sha1, final long epochSecond) {}
+
+              @Override
+              public void onFile(final FileDiff diff) {
+                diffs.add(diff);
+              }
+            });
+    // Git ends the file headers with a tab when the path contains a space
+    List.of(
+            "commit abc 1700000000",
+            "diff --git a/docs/foo bar.txt b/docs/foo bar.txt",
+            "index 1..2 100644",
+            "--- a/docs/foo bar.txt\t",
+            "+++ b/docs/foo bar.txt\t",
+            "@@ -1 +1,2 @@",
+            "-a",
+            "+A",
+            "+b",
+            "diff --git a/new file.txt b/new file.txt",
+            "new file mode 100644",
+            "--- /dev/null",
+            "+++ b/new file.txt\t",
+            "@@ -0,0 +1 @@",
+            "+x")
+        .forEach(parser::accept);
+    parser.finish();
+
+    Assertions.assertThat(diffs)
+        .containsExactly(
+            new FileDiff(
+                "docs/foo bar.txt", "docs/foo bar.txt", false, List.of(new Hunk(1, 1, 1, 2))),
+            new FileDiff(null, "new file.txt", false, List.of(new Hunk(0, 0, 1, 1))));
+  }
+}
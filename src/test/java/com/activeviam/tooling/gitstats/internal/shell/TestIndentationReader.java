@@ -191,6 +191,8 @@ class TestIndentationReader {
       Assertions.assertThat(stats.medianIndent()).isEqualTo(1);
       // Lines: 0, 1, 2, 1, 0 → 1 bump (rise 0→1→2, then fall 2→1→0)
       Assertions.assertThat(stats.bumps()).isEqualTo(1);
+      // Lines: 2 at level 0, 2 at level 1, 1 at level 2
+      Assertions.assertThat(stats.histogram().encode()).isEqualTo("2;2;1");
     }
 
     @Test
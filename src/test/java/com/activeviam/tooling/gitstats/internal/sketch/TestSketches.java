@@ -0,0 +1,165 @@
+/*
+ * (C) ActiveViam 2024
+ * ALL RIGHTS RESERVED. This material is the CONFIDENTIAL and PROPRIETARY
+ * property of ActiveViam. Any unauthorized use,
+ * reproduction or transfer of this material is strictly prohibited
+ */
+
+package com.activeviam.tooling.gitstats.internal.sketch;
+
+import com.activeviam.tooling.gitstats.internal.sketch.SpaceSaving.Counter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import lombok.val;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Percentage;
+import org.junit.jupiter.api.Test;
+
+class TestSketches {
+
+  /** Zipf-like stream, where key {@code k} appears about {@code 1 / k} times as often. */
+  private static Map<String, Long> feed(final int events, final long seed, final Counting output) {
+    val random = new Random(seed);
+    val counts = new HashMap<String, Long>();
+    for (int i = 0; i < events; i++) {
+      val key = "file-" + (int) Math.floor(Math.exp(random.nextDouble() * Math.log(10_000)));
+      counts.merge(key, 1L, Long::sum);
+      output.add(key);
+    }
+    return counts;
+  }
+
+  private interface Counting {
+    void add(String key);
+  }
+
+  @Test
+  void testSpaceSavingBoundsCounts() {
+    val summary = new SpaceSaving(100);
+    val counts = feed(100_000, 1, key -> summary.add(key, 1));
+
+    Assertions.assertThat(summary.total()).isEqualTo(100_000);
+    val top = summary.top(10);
+    Assertions.assertThat(top).hasSize(10);
+    for (final Counter counter : top) {
+      val actual = counts.getOrDefault(counter.key(), 0L);
+      Assertions.assertThat(counter.count()).isGreaterThanOrEqualTo(actual);
+      Assertions.assertThat(counter.count() - counter.error()).isLessThanOrEqualTo(actual);
+    }
+    Assertions.assertThat(top.getFirst().key()).isEqualTo("file-1");
+    Assertions.assertThat(top)
+        .extracting(Counter::count)
+        .isSortedAccordingTo(Comparator.reverseOrder());
+  }
+
+  @Test
+  void testMergedSpaceSavingFindsHeavyHitters() {
+    val left = new SpaceSaving(50);
+    val right = new SpaceSaving(50);
+    for (int i = 0; i < 1000; i++) {
+      left.add("left-" + i, 1);
+      right.add("right-" + i, 1);
+    }
+    left.add("hot", 300);
+    right.add("hot", 200);
+    right.add("warm", 250);
+
+    left.merge(right);
+    Assertions.assertThat(left.total()).isEqualTo(2750);
+    Assertions.assertThat(left.top(2)).extracting(Counter::key).containsExactly("hot", "warm");
+    Assertions.assertThat(left.top(1).getFirst().count()).isGreaterThanOrEqualTo(500);
+  }
+
+  @Test
+  void testCountMinNeverUnderestimates() {
+    val sketch = new CountMinSketch(1 << 10, 4);
+    val counts = feed(50_000, 2, key -> sketch.add(key, 1));
+
+    counts.forEach(
+        (key, count) -> Assertions.assertThat(sketch.estimate(key)).isGreaterThanOrEqualTo(count));
+    Assertions.assertThat(sketch.estimate("file-1"))
+        .isCloseTo(counts.get("file-1"), Percentage.withPercentage(5));
+    Assertions.assertThat(sketch.estimate("never-seen")).isLessThan(200);
+  }
+
+  @Test
+  void testMergedCountMinAddsCounts() {
+    val left = new CountMinSketch(256, 3);
+    val right = new CountMinSketch(256, 3);
+    left.add("a", 3);
+    right.add("a", 4);
+    right.add("b", 1);
+
+    left.merge(right);
+    Assertions.assertThat(left.estimate("a")).isGreaterThanOrEqualTo(7);
+    Assertions.assertThat(left.estimate("b")).isGreaterThanOrEqualTo(1);
+  }
+
+  @Test
+  void testHyperLogLogStaysSmallForFewKeys() {
+    val sketch = new HyperLogLog(10);
+    for (int i = 0; i < 20; i++) {
+      sketch.add("src/main/java/File" + i + ".java");
+      sketch.add("src/main/java/File" + i + ".java");
+    }
+    Assertions.assertThat(sketch.estimate()).isBetween(18L, 22L);
+    Assertions.assertThat(sketch.byteSize()).isLessThan(1 << 10);
+  }
+
+  @Test
+  void testHyperLogLogEstimatesLargeCardinalities() {
+    val sketch = new HyperLogLog(10);
+    for (int i = 0; i < 100_000; i++) {
+      sketch.add("path-" + i);
+    }
+    Assertions.assertThat(sketch.estimate()).isCloseTo(100_000, Percentage.withPercentage(10));
+    Assertions.assertThat(sketch.byteSize()).isEqualTo(1 << 10);
+  }
+
+  @Test
+  void testMergedHyperLogLogCountsTheUnion() {
+    val left = new HyperLogLog(12);
+    val right = new HyperLogLog(12);
+    val small = new HyperLogLog(12);
+    for (int i = 0; i < 30_000; i++) {
+      left.add("path-" + i);
+      right.add("path-" + (i + 20_000));
+    }
+    small.add("path-0");
+    small.add("extra");
+
+    left.merge(right);
+    left.merge(small);
+    Assertions.assertThat(left.estimate()).isCloseTo(50_001, Percentage.withPercentage(5));
+  }
+
+  @Test
+  void testLevelHistogramGivesExactQuantiles() {
+    val histogram = new LevelHistogram();
+    IntStream.range(0, 100).forEach(i -> histogram.add(i % 10 < 7 ? 1 : i % 10 - 5));
+
+    Assertions.assertThat(histogram.count()).isEqualTo(100);
+    Assertions.assertThat(histogram.encode()).isEqualTo("0;70;10;10;10");
+    Assertions.assertThat(histogram.quantile(0.5)).isEqualTo(1);
+    Assertions.assertThat(histogram.quantile(0.7)).isEqualTo(1);
+    Assertions.assertThat(histogram.quantile(0.71)).isEqualTo(2);
+    Assertions.assertThat(histogram.quantile(1)).isEqualTo(4);
+    Assertions.assertThat(histogram.maxLevel()).isEqualTo(4);
+    Assertions.assertThat(histogram.mean()).isCloseTo(1.6, Assertions.within(1e-9));
+    Assertions.assertThat(new LevelHistogram().quantile(0.5)).isEqualTo(-1);
+  }
+
+  @Test
+  void testMergedLevelHistogramsRoundTrip() {
+    val left = LevelHistogram.decode("3;1");
+    left.merge(LevelHistogram.decode("0;0;0;2"));
+
+    Assertions.assertThat(left.encode()).isEqualTo("3;1;0;2");
+    Assertions.assertThat(LevelHistogram.decode(left.encode())).isEqualTo(left);
+    Assertions.assertThat(left.quantile(0.9)).isEqualTo(3);
+    Assertions.assertThat(LevelHistogram.decode("").count()).isZero();
+  }
+}